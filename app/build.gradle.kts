@@ -15,6 +15,10 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // Per-row logging in the chat adapters' bind paths. Off, so scrolling builds no log
+        // strings; set to "true" locally when debugging binds.
+        buildConfigField("boolean", "LOG_BINDS", "false")
         
         // Fix for INSTALL_FAILED_TEST_ONLY - Allow installation from unknown sources
         setProperty("archivesBaseName", "Talkifyy-v$versionName")
@@ -38,6 +42,9 @@ android {
             isShrinkResources = false
         }
     }
+    buildFeatures {
+        buildConfig = true
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
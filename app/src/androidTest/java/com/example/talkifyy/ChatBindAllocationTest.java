@@ -0,0 +1,237 @@
+package com.example.talkifyy;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.talkifyy.adapter.ChatRecyclerAdapter;
+import com.example.talkifyy.adapter.PagedChatMessageArray;
+import com.example.talkifyy.adapter.RecentChatRecyclerAdapter;
+import com.example.talkifyy.model.ChatListItem;
+import com.example.talkifyy.model.ChatMessageModel;
+import com.example.talkifyy.model.ChatroomModel;
+import com.example.talkifyy.utils.ChatListRepository;
+import com.firebase.ui.firestore.FirestoreRecyclerOptions;
+import com.google.firebase.Timestamp;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Objects allocated on the main thread per steady-state rebind of a chat row and of a chat
+ * list row, i.e. what a scroll through rows already seen costs. The binds themselves allocate
+ * nothing; the budget leaves room for what TextView.setText may allocate internally on some
+ * platform versions. Log strings, per-bind listeners or a FirebaseAuth lookup per row each
+ * cost several objects per bind and fail this.
+ * Image rows are rebound in place (a change without payload): a row landing on another image
+ * starts a Glide request, which allocates inside Glide, but one still showing its image must
+ * not build a request, listener or placeholder again.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ChatBindAllocationTest {
+    private static final String TAG = "ChatBindAllocationTest";
+    private static final String CHATROOM_ID = "alloc_test";
+    private static final String SENDER_ID = "alloc_test_sender";
+    private static final String IMAGE_URL = "https://example.invalid/alloc_test/image_";
+    private static final int GRID_IMAGES = 4;
+    private static final int ROWS = 20;
+    private static final int WARMUP_BINDS = 200;
+    private static final int MEASURED_BINDS = 2000;
+    private static final double MAX_ALLOCATIONS_PER_BIND = 4;
+
+    private Instrumentation instrumentation;
+    private Context context;
+
+    @Before
+    public void setUp() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        context = instrumentation.getTargetContext();
+    }
+
+    @Test
+    public void chatRowRebindStaysWithinBudget() {
+        double[] perBind = new double[1];
+        instrumentation.runOnMainSync(() -> {
+            List<ChatMessageModel> messages = new ArrayList<>();
+            for (int i = 0; i < ROWS; i++) {
+                messages.add(new ChatMessageModel("Allocation test message " + i, SENDER_ID, Timestamp.now(), "msg_" + i));
+            }
+            ChatRecyclerAdapter adapter = chatAdapterShowing(messages);
+
+            RecyclerView parent = newParent();
+            ChatRecyclerAdapter.ChatModelViewHolder holder =
+                    adapter.onCreateViewHolder(parent, adapter.getItemViewType(0));
+
+            // One holder cycling through every row, as a recycled view does during a scroll
+            perBind[0] = allocationsPerBind(position -> adapter.onBindViewHolder(holder, position, Collections.emptyList()));
+        });
+
+        Log.i(TAG, "Chat row rebind: " + perBind[0] + " allocations per bind");
+        assertTrue("Chat row rebind allocated " + perBind[0] + " objects per bind, budget " + MAX_ALLOCATIONS_PER_BIND,
+                perBind[0] <= MAX_ALLOCATIONS_PER_BIND);
+    }
+
+    @Test
+    public void imageRowRebindStaysWithinBudget() {
+        double[] perBind = new double[1];
+        instrumentation.runOnMainSync(() -> {
+            List<ChatMessageModel> messages = new ArrayList<>();
+            for (int i = 0; i < ROWS; i++) {
+                ChatMessageModel message = new ChatMessageModel(SENDER_ID, Timestamp.now(), IMAGE_URL + i + ".jpg", null, null);
+                message.setMessageId("img_" + i);
+                messages.add(message);
+            }
+            ChatRecyclerAdapter adapter = chatAdapterShowing(messages);
+            List<ChatRecyclerAdapter.ChatModelViewHolder> holders = rowHolders(adapter);
+
+            perBind[0] = allocationsPerBind(position ->
+                    adapter.onBindViewHolder(holders.get(position), position, Collections.emptyList()));
+        });
+
+        Log.i(TAG, "Image row rebind: " + perBind[0] + " allocations per bind");
+        assertTrue("Image row rebind allocated " + perBind[0] + " objects per bind, budget " + MAX_ALLOCATIONS_PER_BIND,
+                perBind[0] <= MAX_ALLOCATIONS_PER_BIND);
+    }
+
+    @Test
+    public void imageGridRowRebindStaysWithinBudget() {
+        double[] perBind = new double[1];
+        instrumentation.runOnMainSync(() -> {
+            List<ChatMessageModel> messages = new ArrayList<>();
+            for (int i = 0; i < ROWS; i++) {
+                List<String> imageUrls = new ArrayList<>();
+                for (int j = 0; j < GRID_IMAGES; j++) {
+                    imageUrls.add(IMAGE_URL + i + "_" + j + ".jpg");
+                }
+                ChatMessageModel message = new ChatMessageModel(SENDER_ID, Timestamp.now(), imageUrls, null);
+                message.setMessageId("grid_" + i);
+                messages.add(message);
+            }
+            ChatRecyclerAdapter adapter = chatAdapterShowing(messages);
+            List<ChatRecyclerAdapter.ChatModelViewHolder> holders = rowHolders(adapter);
+
+            // The grids are never laid out here, so their cells are bound by hand, one set per row
+            List<List<RecyclerView.ViewHolder>> cells = new ArrayList<>();
+            for (int i = 0; i < ROWS; i++) {
+                adapter.onBindViewHolder(holders.get(i), i, Collections.emptyList());
+                RecyclerView grid = holders.get(i).itemView.findViewById(R.id.images_recycler);
+                List<RecyclerView.ViewHolder> rowCells = new ArrayList<>();
+                for (int j = 0; j < GRID_IMAGES; j++) {
+                    rowCells.add(gridAdapterOf(grid).onCreateViewHolder(grid, 0));
+                }
+                cells.add(rowCells);
+            }
+
+            // One row bind plus its cells' binds counts as one bind
+            perBind[0] = allocationsPerBind(position -> {
+                ChatRecyclerAdapter.ChatModelViewHolder holder = holders.get(position);
+                adapter.onBindViewHolder(holder, position, Collections.emptyList());
+                RecyclerView grid = holder.itemView.findViewById(R.id.images_recycler);
+                RecyclerView.Adapter<RecyclerView.ViewHolder> gridAdapter = gridAdapterOf(grid);
+                List<RecyclerView.ViewHolder> rowCells = cells.get(position);
+                for (int j = 0; j < GRID_IMAGES; j++) {
+                    gridAdapter.onBindViewHolder(rowCells.get(j), j);
+                }
+            });
+        });
+
+        Log.i(TAG, "Image grid row rebind: " + perBind[0] + " allocations per bind");
+        assertTrue("Image grid row rebind allocated " + perBind[0] + " objects per bind, budget " + MAX_ALLOCATIONS_PER_BIND,
+                perBind[0] <= MAX_ALLOCATIONS_PER_BIND);
+    }
+
+    @Test
+    public void chatListRowRebindStaysWithinBudget() {
+        double[] perBind = new double[1];
+        instrumentation.runOnMainSync(() -> {
+            List<ChatListItem> chats = new ArrayList<>();
+            for (int i = 0; i < ROWS; i++) {
+                // Groups without a message time: no user lookups and no unread count queries
+                ChatroomModel chatroom = new ChatroomModel("group_" + i, Arrays.asList(SENDER_ID, "member_" + i),
+                        null, SENDER_ID, "Group " + i, "", null, SENDER_ID);
+                chatroom.setLastMessage("Last message " + i);
+                chats.add(new ChatListItem("group_" + i, chatroom, null));
+            }
+            RecentChatRecyclerAdapter adapter = new RecentChatRecyclerAdapter(context,
+                    new ChatListRepository(context, list -> { }));
+            adapter.submitList(chats); // The first list is applied at once, without a diff
+
+            RecyclerView parent = newParent();
+            RecentChatRecyclerAdapter.ChatroomModelViewHolder holder = adapter.onCreateViewHolder(parent, 0);
+
+            perBind[0] = allocationsPerBind(position -> adapter.onBindViewHolder(holder, position));
+        });
+
+        Log.i(TAG, "Chat list row rebind: " + perBind[0] + " allocations per bind");
+        assertTrue("Chat list row rebind allocated " + perBind[0] + " objects per bind, budget " + MAX_ALLOCATIONS_PER_BIND,
+                perBind[0] <= MAX_ALLOCATIONS_PER_BIND);
+    }
+
+    private interface Bind {
+        void bind(int position);
+    }
+
+    private ChatRecyclerAdapter chatAdapterShowing(List<ChatMessageModel> messages) {
+        FirestoreRecyclerOptions<ChatMessageModel> options = new FirestoreRecyclerOptions.Builder<ChatMessageModel>()
+                .setSnapshotArray(new PagedChatMessageArray(CHATROOM_ID))
+                .build();
+        // Never started, so it binds the cached messages
+        ChatRecyclerAdapter adapter = new ChatRecyclerAdapter(options, context, CHATROOM_ID, null);
+        adapter.showCachedMessages(messages);
+        return adapter;
+    }
+
+    private RecyclerView newParent() {
+        RecyclerView parent = new RecyclerView(context);
+        parent.setLayoutManager(new LinearLayoutManager(context));
+        return parent;
+    }
+
+    /**
+     * One holder per row, each rebound at its own position
+     */
+    private List<ChatRecyclerAdapter.ChatModelViewHolder> rowHolders(ChatRecyclerAdapter adapter) {
+        RecyclerView parent = newParent();
+        List<ChatRecyclerAdapter.ChatModelViewHolder> holders = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            holders.add(adapter.onCreateViewHolder(parent, adapter.getItemViewType(i)));
+        }
+        return holders;
+    }
+
+    @SuppressWarnings("unchecked") // The grid's adapter type is private to ChatRecyclerAdapter
+    private static RecyclerView.Adapter<RecyclerView.ViewHolder> gridAdapterOf(RecyclerView grid) {
+        return (RecyclerView.Adapter<RecyclerView.ViewHolder>) grid.getAdapter();
+    }
+
+    /**
+     * Objects allocated by this thread per bind, after a warm-up that fills the adapters' caches
+     */
+    @SuppressWarnings("deprecation") // Thread allocation counting has no replacement API
+    private static double allocationsPerBind(Bind bind) {
+        for (int i = 0; i < WARMUP_BINDS; i++) {
+            bind.bind(i % ROWS);
+        }
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        for (int i = 0; i < MEASURED_BINDS; i++) {
+            bind.bind(i % ROWS);
+        }
+        Debug.stopAllocCounting();
+        return (double) Debug.getThreadAllocCount() / MEASURED_BINDS;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.talkifyy;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.talkifyy.adapter.ChatRecyclerAdapter;
+import com.example.talkifyy.adapter.MessageChangePayload;
+import com.example.talkifyy.adapter.PagedChatMessageArray;
+import com.example.talkifyy.model.ChatMessageModel;
+import com.firebase.ui.firestore.FirestoreRecyclerOptions;
+import com.google.firebase.Timestamp;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Main-thread time to rebind one chat row after a reaction or a selection toggle:
+ * a full bind versus the payload bind ChatRecyclerAdapter now does for those updates.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ChatBindBenchmark {
+    private static final String TAG = "ChatBindBenchmark";
+    private static final String CHATROOM_ID = "bind_benchmark";
+    private static final String SENDER_ID = "bind_benchmark_sender";
+    private static final String REACTOR_ID = "bind_benchmark_reactor";
+    private static final int MESSAGES = 20;
+    private static final int WARMUP = 50;
+    private static final int ROUNDS = 500;
+
+    private Instrumentation instrumentation;
+    private Context context;
+
+    @Before
+    public void setUp() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        context = instrumentation.getTargetContext();
+    }
+
+    @Test
+    public void reactionChangeOnlyTouchesReactions() {
+        ChatMessageModel before = new ChatMessageModel("Hello", SENDER_ID, Timestamp.now(), "m1");
+        ChatMessageModel after = new ChatMessageModel("Hello", SENDER_ID, before.getTimestamp(), "m1");
+        after.toggleReaction("👍", REACTOR_ID);
+        assertEquals(Collections.singleton(MessageChangePayload.REACTIONS), MessageChangePayload.between(before, after));
+
+        ChatMessageModel deleted = new ChatMessageModel("Hello", SENDER_ID, before.getTimestamp(), "m1");
+        deleted.markDeletedForEveryone(SENDER_ID);
+        assertNull("Deleting switches the row type, so it needs a full rebind", MessageChangePayload.between(before, deleted));
+
+        ChatMessageModel same = new ChatMessageModel("Hello", SENDER_ID, before.getTimestamp(), "m1");
+        assertTrue(MessageChangePayload.between(before, same).isEmpty());
+    }
+
+    @Test
+    public void partialVersusFullRebind() {
+        long[][] result = new long[4][];
+        instrumentation.runOnMainSync(() -> {
+            List<ChatMessageModel> messages = new ArrayList<>();
+            for (int i = 0; i < MESSAGES; i++) {
+                messages.add(new ChatMessageModel("Benchmark message " + i, SENDER_ID, Timestamp.now(), "msg_" + i));
+            }
+            FirestoreRecyclerOptions<ChatMessageModel> options = new FirestoreRecyclerOptions.Builder<ChatMessageModel>()
+                    .setSnapshotArray(new PagedChatMessageArray(CHATROOM_ID))
+                    .build();
+            // Never started, so it binds the cached messages
+            ChatRecyclerAdapter adapter = new ChatRecyclerAdapter(options, context, CHATROOM_ID, null);
+            adapter.showCachedMessages(messages);
+
+            RecyclerView parent = new RecyclerView(context);
+            parent.setLayoutManager(new LinearLayoutManager(context));
+            ChatRecyclerAdapter.ChatModelViewHolder holder = adapter.onCreateViewHolder(parent, 0);
+            adapter.onBindViewHolder(holder, 0, Collections.emptyList());
+
+            ChatMessageModel model = messages.get(0);
+            List<Object> full = Collections.emptyList();
+            result[0] = time(() -> model.toggleReaction("👍", REACTOR_ID), adapter, holder, full);
+            result[1] = time(() -> model.toggleReaction("👍", REACTOR_ID), adapter, holder,
+                    Collections.singletonList(MessageChangePayload.REACTIONS));
+            result[2] = time(() -> { }, adapter, holder, full);
+            result[3] = time(() -> { }, adapter, holder,
+                    Collections.singletonList(MessageChangePayload.SELECTION));
+        });
+
+        long fullReaction = median(result[0]);
+        long partialReaction = median(result[1]);
+        long fullSelection = median(result[2]);
+        long partialSelection = median(result[3]);
+        Log.i(TAG, "Median bind per update: reaction full=" + fullReaction / 1000 + "µs payload=" + partialReaction / 1000
+                + "µs, selection full=" + fullSelection / 1000 + "µs payload=" + partialSelection / 1000 + "µs");
+
+        assertTrue("Reaction payload bind took " + partialReaction + "ns, full bind " + fullReaction + "ns",
+                partialReaction < fullReaction);
+        assertTrue("Selection payload bind took " + partialSelection + "ns, full bind " + fullSelection + "ns",
+                partialSelection < fullSelection);
+    }
+
+    /**
+     * Nanoseconds per bind of position 0, after applying the update before each one
+     */
+    private static long[] time(Runnable update, ChatRecyclerAdapter adapter,
+                               ChatRecyclerAdapter.ChatModelViewHolder holder, List<Object> payloads) {
+        long[] samples = new long[ROUNDS];
+        for (int i = -WARMUP; i < ROUNDS; i++) {
+            update.run();
+            long start = System.nanoTime();
+            adapter.onBindViewHolder(holder, 0, payloads);
+            long elapsed = System.nanoTime() - start;
+            if (i >= 0) {
+                samples[i] = elapsed;
+            }
+        }
+        return samples;
+    }
+
+    private static long median(long[] samples) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
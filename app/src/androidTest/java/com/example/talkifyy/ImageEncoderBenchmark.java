@@ -0,0 +1,147 @@
+package com.example.talkifyy;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.talkifyy.utils.ImageEncoder;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Upload bytes for a fixed, generated corpus: the old fixed JPEG q85 encode
+ * versus the byte-budget encoder, with PSNR against the source for both.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ImageEncoderBenchmark {
+    private static final String TAG = "ImageEncoderBenchmark";
+    private static final int LEGACY_JPEG_QUALITY = 85;
+    private static final long SEED = 42;
+
+    @Test
+    public void bytesPerCorpus() throws Exception {
+        Random random = new Random(SEED);
+        Object[][] corpus = {
+                {photo(1920, 1440, random), ImageEncoder.ImageClass.PHOTO},
+                {photo(1440, 1920, random), ImageEncoder.ImageClass.PHOTO},
+                {photo(1920, 1080, random), ImageEncoder.ImageClass.PHOTO},
+                {screenshot(1080, 1920, random), ImageEncoder.ImageClass.SCREENSHOT},
+                {screenshot(1080, 2340, random), ImageEncoder.ImageClass.SCREENSHOT},
+        };
+
+        long legacyTotal = 0;
+        long encodedTotal = 0;
+        for (Object[] entry : corpus) {
+            Bitmap source = (Bitmap) entry[0];
+            ImageEncoder.ImageClass imageClass = (ImageEncoder.ImageClass) entry[1];
+
+            ByteArrayOutputStream legacy = new ByteArrayOutputStream();
+            source.compress(Bitmap.CompressFormat.JPEG, LEGACY_JPEG_QUALITY, legacy);
+            ImageEncoder.EncodedImage encoded = ImageEncoder.encode(source, imageClass);
+
+            Log.i(TAG, imageClass + " " + source.getWidth() + "x" + source.getHeight()
+                    + ": legacy " + legacy.size() + " B (PSNR " + psnr(source, legacy.toByteArray()) + ")"
+                    + ", budget " + encoded.data.length + " B " + encoded.format + " q" + encoded.quality
+                    + " (PSNR " + psnr(source, encoded.data) + ")");
+
+            legacyTotal += legacy.size();
+            encodedTotal += encoded.data.length;
+            source.recycle();
+        }
+
+        long savedPercent = 100 - (encodedTotal * 100 / legacyTotal);
+        Log.i(TAG, "Corpus: legacy " + legacyTotal + " B, budget encoder " + encodedTotal + " B, saved " + savedPercent + "%");
+        assertTrue("Budget encoder produced more bytes than the legacy encode", encodedTotal < legacyTotal);
+    }
+
+    /**
+     * Peak signal-to-noise ratio in dB of an encoded image against its source
+     */
+    private static double psnr(Bitmap source, byte[] encoded) {
+        Bitmap decoded = BitmapFactory.decodeByteArray(encoded, 0, encoded.length);
+        int width = source.getWidth();
+        int[] a = new int[width];
+        int[] b = new int[width];
+        double squaredError = 0;
+        for (int y = 0; y < source.getHeight(); y++) {
+            source.getPixels(a, 0, width, 0, y, width, 1);
+            decoded.getPixels(b, 0, width, 0, y, width, 1);
+            for (int x = 0; x < width; x++) {
+                int dr = Color.red(a[x]) - Color.red(b[x]);
+                int dg = Color.green(a[x]) - Color.green(b[x]);
+                int db = Color.blue(a[x]) - Color.blue(b[x]);
+                squaredError += dr * dr + dg * dg + db * db;
+            }
+        }
+        decoded.recycle();
+        double mse = squaredError / (3.0 * width * source.getHeight());
+        return mse == 0 ? Double.POSITIVE_INFINITY : Math.round(100 * 10 * Math.log10(255 * 255 / mse)) / 100.0;
+    }
+
+    /**
+     * Smooth gradients with sensor-like noise
+     */
+    private static Bitmap photo(int width, int height, Random random) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setShader(new LinearGradient(0, 0, width, height,
+                Color.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256)),
+                Color.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256)), Shader.TileMode.CLAMP));
+        canvas.drawRect(0, 0, width, height, paint);
+        paint.setShader(null);
+        for (int i = 0; i < 40; i++) {
+            paint.setColor(Color.argb(120, random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+            canvas.drawCircle(random.nextInt(width), random.nextInt(height), 40 + random.nextInt(300), paint);
+        }
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            bitmap.getPixels(row, 0, width, 0, y, width, 1);
+            for (int x = 0; x < width; x++) {
+                int n = random.nextInt(17) - 8;
+                row[x] = Color.rgb(clamp(Color.red(row[x]) + n), clamp(Color.green(row[x]) + n), clamp(Color.blue(row[x]) + n));
+            }
+            bitmap.setPixels(row, 0, width, 0, y, width, 1);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Flat UI blocks and text, like a chat screenshot
+     */
+    private static Bitmap screenshot(int width, int height, Random random) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        canvas.drawColor(Color.WHITE);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(Color.rgb(18, 140, 126));
+        canvas.drawRect(0, 0, width, 180, paint);
+        paint.setTextSize(42);
+        for (int y = 260; y < height - 80; y += 140) {
+            boolean mine = random.nextBoolean();
+            int left = mine ? width / 3 : 40;
+            paint.setColor(mine ? Color.rgb(220, 248, 198) : Color.rgb(236, 236, 236));
+            canvas.drawRoundRect(left, y, left + width * 2 / 3 - 40, y + 110, 24, 24, paint);
+            paint.setColor(Color.BLACK);
+            canvas.drawText("Message " + random.nextInt(100000) + " see you at 7?", left + 24, y + 70, paint);
+        }
+        return bitmap;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
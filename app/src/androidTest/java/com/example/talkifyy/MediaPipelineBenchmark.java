@@ -0,0 +1,117 @@
+package com.example.talkifyy;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.talkifyy.utils.ImageUploadUtil;
+import com.example.talkifyy.utils.MediaPipeline;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Main-thread time per image send: the old synchronous compress-on-caller path
+ * versus handing the same work to MediaPipeline.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MediaPipelineBenchmark {
+    private static final String TAG = "MediaPipelineBenchmark";
+    private static final int SENDS = 5;
+    private static final long FRAME_BUDGET_MS = 16;
+
+    private Instrumentation instrumentation;
+    private Context context;
+    private File imageFile;
+
+    @Before
+    public void createLargeImage() throws Exception {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        context = instrumentation.getTargetContext();
+
+        // Roughly a 12MP camera photo
+        Bitmap bitmap = Bitmap.createBitmap(4000, 3000, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(Color.rgb(90, 140, 200));
+        imageFile = new File(context.getCacheDir(), "benchmark_12mp.jpg");
+        try (FileOutputStream out = new FileOutputStream(imageFile)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 95, out);
+        }
+        bitmap.recycle();
+    }
+
+    @After
+    public void deleteImage() {
+        imageFile.delete();
+    }
+
+    @Test
+    public void mainThreadTimePerSend() throws Exception {
+        Uri uri = Uri.fromFile(imageFile);
+
+        // Old behaviour: compression + metadata on the caller (UI) thread
+        long[] syncMainMs = {0};
+        for (int i = 0; i < SENDS; i++) {
+            instrumentation.runOnMainSync(() -> {
+                long start = SystemClock.elapsedRealtime();
+                try {
+                    ImageUploadUtil.prepareImage(context, uri, null);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                syncMainMs[0] += SystemClock.elapsedRealtime() - start;
+            });
+        }
+
+        // Pipeline: the main thread only submits the job
+        long[] pipelineMainMs = {0};
+        CountDownLatch done = new CountDownLatch(SENDS);
+        Exception[] failure = {null};
+        long wallStart = SystemClock.elapsedRealtime();
+        for (int i = 0; i < SENDS; i++) {
+            instrumentation.runOnMainSync(() -> {
+                long start = SystemClock.elapsedRealtime();
+                ImageUploadUtil.prepareImageAsync(context, uri, new MediaPipeline.Callback<ImageUploadUtil.PreparedImage>() {
+                    @Override
+                    public void onSuccess(ImageUploadUtil.PreparedImage result) {
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        failure[0] = e;
+                        done.countDown();
+                    }
+                });
+                pipelineMainMs[0] += SystemClock.elapsedRealtime() - start;
+            });
+        }
+        assertTrue("Pipeline jobs did not finish", done.await(60, TimeUnit.SECONDS));
+        long pipelineWallMs = SystemClock.elapsedRealtime() - wallStart;
+        assertNull(failure[0]);
+
+        long syncPerSend = syncMainMs[0] / SENDS;
+        long pipelinePerSend = pipelineMainMs[0] / SENDS;
+        Log.i(TAG, "Main-thread time per send: synchronous=" + syncPerSend + "ms, pipeline=" + pipelinePerSend
+                + "ms (" + SENDS + " sends finished in " + pipelineWallMs + "ms on "
+                + MediaPipeline.POOL_SIZE + " threads)");
+
+        assertTrue("Pipeline send blocked the main thread for " + pipelinePerSend + "ms",
+                pipelinePerSend < FRAME_BUDGET_MS);
+    }
+}
@@ -39,6 +39,7 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.talkifyy.adapter.ChatRecyclerAdapter;
+import com.example.talkifyy.adapter.PagedChatMessageArray;
 import com.example.talkifyy.adapter.UnsendMessageListener;
 import com.example.talkifyy.adapter.MessageDeletionListener;
 import com.example.talkifyy.adapter.EditMessageListener;
@@ -50,20 +51,26 @@ import com.example.talkifyy.model.ChatMessageModel;
 import com.example.talkifyy.model.ChatroomModel;
 import com.example.talkifyy.model.UserModel;
 import com.example.talkifyy.utils.AndroidUtil;
+import com.example.talkifyy.utils.BulkWriteEngine;
 import com.example.talkifyy.utils.FirebaseUtil;
+import com.example.talkifyy.utils.NotificationDispatcher;
 import com.example.talkifyy.utils.NotificationUtil;
 import com.example.talkifyy.utils.LocalDeletionUtil;
+import com.example.talkifyy.utils.LocalMessageStore;
+import com.example.talkifyy.utils.MediaPipeline;
+import com.example.talkifyy.utils.MessageOutbox;
+import com.example.talkifyy.utils.ResumableUploadManager;
+import com.example.talkifyy.utils.UnreadCountCache;
 import com.example.talkifyy.utils.UnsendConfig;
+import com.example.talkifyy.utils.UserDirectory;
 import com.example.talkifyy.utils.WhatsAppStyleDeletionUtil;
 import com.firebase.ui.firestore.FirestoreRecyclerOptions;
-import com.google.android.gms.tasks.OnCompleteListener;
-import com.google.android.gms.tasks.Task;
 import com.google.firebase.Timestamp;
-import com.google.firebase.firestore.DocumentReference;
-import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.storage.StorageReference;
 
 import java.util.Arrays;
+import java.util.Objects;
 import java.util.List;
 
 public class ChatActivity extends AppCompatActivity implements UnsendMessageListener, MessageDeletionListener, EditMessageListener {
@@ -74,6 +81,8 @@ public class ChatActivity extends AppCompatActivity implements UnsendMessageList
     String chatroomId;
      ChatroomModel chatroomModel;
      ChatRecyclerAdapter adapter;
+     PagedChatMessageArray messagePager;
+     ListenerRegistration memberWatch;
 
     EditText messageInput;
     ImageButton sendMessageBtn;
@@ -88,6 +97,24 @@ public class ChatActivity extends AppCompatActivity implements UnsendMessageList
     private ActivityResultLauncher<String> requestPermissionLauncher;
     private Uri cameraImageUri;
     private static final int MAX_IMAGES = 5; // Maximum images to select
+    private final List<MediaPipeline.Job> mediaJobs = new ArrayList<>(); // In-flight image sends
+    private final ResumableUploadManager.RecoveryHandler uploadRecoveryHandler = this::sendRecoveredImages;
+    private final MessageOutbox.DeliveryListener outboxListener = new MessageOutbox.DeliveryListener() {
+        @Override
+        public void onDelivered(String clientId, String message) {
+            onOutboxMessageDelivered(clientId, message);
+        }
+        
+        @Override
+        public void onFailed(String clientId, String message, Exception e) {
+            onOutboxMessageFailed(clientId, message, e);
+        }
+    };
+    
+    // History paging
+    private static final int HISTORY_PREFETCH_DISTANCE = 10; // Rows from the top before the next page loads
+    private static final int FALLBACK_PAGE_SIZE = 20;
+    private static final int FALLBACK_MAX_PAGES = 5;
     
     // Multi-select UI elements
     RelativeLayout selectionActionBar;
@@ -190,6 +217,16 @@ public class ChatActivity extends AppCompatActivity implements UnsendMessageList
             NotificationUtil.clearMessageCount(otherUser.getUserId());
             Log.d(TAG, "🔔 Cleared individual notification count for opened chat");
         }
+        
+        // Warm the local deletion index off the main thread; rows bound before it loads
+        // show every message, so rebind them once deletions are known
+        if (chatroomId != null) {
+            LocalDeletionUtil.preloadMessageDeletions(this, chatroomId, () -> {
+                if (adapter != null) {
+                    adapter.notifyDataSetChanged();
+                }
+            });
+        }
 
         messageInput = findViewById(R.id.chat_message_input);
         sendMessageBtn = findViewById(R.id.message_send_btn);
@@ -248,6 +285,12 @@ public class ChatActivity extends AppCompatActivity implements UnsendMessageList
         // Initialize image picker functionality
         setupImagePickers();
         
+        // Send images whose upload outlived an earlier screen or process
+        setupUploadRecovery();
+        
+        // Deliver text messages still journaled from an earlier screen or process
+        setupOutbox();
+        
         // Wrap all setup operations in try-catch to prevent crashes
         try {
             getOrCreateChatroomModel();
@@ -310,42 +353,31 @@ public class ChatActivity extends AppCompatActivity implements UnsendMessageList
             Log.d(TAG, "✅ Loading profile picture from intent URL");
             AndroidUtil.setProfilePic(ChatActivity.this, intentProfileUrl, imageView);
         } else {
-            // Fallback: get fresh data from Firestore (always up-to-date)
+            // Fallback: get user data through the shared user cache
             Log.d(TAG, "🔄 No valid URL in intent, fetching fresh data from Firestore...");
             
-            FirebaseUtil.allUserCollectionReference().document(otherUser.getUserId())
-                    .get()
-                    .addOnSuccessListener(documentSnapshot -> {
-                        Log.d(TAG, "📄 Firestore document exists: " + documentSnapshot.exists());
-                        
-                        if (documentSnapshot.exists()) {
-                            UserModel otherUserData = documentSnapshot.toObject(UserModel.class);
-                            if (otherUserData != null) {
-                                String firestoreUrl = otherUserData.getProfilePicUrl();
-                                Log.d(TAG, "🔥 Profile URL from Firestore: " + (firestoreUrl != null ? firestoreUrl : "null"));
-                                
-                                if (firestoreUrl != null && !firestoreUrl.isEmpty() && !"null".equals(firestoreUrl)) {
-                                    Log.d(TAG, "✅ Loading profile picture from Firestore URL");
-                                    AndroidUtil.setProfilePic(ChatActivity.this, firestoreUrl, imageView);
-                                    // Update the local user model with the latest profile pic URL
-                                    otherUser.setProfilePicUrl(firestoreUrl);
-                                } else {
-                                    Log.d(TAG, "⚠️ No valid profile picture URL in Firestore, using default");
-                                    setDefaultProfileImage();
-                                }
-                            } else {
-                                Log.w(TAG, "⚠️ Failed to parse user data from Firestore, using default");
-                                setDefaultProfileImage();
-                            }
-                        } else {
-                            Log.w(TAG, "⚠️ User document does not exist in Firestore, using default");
-                            setDefaultProfileImage();
-                        }
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "❌ Failed to get user data from Firestore", e);
+            UserDirectory.getInstance().getUser(otherUser.getUserId(), otherUserData -> {
+                if (isFinishing() || isDestroyed()) {
+                    return;
+                }
+                if (otherUserData != null) {
+                    String firestoreUrl = otherUserData.getProfilePicUrl();
+                    Log.d(TAG, "🔥 Profile URL from Firestore: " + (firestoreUrl != null ? firestoreUrl : "null"));
+                    
+                    if (firestoreUrl != null && !firestoreUrl.isEmpty() && !"null".equals(firestoreUrl)) {
+                        Log.d(TAG, "✅ Loading profile picture from Firestore URL");
+                        AndroidUtil.setProfilePic(ChatActivity.this, firestoreUrl, imageView);
+                        // Update the local user model with the latest profile pic URL
+                        otherUser.setProfilePicUrl(firestoreUrl);
+                    } else {
+                        Log.d(TAG, "⚠️ No valid profile picture URL in Firestore, using default");
                         setDefaultProfileImage();
-                    });
+                    }
+                } else {
+                    Log.w(TAG, "⚠️ User data unavailable, using default");
+                    setDefaultProfileImage();
+                }
+            });
         }
     }
     
@@ -429,28 +461,42 @@ public class ChatActivity extends AppCompatActivity implements UnsendMessageList
             return;
         }
 
+        // Local copy only; the outbox batch writes these fields together with the message
         chatroomModel.setLastMessageTimestamp(Timestamp.now());
         chatroomModel.setLastMessageSenderId(FirebaseUtil.currentUserId());
         chatroomModel.setLastMessage(message);
-        FirebaseUtil.getChatroomReference(chatroomId).set(chatroomModel);
 
-        ChatMessageModel chatMessageModel = new ChatMessageModel(message,FirebaseUtil.currentUserId(),Timestamp.now());
-        Log.d(TAG, "Sending message to Firestore: " + message);
-        
-        FirebaseUtil.getChatroomMessageReference(chatroomId).add(chatMessageModel)
-                .addOnCompleteListener(new OnCompleteListener<DocumentReference>() {
-                    @Override
-                    public void onComplete(@NonNull Task<DocumentReference> task) {
-                        if(task.isSuccessful()){
-                            Log.d(TAG, "Message sent successfully: " + message);
-                            messageInput.setText("");
-                            sendNotification(message);
-                        } else {
-                            Log.e(TAG, "Failed to send message", task.getException());
-                            AndroidUtil.showToast(getApplicationContext(), "Failed to send message. Please try again.");
-                        }
-                    }
-                });
+        // The outbox writes under a client-generated ID; the live list shows it on the next snapshot
+        String clientId = MessageOutbox.getInstance(this).send(chatroomId, message);
+        if (clientId == null) {
+            AndroidUtil.showToast(getApplicationContext(), "Failed to send message. Please try again.");
+            return;
+        }
+        Log.d(TAG, "Message queued in outbox: " + clientId);
+        messageInput.setText("");
+    }
+    
+    /**
+     * Server acknowledged a message from the outbox: drop its pending look.
+     * The outbox notifies recipients itself, so that happens even after this screen is gone.
+     */
+    private void onOutboxMessageDelivered(String clientId, String message) {
+        Log.d(TAG, "Message sent successfully: " + message);
+        if (adapter != null) {
+            adapter.refreshMessage(clientId);
+        }
+    }
+    
+    /**
+     * The server rejected a message for good; give the text back so it isn't lost
+     */
+    private void onOutboxMessageFailed(String clientId, String message, Exception e) {
+        Log.e(TAG, "Failed to send message", e);
+        AndroidUtil.showToast(getApplicationContext(), "Failed to send message. Please try again.");
+        if (messageInput != null && messageInput.getText().toString().trim().isEmpty()) {
+            messageInput.setText(message);
+            messageInput.setSelection(message.length());
+        }
     }
     
     void sendNotification(String message) {
@@ -468,11 +514,11 @@ public class ChatActivity extends AppCompatActivity implements UnsendMessageList
                     sendGroupNotification(senderName, message, chatroomId);
                 } else {
                     // For 1-on-1 chats, send notification to the other user
-                    NotificationUtil.sendNotificationToUser(
+                    NotificationDispatcher.getInstance().dispatchDirect(
+                        chatroomId,
                         otherUser.getUserId(),
                         senderName,
-                        message,
-                        chatroomId
+                        message
                     );
                     
                     Log.d(TAG, "Notification sent from " + senderName + " to " + otherUser.getUsername());
@@ -484,11 +530,11 @@ public class ChatActivity extends AppCompatActivity implements UnsendMessageList
             if (isGroupChat()) {
                 sendGroupNotification("Someone", message, chatroomId);
             } else {
-                NotificationUtil.sendNotificationToUser(
+                NotificationDispatcher.getInstance().dispatchDirect(
+                    chatroomId,
                     otherUser.getUserId(),
                     "Someone",
-                    message,
-                    chatroomId
+                    message
                 );
             }
         });
@@ -508,28 +554,26 @@ public class ChatActivity extends AppCompatActivity implements UnsendMessageList
             Log.d(TAG, "📱 Current user ID: " + currentUserId);
             
             // Send notification to all group members except the sender
-            int notificationsSent = 0;
+            List<String> recipients = new ArrayList<>();
             for (String userId : chatroomModel.getUserIds()) {
                 if (!userId.equals(currentUserId)) {
-                    Log.d(TAG, "📤 Sending notification to user: " + userId);
-                    
-                    // Send group notification with proper format
-                    // The notification will show: "Group Name" as title and "Sender: Message" as content
-                    NotificationUtil.sendGroupNotificationToUser(
-                        userId,
-                        groupTitle,      // Group name as the notification title
-                        senderName,      // Individual sender name
-                        message,         // The actual message
-                        chatroomId       // Group chat room ID
-                    );
-                    
-                    notificationsSent++;
-                    Log.d(TAG, "✅ Group notification sent to: " + userId + " for group: " + groupTitle);
+                    recipients.add(userId);
                 } else {
                     Log.d(TAG, "⏭️ Skipping notification to sender: " + userId);
                 }
             }
             
+            // Quick bursts are coalesced into one push per member carrying the count and latest text.
+            // The notification will show: "Group Name" as title and "Sender: Message" as content
+            NotificationDispatcher.getInstance().dispatchGroup(
+                chatroomId,      // Group chat room ID
+                recipients,
+                groupTitle,      // Group name as the notification title
+                senderName,      // Individual sender name
+                message          // The actual message
+            );
+            int notificationsSent = recipients.size();
+            
             Log.d(TAG, "🎉 Total group notifications sent: " + notificationsSent);
         } else {
             Log.e(TAG, "❌ Cannot send group notification - chatroom model or user IDs are null");
@@ -579,6 +623,11 @@ void getOrCreateChatroomModel(){
                     Log.d(TAG, "🔄 Updating adapter group chat status after model loaded: " + isGroup);
                     adapter.setGroupChat(isGroup);
                 }
+                
+                // Keep member names fresh in the shared cache while the group is open
+                if (isGroupChat() && chatroomModel.getUserIds() != null && memberWatch == null) {
+                    memberWatch = UserDirectory.getInstance().watchUsers(chatroomModel.getUserIds());
+                }
             }
         } else {
             Log.e(TAG, "Failed to get chatroom model", task.getException());
@@ -592,13 +641,13 @@ void getOrCreateChatroomModel(){
         try {
             Log.d(TAG, "🔄 Setting up MEMORY-EFFICIENT chat RecyclerView for chatroom: " + chatroomId);
             
-            // CRITICAL: Add memory management and pagination to prevent crashes
-            Query query = FirebaseUtil.getChatroomMessageReference(chatroomId)
-                    .orderBy("timestamp", Query.Direction.DESCENDING)
-                    .limit(50); // LIMIT TO 50 MESSAGES TO PREVENT MEMORY CRASHES
+            // Keyset pagination: only the newest page is live, older pages load on scroll
+            messagePager = new PagedChatMessageArray(chatroomId,
+                    PagedChatMessageArray.DEFAULT_PAGE_SIZE, PagedChatMessageArray.DEFAULT_MAX_PAGES);
+            messagePager.setMessageStore(LocalMessageStore.getInstance(this));
 
             FirestoreRecyclerOptions<ChatMessageModel> options = new FirestoreRecyclerOptions.Builder<ChatMessageModel>()
-                    .setQuery(query, ChatMessageModel.class)
+                    .setSnapshotArray(messagePager)
                     .setLifecycleOwner(this)  // AUTO CLEANUP TO PREVENT MEMORY LEAKS
                     .build();
 
@@ -634,6 +683,9 @@ void getOrCreateChatroomModel(){
                 Log.e(TAG, "❌ Error setting up data observer", e);
             }
             
+            // Paint the last known messages from disk while the listener connects
+            showCachedMessages();
+            
             // Start listening with error handling
             try {
                 Log.d(TAG, "✅ Starting adapter listening with crash protection");
@@ -659,6 +711,23 @@ void getOrCreateChatroomModel(){
         }
     }
     
+    /**
+     * Render cached messages from the local store so the chat never opens blank,
+     * even offline. The adapter swaps to live data on the first snapshot.
+     */
+    private void showCachedMessages() {
+        try {
+            LocalMessageStore.getInstance(this).loadLatestMessages(chatroomId,
+                    PagedChatMessageArray.DEFAULT_PAGE_SIZE, messages -> {
+                        if (adapter != null && !isFinishing()) {
+                            adapter.showCachedMessages(messages);
+                        }
+                    });
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Error loading cached messages", e);
+        }
+    }
+    
     /**
      * Safely configure adapter with all settings
      */
@@ -704,13 +773,12 @@ void getOrCreateChatroomModel(){
         try {
             Log.w(TAG, "⚠️ Creating FALLBACK adapter with minimal configuration");
             
-            // Even more limited query for fallback
-            Query fallbackQuery = FirebaseUtil.getChatroomMessageReference(chatroomId)
-                    .orderBy("timestamp", Query.Direction.DESCENDING)
-                    .limit(20); // EVEN MORE LIMITED
+            // Smaller pages and budget for fallback, history still pages in on scroll
+            messagePager = new PagedChatMessageArray(chatroomId, FALLBACK_PAGE_SIZE, FALLBACK_MAX_PAGES);
+            messagePager.setMessageStore(LocalMessageStore.getInstance(this));
 
             FirestoreRecyclerOptions<ChatMessageModel> fallbackOptions = new FirestoreRecyclerOptions.Builder<ChatMessageModel>()
-                    .setQuery(fallbackQuery, ChatMessageModel.class)
+                    .setSnapshotArray(messagePager)
                     .setLifecycleOwner(this)
                     .build();
 
@@ -740,15 +808,54 @@ void getOrCreateChatroomModel(){
         recyclerView.setLayoutManager(manager);
         recyclerView.setAdapter(adapter);
         
-        // MEMORY OPTIMIZATION: Set recycler pool sizes
-        recyclerView.getRecycledViewPool().setMaxRecycledViews(0, 20);
+        // Pool sizes per row type (text, image, grid, deleted)
+        adapter.configureRecycledViewPool(recyclerView.getRecycledViewPool());
         
         // MEMORY OPTIMIZATION: Set item animator to null to reduce animations and memory usage
         recyclerView.setItemAnimator(null);
         
+        setupHistoryPaging(manager);
+        
         Log.d(TAG, "✅ RecyclerView configured with memory optimization");
     }
     
+    /**
+     * Load older pages as the user nears the top of the history, re-fetch released newer
+     * pages on the way back down, and release pages beyond the budget once scrolling settles.
+     * @param manager Reverse layout manager (higher positions are older messages)
+     */
+    private void setupHistoryPaging(LinearLayoutManager manager) {
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                if (messagePager == null) {
+                    return;
+                }
+                int lastVisible = manager.findLastVisibleItemPosition();
+                if (lastVisible != RecyclerView.NO_POSITION
+                        && lastVisible >= manager.getItemCount() - HISTORY_PREFETCH_DISTANCE) {
+                    messagePager.loadOlder();
+                }
+                int firstVisible = manager.findFirstVisibleItemPosition();
+                if (firstVisible != RecyclerView.NO_POSITION && messagePager.hasNewerGap()
+                        && firstVisible <= messagePager.getLiveWindowSize() + HISTORY_PREFETCH_DISTANCE) {
+                    messagePager.loadNewer();
+                }
+            }
+            
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView rv, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE && messagePager != null) {
+                    int firstVisible = manager.findFirstVisibleItemPosition();
+                    int lastVisible = manager.findLastVisibleItemPosition();
+                    if (firstVisible != RecyclerView.NO_POSITION && lastVisible != RecyclerView.NO_POSITION) {
+                        messagePager.trimToBudget(firstVisible, lastVisible);
+                    }
+                }
+            }
+        });
+    }
+    
     /**
      * Setup data observer with comprehensive crash protection
      */
@@ -761,7 +868,8 @@ void getOrCreateChatroomModel(){
                     Log.d(TAG, "📨 New messages inserted, count: " + itemCount);
                     
                     // CRASH PROTECTION: Check adapter and selection mode safely
-                    if (adapter != null && recyclerView != null && !adapter.isSelectionMode() && itemCount > 0) {
+                    // Only new messages land at position 0; older history pages append at the end
+                    if (adapter != null && recyclerView != null && !adapter.isSelectionMode() && itemCount > 0 && positionStart == 0) {
                         // MEMORY OPTIMIZATION: Smooth scroll only if not too many items
                         if (itemCount <= 5) {
                             recyclerView.post(() -> {
@@ -1209,8 +1317,10 @@ void getOrCreateChatroomModel(){
         AndroidUtil.showToast(getApplicationContext(), "Deleting chat...");
         
         FirebaseUtil.deleteChatConversation(chatroomId,
+                (processedCount, failureCount) -> Log.d(TAG, "🗑️ Deleted " + processedCount + " messages so far"),
                 aVoid -> {
                     Log.d(TAG, "Chat conversation deleted successfully");
+                    LocalMessageStore.getInstance(getApplicationContext()).clearChatroomAsync(chatroomId);
                     AndroidUtil.showToast(getApplicationContext(), "Chat deleted successfully");
                     
                     // Close the activity and go back to main activity
@@ -1218,7 +1328,7 @@ void getOrCreateChatroomModel(){
                 },
                 error -> {
                     Log.e(TAG, "Failed to delete chat conversation", error);
-                    String errorMessage = "Failed to delete chat: " + error.getMessage();
+                    String errorMessage = describeBulkFailure("Failed to delete chat", error);
                     AndroidUtil.showToast(getApplicationContext(), errorMessage);
                 }
         );
@@ -1232,20 +1342,33 @@ void getOrCreateChatroomModel(){
         AndroidUtil.showToast(getApplicationContext(), "Clearing chat history...");
         
         FirebaseUtil.clearChatHistory(chatroomId,
+                (processedCount, failureCount) -> Log.d(TAG, "🗑️ Cleared " + processedCount + " messages so far"),
                 aVoid -> {
                     Log.d(TAG, "Chat history cleared successfully");
+                    LocalMessageStore.getInstance(getApplicationContext()).clearChatroomAsync(chatroomId);
                     AndroidUtil.showToast(getApplicationContext(), "Chat history cleared");
                     
                     // The RecyclerView will automatically update due to Firestore listeners
                 },
                 error -> {
                     Log.e(TAG, "Failed to clear chat history", error);
-                    String errorMessage = "Failed to clear chat history: " + error.getMessage();
+                    String errorMessage = describeBulkFailure("Failed to clear chat history", error);
                     AndroidUtil.showToast(getApplicationContext(), errorMessage);
                 }
         );
     }
     
+    /**
+     * Error text for a bulk delete, with counts when only part of it went through
+     */
+    private static String describeBulkFailure(String prefix, Exception error) {
+        if (error instanceof BulkWriteEngine.PartialFailureException) {
+            BulkWriteEngine.PartialFailureException partial = (BulkWriteEngine.PartialFailureException) error;
+            return prefix + ": " + partial.failed + " messages could not be deleted (" + partial.succeeded + " deleted)";
+        }
+        return prefix + ": " + error.getMessage();
+    }
+    
     @Override
     public void onBackPressed() {
         if (adapter != null && adapter.isSelectionMode()) {
@@ -1294,6 +1417,9 @@ void getOrCreateChatroomModel(){
                 Log.d(TAG, "✅ Adapter listening resumed");
             }
             
+            // The chat is on screen: everything shown in it is read
+            UnreadCountCache.getInstance().markRead(chatroomId, newestShownIncomingTimestamp());
+            
             // MEMORY MANAGEMENT: Suggest garbage collection on resume
             System.gc();
             
@@ -1309,9 +1435,13 @@ void getOrCreateChatroomModel(){
             super.onPause();
             Log.d(TAG, "⏸️ ChatActivity onPause - CRASH PROTECTED");
             if(adapter != null) {
+                // Don't leave reaction taps waiting in the coalescing window while the chat is in the background
+                adapter.flushPendingReactions();
                 adapter.stopListening();
                 Log.d(TAG, "✅ Adapter listening paused");
             }
+            // Covers messages that arrived while the chat was open
+            UnreadCountCache.getInstance().markRead(chatroomId, newestShownIncomingTimestamp());
         } catch (Exception e) {
             Log.e(TAG, "❌ Error in onPause", e);
         }
@@ -1342,12 +1472,29 @@ void getOrCreateChatroomModel(){
             if (adapter != null) {
                 adapter.stopListening();
                 adapter = null;
+                messagePager = null;
                 Log.d(TAG, "✅ Adapter cleaned up");
             }
         } catch (Exception e) {
             Log.e(TAG, "❌ Error cleaning adapter", e);
         }
         
+        // Let image uploads finish without this activity; the recovery handler of the next one sends them
+        for (MediaPipeline.Job job : mediaJobs) {
+            job.detach();
+        }
+        mediaJobs.clear();
+        if (chatroomId != null) {
+            ResumableUploadManager.getInstance(this).removeRecoveryHandler(chatroomId, uploadRecoveryHandler);
+            MessageOutbox.getInstance(this).removeDeliveryListener(chatroomId, outboxListener);
+        }
+        
+        // Stop watching group members
+        if (memberWatch != null) {
+            memberWatch.remove();
+            memberWatch = null;
+        }
+        
         // Clear RecyclerView to free memory
         try {
             if (recyclerView != null) {
@@ -1468,6 +1615,27 @@ void getOrCreateChatroomModel(){
         // Check if this is a group chat based on chatroomModel
         return chatroomModel != null && chatroomModel.isGroup();
     }
+
+    /**
+     * Timestamp of the newest message from someone else in the live window, or null if none is
+     * shown. The read watermark is written from this rather than the device clock so it is
+     * compared against message timestamps from the same clocks that wrote them.
+     */
+    private Timestamp newestShownIncomingTimestamp() {
+        if (messagePager == null) {
+            return null;
+        }
+        String currentUserId = FirebaseUtil.currentUserId();
+        int liveWindowSize = Math.min(messagePager.getLiveWindowSize(), messagePager.size());
+        for (int i = 0; i < liveWindowSize; i++) {
+            ChatMessageModel message = messagePager.get(i);
+            if (message != null && message.getTimestamp() != null
+                    && !Objects.equals(currentUserId, message.getSenderId())) {
+                return message.getTimestamp();
+            }
+        }
+        return null;
+    }
     
     /**
      * Show confirmation dialog for "Delete for Everyone" single message
@@ -1572,37 +1740,19 @@ void getOrCreateChatroomModel(){
         
         AndroidUtil.showToast(getApplicationContext(), "Deleting " + messageIds.size() + " messages...");
         
-        final int[] completedCount = {0};
-        final int[] successCount = {0};
-        final int totalCount = messageIds.size();
-        
-        for (String messageId : messageIds) {
-            FirebaseUtil.getChatroomMessageReference(chatroomId)
-                    .document(messageId)
-                    .update("deletedForEveryone", true,
-                           "deletedForEveryoneTimestamp", Timestamp.now(),
-                           "deletedByUserId", FirebaseUtil.currentUserId())
-                    .addOnCompleteListener(task -> {
-                        completedCount[0]++;
-                        if (task.isSuccessful()) {
-                            successCount[0]++;
-                        }
-                        
-                        // Check if all messages have been processed
-                        if (completedCount[0] == totalCount) {
-                            String resultMessage = successCount[0] + " messages deleted";
-                            if (successCount[0] < totalCount) {
-                                resultMessage += ", " + (totalCount - successCount[0]) + " failed";
-                            }
-                            AndroidUtil.showToast(getApplicationContext(), resultMessage);
-                            
-                            // Log the batch operation
-                            WhatsAppStyleDeletionUtil.logDeletionAction(
-                                "DELETE_MULTIPLE_FOR_EVERYONE", messageIds.toString(), 
-                                chatroomId, FirebaseUtil.currentUserId(), successCount[0] > 0);
-                        }
-                    });
-        }
+        FirebaseUtil.deleteMultipleMessagesForEveryone(chatroomId, messageIds, FirebaseUtil.currentUserId(),
+                (successCount, failureCount) -> {
+                    String resultMessage = successCount + " messages deleted";
+                    if (failureCount > 0) {
+                        resultMessage += ", " + failureCount + " failed";
+                    }
+                    AndroidUtil.showToast(getApplicationContext(), resultMessage);
+                    
+                    // Log the batch operation
+                    WhatsAppStyleDeletionUtil.logDeletionAction(
+                        "DELETE_MULTIPLE_FOR_EVERYONE", messageIds.toString(), 
+                        chatroomId, FirebaseUtil.currentUserId(), successCount > 0);
+                });
     }
     
     // Implementation of EditMessageListener interface
@@ -1697,7 +1847,7 @@ void getOrCreateChatroomModel(){
                                         // Update chatroom last message if this was the last message
                                         if (chatroomModel != null && messageId.equals(chatroomModel.getLastMessageSenderId())) {
                                             chatroomModel.setLastMessage(newMessage);
-                                            FirebaseUtil.getChatroomReference(chatroomId).set(chatroomModel);
+                                            FirebaseUtil.updateChatroomLastMessage(chatroomId, chatroomModel);
                                         }
                                     })
                                     .addOnFailureListener(error -> {
@@ -1952,104 +2102,47 @@ void getOrCreateChatroomModel(){
             return;
         }
         
-        // Create single image message with local URI (for immediate display)
-        sendSingleImageMessage(imageUri);
-        
-        /* TODO: Re-enable actual single image upload
         AndroidUtil.showToast(this, "Uploading image...");
         
-        try {
-            ImageUploadUtil.uploadImage(this, imageUri, chatroomId, new ImageUploadUtil.ImageUploadListener() {
-                @Override
-                public void onUploadProgress(int progress) {
-                    Log.d(TAG, "Upload progress: " + progress + "%");
-                    runOnUiThread(() -> {
-                        // Could show progress here
-                    });
-                }
-                
-                @Override
-                public void onUploadSuccess(String downloadUrl, ImageMetadata metadata) {
-                    Log.d(TAG, "Image uploaded successfully: " + downloadUrl);
-                    runOnUiThread(() -> {
-                        try {
-                            // Create image message
-                            ChatMessageModel imageMessage = new ChatMessageModel(
-                                FirebaseUtil.currentUserId(),
-                                Timestamp.now(),
-                                downloadUrl,
-                                null, // No caption for now
-                                metadata
-                            );
-                            
-                            // Send to Firestore
-                            sendImageMessageToFirestore(imageMessage);
-                            AndroidUtil.showToast(ChatActivity.this, "Image sent!");
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error creating image message", e);
-                            AndroidUtil.showToast(ChatActivity.this, "Failed to send image");
-                        }
-                    });
-                }
-                
-                @Override
-                public void onUploadFailure(Exception e) {
-                    Log.e(TAG, "Failed to upload image: " + imageUri, e);
-                    runOnUiThread(() -> {
-                        AndroidUtil.showToast(ChatActivity.this, "Failed to send image: " + e.getMessage());
-                    });
-                }
-            });
-        } catch (Exception e) {
-            Log.e(TAG, "Error in image upload", e);
-            AndroidUtil.showToast(this, "Failed to upload image: " + e.getMessage());
-        }
-        */
-    }
-    
-    private void sendSingleImageMessage(Uri imageUri) {
-        Log.d(TAG, "Creating single image message with local URI: " + imageUri);
-        
-        try {
-            if(chatroomModel == null) {
-                Log.e(TAG, "Chatroom model is null in single image message");
-                AndroidUtil.showToast(getApplicationContext(), "Chat not ready. Please wait a moment.");
-                return;
+        // Compression runs on the media pipeline; callbacks come back on the main thread
+        MediaPipeline.Job[] uploadJob = new MediaPipeline.Job[1];
+        uploadJob[0] = ImageUploadUtil.uploadImage(this, imageUri, chatroomId, new ImageUploadUtil.ImageUploadListener() {
+            @Override
+            public void onUploadProgress(int progress) {
+                Log.d(TAG, "Upload progress: " + progress + "%");
             }
             
-            // Create single image message using the constructor
-            ChatMessageModel singleImageMessage = new ChatMessageModel(
-                FirebaseUtil.currentUserId(),
-                Timestamp.now(),
-                imageUri.toString(),
-                null, // No caption for now
-                null  // No metadata for local images
-            );
-            
-            // Update chatroom with last message
-            chatroomModel.setLastMessageTimestamp(Timestamp.now());
-            chatroomModel.setLastMessageSenderId(FirebaseUtil.currentUserId());
-            chatroomModel.setLastMessage(singleImageMessage.getMessage());
-            FirebaseUtil.getChatroomReference(chatroomId).set(chatroomModel);
-            
-            // Add message to Firestore
-            FirebaseUtil.getChatroomMessageReference(chatroomId)
-                    .add(singleImageMessage)
-                    .addOnSuccessListener(documentReference -> {
-                        Log.d(TAG, "Single image message sent successfully");
-                        AndroidUtil.showToast(getApplicationContext(), "Image sent!");
-                        // Send notification
-                        sendNotification(singleImageMessage.getMessage());
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Failed to send single image message", e);
-                        AndroidUtil.showToast(getApplicationContext(), "Failed to send image");
-                    });
+            @Override
+            public void onUploadSuccess(String downloadUrl, ImageMetadata metadata) {
+                mediaJobs.remove(uploadJob[0]);
+                Log.d(TAG, "Image uploaded successfully: " + downloadUrl);
+                try {
+                    // Create image message
+                    ChatMessageModel imageMessage = new ChatMessageModel(
+                        FirebaseUtil.currentUserId(),
+                        Timestamp.now(),
+                        downloadUrl,
+                        null, // No caption for now
+                        metadata
+                    );
+                    
+                    // Send to Firestore
+                    sendImageMessageToFirestore(imageMessage);
+                    AndroidUtil.showToast(ChatActivity.this, "Image sent!");
+                } catch (Exception e) {
+                    Log.e(TAG, "Error creating image message", e);
+                    AndroidUtil.showToast(ChatActivity.this, "Failed to send image");
+                }
+            }
             
-        } catch (Exception e) {
-            Log.e(TAG, "Error creating single image message", e);
-            AndroidUtil.showToast(getApplicationContext(), "Error sending image");
-        }
+            @Override
+            public void onUploadFailure(Exception e) {
+                mediaJobs.remove(uploadJob[0]);
+                Log.e(TAG, "Failed to upload image: " + imageUri, e);
+                AndroidUtil.showToast(ChatActivity.this, "Failed to send image: " + e.getMessage());
+            }
+        });
+        mediaJobs.add(uploadJob[0]);
     }
     
     // TEMPORARY TEST METHOD for single image
@@ -2068,7 +2161,7 @@ void getOrCreateChatroomModel(){
         chatroomModel.setLastMessageTimestamp(Timestamp.now());
         chatroomModel.setLastMessageSenderId(FirebaseUtil.currentUserId());
         chatroomModel.setLastMessage(testMessage);
-        FirebaseUtil.getChatroomReference(chatroomId).set(chatroomModel);
+        FirebaseUtil.updateChatroomLastMessage(chatroomId, chatroomModel);
 
         ChatMessageModel testChatMessage = new ChatMessageModel(testMessage, FirebaseUtil.currentUserId(), Timestamp.now());
         
@@ -2099,20 +2192,19 @@ void getOrCreateChatroomModel(){
             return;
         }
         
-        // Create multiple images message with local URIs (for immediate display)
-        sendMultipleImagesMessage(imageUris);
-        
-        /* TODO: Re-enable actual multiple image upload
         AndroidUtil.showToast(this, "Uploading " + imageUris.size() + " images...");
         
-        ImageUploadUtil.uploadMultipleImages(this, imageUris, chatroomId, new ImageUploadUtil.MultipleImageUploadListener() {
+        // Images are processed a few at a time on the media pipeline; URLs keep selection order
+        MediaPipeline.Job[] uploadJob = new MediaPipeline.Job[1];
+        uploadJob[0] = ImageUploadUtil.uploadMultipleImages(this, imageUris, chatroomId, new ImageUploadUtil.MultipleImageUploadListener() {
             @Override
             public void onUploadProgress(int completedCount, int totalCount) {
-                // Could update progress here
+                Log.d(TAG, "Uploaded " + completedCount + "/" + totalCount + " images");
             }
             
             @Override
-            public void onUploadSuccess(java.util.List<String> downloadUrls) {
+            public void onUploadSuccess(java.util.List<String> downloadUrls, java.util.List<ImageMetadata> metadata) {
+                mediaJobs.remove(uploadJob[0]);
                 // Create multiple images message
                 ChatMessageModel multiImageMessage = new ChatMessageModel(
                     FirebaseUtil.currentUserId(),
@@ -2120,6 +2212,7 @@ void getOrCreateChatroomModel(){
                     downloadUrls,
                     null // No caption for now
                 );
+                multiImageMessage.setImagesMetadata(metadata);
                 
                 // Send to Firestore
                 sendImageMessageToFirestore(multiImageMessage);
@@ -2128,61 +2221,12 @@ void getOrCreateChatroomModel(){
             
             @Override
             public void onUploadFailure(Exception e) {
+                mediaJobs.remove(uploadJob[0]);
                 Log.e(TAG, "Failed to upload images", e);
                 AndroidUtil.showToast(ChatActivity.this, "Failed to send images. Please try again.");
             }
         });
-        */
-    }
-    
-    private void sendMultipleImagesMessage(java.util.List<Uri> imageUris) {
-        Log.d(TAG, "Creating multiple images message with local URIs: " + imageUris.size() + " images");
-        
-        try {
-            if(chatroomModel == null) {
-                Log.e(TAG, "Chatroom model is null in multiple images message");
-                AndroidUtil.showToast(getApplicationContext(), "Chat not ready. Please wait a moment.");
-                return;
-            }
-            
-            // Convert Uri list to String list for ChatMessageModel
-            java.util.List<String> imageUrlStrings = new java.util.ArrayList<>();
-            for (Uri uri : imageUris) {
-                imageUrlStrings.add(uri.toString());
-            }
-            
-            // Create multiple images message using the constructor
-            ChatMessageModel multiImageMessage = new ChatMessageModel(
-                FirebaseUtil.currentUserId(),
-                Timestamp.now(),
-                imageUrlStrings,
-                null // No caption for now
-            );
-            
-            // Update chatroom with last message
-            chatroomModel.setLastMessageTimestamp(Timestamp.now());
-            chatroomModel.setLastMessageSenderId(FirebaseUtil.currentUserId());
-            chatroomModel.setLastMessage(multiImageMessage.getMessage());
-            FirebaseUtil.getChatroomReference(chatroomId).set(chatroomModel);
-            
-            // Add message to Firestore
-            FirebaseUtil.getChatroomMessageReference(chatroomId)
-                    .add(multiImageMessage)
-                    .addOnSuccessListener(documentReference -> {
-                        Log.d(TAG, "Multiple images message sent successfully");
-                        AndroidUtil.showToast(getApplicationContext(), imageUris.size() + " images sent!");
-                        // Send notification
-                        sendNotification(multiImageMessage.getMessage());
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Failed to send multiple images message", e);
-                        AndroidUtil.showToast(getApplicationContext(), "Failed to send images");
-                    });
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Error creating multiple images message", e);
-            AndroidUtil.showToast(getApplicationContext(), "Error sending images");
-        }
+        mediaJobs.add(uploadJob[0]);
     }
     
     // TEMPORARY TEST METHOD for multiple images
@@ -2200,7 +2244,7 @@ void getOrCreateChatroomModel(){
         chatroomModel.setLastMessageTimestamp(Timestamp.now());
         chatroomModel.setLastMessageSenderId(FirebaseUtil.currentUserId());
         chatroomModel.setLastMessage(testMessage);
-        FirebaseUtil.getChatroomReference(chatroomId).set(chatroomModel);
+        FirebaseUtil.updateChatroomLastMessage(chatroomId, chatroomModel);
 
         ChatMessageModel testChatMessage = new ChatMessageModel(testMessage, FirebaseUtil.currentUserId(), Timestamp.now());
         
@@ -2216,19 +2260,60 @@ void getOrCreateChatroomModel(){
                 });
     }
     
+    private void setupOutbox() {
+        if (chatroomId == null) {
+            return;
+        }
+        MessageOutbox outbox = MessageOutbox.getInstance(this);
+        outbox.setDeliveryListener(chatroomId, outboxListener);
+        outbox.resumePending();
+    }
+    
+    private void setupUploadRecovery() {
+        if (chatroomId == null) {
+            return;
+        }
+        ResumableUploadManager uploadManager = ResumableUploadManager.getInstance(this);
+        uploadManager.setRecoveryHandler(chatroomId, uploadRecoveryHandler);
+        uploadManager.resumePending();
+    }
+    
+    /**
+     * Images uploaded after the screen that picked them closed (or the app restarted)
+     */
+    private void sendRecoveredImages(java.util.List<String> downloadUrls, java.util.List<ImageMetadata> metadata) {
+        Log.d(TAG, "📤 Sending " + downloadUrls.size() + " recovered image(s)");
+        ChatMessageModel imageMessage;
+        if (downloadUrls.size() == 1) {
+            imageMessage = new ChatMessageModel(
+                FirebaseUtil.currentUserId(),
+                Timestamp.now(),
+                downloadUrls.get(0),
+                null,
+                metadata.get(0)
+            );
+        } else {
+            imageMessage = new ChatMessageModel(
+                FirebaseUtil.currentUserId(),
+                Timestamp.now(),
+                downloadUrls,
+                null
+            );
+            imageMessage.setImagesMetadata(metadata);
+        }
+        sendImageMessageToFirestore(imageMessage);
+    }
+    
     private void sendImageMessageToFirestore(ChatMessageModel imageMessage) {
-        // Update chatroom with last message
         if (chatroomModel != null) {
-            chatroomModel.setLastMessageTimestamp(Timestamp.now());
+            chatroomModel.setLastMessageTimestamp(imageMessage.getTimestamp());
             chatroomModel.setLastMessageSenderId(FirebaseUtil.currentUserId());
             chatroomModel.setLastMessage(imageMessage.getMessage());
-            FirebaseUtil.getChatroomReference(chatroomId).set(chatroomModel);
         }
         
-        // Add message to Firestore
-        FirebaseUtil.getChatroomMessageReference(chatroomId)
-                .add(imageMessage)
-                .addOnSuccessListener(documentReference -> {
+        // Message and chatroom last-message fields in one batch
+        FirebaseUtil.sendMessage(chatroomId, FirebaseUtil.getChatroomMessageReference(chatroomId).document(), imageMessage)
+                .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Image message sent successfully");
                     // Send notification
                     sendNotification(imageMessage.getMessage());
@@ -2254,7 +2339,7 @@ void getOrCreateChatroomModel(){
         chatroomModel.setLastMessageTimestamp(Timestamp.now());
         chatroomModel.setLastMessageSenderId(FirebaseUtil.currentUserId());
         chatroomModel.setLastMessage(testMessage);
-        FirebaseUtil.getChatroomReference(chatroomId).set(chatroomModel);
+        FirebaseUtil.updateChatroomLastMessage(chatroomId, chatroomModel);
 
         ChatMessageModel testChatMessage = new ChatMessageModel(testMessage, FirebaseUtil.currentUserId(), Timestamp.now());
         
@@ -2303,7 +2388,7 @@ void getOrCreateChatroomModel(){
             chatroomModel.setLastMessageTimestamp(Timestamp.now());
             chatroomModel.setLastMessageSenderId(FirebaseUtil.currentUserId());
             chatroomModel.setLastMessage("📷 Photo");
-            FirebaseUtil.getChatroomReference(chatroomId).set(chatroomModel);
+            FirebaseUtil.updateChatroomLastMessage(chatroomId, chatroomModel);
             
             // Send mock image message to Firestore
             FirebaseUtil.getChatroomMessageReference(chatroomId)
@@ -2349,7 +2434,7 @@ void getOrCreateChatroomModel(){
             chatroomModel.setLastMessageTimestamp(Timestamp.now());
             chatroomModel.setLastMessageSenderId(FirebaseUtil.currentUserId());
             chatroomModel.setLastMessage("📷 Test Image");
-            FirebaseUtil.getChatroomReference(chatroomId).set(chatroomModel);
+            FirebaseUtil.updateChatroomLastMessage(chatroomId, chatroomModel);
             
             // Send test image message to Firestore
             FirebaseUtil.getChatroomMessageReference(chatroomId)
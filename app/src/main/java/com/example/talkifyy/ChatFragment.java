@@ -20,11 +20,11 @@ import com.example.talkifyy.model.ChatroomModel;
 import com.example.talkifyy.model.ChatMessageModel;
 import com.example.talkifyy.services.ChatRestorationService;
 import com.example.talkifyy.utils.AndroidUtil;
+import com.example.talkifyy.utils.ChatListRepository;
 import com.example.talkifyy.utils.FirebaseUtil;
 import com.example.talkifyy.utils.NotificationUtil;
 import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.ListenerRegistration;
-import com.firebase.ui.firestore.FirestoreRecyclerOptions;
 import com.google.firebase.firestore.Query;
 
 
@@ -38,16 +38,13 @@ public class ChatFragment extends Fragment implements ChatContextMenuListener, C
         private static final String TAG = "ChatFragment";
         RecyclerView recyclerView;
         RecentChatRecyclerAdapter adapter;
+        ChatListRepository chatListRepository;
         ChatRestorationService restorationService;
         
         // Real-time message listeners
         private ListenerRegistration globalMessageListener;
         private boolean isAppInForeground = true;
         
-        // Static mode - prevents chat list refresh when current user sends messages
-        private boolean enableStaticMode = true;
-        private long lastOwnMessageTime = 0;
-        
         // Timing controls to prevent rapid UI updates
         private long lastUIUpdateTime = 0;
         private static final long MIN_UI_UPDATE_INTERVAL = 500; // 500ms minimum between updates
@@ -73,18 +70,16 @@ public class ChatFragment extends Fragment implements ChatContextMenuListener, C
                 return;
             }
             
-            // Instagram-style query - order by timestamp descending (latest first)
-            Query query = FirebaseUtil.allChatroomCollectionReference()
-                    .whereArrayContains("userIds", FirebaseUtil.currentUserId())
-                    .orderBy("lastMessageTimestamp", Query.Direction.DESCENDING);
-            
-            Log.d(TAG, "📱 Setting up chat list with STATIC MODE - won't refresh on own messages");
-            Log.d(TAG, "🔒 STATIC MODE ENABLED: Chat list will remain stable when you send messages");
-
-            FirestoreRecyclerOptions<ChatroomModel> options = new FirestoreRecyclerOptions.Builder<ChatroomModel>()
-                    .setQuery(query,ChatroomModel.class).build();
+            // Instagram-style list - latest first. Snapshots are diffed, so a new message
+            // moves or rebinds just its own row and the rest of the list stays put.
+            Log.d(TAG, "📱 Setting up diffed chat list");
+            chatListRepository = new ChatListRepository(getContext(), chats -> {
+                if (adapter != null) {
+                    adapter.submitList(chats);
+                }
+            });
 
-            adapter = new RecentChatRecyclerAdapter(options,getContext());
+            adapter = new RecentChatRecyclerAdapter(getContext(), chatListRepository);
             adapter.setChatContextMenuListener(this);
             recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
             
@@ -109,14 +104,14 @@ public class ChatFragment extends Fragment implements ChatContextMenuListener, C
             });
             
             recyclerView.setAdapter(adapter);
-            adapter.startListening();
+            chatListRepository.start();
         }
 
         @Override
         public void onStart() {
             super.onStart();
-            if(adapter!=null)
-                adapter.startListening();
+            if(chatListRepository!=null)
+                chatListRepository.start();
             
             // Initialize and start chat restoration monitoring
             if (restorationService == null) {
@@ -137,8 +132,8 @@ public class ChatFragment extends Fragment implements ChatContextMenuListener, C
         @Override
         public void onStop() {
             super.onStop();
-            if(adapter!=null)
-                adapter.stopListening();
+            if(chatListRepository!=null)
+                chatListRepository.stop();
             
             // Stop chat restoration monitoring
             if (restorationService != null) {
@@ -156,9 +151,7 @@ public class ChatFragment extends Fragment implements ChatContextMenuListener, C
         public void onResume() {
             super.onResume();
             isAppInForeground = true;
-            Log.d(TAG, "🔄 STATIC MODE: Chat list resumed - static mode is " + (enableStaticMode ? "ENABLED" : "DISABLED"));
-            if(adapter!=null)
-                adapter.notifyDataSetChanged();
+            Log.d(TAG, "🔄 Chat list resumed");
         }
         
         @Override
@@ -216,11 +209,9 @@ public class ChatFragment extends Fragment implements ChatContextMenuListener, C
         public void onChatRestored(String chatroomId, ChatroomModel chatroom) {
             Log.d(TAG, "Chat restored: " + chatroomId);
             
-            // Refresh the adapter to show the restored chat
-            if (adapter != null && isAdded()) {
-                getActivity().runOnUiThread(() -> {
-                    adapter.notifyDataSetChanged();
-                });
+            // Publish the list again so the restored chat reappears
+            if (chatListRepository != null && isAdded()) {
+                chatListRepository.refresh();
             }
         }
         
@@ -255,18 +246,9 @@ public class ChatFragment extends Fragment implements ChatContextMenuListener, C
             // Handle new messages for both foreground and background scenarios
             if (chatroom != null && chatroom.getLastMessageSenderId() != null && chatroom.getLastMessage() != null) {
                 
-                // STATIC MODE: Don't process messages sent by current user - KEEP CHAT LIST STABLE
-                if (enableStaticMode && chatroom.getLastMessageSenderId().equals(FirebaseUtil.currentUserId())) {
-                    Log.d(TAG, "✋ STATIC MODE: Blocking chat list refresh for own message");
-                    Log.d(TAG, "Message from current user: " + chatroom.getLastMessage());
-                    Log.d(TAG, "Chatroom ID: " + chatroomId);
-                    
-                    // Update timestamp to track own messages
-                    if (chatroom.getLastMessageTimestamp() != null) {
-                        lastOwnMessageTime = chatroom.getLastMessageTimestamp().toDate().getTime();
-                    }
-                    
-                    Log.d(TAG, "🚫 PREVENTED: Chat list refresh blocked to keep it static");
+                // Own messages don't count as new or notify; the diffed list just moves the row
+                if (chatroom.getLastMessageSenderId().equals(FirebaseUtil.currentUserId())) {
+                    Log.d(TAG, "Own message in chatroom: " + chatroomId + ", no notification");
                     return;
                 }
                 
@@ -321,9 +303,6 @@ public class ChatFragment extends Fragment implements ChatContextMenuListener, C
                                                                 Log.d(TAG, "🎆 Highlighting individual chat: " + senderId);
                                                                 adapter.highlightChatWithNewMessage(senderId, chatroomId);
                                                             }
-                                                            
-                                                            // Force adapter refresh
-                                                            adapter.notifyDataSetChanged();
                                                             Log.d(TAG, "✅ Adapter updated successfully (throttled)");
                                                             
                                                         } catch (Exception e) {
@@ -366,56 +345,23 @@ public class ChatFragment extends Fragment implements ChatContextMenuListener, C
                             NotificationUtil.updateMessageCount(notificationKey, chatroom.getLastMessage());
                             
                             Log.d(TAG, "📊 Updated message count (fallback) for key: " + notificationKey);
-                            
-                            if (isAppInForeground && adapter != null) {
-                                Log.d(TAG, "🔄 Updating adapter (fallback) on UI thread");
-                                getActivity().runOnUiThread(() -> {
-                                    try {
-                                        adapter.notifyDataSetChanged();
-                                        Log.d(TAG, "✅ Adapter updated (fallback) successfully");
-                                    } catch (Exception ex) {
-                                        Log.e(TAG, "❌ Error updating adapter (fallback)", ex);
-                                    }
-                                });
-                            }
                         });
             } else {
                 Log.d(TAG, "Invalid chatroom data for new message processing");
             }
         }
         
-        /**
-         * Enable or disable static mode for chat list
-         * When enabled, chat list won't refresh when current user sends messages
-         */
-        public void setStaticMode(boolean enabled) {
-            this.enableStaticMode = enabled;
-            Log.d(TAG, "🔧 STATIC MODE " + (enabled ? "ENABLED" : "DISABLED") + " - Chat list will " + (enabled ? "remain stable" : "refresh normally") + " for own messages");
-        }
-        
-        /**
-         * Check if static mode is enabled
-         */
-        public boolean isStaticModeEnabled() {
-            return enableStaticMode;
-        }
-        
         /**
          * Force refresh the chat list (useful for debugging)
          */
         public void forceRefreshChatList() {
-            if (adapter != null && isAdded()) {
+            if (chatListRepository != null && isAdded()) {
                 getActivity().runOnUiThread(() -> {
-                    try {
-                        Log.d(TAG, "🔄 FORCE: Refreshing chat list");
-                        adapter.notifyDataSetChanged();
-                        Log.d(TAG, "✅ FORCE: Chat list refreshed successfully");
-                    } catch (Exception e) {
-                        Log.e(TAG, "❌ FORCE: Error refreshing chat list", e);
-                    }
+                    Log.d(TAG, "🔄 FORCE: Refreshing chat list");
+                    chatListRepository.refresh();
                 });
             } else {
-                Log.w(TAG, "⚠️ FORCE: Cannot refresh - adapter is null or fragment not added");
+                Log.w(TAG, "⚠️ FORCE: Cannot refresh - repository is null or fragment not added");
             }
         }
 }
@@ -14,6 +14,7 @@ import androidx.core.app.NotificationCompat;
 
 import com.example.talkifyy.model.UserModel;
 import com.example.talkifyy.utils.AndroidUtil;
+import com.example.talkifyy.utils.FcmTokenRegistry;
 import com.example.talkifyy.utils.FirebaseUtil;
 import com.example.talkifyy.utils.NotificationUtil;
 import com.example.talkifyy.utils.NotificationDebugConfig;
@@ -41,6 +42,7 @@ public class FCMNotificationService extends FirebaseMessagingService {
             String type = remoteMessage.getData().get("type");
             String isGroupStr = remoteMessage.getData().get("isGroup");
             String groupName = remoteMessage.getData().get("groupName");
+            int messageCount = parseMessageCount(remoteMessage.getData().get("messageCount"));
             
             boolean isGroup = "true".equals(isGroupStr);
             Log.d(TAG, "👥 Is group chat: " + isGroup + ", Group name: " + groupName);
@@ -59,7 +61,7 @@ public class FCMNotificationService extends FirebaseMessagingService {
                     Log.d(TAG, "🎤 Received voice message notification");
                 }
                 
-                showChatNotification(senderName, notificationText, chatId, isGroup, groupName);
+                showChatNotification(senderName, NotificationUtil.burstText(notificationText, messageCount), chatId, isGroup, groupName);
                 return;
             }
         }
@@ -84,9 +86,23 @@ public class FCMNotificationService extends FirebaseMessagingService {
         sendRegistrationToServer(token);
     }
 
+    /**
+     * Senders coalesce bursts into one push; older senders don't send a count
+     */
+    private static int parseMessageCount(String value) {
+        if (value == null) {
+            return 1;
+        }
+        try {
+            return Math.max(1, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
     private void sendRegistrationToServer(String token) {
-        // Update FCM token in Firestore
-        FirebaseUtil.updateFCMToken(token);
+        // Update FCM token in Firestore and drop the stale cached copy
+        FcmTokenRegistry.getInstance().onNewToken(token);
         Log.d(TAG, "Token updated in Firestore: " + token);
     }
 
@@ -24,6 +24,7 @@ import com.example.talkifyy.model.ChatroomModel;
 import com.example.talkifyy.model.UserModel;
 import com.example.talkifyy.utils.AndroidUtil;
 import com.example.talkifyy.utils.FirebaseUtil;
+import com.example.talkifyy.utils.UserDirectory;
 import com.firebase.ui.firestore.FirestoreRecyclerOptions;
 import com.google.firebase.firestore.Query;
 
@@ -180,19 +181,14 @@ public class GroupInfoActivity extends AppCompatActivity {
             
             // Get creator info
             if (groupChatroom.getCreatedBy() != null) {
-                FirebaseUtil.allUserCollectionReference()
-                    .document(groupChatroom.getCreatedBy())
-                    .get()
-                    .addOnSuccessListener(documentSnapshot -> {
-                        if (documentSnapshot.exists()) {
-                            UserModel creator = documentSnapshot.toObject(UserModel.class);
-                            String creatorName = creator != null ? creator.getUsername() : "Unknown";
-                            groupCreatedInfo.setText("Created by " + creatorName + " • " + dateStr);
-                        }
-                    })
-                    .addOnFailureListener(e -> {
+                UserDirectory.getInstance().getUser(groupChatroom.getCreatedBy(), creator -> {
+                    if (creator != null) {
+                        String creatorName = creator.getUsername() != null ? creator.getUsername() : "Unknown";
+                        groupCreatedInfo.setText("Created by " + creatorName + " • " + dateStr);
+                    } else {
                         groupCreatedInfo.setText("Created on " + dateStr);
-                    });
+                    }
+                });
             } else {
                 groupCreatedInfo.setText("Created on " + dateStr);
             }
@@ -56,6 +56,9 @@ public class TalkifyyApplication extends Application {
             // Create notification channel
             NotificationUtil.createNotificationChannel(this);
             Log.d(TAG, "✅ Notification channel created");
+            
+            // Restore unread badges before any chat list or push reads them
+            NotificationUtil.initUnreadCounters(this);
         } catch (Exception e) {
             Log.e(TAG, "❌ Error creating notification channel", e);
             // Continue even if notifications fail
@@ -4,9 +4,8 @@ package com.example.talkifyy.adapter;
 import android.animation.ObjectAnimator;
 import android.animation.ValueAnimator;
 import android.content.Context;
-import android.graphics.Color;
-import android.graphics.Typeface;
 import android.util.Log;
+import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -26,36 +25,82 @@ import androidx.recyclerview.widget.GridLayoutManager;
 import android.graphics.Rect;
 import android.content.Intent;
 
+import com.example.talkifyy.BuildConfig;
 import com.example.talkifyy.R;
 import com.example.talkifyy.model.ChatMessageModel;
+import com.example.talkifyy.model.ImageMetadata;
+import com.example.talkifyy.model.UserModel;
 import com.example.talkifyy.utils.FirebaseUtil;
+import com.example.talkifyy.utils.ImagePlaceholders;
+import com.example.talkifyy.utils.ImageVariants;
 import com.example.talkifyy.utils.LocalDeletionUtil;
+import com.example.talkifyy.utils.MediaPipeline;
+import com.example.talkifyy.utils.MessageOutbox;
 import com.example.talkifyy.utils.MessageReactionManager;
+import com.example.talkifyy.utils.ReactionUpdate;
+import com.example.talkifyy.utils.ReactionWriteCoalescer;
+import com.example.talkifyy.utils.UserDirectory;
 import com.example.talkifyy.utils.WhatsAppStyleDeletionUtil;
+import com.firebase.ui.common.ChangeEventType;
 import com.firebase.ui.firestore.FirestoreRecyclerAdapter;
 import com.firebase.ui.firestore.FirestoreRecyclerOptions;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestoreException;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 
 public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageModel, ChatRecyclerAdapter.ChatModelViewHolder> {
 
         private static final String TAG = "ChatRecyclerAdapter";
+        private static final float MIN_IMAGE_ASPECT = 0.5f; // Height/width clamp for image bubbles
+        private static final int SINGLE_IMAGE_FALLBACK_SIZE = 100; // Even smaller than the primary load
+        private static final float MAX_IMAGE_ASPECT = 1.5f;
+        private static final float PENDING_MESSAGE_ALPHA = 0.6f; // Own message the server hasn't acknowledged yet
+        
+        // One flat layout per row type (outgoing rows are the incoming layout mirrored at creation),
+        // so a bind never toggles visibility across a tree holding every variant
+        static final int VIEW_TYPE_TEXT_INCOMING = 0;
+        static final int VIEW_TYPE_TEXT_OUTGOING = 1;
+        static final int VIEW_TYPE_IMAGE_INCOMING = 2;
+        static final int VIEW_TYPE_IMAGE_OUTGOING = 3;
+        static final int VIEW_TYPE_GRID_INCOMING = 4;
+        static final int VIEW_TYPE_GRID_OUTGOING = 5;
+        static final int VIEW_TYPE_DELETED_INCOMING = 6;
+        static final int VIEW_TYPE_DELETED_OUTGOING = 7;
+        static final int VIEW_TYPE_HIDDEN = 8; // Empty row for a message deleted on this device
+        private static final int MAX_POOLED_GRID_CELLS = 16;
+        private static final long DOUBLE_CLICK_TIME_DELTA = 300; // ms
         Context context;
         UnsendMessageListener unsendMessageListener;
         MessageDeletionListener messageDeletionListener;
         EditMessageListener editMessageListener;
         String chatroomId;
+        private final String currentUserId; // Resolved once rather than through FirebaseAuth per bind
         long unsendTimeWindowMinutes = 10; // Default 10 minutes
         boolean isGroupChat = false; // Track if this is a group chat
         
         // Multi-select functionality
         private boolean isSelectionMode = false;
         private Set<String> selectedMessageIds = new HashSet<>();
+        
+        // Cached rows from LocalMessageStore, shown until the first live snapshot arrives
+        private List<ChatMessageModel> cachedMessages = new ArrayList<>();
+        private boolean hasLiveData = false;
+        
+        // Net reaction changes per (message, emoji), written in batches
+        private final ReactionWriteCoalescer reactionWriter;
+        
+        // Model each row was last bound with, diffed against updates to pick partial rebinds
+        private final Map<String, ChatMessageModel> shownModels = new HashMap<>();
+        
+        // Image cells shared by every grid row, so a grid scrolled into view reuses cells from one that left
+        private final RecyclerView.RecycledViewPool imageCellPool = new RecyclerView.RecycledViewPool();
 
         public ChatRecyclerAdapter(@NonNull FirestoreRecyclerOptions<ChatMessageModel> options, Context context, 
                                  String chatroomId, UnsendMessageListener listener) {
@@ -63,6 +108,28 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
             this.context = context;
             this.chatroomId = chatroomId;
             this.unsendMessageListener = listener;
+            this.currentUserId = FirebaseUtil.currentUserId();
+            this.imageCellPool.setMaxRecycledViews(0, MAX_POOLED_GRID_CELLS);
+            this.reactionWriter = new ReactionWriteCoalescer(chatroomId, new ReactionWriteCoalescer.Listener() {
+                @Override
+                public void onReactionWritten(String messageId, ReactionUpdate update) {
+                    MessageReactionManager.showReactionFeedback(context, update.emoji, update.add);
+                }
+                
+                @Override
+                public void onReactionWriteFailed(String messageId, ReactionUpdate update, Exception e) {
+                    Log.e(TAG, "Failed to toggle reaction", e);
+                    rollBackReaction(messageId, update);
+                    Toast.makeText(context, "Failed to add reaction", Toast.LENGTH_SHORT).show();
+                }
+            });
+        }
+        
+        /**
+         * Write reaction taps still waiting in the coalescing window right away
+         */
+        public void flushPendingReactions() {
+            reactionWriter.flushNow();
         }
         
         public void setUnsendTimeWindow(long minutes) {
@@ -93,101 +160,203 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
             Log.d(TAG, "⚙️ setGroupChat called: " + isGroupChat + " (was: " + this.isGroupChat + ")");
             if (this.isGroupChat != isGroupChat) {
                 this.isGroupChat = isGroupChat;
-                // Refresh the display to show/hide usernames
-                notifyDataSetChanged();
+                // Refresh only the username line of every row
+                notifyItemRangeChanged(0, getItemCount(), MessageChangePayload.SENDER_NAME);
                 Log.d(TAG, "🔄 Adapter refreshed due to group chat status change");
             }
         }
 
+        /**
+         * Paint messages from the local store while the live listener is still connecting.
+         * Ignored once live data has been delivered.
+         * @param messages Cached messages, newest first, with messageId populated
+         */
+        public void showCachedMessages(List<ChatMessageModel> messages) {
+            if (hasLiveData || messages == null || messages.isEmpty()) {
+                return;
+            }
+            cachedMessages = new ArrayList<>(messages);
+            Log.d(TAG, "💾 Showing " + cachedMessages.size() + " cached messages");
+            notifyDataSetChanged();
+        }
+        
+        private boolean isShowingCache() {
+            return !hasLiveData && !cachedMessages.isEmpty();
+        }
+        
+        /**
+         * Document ID of the message at an adapter position (live or cached)
+         * @param position Adapter position
+         * @return message document ID
+         */
+        String getMessageIdAt(int position) {
+            if (isShowingCache()) {
+                return cachedMessages.get(position).getMessageId();
+            }
+            return getSnapshots().getSnapshot(position).getId();
+        }
+        
+        @NonNull
+        @Override
+        public ChatMessageModel getItem(int position) {
+            if (isShowingCache()) {
+                return cachedMessages.get(position);
+            }
+            return super.getItem(position);
+        }
+        
+        @Override
+        public int getItemCount() {
+            if (isShowingCache()) {
+                return cachedMessages.size();
+            }
+            return super.getItemCount();
+        }
+        
+        @Override
+        public void onChildChanged(@NonNull ChangeEventType type, @NonNull DocumentSnapshot snapshot,
+                                   int newIndex, int oldIndex) {
+            // Positions refer to the live list; the swap from cache happens in onDataChanged
+            if (isShowingCache()) {
+                return;
+            }
+            String messageId = snapshot.getId();
+            if (type == ChangeEventType.CHANGED) {
+                ChatMessageModel latest = getItem(newIndex);
+                reconcilePendingReactions(messageId, latest);
+                Set<String> payloads = MessageChangePayload.between(shownModels.get(messageId), latest);
+                if (payloads != null) {
+                    // Rebind just what changed; nothing at all if the change isn't visible
+                    shownModels.put(messageId, latest);
+                    for (String payload : payloads) {
+                        notifyItemChanged(newIndex, payload);
+                    }
+                    return;
+                }
+            } else if (type == ChangeEventType.REMOVED) {
+                shownModels.remove(messageId);
+            }
+            super.onChildChanged(type, snapshot, newIndex, oldIndex);
+        }
+
+        @Override
+        public int getItemViewType(int position) {
+            // Local deletion is an in-memory probe; a message deleted here swaps to the empty row
+            if (LocalDeletionUtil.isMessageLocallyDeleted(context, chatroomId, getMessageIdAt(position))) {
+                return VIEW_TYPE_HIDDEN;
+            }
+            ChatMessageModel model = getItem(position);
+            boolean outgoing = model.getSenderId() != null && model.getSenderId().equals(currentUserId);
+            if (model.isDeletedForEveryone() || model.isUnsent()) {
+                return outgoing ? VIEW_TYPE_DELETED_OUTGOING : VIEW_TYPE_DELETED_INCOMING;
+            }
+            if (model.isSingleImage()) {
+                return outgoing ? VIEW_TYPE_IMAGE_OUTGOING : VIEW_TYPE_IMAGE_INCOMING;
+            }
+            if (model.isMultipleImages()) {
+                return outgoing ? VIEW_TYPE_GRID_OUTGOING : VIEW_TYPE_GRID_INCOMING;
+            }
+            return outgoing ? VIEW_TYPE_TEXT_OUTGOING : VIEW_TYPE_TEXT_INCOMING;
+        }
+
+        /**
+         * Full bind. Runs for every row scrolled into view, so it allocates nothing in the common
+         * case: the row type already says which side and layout, listeners belong to the holder
+         * and read the message it shows when tapped, and log lines are only built with
+         * BuildConfig.LOG_BINDS.
+         */
         @Override
         protected void onBindViewHolder(@NonNull ChatModelViewHolder holder, int position, @NonNull ChatMessageModel model) {
-            Log.d(TAG, "onBindViewHolder called for position: " + position + ", message: " + model.getMessage() + ", senderId: " + model.getSenderId());
+            if (BuildConfig.LOG_BINDS) {
+                Log.d(TAG, "onBindViewHolder called for position: " + position + ", message: " + model.getMessage() + ", senderId: " + model.getSenderId());
+            }
+            if (holder.viewType == VIEW_TYPE_HIDDEN) {
+                return; // Deleted for this user only: nothing to show
+            }
             
             // Get document ID for this message (needed for unsend functionality)
-            String messageId = getSnapshots().getSnapshot(position).getId();
-            
-            // Check if message is locally deleted - if so, hide it
-            if (LocalDeletionUtil.isMessageLocallyDeleted(context, chatroomId, messageId)) {
-                Log.d(TAG, "Message is locally deleted, hiding: " + messageId);
-                // Hide the entire item by setting zero height and invisible
-                holder.itemView.setVisibility(View.GONE);
-                holder.itemView.setLayoutParams(new RecyclerView.LayoutParams(0, 0));
-                return;
-            }
+            String messageId = getMessageIdAt(position);
             
-            // Make sure the item is visible (in case it was previously hidden)
-            holder.itemView.setVisibility(View.VISIBLE);
-            holder.itemView.setLayoutParams(new RecyclerView.LayoutParams(
-                ViewGroup.LayoutParams.MATCH_PARENT, 
-                ViewGroup.LayoutParams.WRAP_CONTENT
-            ));
+            reconcilePendingReactions(messageId, model);
+            shownModels.put(messageId, model);
+            if (!messageId.equals(holder.messageId)) {
+                holder.lastClickTime = 0; // A tap on the previous message doesn't count towards a double tap
+            }
+            holder.messageId = messageId;
+            holder.model = model;
             
-            boolean isSelected = selectedMessageIds.contains(messageId);
-            boolean isCurrentUser = model.getSenderId().equals(FirebaseUtil.currentUserId());
+            if (holder.isOutgoing) {
+                holder.messageContainer.setAlpha(
+                    MessageOutbox.getInstance(context).isPending(messageId) ? PENDING_MESSAGE_ALPHA : 1.0f);
+            }
             
-            if(isCurrentUser){
-                Log.d(TAG, "Message from current user (right side)");
-                setupRightMessage(holder, model, messageId, isSelected);
-            } else {
-                Log.d(TAG, "Message from other user (left side)");
-                setupLeftMessage(holder, model, messageId, isSelected);
+            switch (holder.viewType) {
+                case VIEW_TYPE_IMAGE_INCOMING:
+                case VIEW_TYPE_IMAGE_OUTGOING:
+                    bindSingleImage(holder, model);
+                    break;
+                case VIEW_TYPE_GRID_INCOMING:
+                case VIEW_TYPE_GRID_OUTGOING:
+                    bindImageGrid(holder, model);
+                    break;
+                default:
+                    // Text rows; deleted rows show the placeholder in their own style
+                    holder.chatTextview.setText(model.getDisplayMessage());
+                    break;
             }
-        }
-        
-        private void setupRightMessage(ChatModelViewHolder holder, ChatMessageModel model, String messageId, boolean isSelected) {
-            // Show right container, hide left
-            holder.rightMessageContainer.setVisibility(View.VISIBLE);
-            holder.leftMessageContainer.setVisibility(View.GONE);
+            bindEditedIndicator(holder, model);
             
-            setupTextMessage(holder, model, messageId, true);
+            // Handle username display for group chats
+            setupUsernameDisplay(holder.usernameTextview, model);
             
             // Handle selection mode and animations
-            setupSelectionState(holder.rightMessageCheckbox, holder.rightChatLayout, isSelected, true);
+            setupSelectionState(holder.messageCheckbox, holder.chatLayout, selectedMessageIds.contains(messageId), holder.isOutgoing);
             
             // Update reactions display
-            MessageReactionManager.updateReactionsDisplay(holder.rightReactionsContainer, model, context,
-                new MessageReactionManager.OnReactionClickListener() {
-                    @Override
-                    public void onReactionSelected(String emoji) {
-                        handleReactionSelected(messageId, emoji);
-                    }
-                    
-                    @Override
-                    public void onReactionToggle(String emoji) {
-                        handleReactionToggle(messageId, emoji);
-                    }
-                });
-            
-            // Set up click listeners
-            setupClickListeners(holder.rightChatLayout, holder.rightMessageCheckbox, messageId, model);
+            bindReactions(holder, model);
         }
         
-        private void setupLeftMessage(ChatModelViewHolder holder, ChatMessageModel model, String messageId, boolean isSelected) {
-            // Show left container, hide right
-            holder.leftMessageContainer.setVisibility(View.VISIBLE);
-            holder.rightMessageContainer.setVisibility(View.GONE);
-            
-            setupTextMessage(holder, model, messageId, false);
-            
-            // Handle selection mode and animations
-            setupSelectionState(holder.leftMessageCheckbox, holder.leftChatLayout, isSelected, false);
-            
-            // Update reactions display
-            MessageReactionManager.updateReactionsDisplay(holder.leftReactionsContainer, model, context,
-                new MessageReactionManager.OnReactionClickListener() {
-                    @Override
-                    public void onReactionSelected(String emoji) {
-                        handleReactionSelected(messageId, emoji);
-                    }
-                    
-                    @Override
-                    public void onReactionToggle(String emoji) {
-                        handleReactionToggle(messageId, emoji);
-                    }
-                });
-            
-            // Set up click listeners
-            setupClickListeners(holder.leftChatLayout, holder.leftMessageCheckbox, messageId, model);
+        /**
+         * Partial rebind: only the parts named by the payloads (see MessageChangePayload) are
+         * refreshed. The local deletion lookup, username and image loads of a full bind are skipped.
+         */
+        @Override
+        public void onBindViewHolder(@NonNull ChatModelViewHolder holder, int position, @NonNull List<Object> payloads) {
+            if (payloads.isEmpty() || holder.viewType == VIEW_TYPE_HIDDEN) {
+                super.onBindViewHolder(holder, position, payloads);
+                return;
+            }
+            ChatMessageModel model = getItem(position);
+            String messageId = getMessageIdAt(position);
+            shownModels.put(messageId, model);
+            holder.model = model; // The listeners act on the latest version
+            
+            for (Object payload : payloads) {
+                if (MessageChangePayload.REACTIONS.equals(payload)) {
+                    reconcilePendingReactions(messageId, model);
+                    bindReactions(holder, model);
+                } else if (MessageChangePayload.EDIT.equals(payload)) {
+                    holder.chatTextview.setText(model.getDisplayMessage());
+                    bindEditedIndicator(holder, model);
+                } else if (MessageChangePayload.SELECTION.equals(payload)) {
+                    setupSelectionState(holder.messageCheckbox, holder.chatLayout, selectedMessageIds.contains(messageId), holder.isOutgoing);
+                } else if (MessageChangePayload.SENDER_NAME.equals(payload)) {
+                    setupUsernameDisplay(holder.usernameTextview, model);
+                }
+            }
+        }
+        
+        private void bindReactions(ChatModelViewHolder holder, ChatMessageModel model) {
+            if (holder.reactionsContainer == null) {
+                return; // Deleted rows don't show reactions
+            }
+            MessageReactionManager.updateReactionsDisplay(holder.reactionsContainer, model, context, holder.reactionListener);
+        }
+        
+        private void bindEditedIndicator(ChatModelViewHolder holder, ChatMessageModel model) {
+            if (holder.editedIndicator != null) {
+                holder.editedIndicator.setVisibility(model.isEdited() ? View.VISIBLE : View.GONE);
+            }
         }
         
         private void setupSelectionState(CheckBox checkbox, LinearLayout messageLayout, boolean isSelected, boolean isRightSide) {
@@ -214,34 +383,68 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
             }
         }
         
-        private void setupClickListeners(LinearLayout messageLayout, CheckBox checkbox, String messageId, ChatMessageModel model) {
+        // Row listeners: set once per holder in its constructor, they act on the message the row
+        // shows when tapped and check the selection mode then, so binds never replace them
+        
+        /**
+         * Bubble tap: toggles selection in selection mode, otherwise a double tap shows the reaction picker
+         */
+        private void onBubbleClick(ChatModelViewHolder holder, View view) {
+            if (holder.messageId == null) {
+                return;
+            }
             if (isSelectionMode) {
-                // Selection mode: tap to toggle selection
-                messageLayout.setOnClickListener(v -> {
-                    animateMessageSelection(messageLayout, !selectedMessageIds.contains(messageId));
-                    toggleMessageSelection(messageId);
-                });
-                
-                checkbox.setOnClickListener(v -> {
-                    animateMessageSelection(messageLayout, checkbox.isChecked());
-                    toggleMessageSelection(messageId);
-                });
-                
-                // Long press still works for additional selection
-                messageLayout.setOnLongClickListener(v -> {
-                    animateMessageSelection(messageLayout, !selectedMessageIds.contains(messageId));
-                    toggleMessageSelection(messageId);
-                    return true;
-                });
+                toggleSelectionFromRow(holder);
+                return;
+            }
+            long clickTime = System.currentTimeMillis();
+            if (clickTime - holder.lastClickTime < DOUBLE_CLICK_TIME_DELTA) {
+                // Double click - show reaction picker
+                showReactionPicker(view, holder.messageId);
+            }
+            holder.lastClickTime = clickTime;
+        }
+        
+        /**
+         * Long press on the bubble or its image: toggles selection in selection mode, otherwise the message menu
+         */
+        private boolean onBubbleLongClick(ChatModelViewHolder holder, View view) {
+            if (holder.messageId == null) {
+                return false;
+            }
+            if (isSelectionMode) {
+                toggleSelectionFromRow(holder);
             } else {
-                // Normal mode: double tap to show reaction picker, long press for menu
-                setupDoubleClickListener(messageLayout, messageId, model);
-                
-                messageLayout.setOnLongClickListener(v -> {
-                    showUnsendPopup(v, messageId, model);
-                    return true;
-                });
+                showUnsendPopup(view, holder.messageId, holder.model);
+            }
+            return true;
+        }
+        
+        private void onCheckboxClick(ChatModelViewHolder holder) {
+            if (holder.messageId == null || !isSelectionMode) {
+                return;
             }
+            animateMessageSelection(holder.chatLayout, holder.messageCheckbox.isChecked());
+            toggleMessageSelection(holder.messageId);
+        }
+        
+        private void onSingleImageClick(ChatModelViewHolder holder) {
+            if (holder.messageId == null) {
+                return;
+            }
+            if (isSelectionMode) {
+                // In selection mode, treat as message selection
+                toggleSelectionFromRow(holder);
+                return;
+            }
+            ChatMessageModel model = holder.model;
+            Log.d(TAG, "Image clicked, opening viewer: " + model.getImageUrl());
+            openImageViewer(model.getImageUrl(), model.getImageCaption(), getSenderName(model));
+        }
+        
+        private void toggleSelectionFromRow(ChatModelViewHolder holder) {
+            animateMessageSelection(holder.chatLayout, !selectedMessageIds.contains(holder.messageId));
+            toggleMessageSelection(holder.messageId);
         }
         
         private void animateCheckboxIn(CheckBox checkbox) {
@@ -309,6 +512,11 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
         }
         
         private void removeSelectionVisuals(LinearLayout messageLayout) {
+            if (messageLayout.getScaleX() == 1.0f && messageLayout.getScaleY() == 1.0f
+                    && messageLayout.getAlpha() == 1.0f && messageLayout.getTranslationZ() == 2f
+                    && messageLayout.getElevation() == 2f) {
+                return; // Already at rest, which is every row outside selection mode
+            }
             // Animate back to normal state
             messageLayout.animate()
                     .scaleX(1.0f)
@@ -324,7 +532,6 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
         private void showUnsendPopup(View view, String messageId, ChatMessageModel model) {
             PopupMenu popup = new PopupMenu(context, view);
             
-            String currentUserId = FirebaseUtil.currentUserId();
             boolean isGroupAdmin = messageDeletionListener != null ? 
                 messageDeletionListener.isUserAdmin(chatroomId) : false;
             
@@ -557,7 +764,7 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
         public void startSelectionMode() {
             isSelectionMode = true;
             selectedMessageIds.clear();
-            notifyDataSetChanged();
+            notifyItemRangeChanged(0, getItemCount(), MessageChangePayload.SELECTION);
             if (unsendMessageListener != null) {
                 unsendMessageListener.onSelectionModeChanged(true, 0);
             }
@@ -566,7 +773,7 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
         public void exitSelectionMode() {
             isSelectionMode = false;
             selectedMessageIds.clear();
-            notifyDataSetChanged();
+            notifyItemRangeChanged(0, getItemCount(), MessageChangePayload.SELECTION);
             if (unsendMessageListener != null) {
                 unsendMessageListener.onSelectionModeChanged(false, 0);
             }
@@ -601,8 +808,8 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
         private void updateSelectionForMessage(String messageId) {
             // Find the position of the changed message and update only that item
             for (int i = 0; i < getItemCount(); i++) {
-                if (getSnapshots().getSnapshot(i).getId().equals(messageId)) {
-                    notifyItemChanged(i);
+                if (getMessageIdAt(i).equals(messageId)) {
+                    notifyItemChanged(i, MessageChangePayload.SELECTION);
                     break;
                 }
             }
@@ -611,10 +818,10 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
         public void selectAll() {
             selectedMessageIds.clear();
             for (int i = 0; i < getItemCount(); i++) {
-                String messageId = getSnapshots().getSnapshot(i).getId();
+                String messageId = getMessageIdAt(i);
                 selectedMessageIds.add(messageId);
             }
-            notifyDataSetChanged();
+            notifyItemRangeChanged(0, getItemCount(), MessageChangePayload.SELECTION);
             if (unsendMessageListener != null) {
                 unsendMessageListener.onSelectionModeChanged(true, selectedMessageIds.size());
             }
@@ -687,7 +894,7 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
         private void animateMessageDeletion(String messageId) {
             // Find the position of the message
             for (int i = 0; i < getItemCount(); i++) {
-                if (getSnapshots().getSnapshot(i).getId().equals(messageId)) {
+                if (getMessageIdAt(i).equals(messageId)) {
                     // Notify that this item changed (will trigger rebind and hide the message)
                     notifyItemChanged(i);
                     break;
@@ -698,15 +905,113 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
         @NonNull
         @Override
         public ChatModelViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-            Log.d(TAG, "onCreateViewHolder called");
-            View view = LayoutInflater.from(context).inflate(R.layout.chat_message_recycler_row,parent,false);
-            return new ChatModelViewHolder(view);
+            if (BuildConfig.LOG_BINDS) {
+                Log.d(TAG, "onCreateViewHolder called for view type: " + viewType);
+            }
+            View view = LayoutInflater.from(context).inflate(layoutFor(viewType), parent, false);
+            ChatModelViewHolder holder = new ChatModelViewHolder(view, viewType);
+            if (holder.isOutgoing) {
+                mirrorToOutgoing(holder);
+            }
+            if (holder.chatLayout != null) {
+                // Start at the resting selection visuals, so binds outside selection mode don't animate
+                holder.chatLayout.setElevation(2f);
+                holder.chatLayout.setTranslationZ(2f);
+            }
+            if (holder.imagesRecycler != null) {
+                // One grid setup per row for its lifetime; cells come from the pool shared by all grids
+                GridLayoutManager gridLayoutManager = new GridLayoutManager(context, 2);
+                gridLayoutManager.setRecycleChildrenOnDetach(true);
+                holder.imagesRecycler.setLayoutManager(gridLayoutManager);
+                holder.imagesRecycler.setRecycledViewPool(imageCellPool);
+                int spacing = (int) (4 * context.getResources().getDisplayMetrics().density); // 4dp spacing
+                holder.imagesRecycler.addItemDecoration(new GridSpacingItemDecoration(2, spacing, true));
+                holder.imagesRecycler.setAdapter(holder.imagesAdapter);
+            }
+            return holder;
+        }
+        
+        private static int layoutFor(int viewType) {
+            switch (viewType) {
+                case VIEW_TYPE_IMAGE_INCOMING:
+                case VIEW_TYPE_IMAGE_OUTGOING:
+                    return R.layout.chat_row_image;
+                case VIEW_TYPE_GRID_INCOMING:
+                case VIEW_TYPE_GRID_OUTGOING:
+                    return R.layout.chat_row_image_grid;
+                case VIEW_TYPE_DELETED_INCOMING:
+                case VIEW_TYPE_DELETED_OUTGOING:
+                    return R.layout.chat_row_deleted;
+                case VIEW_TYPE_HIDDEN:
+                    return R.layout.chat_row_hidden;
+                default:
+                    return R.layout.chat_row_text;
+            }
+        }
+        
+        private static boolean isOutgoingType(int viewType) {
+            return viewType == VIEW_TYPE_TEXT_OUTGOING || viewType == VIEW_TYPE_IMAGE_OUTGOING
+                    || viewType == VIEW_TYPE_GRID_OUTGOING || viewType == VIEW_TYPE_DELETED_OUTGOING;
+        }
+        
+        /**
+         * Row layouts are drawn as incoming; flip one to the outgoing side once, when it is created:
+         * bubble and checkbox to the end, the outgoing bubble color
+         */
+        private void mirrorToOutgoing(ChatModelViewHolder holder) {
+            FrameLayout.LayoutParams containerParams = (FrameLayout.LayoutParams) holder.messageContainer.getLayoutParams();
+            int checkboxSpace = containerParams.getMarginStart();
+            containerParams.gravity = Gravity.END | Gravity.CENTER_VERTICAL;
+            containerParams.setMarginStart(containerParams.getMarginEnd());
+            containerParams.setMarginEnd(checkboxSpace);
+            
+            FrameLayout.LayoutParams checkboxParams = (FrameLayout.LayoutParams) holder.messageCheckbox.getLayoutParams();
+            checkboxParams.gravity = Gravity.END | Gravity.CENTER_VERTICAL;
+            checkboxParams.setMarginEnd(checkboxParams.getMarginStart());
+            checkboxParams.setMarginStart(0);
+            
+            ((LinearLayout.LayoutParams) holder.usernameTextview.getLayoutParams()).gravity = Gravity.END;
+            ((LinearLayout.LayoutParams) holder.chatLayout.getLayoutParams()).gravity = Gravity.END;
+            holder.chatLayout.setBackgroundTintList(ContextCompat.getColorStateList(context, R.color.chat_color_receiver));
+            if (holder.imageCaption != null) {
+                holder.imageCaption.setGravity(Gravity.END);
+            }
+            if (holder.editedIndicator != null) {
+                holder.editedIndicator.setGravity(Gravity.END);
+            }
+        }
+        
+        /**
+         * Size the view pool per row type: text rows dominate a fling, media rows are heavier
+         * but rarer, and deleted or hidden rows are few
+         * @param pool The chat RecyclerView's pool
+         */
+        public void configureRecycledViewPool(RecyclerView.RecycledViewPool pool) {
+            pool.setMaxRecycledViews(VIEW_TYPE_TEXT_INCOMING, 12);
+            pool.setMaxRecycledViews(VIEW_TYPE_TEXT_OUTGOING, 12);
+            pool.setMaxRecycledViews(VIEW_TYPE_IMAGE_INCOMING, 4);
+            pool.setMaxRecycledViews(VIEW_TYPE_IMAGE_OUTGOING, 4);
+            pool.setMaxRecycledViews(VIEW_TYPE_GRID_INCOMING, 3);
+            pool.setMaxRecycledViews(VIEW_TYPE_GRID_OUTGOING, 3);
+            pool.setMaxRecycledViews(VIEW_TYPE_DELETED_INCOMING, 3);
+            pool.setMaxRecycledViews(VIEW_TYPE_DELETED_OUTGOING, 3);
+            pool.setMaxRecycledViews(VIEW_TYPE_HIDDEN, 6);
         }
         
         @Override
         public void onDataChanged() {
             super.onDataChanged();
-            Log.d(TAG, "onDataChanged called, itemCount: " + getItemCount());
+            if (!hasLiveData) {
+                boolean wasShowingCache = isShowingCache();
+                hasLiveData = true;
+                cachedMessages = new ArrayList<>();
+                if (wasShowingCache) {
+                    notifyDataSetChanged();
+                }
+            }
+            if (BuildConfig.LOG_BINDS) {
+                Log.d(TAG, "onDataChanged called, itemCount: " + getItemCount());
+            }
         }
         
         @Override
@@ -715,382 +1020,205 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
             Log.e(TAG, "Firestore RecyclerAdapter error", e);
         }
 
-        class ChatModelViewHolder extends RecyclerView.ViewHolder{
+        public class ChatModelViewHolder extends RecyclerView.ViewHolder{
 
-            FrameLayout leftMessageContainer, rightMessageContainer;
-            LinearLayout leftChatLayout,rightChatLayout;
-            TextView leftChatTextview,rightChatTextview;
-            TextView leftUsernameTextview, rightUsernameTextview; // Added username TextViews
-            TextView leftEditedIndicator, rightEditedIndicator; // Added edited indicators
-            
-            // Image views
-            ImageView leftImageView, rightImageView;
-            RecyclerView leftImagesRecycler, rightImagesRecycler;
-            TextView leftImageCaption, rightImageCaption;
-            
-            CheckBox leftMessageCheckbox, rightMessageCheckbox;
-            LinearLayout leftReactionsContainer, rightReactionsContainer;
-            
+            final int viewType;
+            final boolean isOutgoing;
+            
+            // Present in every message row; the rest only in the row types that use them
+            LinearLayout messageContainer, chatLayout;
+            TextView usernameTextview;
+            CheckBox messageCheckbox;
+            
+            TextView chatTextview; // Text and deleted rows
+            TextView editedIndicator;
+            LinearLayout reactionsContainer;
+            ImageView imageView; // Single image rows
+            ImageLoadListener imageLoader; // Every load into imageView; knows what it shows
+            RecyclerView imagesRecycler; // Image grid rows
+            ChatImagesAdapter imagesAdapter; // Rebound with each grid this row shows
+            TextView imageCaption;
+            
+            // The message the row shows, read by its listeners when tapped
+            String messageId;
+            ChatMessageModel model;
+            long lastClickTime; // For double-tap detection
+            MessageReactionManager.OnReactionClickListener reactionListener;
+            ChatImagesAdapter.OnImageClickListener imageClickListener;
 
-            public ChatModelViewHolder(@NonNull View itemView) {
+            public ChatModelViewHolder(@NonNull View itemView, int viewType) {
                 super(itemView);
+                this.viewType = viewType;
+                this.isOutgoing = isOutgoingType(viewType);
 
-                leftMessageContainer = itemView.findViewById(R.id.left_message_container);
-                rightMessageContainer = itemView.findViewById(R.id.right_message_container);
-                leftChatLayout = itemView.findViewById(R.id.left_chat_layout);
-                rightChatLayout = itemView.findViewById(R.id.right_chat_layout);
-                leftChatTextview = itemView.findViewById(R.id.left_chat_textview);
-                rightChatTextview = itemView.findViewById(R.id.right_chat_textview);
-                leftUsernameTextview = itemView.findViewById(R.id.left_username_textview); // Added
-                rightUsernameTextview = itemView.findViewById(R.id.right_username_textview); // Added
-                leftEditedIndicator = itemView.findViewById(R.id.left_edited_indicator); // Added
-                rightEditedIndicator = itemView.findViewById(R.id.right_edited_indicator); // Added
-                
-                // Initialize image views
-                leftImageView = itemView.findViewById(R.id.left_image_view);
-                rightImageView = itemView.findViewById(R.id.right_image_view);
-                leftImagesRecycler = itemView.findViewById(R.id.left_images_recycler);
-                rightImagesRecycler = itemView.findViewById(R.id.right_images_recycler);
-                leftImageCaption = itemView.findViewById(R.id.left_image_caption);
-                rightImageCaption = itemView.findViewById(R.id.right_image_caption);
+                messageContainer = itemView.findViewById(R.id.message_container);
+                chatLayout = itemView.findViewById(R.id.chat_layout);
+                usernameTextview = itemView.findViewById(R.id.username_textview);
+                messageCheckbox = itemView.findViewById(R.id.message_checkbox);
                 
-                leftMessageCheckbox = itemView.findViewById(R.id.left_message_checkbox);
-                rightMessageCheckbox = itemView.findViewById(R.id.right_message_checkbox);
-                leftReactionsContainer = itemView.findViewById(R.id.left_reactions_container);
-                rightReactionsContainer = itemView.findViewById(R.id.right_reactions_container);
-            }
-        }
-        
-        private void setupTextMessage(ChatModelViewHolder holder, ChatMessageModel model, String messageId, boolean isRightSide) {
-            LinearLayout chatLayout = isRightSide ? holder.rightChatLayout : holder.leftChatLayout;
-            TextView chatTextView = isRightSide ? holder.rightChatTextview : holder.leftChatTextview;
-            TextView usernameTextView = isRightSide ? holder.rightUsernameTextview : holder.leftUsernameTextview;
-            TextView editedIndicator = isRightSide ? holder.rightEditedIndicator : holder.leftEditedIndicator;
-            
-            // Image views
-            ImageView imageView = isRightSide ? holder.rightImageView : holder.leftImageView;
-            RecyclerView imagesRecycler = isRightSide ? holder.rightImagesRecycler : holder.leftImagesRecycler;
-            TextView imageCaption = isRightSide ? holder.rightImageCaption : holder.leftImageCaption;
-            
-            CheckBox messageCheckbox = isRightSide ? holder.rightMessageCheckbox : holder.leftMessageCheckbox;
-            LinearLayout reactionsContainer = isRightSide ? holder.rightReactionsContainer : holder.leftReactionsContainer;
-            
-            // Handle different message types
-            if (model.isImageMessage()) {
-                setupImageMessage(holder, model, messageId, isRightSide);
-            } else {
-                setupTextOnlyMessage(holder, model, messageId, isRightSide);
-            }
-            
-            // Handle username display for group chats
-            setupUsernameDisplay(holder, model, messageId, isRightSide, usernameTextView);
-            
-            // Set message text with deletion placeholder if needed
-            String displayText = model.getDisplayMessage();
-            chatTextView.setText(displayText);
-            
-            // Show/hide edited indicator
-            if (model.isEdited() && !model.isUnsent() && !model.isDeletedForEveryone()) {
-                editedIndicator.setVisibility(View.VISIBLE);
-            } else {
-                editedIndicator.setVisibility(View.GONE);
-            }
-            
-            // Style deleted messages differently
-            if (model.isDeletedForEveryone() || model.isUnsent()) {
-                chatTextView.setTypeface(null, Typeface.ITALIC);
-                chatTextView.setTextColor(Color.parseColor("#B0B0B0")); // Light gray
-            } else {
-                chatTextView.setTypeface(null, Typeface.NORMAL);
-                chatTextView.setTextColor(Color.WHITE);
+                chatTextview = itemView.findViewById(R.id.chat_textview);
+                editedIndicator = itemView.findViewById(R.id.edited_indicator);
+                reactionsContainer = itemView.findViewById(R.id.reactions_container);
+                imageView = itemView.findViewById(R.id.image_view);
+                imagesRecycler = itemView.findViewById(R.id.images_recycler);
+                imageCaption = itemView.findViewById(R.id.image_caption);
+                if (imageView != null) {
+                    imageLoader = new ImageLoadListener(imageView, TAG, SINGLE_IMAGE_FALLBACK_SIZE);
+                }
+                if (imagesRecycler != null) {
+                    imagesAdapter = new ChatImagesAdapter();
+                }
+                if (chatLayout != null) {
+                    setUpListeners();
+                }
             }
             
-            boolean isSelected = selectedMessageIds.contains(messageId);
-            
-            // Handle selection mode and animations
-            setupSelectionState(messageCheckbox, chatLayout, isSelected, isRightSide);
-            
-            // Update reactions display
-            MessageReactionManager.updateReactionsDisplay(reactionsContainer, model, context,
-                new MessageReactionManager.OnReactionClickListener() {
-                    @Override
-                    public void onReactionSelected(String emoji) {
-                        handleReactionSelected(messageId, emoji);
-                    }
-                    
-                    @Override
-                    public void onReactionToggle(String emoji) {
-                        handleReactionToggle(messageId, emoji);
-                    }
-                });
-            
-            // This method is now split into setupImageMessage and setupTextOnlyMessage
-        }
-        
-        private void setupImageMessage(ChatModelViewHolder holder, ChatMessageModel model, String messageId, boolean isRightSide) {
-            // Get views based on side
-            TextView chatTextView = isRightSide ? holder.rightChatTextview : holder.leftChatTextview;
-            ImageView imageView = isRightSide ? holder.rightImageView : holder.leftImageView;
-            RecyclerView imagesRecycler = isRightSide ? holder.rightImagesRecycler : holder.leftImagesRecycler;
-            TextView imageCaption = isRightSide ? holder.rightImageCaption : holder.leftImageCaption;
-            TextView editedIndicator = isRightSide ? holder.rightEditedIndicator : holder.leftEditedIndicator;
-            LinearLayout chatLayout = isRightSide ? holder.rightChatLayout : holder.leftChatLayout;
-            CheckBox messageCheckbox = isRightSide ? holder.rightMessageCheckbox : holder.leftMessageCheckbox;
-            LinearLayout reactionsContainer = isRightSide ? holder.rightReactionsContainer : holder.leftReactionsContainer;
-            
-            // Hide text view for image messages
-            chatTextView.setVisibility(View.GONE);
-            
-            if (model.isSingleImage()) {
-                // Single image
-                imageView.setVisibility(View.VISIBLE);
-                imagesRecycler.setVisibility(View.GONE);
-                
-                // Load image using enhanced loading method
-                String imageUrl = model.getImageUrl();
-                Log.d(TAG, "Loading image: " + imageUrl);
+            /**
+             * Listeners for the row's lifetime, so binding never allocates new ones
+             */
+            private void setUpListeners() {
+                // Normal mode: double tap to show reaction picker, long press for menu.
+                // Selection mode: tap or long press toggles selection
+                chatLayout.setOnClickListener(v -> onBubbleClick(this, v));
+                chatLayout.setOnLongClickListener(v -> onBubbleLongClick(this, v));
+                messageCheckbox.setOnClickListener(v -> onCheckboxClick(this));
                 
-                loadImageSafely(imageView, imageUrl);
-                        
-                    // Add click listener to open full-screen viewer
-                    imageView.setOnClickListener(v -> {
-                        if (!isSelectionMode) {
-                            Log.d(TAG, "Image clicked, opening viewer: " + imageUrl);
-                            openImageViewer(imageUrl, model.getImageCaption(), getSenderName(model));
-                        } else {
-                            // In selection mode, treat as message selection
-                            animateMessageSelection(chatLayout, !selectedMessageIds.contains(messageId));
-                            toggleMessageSelection(messageId);
-                        }
-                    });
-                    
-                    // Add long-press listener for deletion menu
-                    imageView.setOnLongClickListener(v -> {
-                        if (!isSelectionMode) {
-                            Log.d(TAG, "Image long-pressed, showing delete menu");
-                            showUnsendPopup(v, messageId, model);
-                        } else {
-                            // In selection mode, toggle selection
-                            animateMessageSelection(chatLayout, !selectedMessageIds.contains(messageId));
-                            toggleMessageSelection(messageId);
-                        }
-                        return true;
-                    });
-                    
-            } else if (model.isMultipleImages()) {
-                // Multiple images
-                imageView.setVisibility(View.GONE);
-                imagesRecycler.setVisibility(View.VISIBLE);
+                if (imageView != null) {
+                    // Tap opens the full-screen viewer, long press the message menu
+                    imageView.setOnClickListener(v -> onSingleImageClick(this));
+                    imageView.setOnLongClickListener(v -> onBubbleLongClick(this, v));
+                }
                 
-                // Setup RecyclerView adapter for multiple images
-                java.util.List<String> imageUrls = model.getImageUrls();
-                if (imageUrls != null && !imageUrls.isEmpty()) {
-                    Log.d(TAG, "Setting up multiple images grid: " + imageUrls.size() + " images");
-                    
-                    // Create and set adapter for images grid
-                    ChatImagesAdapter imagesAdapter = new ChatImagesAdapter(imageUrls, new ChatImagesAdapter.OnImageClickListener() {
+                if (imagesAdapter != null) {
+                    imageClickListener = new ChatImagesAdapter.OnImageClickListener() {
                         @Override
                         public void onImageClick(String imageUrl, int position) {
+                            if (messageId == null) {
+                                return;
+                            }
                             if (!isSelectionMode) {
                                 Log.d(TAG, "Multiple image clicked: " + imageUrl + " at position: " + position);
-                                openSwipeableImageViewer(imageUrls, position, model.getImageCaption(), getSenderName(model));
+                                openSwipeableImageViewer(model.getImageUrls(), position, model.getImageCaption(), getSenderName(model));
                             } else {
                                 // In selection mode, treat as message selection
-                                animateMessageSelection(chatLayout, !selectedMessageIds.contains(messageId));
-                                toggleMessageSelection(messageId);
+                                toggleSelectionFromRow(ChatModelViewHolder.this);
                             }
                         }
                         
                         @Override
                         public void onImageLongClick(String imageUrl, int position) {
-                            if (!isSelectionMode) {
-                                Log.d(TAG, "Multiple image long-pressed, showing delete menu");
-                                showUnsendPopup(imagesRecycler, messageId, model);
-                            } else {
-                                // In selection mode, toggle selection
-                                animateMessageSelection(chatLayout, !selectedMessageIds.contains(messageId));
-                                toggleMessageSelection(messageId);
+                            onBubbleLongClick(ChatModelViewHolder.this, imagesRecycler);
+                        }
+                    };
+                }
+                
+                if (reactionsContainer != null) {
+                    reactionListener = new MessageReactionManager.OnReactionClickListener() {
+                        @Override
+                        public void onReactionSelected(String emoji) {
+                            if (messageId != null) {
+                                handleReactionSelected(messageId, emoji);
                             }
                         }
-                    });
-                    
-                    // Setup grid layout (2 columns for WhatsApp-like appearance)
-                    GridLayoutManager gridLayoutManager = new GridLayoutManager(context, 2);
-                    imagesRecycler.setLayoutManager(gridLayoutManager);
-                    imagesRecycler.setAdapter(imagesAdapter);
-                    
-                    // Add some spacing between images
-                    if (imagesRecycler.getItemDecorationCount() == 0) {
-                        int spacing = (int) (4 * context.getResources().getDisplayMetrics().density); // 4dp spacing
-                        imagesRecycler.addItemDecoration(new GridSpacingItemDecoration(2, spacing, true));
-                    }
-                } else {
-                    Log.w(TAG, "Multiple images message but no image URLs found");
-                    imagesRecycler.setVisibility(View.GONE);
+                        
+                        @Override
+                        public void onReactionToggle(String emoji) {
+                            if (messageId != null) {
+                                handleReactionToggle(messageId, emoji);
+                            }
+                        }
+                    };
                 }
             }
+        }
+        
+        private void bindSingleImage(ChatModelViewHolder holder, ChatMessageModel model) {
+            ImageView imageView = holder.imageView;
             
-            // Handle caption
-            if (model.getImageCaption() != null && !model.getImageCaption().isEmpty()) {
-                imageCaption.setVisibility(View.VISIBLE);
-                imageCaption.setText(model.getImageCaption());
-            } else {
-                imageCaption.setVisibility(View.GONE);
-            }
-            
-            // Show/hide edited indicator
-            if (model.isEdited() && !model.isUnsent() && !model.isDeletedForEveryone()) {
-                editedIndicator.setVisibility(View.VISIBLE);
-            } else {
-                editedIndicator.setVisibility(View.GONE);
+            // Load image using enhanced loading method
+            String imageUrl = model.getImageUrl();
+            if (BuildConfig.LOG_BINDS) {
+                Log.d(TAG, "Loading image: " + imageUrl);
             }
             
-            // Setup username for group chats
-            TextView usernameTextView = isRightSide ? holder.rightUsernameTextview : holder.leftUsernameTextview;
-            setupUsernameDisplay(holder, model, messageId, isRightSide, usernameTextView);
+            reserveImageHeight(imageView, model.getImageMetadata());
+            loadImageSafely(holder, imageUrl, model.getImageMetadata());
             
-            // Handle selection state
-            boolean isSelected = selectedMessageIds.contains(messageId);
-            setupSelectionState(messageCheckbox, chatLayout, isSelected, isRightSide);
-            
-            // Setup reactions
-            MessageReactionManager.updateReactionsDisplay(reactionsContainer, model, context,
-                new MessageReactionManager.OnReactionClickListener() {
-                    @Override
-                    public void onReactionSelected(String emoji) {
-                        handleReactionSelected(messageId, emoji);
-                    }
-                    
-                    @Override
-                    public void onReactionToggle(String emoji) {
-                        handleReactionToggle(messageId, emoji);
-                    }
-                });
-                
-            // Set up click listeners
-            setupClickListeners(chatLayout, messageCheckbox, messageId, model);
-        }
-        
-        private void setupTextOnlyMessage(ChatModelViewHolder holder, ChatMessageModel model, String messageId, boolean isRightSide) {
-            // Get views based on side
-            TextView chatTextView = isRightSide ? holder.rightChatTextview : holder.leftChatTextview;
-            ImageView imageView = isRightSide ? holder.rightImageView : holder.leftImageView;
-            RecyclerView imagesRecycler = isRightSide ? holder.rightImagesRecycler : holder.leftImagesRecycler;
-            TextView imageCaption = isRightSide ? holder.rightImageCaption : holder.leftImageCaption;
-            TextView editedIndicator = isRightSide ? holder.rightEditedIndicator : holder.leftEditedIndicator;
-            LinearLayout chatLayout = isRightSide ? holder.rightChatLayout : holder.leftChatLayout;
-            CheckBox messageCheckbox = isRightSide ? holder.rightMessageCheckbox : holder.leftMessageCheckbox;
-            LinearLayout reactionsContainer = isRightSide ? holder.rightReactionsContainer : holder.leftReactionsContainer;
-            
-            // Show text view, hide image views
-            chatTextView.setVisibility(View.VISIBLE);
-            imageView.setVisibility(View.GONE);
-            imagesRecycler.setVisibility(View.GONE);
-            imageCaption.setVisibility(View.GONE);
-            
-            // Set message text with deletion placeholder if needed
-            String displayText = model.getDisplayMessage();
-            chatTextView.setText(displayText);
-            
-            // Style deleted messages differently
-            if (model.isDeletedForEveryone() || model.isUnsent()) {
-                chatTextView.setTypeface(null, Typeface.ITALIC);
-                chatTextView.setTextColor(Color.parseColor("#B0B0B0")); // Light gray
-            } else {
-                chatTextView.setTypeface(null, Typeface.NORMAL);
-                chatTextView.setTextColor(Color.WHITE);
+            bindImageCaption(holder.imageCaption, model);
+        }
+        
+        private void bindImageGrid(ChatModelViewHolder holder, ChatMessageModel model) {
+            java.util.List<String> imageUrls = model.getImageUrls();
+            if (imageUrls == null || imageUrls.isEmpty()) {
+                Log.w(TAG, "Multiple images message but no image URLs found");
+            } else if (BuildConfig.LOG_BINDS) {
+                Log.d(TAG, "Binding multiple images grid: " + imageUrls.size() + " images");
             }
             
-            // Show/hide edited indicator
-            if (model.isEdited() && !model.isUnsent() && !model.isDeletedForEveryone()) {
-                editedIndicator.setVisibility(View.VISIBLE);
+            // The row's grid adapter, layout manager and click listener are reused; only the images change
+            holder.imagesAdapter.submit(imageUrls, model.getImagesMetadata(), holder.imageClickListener);
+            
+            bindImageCaption(holder.imageCaption, model);
+        }
+        
+        private void bindImageCaption(TextView imageCaption, ChatMessageModel model) {
+            if (model.getImageCaption() != null && !model.getImageCaption().isEmpty()) {
+                imageCaption.setVisibility(View.VISIBLE);
+                imageCaption.setText(model.getImageCaption());
             } else {
-                editedIndicator.setVisibility(View.GONE);
+                imageCaption.setVisibility(View.GONE);
             }
-            
-            // Setup username for group chats
-            TextView usernameTextView = isRightSide ? holder.rightUsernameTextview : holder.leftUsernameTextview;
-            setupUsernameDisplay(holder, model, messageId, isRightSide, usernameTextView);
-            
-            // Handle selection state
-            boolean isSelected = selectedMessageIds.contains(messageId);
-            setupSelectionState(messageCheckbox, chatLayout, isSelected, isRightSide);
-            
-            // Setup reactions
-            MessageReactionManager.updateReactionsDisplay(reactionsContainer, model, context,
-                new MessageReactionManager.OnReactionClickListener() {
-                    @Override
-                    public void onReactionSelected(String emoji) {
-                        handleReactionSelected(messageId, emoji);
-                    }
-                    
-                    @Override
-                    public void onReactionToggle(String emoji) {
-                        handleReactionToggle(messageId, emoji);
-                    }
-                });
-                
-            // Set up click listeners
-            setupClickListeners(chatLayout, messageCheckbox, messageId, model);
         }
         
         /**
          * Setup username display for group chats
          */
-        private void setupUsernameDisplay(ChatModelViewHolder holder, ChatMessageModel model, 
-                                         String messageId, boolean isRightSide, TextView usernameTextView) {
+        private void setupUsernameDisplay(TextView usernameTextView, ChatMessageModel model) {
             // Show usernames for all messages in group chats
-            Log.d(TAG, "🔍 setupUsernameDisplay - isGroupChat: " + isGroupChat + ", isRightSide: " + isRightSide + ", senderId: " + model.getSenderId());
+            if (BuildConfig.LOG_BINDS) {
+                Log.d(TAG, "🔍 setupUsernameDisplay - isGroupChat: " + isGroupChat + ", senderId: " + model.getSenderId());
+            }
             if (isGroupChat) {
                 String senderId = model.getSenderId();
-                String currentUserId = FirebaseUtil.currentUserId();
                 
                 if (senderId != null) {
+                    UserModel cachedSender;
                     if (senderId.equals(currentUserId)) {
                         // For our own messages, show "You" instead of fetching from Firebase
+                        usernameTextView.setTag(null);
                         usernameTextView.setText("You");
                         usernameTextView.setVisibility(View.VISIBLE);
-                        Log.d(TAG, "📄 Username set to 'You' for current user message");
+                    } else if ((cachedSender = UserDirectory.getInstance().peek(senderId)) != null) {
+                        // Cached sender: set directly, without a callback per bind
+                        usernameTextView.setTag(senderId);
+                        usernameTextView.setText(cachedSender.getUsername() != null ? cachedSender.getUsername() : "Unknown User");
+                        usernameTextView.setVisibility(View.VISIBLE);
                     } else {
-                        // For other users' messages, fetch username from Firestore
-                        FirebaseUtil.allUserCollectionReference().document(senderId)
-                                .get()
-                                .addOnSuccessListener(documentSnapshot -> {
-                                    if (documentSnapshot.exists()) {
-                                        try {
-                                            com.example.talkifyy.model.UserModel sender = documentSnapshot.toObject(com.example.talkifyy.model.UserModel.class);
-                                        if (sender != null && sender.getUsername() != null) {
-                                            usernameTextView.setText(sender.getUsername());
-                                            usernameTextView.setVisibility(View.VISIBLE);
-                                            Log.d(TAG, "📄 Username set to '" + sender.getUsername() + "' for other user message");
-                                            } else {
-                                                usernameTextView.setText("Unknown User");
-                                                usernameTextView.setVisibility(View.VISIBLE);
-                                            }
-                                        } catch (Exception e) {
-                                            Log.e(TAG, "Error parsing user data for username display", e);
-                                            usernameTextView.setText("Unknown User");
-                                            usernameTextView.setVisibility(View.VISIBLE);
-                                        }
-                                    } else {
-                                        usernameTextView.setText("Unknown User");
-                                        usernameTextView.setVisibility(View.VISIBLE);
-                                    }
-                                })
-                                .addOnFailureListener(e -> {
-                                    Log.e(TAG, "Failed to fetch username for senderId: " + senderId, e);
-                                    usernameTextView.setText("Unknown User");
-                                    usernameTextView.setVisibility(View.VISIBLE);
-                                });
+                        // For other users' messages, resolve the name through the shared user cache
+                        usernameTextView.setTag(senderId);
+                        usernameTextView.setText("");
+                        usernameTextView.setVisibility(View.VISIBLE);
+                        UserDirectory.getInstance().getUser(senderId, sender -> {
+                            // The row may have been recycled for another sender while loading
+                            if (!senderId.equals(usernameTextView.getTag())) {
+                                return;
+                            }
+                            if (sender != null && sender.getUsername() != null) {
+                                usernameTextView.setText(sender.getUsername());
+                            } else {
+                                usernameTextView.setText("Unknown User");
+                            }
+                            usernameTextView.setVisibility(View.VISIBLE);
+                        });
                     }
                 } else {
+                    usernameTextView.setTag(null);
                     usernameTextView.setText("Unknown User");
                     usernameTextView.setVisibility(View.VISIBLE);
                 }
             } else {
                 // Not a group chat - hide username
                 usernameTextView.setVisibility(View.GONE);
-                Log.d(TAG, "❌ Username hidden (not a group chat)");
             }
         }
         
@@ -1144,7 +1272,7 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
          * Get sender name for display
          */
         private String getSenderName(ChatMessageModel model) {
-            if (model.getSenderId().equals(FirebaseUtil.currentUserId())) {
+            if (model.getSenderId().equals(currentUserId)) {
                 return "You";
             }
             
@@ -1155,7 +1283,11 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
         
         // ChatImagesAdapter for displaying multiple images in a grid
         private static class ChatImagesAdapter extends RecyclerView.Adapter<ChatImagesAdapter.ImageViewHolder> {
+            private static final int GRID_FALLBACK_SIZE = 60; // Ultra small
+            private static final com.bumptech.glide.load.resource.bitmap.RoundedCorners GRID_CORNERS =
+                    new com.bumptech.glide.load.resource.bitmap.RoundedCorners(4);
             private java.util.List<String> imageUrls;
+            private java.util.List<ImageMetadata> imagesMetadata; // May be null for messages sent before variants
             private OnImageClickListener clickListener;
             
             public interface OnImageClickListener {
@@ -1163,12 +1295,22 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
                 void onImageLongClick(String imageUrl, int position);
             }
             
-            public ChatImagesAdapter(java.util.List<String> imageUrls, OnImageClickListener clickListener) {
+            /**
+             * Show another message's images in this grid
+             */
+            void submit(java.util.List<String> imageUrls, java.util.List<ImageMetadata> imagesMetadata,
+                        OnImageClickListener clickListener) {
+                if (imageUrls == this.imageUrls && imagesMetadata == this.imagesMetadata
+                        && clickListener == this.clickListener) {
+                    return; // Same message rebound: its cells already show these images
+                }
                 this.imageUrls = imageUrls;
+                this.imagesMetadata = imagesMetadata;
                 this.clickListener = clickListener;
                 
                 // Preload images to improve reliability
                 preloadImages();
+                notifyDataSetChanged();
             }
             
             /**
@@ -1179,7 +1321,9 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
                 
                 for (int i = 0; i < imageUrls.size(); i++) {
                     String imageUrl = imageUrls.get(i);
-                    Log.d("ChatImagesAdapter", "Preloading image " + (i + 1) + ": " + imageUrl);
+                    if (BuildConfig.LOG_BINDS) {
+                        Log.d("ChatImagesAdapter", "Preloading image " + (i + 1) + ": " + imageUrl);
+                    }
                     
                     try {
                         if (imageUrl.startsWith("content://")) {
@@ -1204,72 +1348,61 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
                 imageView.setScaleType(ImageView.ScaleType.CENTER_CROP);
                 // Remove background - we want to show the actual images
                 imageView.setBackgroundColor(0x00000000); // Transparent background
-                return new ImageViewHolder(imageView);
+                ImageViewHolder holder = new ImageViewHolder(imageView);
+                
+                // Set once per cell. Cells move between grids through the shared pool, so the
+                // grid that bound the cell is looked up when it is tapped
+                imageView.setOnClickListener(v -> {
+                    ChatImagesAdapter grid = (ChatImagesAdapter) holder.getBindingAdapter();
+                    int position = holder.getBindingAdapterPosition();
+                    if (grid != null && position != RecyclerView.NO_POSITION && grid.clickListener != null) {
+                        grid.clickListener.onImageClick(grid.imageUrls.get(position), position);
+                    }
+                });
+                
+                // Long-click for deletion menu
+                imageView.setOnLongClickListener(v -> {
+                    ChatImagesAdapter grid = (ChatImagesAdapter) holder.getBindingAdapter();
+                    int position = holder.getBindingAdapterPosition();
+                    if (grid != null && position != RecyclerView.NO_POSITION && grid.clickListener != null) {
+                        grid.clickListener.onImageLongClick(grid.imageUrls.get(position), position);
+                    }
+                    return true;
+                });
+                return holder;
             }
             
             @Override
             public void onBindViewHolder(@NonNull ImageViewHolder holder, int position) {
                 String imageUrl = imageUrls.get(position);
-                Log.d("ChatImagesAdapter", "Loading image at position " + position + ": " + imageUrl);
+                if (imageUrl.equals(holder.imageLoader.imageUrl)) {
+                    return; // The cell already shows or is loading this image
+                }
+                if (BuildConfig.LOG_BINDS) {
+                    Log.d("ChatImagesAdapter", "Loading image at position " + position + ": " + imageUrl);
+                }
+                int cellSizePx = holder.imageView.getLayoutParams().width; // Cells may come from another grid's adapter
                 
                 try {
-                    android.net.Uri imageUri = null;
-                    
-                    // Handle different URI formats - prioritize local URIs
-                    if (imageUrl.startsWith("content://") || imageUrl.startsWith("file://")) {
-                        imageUri = android.net.Uri.parse(imageUrl);
-                        Log.d("ChatImagesAdapter", "Parsed local URI: " + imageUri);
-                        
-                        // Check if URI is accessible
-                        try {
-                            android.content.Context context = holder.imageView.getContext();
-                            java.io.InputStream inputStream = context.getContentResolver().openInputStream(imageUri);
-                            if (inputStream != null) {
-                                inputStream.close();
-                                Log.d("ChatImagesAdapter", "URI is accessible: " + imageUri);
-                            } else {
-                                Log.w("ChatImagesAdapter", "URI returned null input stream: " + imageUri);
-                            }
-                        } catch (Exception uriException) {
-                            Log.e("ChatImagesAdapter", "URI not accessible: " + imageUri, uriException);
-                            // Try to copy the image to cache as fallback
-                            try {
-                                imageUri = copyImageToCache(holder.imageView.getContext(), imageUri);
-                                Log.d("ChatImagesAdapter", "Copied image to cache: " + imageUri);
-                            } catch (Exception copyException) {
-                                Log.e("ChatImagesAdapter", "Failed to copy image to cache", copyException);
-                            }
-                        }
-                        
-                    } else if (imageUrl.startsWith("http")) {
-                        Log.d("ChatImagesAdapter", "Loading remote URL: " + imageUrl);
-                    } else {
+                    // Local URIs are not probed here: a load that fails falls back to a cached copy
+                    if (BuildConfig.LOG_BINDS && !imageUrl.startsWith("http") && !imageUrl.startsWith("content://")
+                            && !imageUrl.startsWith("file://")) {
                         Log.w("ChatImagesAdapter", "Unknown image URL format: " + imageUrl);
                     }
 
                     // Use safe loading approach similar to single images
-                    loadMultipleImageSafely(holder.imageView, imageUrl);`
+                    // Grid cells only need the thumbnail; the viewer still gets the full URL
+                    ImageMetadata metadata = imagesMetadata != null && position < imagesMetadata.size()
+                            ? imagesMetadata.get(position) : null;
+                    loadMultipleImageSafely(holder, imageUrl,
+                            ImageVariants.selectUrl(imageUrl, metadata, cellSizePx, cellSizePx), metadata);
                         
                 } catch (Exception e) {
                     Log.e("ChatImagesAdapter", "Exception loading image: " + imageUrl, e);
                     // Hide the image view instead of showing placeholder
+                    holder.imageLoader.imageUrl = null;
                     holder.imageView.setVisibility(View.GONE);
                 }
-                
-                // Set click listener
-                holder.imageView.setOnClickListener(v -> {
-                    if (clickListener != null) {
-                        clickListener.onImageClick(imageUrl, position);
-                    }
-                });
-                
-                // Set long-click listener for deletion menu
-                holder.imageView.setOnLongClickListener(v -> {
-                    if (clickListener != null) {
-                        clickListener.onImageLongClick(imageUrl, position);
-                    }
-                    return true;
-                });
             }
             
             @Override
@@ -1279,73 +1412,30 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
             
             static class ImageViewHolder extends RecyclerView.ViewHolder {
                 ImageView imageView;
+                final ImageLoadListener imageLoader; // Every load into the cell; knows what it shows
                 
                 public ImageViewHolder(@NonNull View itemView) {
                     super(itemView);
                     this.imageView = (ImageView) itemView;
+                    this.imageLoader = new ImageLoadListener(imageView, "ChatImagesAdapter", GRID_FALLBACK_SIZE);
                 }
             }
             
-            /**
-             * Load image with retry mechanism for better reliability
-             */
-            private void loadImageWithRetry(ImageViewHolder holder, android.net.Uri imageUri, String originalUrl, int retryCount) {
-                final int maxRetries = 2;
-                
-                com.bumptech.glide.Glide.with(holder.imageView.getContext())
-                    .load(imageUri)
-                    .centerCrop()
-                    .placeholder(android.R.color.transparent)
-                    .error(android.R.color.transparent)
-                    .transform(new com.bumptech.glide.load.resource.bitmap.RoundedCorners(8))
-                    .diskCacheStrategy(com.bumptech.glide.load.engine.DiskCacheStrategy.ALL)
-                    .skipMemoryCache(false)
-                    .listener(new com.bumptech.glide.request.RequestListener<android.graphics.drawable.Drawable>() {
-                        @Override
-                        public boolean onLoadFailed(com.bumptech.glide.load.engine.GlideException e, Object model, 
-                            com.bumptech.glide.request.target.Target<android.graphics.drawable.Drawable> target, 
-                            boolean isFirstResource) {
-                            Log.e("ChatImagesAdapter", "Failed to load image (attempt " + (retryCount + 1) + "): " + originalUrl, e);
-                            
-                            if (retryCount < maxRetries) {
-                                // Retry with cache fallback
-                                try {
-                                    android.net.Uri cachedUri = copyImageToCache(holder.imageView.getContext(), imageUri);
-                                    loadImageWithRetry(holder, cachedUri, originalUrl, retryCount + 1);
-                                    return true; // Consume the error, we're retrying
-                                } catch (Exception cacheException) {
-                                    Log.e("ChatImagesAdapter", "Cache fallback failed", cacheException);
-                                }
-                            }
-                            
-                            // Final failure - hide image view instead of showing placeholder
-                            holder.imageView.setVisibility(View.GONE);
-                            return true; // Consume error
-                        }
-                        
-                        @Override
-                        public boolean onResourceReady(android.graphics.drawable.Drawable resource, Object model,
-                            com.bumptech.glide.request.target.Target<android.graphics.drawable.Drawable> target,
-                            com.bumptech.glide.load.DataSource dataSource, boolean isFirstResource) {
-                            Log.d("ChatImagesAdapter", "Successfully loaded image: " + originalUrl);
-                            // Remove background once image is loaded
-                            holder.imageView.setBackgroundColor(0x00000000);
-                            return false;
-                        }
-                    })
-                    .into(holder.imageView);
-            }
-            
         /**
          * MEMORY-OPTIMIZED: Load grid image with aggressive optimization to prevent crashes
          */
-        private void loadMultipleImageSafely(ImageView imageView, String imageUrl) {
+        private void loadMultipleImageSafely(ImageViewHolder holder, String imageUrl, String displayUrl,
+                                             ImageMetadata metadata) {
+            ImageView imageView = holder.imageView;
             if (imageUrl == null || imageUrl.isEmpty()) {
+                holder.imageLoader.imageUrl = null;
                 imageView.setVisibility(View.GONE);
                 return;
             }
             
-            Log.d("ChatImagesAdapter", "🖼️ Loading MEMORY-OPTIMIZED grid image: " + imageUrl);
+            if (BuildConfig.LOG_BINDS) {
+                Log.d("ChatImagesAdapter", "🖼️ Loading MEMORY-OPTIMIZED grid image: " + displayUrl);
+            }
             
             try {
                 // MEMORY OPTIMIZATION: Clear existing image first
@@ -1355,79 +1445,30 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
                 imageView.setVisibility(View.VISIBLE);
                 imageView.setBackgroundColor(0x00000000);
                 
-                Object loadSource = imageUrl.startsWith("content://") || imageUrl.startsWith("file://") ?
-                    android.net.Uri.parse(imageUrl) : imageUrl;
+                Object loadSource = displayUrl.startsWith("content://") || displayUrl.startsWith("file://") ?
+                    android.net.Uri.parse(displayUrl) : displayUrl;
+                // Thumbnails are already cell-sized, so decode at the cell size; full images stay tiny
+                int decodeSize = displayUrl.equals(imageUrl) ? 80 : imageView.getLayoutParams().width;
                 
+                holder.imageLoader.imageUrl = imageUrl;
                 com.bumptech.glide.Glide.with(imageView.getContext())
                     .load(loadSource)
                     .centerCrop()
-                    .placeholder(android.R.color.transparent)
+                    .placeholder(ImagePlaceholders.forMetadata(imageView.getContext(), metadata)) // Blurhash/dominant color, no network
                     .error(android.R.color.transparent)
                     // CRITICAL MEMORY OPTIMIZATIONS FOR GRID:
-                    .override(80, 80)  // VERY SMALL for grid to prevent memory crashes
+                    .override(decodeSize, decodeSize)
                     // Memory format optimization
-                    .transform(new com.bumptech.glide.load.resource.bitmap.RoundedCorners(4)) // Smaller radius
+                    .transform(GRID_CORNERS) // Smaller radius
                     .diskCacheStrategy(com.bumptech.glide.load.engine.DiskCacheStrategy.RESOURCE)
                     .skipMemoryCache(false)
                     .dontAnimate() // No animations for grid
-                    .listener(new com.bumptech.glide.request.RequestListener<android.graphics.drawable.Drawable>() {
-                        @Override
-                        public boolean onLoadFailed(com.bumptech.glide.load.engine.GlideException e, Object model, 
-                            com.bumptech.glide.request.target.Target<android.graphics.drawable.Drawable> target, 
-                            boolean isFirstResource) {
-                            Log.w("ChatImagesAdapter", "⚠️ Grid image load failed, trying MINIMAL fallback: " + imageUrl, e);
-                            
-                            // EXTREME FALLBACK: Ultra minimal settings
-                            try {
-                                com.bumptech.glide.Glide.with(imageView.getContext())
-                                    .load(imageUrl)
-                                    .centerCrop()
-                                    .placeholder(android.R.color.transparent)
-                                    .error(android.R.color.transparent)
-                                    .override(60, 60)  // ULTRA SMALL
-                                    // Ultra memory format
-                                    .diskCacheStrategy(com.bumptech.glide.load.engine.DiskCacheStrategy.NONE)
-                                    .skipMemoryCache(true)
-                                    .dontAnimate()
-                                    .listener(new com.bumptech.glide.request.RequestListener<android.graphics.drawable.Drawable>() {
-                                        @Override
-                                        public boolean onLoadFailed(com.bumptech.glide.load.engine.GlideException e2, Object model2, 
-                                            com.bumptech.glide.request.target.Target<android.graphics.drawable.Drawable> target2, 
-                                            boolean isFirstResource2) {
-                                            Log.e("ChatImagesAdapter", "❌ ULTRA FALLBACK FAILED - hiding grid image: " + imageUrl, e2);
-                                            imageView.setVisibility(View.GONE);
-                                            return true;
-                                        }
-                                        
-                                        @Override
-                                        public boolean onResourceReady(android.graphics.drawable.Drawable resource2, Object model2,
-                                            com.bumptech.glide.request.target.Target<android.graphics.drawable.Drawable> target2,
-                                            com.bumptech.glide.load.DataSource dataSource2, boolean isFirstResource2) {
-                                            Log.d("ChatImagesAdapter", "✅ ULTRA FALLBACK grid image loaded: " + imageUrl);
-                                            return false;
-                                        }
-                                    })
-                                    .into(imageView);
-                            } catch (Exception fallbackEx) {
-                                Log.e("ChatImagesAdapter", "❌ Grid fallback completely failed", fallbackEx);
-                                imageView.setVisibility(View.GONE);
-                            }
-                                
-                            return true; // Consume the first error
-                        }
-                        
-                        @Override
-                        public boolean onResourceReady(android.graphics.drawable.Drawable resource, Object model,
-                            com.bumptech.glide.request.target.Target<android.graphics.drawable.Drawable> target,
-                            com.bumptech.glide.load.DataSource dataSource, boolean isFirstResource) {
-                            Log.d("ChatImagesAdapter", "✅ PRIMARY grid image loaded: " + imageUrl);
-                            return false;
-                        }
-                    })
+                    .listener(holder.imageLoader) // Falls back to a minimal load of the full image
                     .into(imageView);
                     
             } catch (Exception e) {
                 Log.e("ChatImagesAdapter", "❌ CRITICAL: Grid image loading completely failed", e);
+                holder.imageLoader.imageUrl = null;
                 imageView.setVisibility(View.GONE);
             }
         }
@@ -1435,7 +1476,7 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
             /**
              * Copy image to app cache directory as fallback when URI permissions fail
              */
-            private android.net.Uri copyImageToCache(android.content.Context context, android.net.Uri sourceUri) throws Exception {
+            static android.net.Uri copyImageToCache(android.content.Context context, android.net.Uri sourceUri) throws Exception {
                 java.io.InputStream inputStream = null;
                 java.io.FileOutputStream outputStream = null;
                 
@@ -1507,38 +1548,10 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
         
         // Reaction handling methods
         
-        /**
-         * Setup double-click listener to show reaction picker
-         */
-        private void setupDoubleClickListener(LinearLayout messageLayout, String messageId, ChatMessageModel model) {
-            messageLayout.setOnClickListener(new View.OnClickListener() {
-                private static final long DOUBLE_CLICK_TIME_DELTA = 300; // ms
-                private long lastClickTime = 0;
-                
-                @Override
-                public void onClick(View v) {
-                    long clickTime = System.currentTimeMillis();
-                    if (clickTime - lastClickTime < DOUBLE_CLICK_TIME_DELTA) {
-                        // Double click - show reaction picker
-                        handleDoubleClick(v, messageId, model);
-                    }
-                    lastClickTime = clickTime;
-                }
-            });
-        }
-        
-        /**
-         * Handle double-click - show reaction picker for emoji selection
-         */
-        private void handleDoubleClick(View view, String messageId, ChatMessageModel model) {
-            // Show reaction picker on double tap for better user experience
-            showReactionPicker(view, messageId, model);
-        }
-        
         /**
          * Show reaction picker for a message
          */
-        private void showReactionPicker(View anchorView, String messageId, ChatMessageModel model) {
+        private void showReactionPicker(View anchorView, String messageId) {
             MessageReactionManager.showReactionPicker(context, anchorView, 
                 new MessageReactionManager.OnReactionClickListener() {
                     @Override
@@ -1554,27 +1567,71 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
         }
         
         /**
-         * Handle reaction selection
+         * Handle reaction selection: apply it to the bound model right away and hand it to the
+         * coalescer, which writes only the net change once the user stops tapping. Until that
+         * write settles, every rebind re-applies it on top of whatever snapshot arrived, so a
+         * snapshot that doesn't include it yet can't make it flicker.
          */
         private void handleReactionSelected(String messageId, String emoji) {
-            String currentUserId = FirebaseUtil.currentUserId();
             if (currentUserId == null) {
                 Log.e(TAG, "User not logged in, cannot add reaction");
                 return;
             }
             
-            Log.d(TAG, "Adding reaction " + emoji + " to message " + messageId);
+            int position = findPositionOfMessage(messageId);
+            if (position == RecyclerView.NO_POSITION) {
+                Log.w(TAG, "Message no longer in the list, ignoring reaction: " + messageId);
+                return;
+            }
+            ChatMessageModel model = getItem(position);
+            ReactionUpdate update = reactionWriter.toggle(messageId, model.getReactions(), emoji, currentUserId);
             
-            FirebaseUtil.toggleMessageReaction(chatroomId, messageId, emoji, currentUserId,
-                wasAdded -> {
-                    Log.d(TAG, "Reaction " + (wasAdded ? "added" : "removed") + ": " + emoji);
-                    MessageReactionManager.showReactionFeedback(context, emoji, wasAdded);
-                },
-                error -> {
-                    Log.e(TAG, "Failed to toggle reaction", error);
-                    Toast.makeText(context, "Failed to add reaction", Toast.LENGTH_SHORT).show();
+            Log.d(TAG, (update.add ? "Adding" : "Removing") + " reaction " + emoji + " on message " + messageId);
+            model.toggleReaction(emoji, currentUserId);
+            notifyItemChanged(position, MessageChangePayload.REACTIONS);
+        }
+        
+        /**
+         * Undo a reaction the server rejected on the displayed model
+         */
+        private void rollBackReaction(String messageId, ReactionUpdate update) {
+            int position = findPositionOfMessage(messageId);
+            if (position == RecyclerView.NO_POSITION) {
+                return;
+            }
+            ChatMessageModel shown = getItem(position);
+            new ReactionUpdate(update.emoji, update.userId, !update.add).applyTo(shown.getReactions());
+            shown.setReactions(shown.getReactions());
+            notifyItemChanged(position, MessageChangePayload.REACTIONS);
+        }
+        
+        /**
+         * Re-apply reaction changes not yet written or acknowledged to a freshly bound model
+         */
+        private void reconcilePendingReactions(String messageId, ChatMessageModel model) {
+            if (reactionWriter.applyPendingTo(messageId, model.getReactions())) {
+                model.setReactions(model.getReactions());
+            }
+        }
+        
+        /**
+         * Rebind one message, e.g. when its outbox state changed
+         * @param messageId Message document ID
+         */
+        public void refreshMessage(String messageId) {
+            int position = findPositionOfMessage(messageId);
+            if (position != RecyclerView.NO_POSITION) {
+                notifyItemChanged(position);
+            }
+        }
+        
+        private int findPositionOfMessage(String messageId) {
+            for (int i = 0; i < getItemCount(); i++) {
+                if (messageId.equals(getMessageIdAt(i))) {
+                    return i;
                 }
-            );
+            }
+            return RecyclerView.NO_POSITION;
         }
         
         /**
@@ -1585,15 +1642,45 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
         }
         
         /**
-         * MEMORY-OPTIMIZED: Safely load image with multiple fallback strategies and memory management
+         * Size the bubble image to the photo's aspect ratio before loading, so the row
+         * has its final height from the first bind and doesn't jump when the image arrives.
+         * Older messages without dimensions keep the square layout size.
          */
-        private void loadImageSafely(ImageView imageView, String imageUrl) {
+        private void reserveImageHeight(ImageView imageView, ImageMetadata metadata) {
+            ViewGroup.LayoutParams params = imageView.getLayoutParams();
+            if (params == null || params.width <= 0) {
+                return;
+            }
+            int height = params.width;
+            if (metadata != null && metadata.getWidth() > 0 && metadata.getHeight() > 0) {
+                float ratio = (float) metadata.getHeight() / metadata.getWidth();
+                ratio = Math.max(MIN_IMAGE_ASPECT, Math.min(MAX_IMAGE_ASPECT, ratio));
+                height = Math.round(params.width * ratio);
+            }
+            if (params.height != height) {
+                params.height = height;
+                imageView.setLayoutParams(params);
+            }
+        }
+        
+        /**
+         * MEMORY-OPTIMIZED: Safely load image with multiple fallback strategies and memory management.
+         * A rebind of the image the row already shows or is loading does nothing.
+         */
+        private void loadImageSafely(ChatModelViewHolder holder, String imageUrl, ImageMetadata metadata) {
+            ImageView imageView = holder.imageView;
             if (imageUrl == null || imageUrl.isEmpty()) {
+                holder.imageLoader.imageUrl = null;
                 imageView.setVisibility(View.GONE);
                 return;
             }
+            if (imageUrl.equals(holder.imageLoader.imageUrl)) {
+                return;
+            }
             
-            Log.d(TAG, "🖼️ Loading image safely with memory optimization: " + imageUrl);
+            if (BuildConfig.LOG_BINDS) {
+                Log.d(TAG, "🖼️ Loading image safely with memory optimization: " + imageUrl);
+            }
             
             try {
                 // MEMORY OPTIMIZATION: Clear any existing image first
@@ -1603,10 +1690,11 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
                 imageView.setVisibility(View.VISIBLE);
                 
                 // MEMORY-OPTIMIZED: Load with size limits to prevent OOM crashes
-                loadImageWithMemoryOptimization(imageView, imageUrl);
+                loadImageWithMemoryOptimization(holder, imageUrl, metadata);
                 
             } catch (Exception e) {
                 Log.e(TAG, "❌ Error in loadImageSafely", e);
+                holder.imageLoader.imageUrl = null;
                 imageView.setVisibility(View.GONE);
             }
         }
@@ -1614,81 +1702,152 @@ public class ChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatMessageMod
         /**
          * MEMORY-OPTIMIZED: Load image with aggressive memory management to prevent OOM crashes
          */
-        private void loadImageWithMemoryOptimization(ImageView imageView, String imageUrl) {
+        private void loadImageWithMemoryOptimization(ChatModelViewHolder holder, String imageUrl, ImageMetadata metadata) {
+            ImageView imageView = holder.imageView;
             try {
-                Log.d(TAG, "🚀 Loading image with AGGRESSIVE MEMORY OPTIMIZATION: " + imageUrl);
+                // Bubbles load the smallest stored variant that covers the view, never the full image
+                ViewGroup.LayoutParams params = imageView.getLayoutParams();
+                int defaultSize = (int) (200 * context.getResources().getDisplayMetrics().density);
+                int targetWidth = params != null && params.width > 0 ? params.width : defaultSize;
+                int targetHeight = params != null && params.height > 0 ? params.height : defaultSize;
+                String displayUrl = ImageVariants.selectUrl(imageUrl, metadata, targetWidth, targetHeight);
+                // Variants are already bubble-sized; full images (older messages) stay heavily downsampled
+                boolean isVariant = !displayUrl.equals(imageUrl);
+                int decodeWidth = isVariant ? targetWidth : 150;
+                int decodeHeight = isVariant ? targetHeight : 150;
+                if (BuildConfig.LOG_BINDS) {
+                    Log.d(TAG, "🚀 Loading image with AGGRESSIVE MEMORY OPTIMIZATION: " + displayUrl);
+                }
                 
-                Object loadSource = getImageLoadSource(imageUrl, 0);
+                Object loadSource = getImageLoadSource(displayUrl, 0);
                 
+                holder.imageLoader.imageUrl = imageUrl;
                 com.bumptech.glide.Glide.with(context)
                     .load(loadSource)
-                    .placeholder(android.R.color.transparent)
+                    .placeholder(ImagePlaceholders.forMetadata(context, metadata)) // Blurhash/dominant color, no network
                     .error(android.R.color.transparent)
                     // CRITICAL MEMORY OPTIMIZATIONS:
-                    .override(150, 150)  // SMALLER SIZE to prevent memory crashes
+                    .override(decodeWidth, decodeHeight)
                     .centerCrop()
                     // Memory optimization removed - using default format
                     .diskCacheStrategy(com.bumptech.glide.load.engine.DiskCacheStrategy.RESOURCE) // Cache processed images
                     .skipMemoryCache(false) // Use memory cache but with limits
                     .dontAnimate() // Disable animations to save memory
-                    .listener(new com.bumptech.glide.request.RequestListener<android.graphics.drawable.Drawable>() {
-                        @Override
-                        public boolean onLoadFailed(com.bumptech.glide.load.engine.GlideException e, Object model, 
-                            com.bumptech.glide.request.target.Target<android.graphics.drawable.Drawable> target, 
-                            boolean isFirstResource) {
-                            Log.w(TAG, "⚠️ Primary image load failed, trying MINIMAL fallback: " + imageUrl, e);
-                            
-                            // FALLBACK: Try with even more aggressive memory settings
-                            try {
-                                com.bumptech.glide.Glide.with(context)
-                                    .load(imageUrl)
-                                    .placeholder(android.R.color.transparent)
-                                    .error(android.R.color.transparent)
-                                    .override(100, 100)  // EVEN SMALLER for fallback
-                                    .centerCrop()
-                                    // Fallback memory format
-                                    .diskCacheStrategy(com.bumptech.glide.load.engine.DiskCacheStrategy.NONE)
-                                    .skipMemoryCache(true) // Skip cache for fallback
-                                    .dontAnimate()
-                                    .listener(new com.bumptech.glide.request.RequestListener<android.graphics.drawable.Drawable>() {
-                                        @Override
-                                        public boolean onLoadFailed(com.bumptech.glide.load.engine.GlideException e2, Object model2, 
-                                            com.bumptech.glide.request.target.Target<android.graphics.drawable.Drawable> target2, 
-                                            boolean isFirstResource2) {
-                                            Log.e(TAG, "❌ FINAL FALLBACK FAILED - hiding image: " + imageUrl, e2);
-                                            imageView.setVisibility(View.GONE);
-                                            return true;
-                                        }
-                                        
-                                        @Override
-                                        public boolean onResourceReady(android.graphics.drawable.Drawable resource2, Object model2,
-                                            com.bumptech.glide.request.target.Target<android.graphics.drawable.Drawable> target2,
-                                            com.bumptech.glide.load.DataSource dataSource2, boolean isFirstResource2) {
-                                            Log.d(TAG, "✅ FALLBACK image loaded: " + imageUrl);
-                                            return false;
-                                        }
-                                    })
-                                    .into(imageView);
-                            } catch (Exception fallbackException) {
-                                Log.e(TAG, "❌ Fallback loading also failed", fallbackException);
-                                imageView.setVisibility(View.GONE);
-                            }
-                            
-                            return true; // Consume the primary error
-                        }
-                        
-                        @Override
-                        public boolean onResourceReady(android.graphics.drawable.Drawable resource, Object model,
-                            com.bumptech.glide.request.target.Target<android.graphics.drawable.Drawable> target,
-                            com.bumptech.glide.load.DataSource dataSource, boolean isFirstResource) {
-                            Log.d(TAG, "✅ PRIMARY image loaded successfully: " + imageUrl);
-                            return false;
-                        }
-                    })
+                    .listener(holder.imageLoader) // Falls back to a minimal load of the full image
                     .into(imageView);
                     
             } catch (Exception e) {
                 Log.e(TAG, "❌ CRITICAL: Image loading completely failed", e);
+                holder.imageLoader.imageUrl = null;
+                imageView.setVisibility(View.GONE);
+            }
+        }
+        
+        /**
+         * Glide callbacks for one image view, created with its holder and reused by every load
+         * into it, so binding allocates no listeners. A failed load falls back once to the full
+         * image with minimal settings (a local image is first copied to the cache, off the main
+         * thread, in case its URI permission is gone); if that fails too the view is hidden.
+         */
+        static final class ImageLoadListener
+                implements com.bumptech.glide.request.RequestListener<android.graphics.drawable.Drawable> {
+            private final ImageView imageView;
+            private final String logTag;
+            private final int fallbackSize;
+            private final ImageLoadListener primary; // Set on the fallback listener only
+            private final ImageLoadListener fallback; // Set on the primary listener only
+            String imageUrl; // Full image the view shows or is loading; null to load again on the next bind
+            
+            ImageLoadListener(ImageView imageView, String logTag, int fallbackSize) {
+                this.imageView = imageView;
+                this.logTag = logTag;
+                this.fallbackSize = fallbackSize;
+                this.primary = null;
+                this.fallback = new ImageLoadListener(this);
+            }
+            
+            private ImageLoadListener(ImageLoadListener primary) {
+                this.imageView = primary.imageView;
+                this.logTag = primary.logTag;
+                this.fallbackSize = primary.fallbackSize;
+                this.primary = primary;
+                this.fallback = null;
+            }
+            
+            @Override
+            public boolean onLoadFailed(com.bumptech.glide.load.engine.GlideException e, Object model,
+                    com.bumptech.glide.request.target.Target<android.graphics.drawable.Drawable> target,
+                    boolean isFirstResource) {
+                if (primary != null) {
+                    Log.e(logTag, "❌ FINAL FALLBACK FAILED - hiding image: " + model, e);
+                    primary.hide();
+                    return true;
+                }
+                Log.w(logTag, "⚠️ Primary image load failed, trying MINIMAL fallback: " + imageUrl, e);
+                if (imageUrl != null && imageUrl.startsWith("content://")) {
+                    loadCachedCopy(imageUrl);
+                } else {
+                    loadFallback(imageUrl);
+                }
+                return true; // Consume the primary error
+            }
+            
+            /**
+             * Copy a local image whose URI can't be read directly, then load the copy
+             */
+            private void loadCachedCopy(String localUrl) {
+                android.content.Context appContext = imageView.getContext().getApplicationContext();
+                MediaPipeline.getInstance().submit(
+                        job -> ChatImagesAdapter.copyImageToCache(appContext, android.net.Uri.parse(localUrl)),
+                        new MediaPipeline.Callback<android.net.Uri>() {
+                            @Override
+                            public void onSuccess(android.net.Uri cachedUri) {
+                                if (localUrl.equals(imageUrl)) { // Not rebound meanwhile
+                                    loadFallback(cachedUri);
+                                }
+                            }
+                            
+                            @Override
+                            public void onFailure(Exception e) {
+                                Log.e(logTag, "Failed to copy image to cache", e);
+                                if (localUrl.equals(imageUrl)) {
+                                    loadFallback(localUrl);
+                                }
+                            }
+                        });
+            }
+            
+            private void loadFallback(Object source) {
+                try {
+                    com.bumptech.glide.Glide.with(imageView.getContext())
+                        .load(source)
+                        .placeholder(android.R.color.transparent)
+                        .error(android.R.color.transparent)
+                        .override(fallbackSize, fallbackSize)
+                        .centerCrop()
+                        .diskCacheStrategy(com.bumptech.glide.load.engine.DiskCacheStrategy.NONE)
+                        .skipMemoryCache(true) // Skip cache for fallback
+                        .dontAnimate()
+                        .listener(fallback)
+                        .into(imageView);
+                } catch (Exception fallbackException) {
+                    Log.e(logTag, "❌ Fallback loading also failed", fallbackException);
+                    hide();
+                }
+            }
+            
+            @Override
+            public boolean onResourceReady(android.graphics.drawable.Drawable resource, Object model,
+                    com.bumptech.glide.request.target.Target<android.graphics.drawable.Drawable> target,
+                    com.bumptech.glide.load.DataSource dataSource, boolean isFirstResource) {
+                if (BuildConfig.LOG_BINDS) {
+                    Log.d(logTag, (primary != null ? "✅ FALLBACK image loaded: " : "✅ PRIMARY image loaded: ") + model);
+                }
+                return false;
+            }
+            
+            private void hide() {
+                imageUrl = null;
                 imageView.setVisibility(View.GONE);
             }
         }
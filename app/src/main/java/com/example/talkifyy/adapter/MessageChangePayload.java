@@ -0,0 +1,72 @@
+package com.example.talkifyy.adapter;
+
+import com.example.talkifyy.model.ChatMessageModel;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Partial rebind payloads for ChatRecyclerAdapter rows, and the diff that picks them.
+ * A row bound with payloads only refreshes the parts named; anything the payloads
+ * can't express falls back to a full rebind.
+ */
+public final class MessageChangePayload {
+    public static final String REACTIONS = "reactions";     // Reactions container
+    public static final String EDIT = "edit";               // Text and edited indicator
+    public static final String SELECTION = "selection";     // Checkbox and selection visuals
+    public static final String SENDER_NAME = "sender_name"; // Username line (group chats)
+
+    private MessageChangePayload() {
+    }
+
+    /**
+     * What changed on screen between the model a row was bound with and its latest version
+     * @param before Model the row was last bound with, or null if unknown
+     * @param after Latest model
+     * @return The payloads to rebind with (empty if nothing visible changed), or null if
+     *         the row needs a full rebind
+     */
+    public static Set<String> between(ChatMessageModel before, ChatMessageModel after) {
+        if (before == null || after == null) {
+            return null;
+        }
+        // Layout-level fields: a different row type or bubble, not an update of this one
+        if (isDeleted(before) != isDeleted(after)
+                || !Objects.equals(before.getSenderId(), after.getSenderId())
+                || !Objects.equals(before.getMessageType(), after.getMessageType())
+                || !Objects.equals(before.getImageUrl(), after.getImageUrl())
+                || !Objects.equals(before.getImageUrls(), after.getImageUrls())
+                || !Objects.equals(before.getImageCaption(), after.getImageCaption())) {
+            return null;
+        }
+
+        Set<String> payloads = new HashSet<>();
+        if (!isDeleted(after) && (before.isEdited() != after.isEdited()
+                || !Objects.equals(before.getMessage(), after.getMessage()))) {
+            payloads.add(EDIT);
+        }
+        if (!sameReactions(before.getReactions(), after.getReactions())) {
+            payloads.add(REACTIONS);
+        }
+
+        // Image bubbles are only partially rebound for reactions
+        if (after.isImageMessage() && payloads.contains(EDIT)) {
+            return null;
+        }
+        return payloads;
+    }
+
+    private static boolean isDeleted(ChatMessageModel model) {
+        return model.isDeletedForEveryone() || model.isUnsent();
+    }
+
+    private static boolean sameReactions(Map<String, List<String>> a, Map<String, List<String>> b) {
+        if (a == null || a.isEmpty()) {
+            return b == null || b.isEmpty();
+        }
+        return a.equals(b);
+    }
+}
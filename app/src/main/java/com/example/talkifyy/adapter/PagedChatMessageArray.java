@@ -0,0 +1,514 @@
+package com.example.talkifyy.adapter;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.talkifyy.model.ChatMessageModel;
+import com.example.talkifyy.utils.FirebaseUtil;
+import com.example.talkifyy.utils.LocalMessageStore;
+import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.firestore.ClassSnapshotParser;
+import com.firebase.ui.firestore.ObservableSnapshotArray;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keyset-paginated message source for ChatRecyclerAdapter.
+ * The newest page is a live snapshot listener; older pages are fetched on demand
+ * with startAfter(timestamp, docId) cursors, so opening a huge chat costs the same
+ * reads and memory as opening a small one.
+ * Deep in history only a page budget around the viewport stays loaded: pages between the live
+ * page and the viewport are released too, leaving a gap right after the live page that is
+ * re-fetched with endBefore cursors as the user scrolls back down.
+ * List order matches the chat list: newest first (position 0), oldest last.
+ */
+public class PagedChatMessageArray extends ObservableSnapshotArray<ChatMessageModel>
+        implements EventListener<QuerySnapshot> {
+
+    private static final String TAG = "PagedChatMessageArray";
+    private static final String FIELD_TIMESTAMP = "timestamp";
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int DEFAULT_MAX_PAGES = 10;
+
+    private final String chatroomId;
+    private final int pageSize;
+    private final int maxPages;
+
+    // Live page first, then older pages in the same (newest → oldest) order
+    private final List<DocumentSnapshot> snapshots = new ArrayList<>();
+    private int headSize = 0;
+
+    private ListenerRegistration headRegistration;
+    private boolean hasMoreOlder = false;
+    private boolean isLoadingOlder = false;
+    private boolean hasNewerGap = false; // Messages missing between the live page and the older pages
+    private boolean isLoadingNewer = false;
+    private boolean awaitingFirstSnapshot = false;
+    private boolean windowReconciled = false; // Local store checked against the server's live window
+    private int listenGeneration = 0;
+
+    // Older pages kept across a stop/start cycle (e.g. while the image viewer is open)
+    private final List<DocumentSnapshot> stashedOlder = new ArrayList<>();
+
+    // Optional write-through target for offline history
+    private LocalMessageStore messageStore;
+
+    public PagedChatMessageArray(@NonNull String chatroomId) {
+        this(chatroomId, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    /**
+     * @param chatroomId Chat room whose messages are paged
+     * @param pageSize Messages per page (also the size of the live window)
+     * @param maxPages In-memory page budget, including the live page
+     */
+    public PagedChatMessageArray(@NonNull String chatroomId, int pageSize, int maxPages) {
+        super(new ClassSnapshotParser<>(ChatMessageModel.class));
+        this.chatroomId = chatroomId;
+        this.pageSize = Math.max(1, pageSize);
+        this.maxPages = Math.max(1, maxPages);
+    }
+
+    /**
+     * Write every message received from Firestore through to the local store
+     * @param messageStore Local store, or null to disable write-through
+     */
+    public void setMessageStore(@Nullable LocalMessageStore messageStore) {
+        this.messageStore = messageStore;
+    }
+
+    @NonNull
+    @Override
+    protected List<DocumentSnapshot> getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * Base ordering shared by the live page and the cursors.
+     * Document id is the tiebreaker so messages with equal timestamps page deterministically.
+     */
+    private Query orderedQuery() {
+        return FirebaseUtil.getChatroomMessageReference(chatroomId)
+                .orderBy(FIELD_TIMESTAMP, Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING);
+    }
+
+    @Override
+    protected void onCreate() {
+        super.onCreate();
+        listenGeneration++;
+        awaitingFirstSnapshot = true;
+        headRegistration = orderedQuery().limit(pageSize).addSnapshotListener(this);
+        Log.d(TAG, "📖 Listening to newest " + pageSize + " messages in chatroom: " + chatroomId);
+    }
+
+    @Override
+    protected void onDestroy() {
+        // Keep already-loaded history so returning to the chat doesn't reset the scroll back
+        stashedOlder.clear();
+        if (headSize < snapshots.size()) {
+            stashedOlder.addAll(snapshots.subList(headSize, snapshots.size()));
+        }
+
+        super.onDestroy();
+        snapshots.clear();
+        headSize = 0;
+        isLoadingOlder = false;
+        isLoadingNewer = false;
+        hasNewerGap = false;
+        listenGeneration++;
+
+        if (headRegistration != null) {
+            headRegistration.remove();
+            headRegistration = null;
+        }
+    }
+
+    @Override
+    public void onEvent(@Nullable QuerySnapshot value, @Nullable FirebaseFirestoreException e) {
+        if (e != null) {
+            Log.e(TAG, "❌ Error listening to newest messages", e);
+            notifyOnError(e);
+            return;
+        }
+        if (value == null) {
+            return;
+        }
+
+        // A row leaving a full live window was pushed out by a newer message, not deleted
+        List<DocumentSnapshot> window = value.getDocuments();
+        DocumentSnapshot windowTail = window.size() >= pageSize ? window.get(window.size() - 1) : null;
+
+        List<DocumentSnapshot> changed = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        for (DocumentChange change : value.getDocumentChanges()) {
+            switch (change.getType()) {
+                case ADDED:
+                    onHeadDocumentAdded(change);
+                    changed.add(change.getDocument());
+                    break;
+                case REMOVED:
+                    if (!onHeadDocumentRemoved(change, windowTail)) {
+                        deleted.add(change.getDocument().getId());
+                    }
+                    break;
+                case MODIFIED:
+                    onHeadDocumentModified(change);
+                    changed.add(change.getDocument());
+                    break;
+            }
+        }
+
+        if (messageStore != null) {
+            messageStore.saveSnapshotsAsync(chatroomId, changed);
+            messageStore.deleteMessagesAsync(chatroomId, deleted);
+            if (!windowReconciled && !value.getMetadata().isFromCache()) {
+                // First server view of the window: drop cached rows deleted while we were away
+                windowReconciled = true;
+                List<String> windowIds = new ArrayList<>(window.size());
+                for (DocumentSnapshot snapshot : window) {
+                    windowIds.add(snapshot.getId());
+                }
+                Timestamp oldest = windowTail != null ? windowTail.getTimestamp(FIELD_TIMESTAMP) : null;
+                if (windowTail == null || oldest != null) {
+                    messageStore.reconcileLiveWindowAsync(chatroomId, windowIds,
+                            oldest != null ? oldest.toDate().getTime() : 0);
+                }
+            }
+        }
+
+        if (awaitingFirstSnapshot) {
+            awaitingFirstSnapshot = false;
+            hasMoreOlder = windowTail != null;
+            restoreStashedOlder(windowTail);
+        }
+
+        notifyOnDataChanged();
+    }
+
+    private void onHeadDocumentAdded(DocumentChange change) {
+        QueryDocumentSnapshot snapshot = change.getDocument();
+
+        // Back-filled into the live window from an older page we already hold
+        int olderIndex = indexOfOlder(snapshot.getId());
+        if (olderIndex >= 0) {
+            DocumentSnapshot stale = snapshots.remove(olderIndex);
+            notifyOnChildChanged(ChangeEventType.REMOVED, stale, -1, olderIndex);
+        }
+
+        snapshots.add(change.getNewIndex(), snapshot);
+        headSize++;
+        notifyOnChildChanged(ChangeEventType.ADDED, snapshot, change.getNewIndex(), -1);
+    }
+
+    /**
+     * @return true if the row was only pushed out of the live window and is still shown
+     */
+    private boolean onHeadDocumentRemoved(DocumentChange change, @Nullable DocumentSnapshot windowTail) {
+        QueryDocumentSnapshot snapshot = change.getDocument();
+        int oldIndex = change.getOldIndex();
+        headSize--;
+
+        if (windowTail != null && compareListOrder(snapshot, windowTail) > 0) {
+            if (hasNewerGap) {
+                // Newer than the gap, so it falls into it; re-fetched with the gap if needed
+                snapshots.remove(oldIndex);
+                notifyOnChildChanged(ChangeEventType.REMOVED, snapshot, -1, oldIndex);
+                return true;
+            }
+            // Evicted by the live limit: it simply becomes the newest row of the older pages
+            if (oldIndex != headSize) {
+                snapshots.remove(oldIndex);
+                snapshots.add(headSize, snapshot);
+                notifyOnChildChanged(ChangeEventType.MOVED, snapshot, headSize, oldIndex);
+            }
+            return true;
+        }
+
+        snapshots.remove(oldIndex);
+        notifyOnChildChanged(ChangeEventType.REMOVED, snapshot, -1, oldIndex);
+        return false;
+    }
+
+    private void onHeadDocumentModified(DocumentChange change) {
+        QueryDocumentSnapshot snapshot = change.getDocument();
+        if (change.getOldIndex() == change.getNewIndex()) {
+            snapshots.set(change.getNewIndex(), snapshot);
+            notifyOnChildChanged(ChangeEventType.CHANGED, snapshot,
+                    change.getNewIndex(), change.getNewIndex());
+        } else {
+            snapshots.remove(change.getOldIndex());
+            snapshots.add(change.getNewIndex(), snapshot);
+            notifyOnChildChanged(ChangeEventType.MOVED, snapshot,
+                    change.getNewIndex(), change.getOldIndex());
+            notifyOnChildChanged(ChangeEventType.CHANGED, snapshot,
+                    change.getNewIndex(), change.getNewIndex());
+        }
+    }
+
+    /**
+     * Fetch the next page of older messages. Safe to call repeatedly while scrolling;
+     * only one page request is in flight at a time.
+     */
+    public void loadOlder() {
+        if (!isListening() || awaitingFirstSnapshot || isLoadingOlder || !hasMoreOlder || snapshots.isEmpty()) {
+            return;
+        }
+
+        final DocumentSnapshot cursor = snapshots.get(snapshots.size() - 1);
+        Timestamp cursorTimestamp = cursor.getTimestamp(FIELD_TIMESTAMP);
+        if (cursorTimestamp == null) {
+            return;
+        }
+
+        isLoadingOlder = true;
+        final int generation = listenGeneration;
+        Log.d(TAG, "📜 Loading older messages before: " + cursor.getId());
+
+        orderedQuery()
+                .startAfter(cursorTimestamp, cursor.getId())
+                .limit(pageSize)
+                .get()
+                .addOnSuccessListener(result -> {
+                    if (generation != listenGeneration) {
+                        return; // Listener restarted while the page was loading
+                    }
+                    isLoadingOlder = false;
+
+                    // The list was trimmed or re-filled meanwhile; the next scroll retries
+                    if (snapshots.isEmpty() || !snapshots.get(snapshots.size() - 1).getId().equals(cursor.getId())) {
+                        return;
+                    }
+
+                    appendOlder(result.getDocuments());
+                    hasMoreOlder = result.size() >= pageSize;
+                    if (messageStore != null && !result.getMetadata().isFromCache()) {
+                        messageStore.saveSnapshotsAsync(chatroomId, result.getDocuments());
+                    }
+                    notifyOnDataChanged();
+                    Log.d(TAG, "✅ Loaded " + result.size() + " older messages, total in memory: " + snapshots.size());
+                })
+                .addOnFailureListener(e -> {
+                    if (generation == listenGeneration) {
+                        isLoadingOlder = false;
+                    }
+                    Log.e(TAG, "❌ Failed to load older messages", e);
+                });
+    }
+
+    /**
+     * Fetch the page of messages just newer than the gap after the live page. Safe to call
+     * repeatedly while scrolling; only one page request is in flight at a time.
+     */
+    public void loadNewer() {
+        if (!isListening() || awaitingFirstSnapshot || isLoadingNewer || !hasNewerGap || headSize >= snapshots.size()) {
+            return;
+        }
+
+        final DocumentSnapshot cursor = snapshots.get(headSize);
+        Timestamp cursorTimestamp = cursor.getTimestamp(FIELD_TIMESTAMP);
+        if (cursorTimestamp == null) {
+            return;
+        }
+
+        isLoadingNewer = true;
+        final int generation = listenGeneration;
+        Log.d(TAG, "📜 Loading newer messages after: " + cursor.getId());
+
+        orderedQuery()
+                .endBefore(cursorTimestamp, cursor.getId())
+                .limitToLast(pageSize)
+                .get()
+                .addOnSuccessListener(result -> {
+                    if (generation != listenGeneration) {
+                        return; // Listener restarted while the page was loading
+                    }
+                    isLoadingNewer = false;
+
+                    // The list was trimmed or re-filled meanwhile; the next scroll retries
+                    if (!hasNewerGap || headSize >= snapshots.size()
+                            || !snapshots.get(headSize).getId().equals(cursor.getId())) {
+                        return;
+                    }
+
+                    hasNewerGap = !fillNewerGap(result.getDocuments()) && result.size() >= pageSize;
+                    if (messageStore != null && !result.getMetadata().isFromCache()) {
+                        messageStore.saveSnapshotsAsync(chatroomId, result.getDocuments());
+                    }
+                    notifyOnDataChanged();
+                    Log.d(TAG, "✅ Loaded " + result.size() + " newer messages, total in memory: " + snapshots.size());
+                })
+                .addOnFailureListener(e -> {
+                    if (generation == listenGeneration) {
+                        isLoadingNewer = false;
+                    }
+                    Log.e(TAG, "❌ Failed to load newer messages", e);
+                });
+    }
+
+    /**
+     * Keep at most the page budget loaded around the viewport, releasing pages on both sides.
+     * Older pages are re-fetched through the cursor if the user scrolls back up, newer ones
+     * through loadNewer() on the way down. The live page always stays.
+     * @param firstVisiblePosition Newest adapter position currently on screen
+     * @param lastVisiblePosition Oldest adapter position currently on screen
+     */
+    public void trimToBudget(int firstVisiblePosition, int lastVisiblePosition) {
+        int budget = pageSize * maxPages;
+        // Older end (exclusive): a page of margin past the viewport, at least the whole budget
+        int keepTo = Math.max(Math.max(budget, lastVisiblePosition + 1 + pageSize), headSize);
+        // Newer end of the older pages: once keepTo passes the budget, only a budget-sized
+        // window stays (or the viewport plus a page each side, if that's larger)
+        int keepFrom = headSize;
+        if (keepTo > budget) {
+            int window = Math.max(budget - headSize, 0);
+            keepFrom = Math.max(headSize, Math.min(firstVisiblePosition - pageSize, keepTo - window));
+        }
+
+        int released = 0;
+        for (int i = snapshots.size() - 1; i >= keepTo; i--) {
+            DocumentSnapshot removed = snapshots.remove(i);
+            notifyOnChildChanged(ChangeEventType.REMOVED, removed, -1, i);
+            hasMoreOlder = true;
+            released++;
+        }
+        for (int i = Math.min(keepFrom, snapshots.size()) - 1; i >= headSize; i--) {
+            DocumentSnapshot removed = snapshots.remove(i);
+            notifyOnChildChanged(ChangeEventType.REMOVED, removed, -1, i);
+            hasNewerGap = true;
+            released++;
+        }
+        if (released == 0) {
+            return;
+        }
+        notifyOnDataChanged();
+        Log.d(TAG, "🧹 Trimmed message history to " + snapshots.size() + " rows");
+    }
+
+    public boolean hasMoreOlder() {
+        return hasMoreOlder;
+    }
+
+    /**
+     * Whether messages right after the live page were released (see loadNewer)
+     */
+    public boolean hasNewerGap() {
+        return hasNewerGap;
+    }
+
+    /**
+     * Rows in the live page; the newer gap, if any, starts at this position
+     */
+    public int getLiveWindowSize() {
+        return headSize;
+    }
+
+    public boolean isLoadingOlder() {
+        return isLoadingOlder;
+    }
+
+    private void appendOlder(List<DocumentSnapshot> page) {
+        Set<String> loadedIds = new HashSet<>();
+        for (int i = headSize; i < snapshots.size(); i++) {
+            loadedIds.add(snapshots.get(i).getId());
+        }
+
+        for (DocumentSnapshot snapshot : page) {
+            if (!loadedIds.add(snapshot.getId())) {
+                continue;
+            }
+            snapshots.add(snapshot);
+            notifyOnChildChanged(ChangeEventType.ADDED, snapshot, snapshots.size() - 1, -1);
+        }
+    }
+
+    /**
+     * Insert a page fetched by loadNewer() between the live page and the older pages
+     * @param page Messages in list order, all newer than the first older row
+     * @return true if the page reached the live page, i.e. the gap is closed
+     */
+    private boolean fillNewerGap(List<DocumentSnapshot> page) {
+        Set<String> headIds = new HashSet<>();
+        for (int i = 0; i < headSize; i++) {
+            headIds.add(snapshots.get(i).getId());
+        }
+
+        boolean reachedHead = false;
+        int insertAt = headSize;
+        for (DocumentSnapshot snapshot : page) {
+            if (headIds.contains(snapshot.getId())) {
+                reachedHead = true;
+                continue;
+            }
+            snapshots.add(insertAt, snapshot);
+            notifyOnChildChanged(ChangeEventType.ADDED, snapshot, insertAt, -1);
+            insertAt++;
+        }
+        return reachedHead;
+    }
+
+    private void restoreStashedOlder(@Nullable DocumentSnapshot windowTail) {
+        if (stashedOlder.isEmpty()) {
+            return;
+        }
+
+        // Only rows strictly older than the live window can follow it
+        List<DocumentSnapshot> restorable = new ArrayList<>();
+        if (windowTail != null) {
+            for (DocumentSnapshot snapshot : stashedOlder) {
+                if (compareListOrder(snapshot, windowTail) > 0) {
+                    restorable.add(snapshot);
+                }
+            }
+        }
+        stashedOlder.clear();
+
+        appendOlder(restorable);
+        // Messages may have passed through the live page while stopped; loadNewer() checks
+        hasNewerGap = !restorable.isEmpty();
+        Log.d(TAG, "♻️ Restored " + restorable.size() + " previously loaded messages");
+    }
+
+    private int indexOfOlder(String messageId) {
+        for (int i = headSize; i < snapshots.size(); i++) {
+            if (snapshots.get(i).getId().equals(messageId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compare two messages in list order (timestamp DESC, id DESC).
+     * @return positive if {@code a} is older than {@code b}
+     */
+    private static int compareListOrder(DocumentSnapshot a, DocumentSnapshot b) {
+        Timestamp ta = a.getTimestamp(FIELD_TIMESTAMP);
+        Timestamp tb = b.getTimestamp(FIELD_TIMESTAMP);
+        if (ta != null && tb != null) {
+            int byTime = tb.compareTo(ta);
+            if (byTime != 0) {
+                return byTime;
+            }
+        } else if (ta != null || tb != null) {
+            return ta == null ? -1 : 1;
+        }
+        return b.getId().compareTo(a.getId());
+    }
+}
@@ -7,6 +7,8 @@ import android.animation.ObjectAnimator;
 import android.app.AlertDialog;
 import android.content.Context;
 import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -19,36 +21,128 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.talkifyy.BuildConfig;
 import com.example.talkifyy.ChatActivity;
 import com.example.talkifyy.R;
+import com.example.talkifyy.model.ChatListItem;
 import com.example.talkifyy.model.ChatroomModel;
 import com.example.talkifyy.model.UserModel;
 import com.example.talkifyy.services.ChatRestorationService;
 import com.example.talkifyy.utils.AndroidUtil;
+import com.example.talkifyy.utils.ChatListRepository;
 import com.example.talkifyy.utils.FirebaseUtil;
 import com.example.talkifyy.utils.LocalDeletionUtil;
 import com.example.talkifyy.utils.NotificationUtil;
-import com.firebase.ui.firestore.FirestoreRecyclerAdapter;
-import com.firebase.ui.firestore.FirestoreRecyclerOptions;
+import com.example.talkifyy.utils.UnreadCountCache;
+import com.example.talkifyy.utils.UserDirectory;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
-public class RecentChatRecyclerAdapter extends FirestoreRecyclerAdapter<ChatroomModel,
-        RecentChatRecyclerAdapter.ChatroomModelViewHolder> {
+
+/**
+ * Chat list rows fed by ChatListRepository snapshots. Each snapshot is diffed against the
+ * current list off the main thread (AsyncListDiffer); rows whose visible fields didn't change
+ * are not rebound, and rows keep stable IDs as they move.
+ */
+public class RecentChatRecyclerAdapter extends RecyclerView.Adapter<RecentChatRecyclerAdapter.ChatroomModelViewHolder> {
 
         private static final String TAG = "RecentChatAdapter";
+        
+        // Last message line styles
+        private static final int STYLE_UNSET = -1;
+        private static final int STYLE_READ = 0;
+        private static final int STYLE_UNREAD_ONE = 1;
+        private static final int STYLE_UNREAD_COUNT = 2;
+        
+        private static final DiffUtil.ItemCallback<ChatListItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<ChatListItem>() {
+            @Override
+            public boolean areItemsTheSame(@NonNull ChatListItem oldItem, @NonNull ChatListItem newItem) {
+                return oldItem.chatroomId.equals(newItem.chatroomId);
+            }
+            
+            @Override
+            public boolean areContentsTheSame(@NonNull ChatListItem oldItem, @NonNull ChatListItem newItem) {
+                return oldItem.hasSameContent(newItem);
+            }
+        };
+        
         Context context;
         ChatContextMenuListener contextMenuListener;
         ChatRestorationService restorationService;
+        private final ChatListRepository repository;
+        private final AsyncListDiffer<ChatListItem> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+        private final Map<String, Long> stableIds = new HashMap<>();
+        
+        // Resolved once, so binding a row makes no lookups or allocations
+        private final String currentUserId;
+        private final int colorRead;
+        private final int colorUnreadOne;
+        private final int colorUnreadCount;
+        private final String[] newMessagesLabels = new String[101]; // Counts are capped at 100
+        private final String[] badgeLabels = new String[100];
         
         // Instagram-style highlighting
         private String highlightedChatroomId = null;
         private String highlightedSenderId = null;
+        
+        // Badges are counted from the read watermarks and rebind the row when a count lands
+        private final UnreadCountCache.OnUnreadCountChangedListener unreadListener =
+                (chatroomId, count) -> onUnreadChanged(chatroomId);
 
-        public RecentChatRecyclerAdapter(@NonNull FirestoreRecyclerOptions<ChatroomModel> options, Context context) {
-            super(options);
+        public RecentChatRecyclerAdapter(Context context, ChatListRepository repository) {
             this.context = context;
+            this.repository = repository;
+            this.currentUserId = FirebaseUtil.currentUserId();
+            this.colorRead = context.getResources().getColor(R.color.gray, null);
+            this.colorUnreadOne = context.getResources().getColor(R.color.black, null);
+            this.colorUnreadCount = context.getResources().getColor(R.color.instagram_blue, null);
+            setHasStableIds(true);
+        }
+        
+        /**
+         * Show a new snapshot; the diff runs in the background and only changed rows are touched
+         */
+        public void submitList(List<ChatListItem> chats) {
+            differ.submitList(chats);
+        }
+        
+        @Override
+        public int getItemCount() {
+            return differ.getCurrentList().size();
+        }
+        
+        @Override
+        public long getItemId(int position) {
+            String chatroomId = differ.getCurrentList().get(position).chatroomId;
+            Long id = stableIds.get(chatroomId);
+            if (id == null) {
+                id = (long) stableIds.size();
+                stableIds.put(chatroomId, id);
+            }
+            return id;
+        }
+        
+        private int positionOf(String chatroomId) {
+            List<ChatListItem> chats = differ.getCurrentList();
+            for (int i = 0; i < chats.size(); i++) {
+                if (chats.get(i).chatroomId.equals(chatroomId)) {
+                    return i;
+                }
+            }
+            return RecyclerView.NO_POSITION;
+        }
+        
+        private void notifyChatChanged(String chatroomId) {
+            int position = positionOf(chatroomId);
+            if (position != RecyclerView.NO_POSITION) {
+                notifyItemChanged(position);
+            }
         }
         
         public void setChatContextMenuListener(ChatContextMenuListener listener) {
@@ -69,133 +163,251 @@ public class RecentChatRecyclerAdapter extends FirestoreRecyclerAdapter<Chatroom
         
         // Instagram-style highlighting for new messages
         public void highlightChatWithNewMessage(String senderId, String chatroomId) {
+            String previousChatroomId = this.highlightedChatroomId;
             this.highlightedSenderId = senderId;
             this.highlightedChatroomId = chatroomId;
             Log.d(TAG, "🎆 ADAPTER: Highlighting chat for new message - Sender: " + senderId + ", Chat: " + chatroomId);
             
-            // Immediate update to show highlighting
-            try {
-                notifyDataSetChanged();
-                Log.d(TAG, "✅ ADAPTER: Highlighting applied successfully");
-            } catch (Exception e) {
-                Log.e(TAG, "❌ ADAPTER: Error applying highlighting", e);
+            // Immediate update to show highlighting - only the rows involved
+            if (previousChatroomId != null && !previousChatroomId.equals(chatroomId)) {
+                notifyChatChanged(previousChatroomId);
             }
+            notifyChatChanged(chatroomId);
             
             // Clear highlight after Instagram-style delay
-            new android.os.Handler().postDelayed(() -> {
-                try {
-                    Log.d(TAG, "🔄 ADAPTER: Clearing highlight after delay");
-                    this.highlightedSenderId = null;
-                    this.highlightedChatroomId = null;
-                    notifyDataSetChanged();
-                    Log.d(TAG, "✅ ADAPTER: Highlight cleared successfully");
-                } catch (Exception e) {
-                    Log.e(TAG, "❌ ADAPTER: Error clearing highlight", e);
+            new Handler(Looper.getMainLooper()).postDelayed(() -> {
+                // A newer highlight owns the state now
+                if (!chatroomId.equals(this.highlightedChatroomId)) {
+                    return;
                 }
+                Log.d(TAG, "🔄 ADAPTER: Clearing highlight after delay");
+                this.highlightedSenderId = null;
+                this.highlightedChatroomId = null;
+                notifyChatChanged(chatroomId);
             }, 2500); // Slightly longer highlight for better visibility
         }
 
         @Override
-        protected void onBindViewHolder(@NonNull ChatroomModelViewHolder holder, int position, @NonNull ChatroomModel model) {
-            // Get the chatroom ID from document snapshot (more reliable)
-            String chatroomId = getSnapshots().getSnapshot(position).getId();
-            
-            // Check if chat is locally deleted - if so, check if it should be restored
-            if (LocalDeletionUtil.isChatLocallyDeleted(context, chatroomId)) {
-                // Check if there are new messages since the local deletion
-                // If the last message timestamp is newer, restore the chat
-                if (shouldRestoreChat(chatroomId, model)) {
-                    Log.d(TAG, "Restoring locally deleted chat due to new message: " + chatroomId);
-                    LocalDeletionUtil.restoreLocallyDeletedChat(context, chatroomId);
-                } else {
-                    Log.d(TAG, "Chat is locally deleted, hiding: " + chatroomId);
-                    // Hide the entire item by setting zero height and invisible
-                    holder.itemView.setVisibility(View.GONE);
-                    holder.itemView.setLayoutParams(new RecyclerView.LayoutParams(0, 0));
-                    return;
-                }
-            }
-            
-            // Make sure the item is visible (in case it was previously hidden)
-            holder.itemView.setVisibility(View.VISIBLE);
-            holder.itemView.setLayoutParams(new RecyclerView.LayoutParams(
-                ViewGroup.LayoutParams.MATCH_PARENT, 
-                ViewGroup.LayoutParams.WRAP_CONTENT
-            ));
+        public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+            super.onAttachedToRecyclerView(recyclerView);
+            UnreadCountCache.getInstance().addListener(unreadListener);
+        }
+        
+        @Override
+        public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+            super.onDetachedFromRecyclerView(recyclerView);
+            UnreadCountCache.getInstance().removeListener(unreadListener);
+        }
+        
+        private void onUnreadChanged(String chatroomId) {
+            notifyChatChanged(chatroomId);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull ChatroomModelViewHolder holder, int position) {
+            // Locally deleted chats are already filtered out by the repository. Everything the
+            // row shows was worked out when the item was built; this only copies it into views.
+            ChatListItem item = differ.getCurrentList().get(position);
+            holder.item = item;
+            holder.otherUser = null;
+            holder.userLoadFailed = false;
+            holder.itemView.setTag(item.chatroomId);
             
             // Check if this is a group chat or individual chat
-            if (model.isGroup()) {
+            if (item.chatroom.isGroup()) {
                 // Handle group chat display
-                handleGroupChatDisplay(holder, model, chatroomId);
+                handleGroupChatDisplay(holder, item);
             } else {
                 // Handle individual chat display
-                handleIndividualChatDisplay(holder, model, chatroomId);
+                handleIndividualChatDisplay(holder, item);
             }
         }
         
-        private void handleGroupChatDisplay(ChatroomModelViewHolder holder, ChatroomModel model, String chatroomId) {
-            boolean lastMessageSentByMe = model.getLastMessageSenderId().equals(FirebaseUtil.currentUserId());
-            
-            // Set group name and description
-            String groupName = (model.getGroupName() != null && !model.getGroupName().isEmpty()) 
-                    ? model.getGroupName() : "Group Chat";
-            holder.usernameText.setText(groupName);
+        private void handleGroupChatDisplay(ChatroomModelViewHolder holder, ChatListItem item) {
+            holder.usernameText.setText(item.groupTitle);
             
             // Set group icon (use a default group icon)
-            holder.profilePic.setImageResource(R.drawable.group_icon);
+            bindProfilePic(holder, null, R.drawable.group_icon);
             
-            // For group chats, use chatroom ID for notification count
-            int unreadCount = NotificationUtil.getMessageCount(chatroomId);
+            int unreadCount = UnreadCountCache.getInstance().getUnreadCount(item.chatroomId, item.chatroom, currentUserId);
+            bindLastMessage(holder, item, unreadCount);
             
-            // Handle message display
-            if (lastMessageSentByMe) {
-                holder.lastMessageText.setText("You: " + model.getLastMessage());
+            // Apply highlighting for group chats if needed
+            bindHighlight(holder, item.chatroomId.equals(highlightedChatroomId));
+            
+            if (BuildConfig.LOG_BINDS) {
+                Log.d(TAG, "📱 Group: " + item.groupTitle + " - Unread count: " + unreadCount);
+            }
+        }
+        
+        private void handleIndividualChatDisplay(ChatroomModelViewHolder holder, ChatListItem item) {
+            // Resolve the other user through the shared cache; a cached user binds without a callback
+            UserModel cached = UserDirectory.getInstance().peek(item.otherUserId);
+            if (cached != null) {
+                bindOtherUser(holder, item, cached);
+                return;
+            }
+            UserDirectory.getInstance().getUser(item.otherUserId, otherUserModel -> {
+                // The row may have been rebound to another chat while loading
+                if (!item.chatroomId.equals(holder.itemView.getTag())) {
+                    return;
+                }
+                if (otherUserModel != null) {
+                    bindOtherUser(holder, item, otherUserModel);
+                } else {
+                    // Handle Firebase query failure or missing user document
+                    Log.e(TAG, "❌ User lookup failed or user document doesn't exist for chatroom: " + item.chatroomId);
+                    handleFailedUserLoad(holder, item);
+                }
+            });
+        }
+        
+        private void bindOtherUser(ChatroomModelViewHolder holder, ChatListItem item, UserModel otherUserModel) {
+            holder.otherUser = otherUserModel;
+            
+            // Load profile picture - prioritize Firestore URLs (always up-to-date)
+            bindProfilePic(holder, otherUserModel.getProfilePicUrl(), R.drawable.person_icon);
+            holder.usernameText.setText(displayNameOf(otherUserModel));
+            
+            // Instagram-style message display with count
+            if (otherUserModel.getUserId() != null) {
+                int unreadCount = UnreadCountCache.getInstance().getUnreadCount(item.chatroomId, item.chatroom, currentUserId);
+                bindLastMessage(holder, item, unreadCount);
+                
+                // Instagram-style highlighting for new messages
+                boolean highlighted = item.chatroomId.equals(highlightedChatroomId)
+                        && otherUserModel.getUserId().equals(highlightedSenderId);
+                bindHighlight(holder, highlighted);
+                
+                if (BuildConfig.LOG_BINDS) {
+                    Log.d(TAG, "💬 " + displayNameOf(otherUserModel) + " - Unread count: " + unreadCount + ", Highlighted: " + highlighted);
+                }
+            } else {
+                bindLastMessage(holder, item, 0);
+                bindHighlight(holder, false);
+            }
+        }
+        
+        /**
+         * Last message line and badge: our own message as "You: ...", several unread as a count
+         * in blue, a single unread in bold, otherwise plain gray
+         */
+        private void bindLastMessage(ChatroomModelViewHolder holder, ChatListItem item, int unreadCount) {
+            int style;
+            if (item.sentByMe) {
+                holder.lastMessageText.setText(item.lastMessagePreview);
                 holder.unreadBadge.setVisibility(View.GONE);
+                style = STYLE_READ;
             } else if (unreadCount > 1) {
-                holder.lastMessageText.setText(unreadCount + " new messages");
-                holder.lastMessageText.setTextColor(context.getResources().getColor(R.color.instagram_blue, null));
-                holder.lastMessageText.setTypeface(null, android.graphics.Typeface.BOLD);
+                // Instagram-style: Show count in message area for multiple messages
+                holder.lastMessageText.setText(newMessagesLabel(unreadCount));
                 holder.unreadBadge.setVisibility(View.VISIBLE);
-                holder.unreadBadge.setText(unreadCount > 99 ? "99+" : String.valueOf(unreadCount));
+                holder.unreadBadge.setText(badgeLabel(unreadCount));
+                style = STYLE_UNREAD_COUNT;
             } else if (unreadCount == 1) {
-                holder.lastMessageText.setText(model.getLastMessage());
-                holder.lastMessageText.setTextColor(context.getResources().getColor(R.color.black, null));
-                holder.lastMessageText.setTypeface(null, android.graphics.Typeface.BOLD);
+                // Single unread message - show the actual message
+                holder.lastMessageText.setText(item.lastMessagePreview);
                 holder.unreadBadge.setVisibility(View.VISIBLE);
-                holder.unreadBadge.setText("1");
+                holder.unreadBadge.setText(badgeLabel(1));
+                style = STYLE_UNREAD_ONE;
             } else {
-                holder.lastMessageText.setText(model.getLastMessage());
-                holder.lastMessageText.setTextColor(context.getResources().getColor(R.color.gray, null));
-                holder.lastMessageText.setTypeface(null, android.graphics.Typeface.NORMAL);
+                // No unread messages - show normal message
+                holder.lastMessageText.setText(item.lastMessagePreview);
                 holder.unreadBadge.setVisibility(View.GONE);
+                style = STYLE_READ;
             }
-            
-            // Set timestamp
-            holder.lastMessageTime.setText(FirebaseUtil.timestampToString(model.getLastMessageTimestamp()));
-            
-            // Apply highlighting for group chats if needed
-            if (chatroomId != null && chatroomId.equals(highlightedChatroomId)) {
-                // Highlight the entire group chat item
-                try {
+            if (holder.lastMessageStyle != style) {
+                holder.lastMessageText.setTextColor(style == STYLE_UNREAD_COUNT ? colorUnreadCount
+                        : style == STYLE_UNREAD_ONE ? colorUnreadOne : colorRead);
+                holder.lastMessageText.setTypeface(null, style == STYLE_READ
+                        ? android.graphics.Typeface.NORMAL : android.graphics.Typeface.BOLD);
+                holder.lastMessageStyle = style;
+            }
+            holder.lastMessageTime.setText(item.lastMessageTime);
+        }
+        
+        /**
+         * Swap the row background only when its highlight changes; the layout starts unhighlighted
+         */
+        private void bindHighlight(ChatroomModelViewHolder holder, boolean highlighted) {
+            if (holder.highlighted == highlighted) {
+                return;
+            }
+            holder.highlighted = highlighted;
+            try {
+                if (highlighted) {
                     holder.itemView.setBackgroundColor(context.getResources().getColor(R.color.light_blue, null));
-                    Log.d(TAG, "🎆 ADAPTER: Applied highlight to group chat: " + groupName + " (ID: " + chatroomId + ")");
-                } catch (Exception e) {
-                    Log.e(TAG, "❌ ADAPTER: Error applying group chat highlight", e);
-                    holder.itemView.setBackground(context.getDrawable(R.drawable.edit_text_rounded_corner));
+                    if (BuildConfig.LOG_BINDS) {
+                        Log.d(TAG, "🎆 ADAPTER: Applied highlight to chat: " + holder.itemView.getTag());
+                    }
+                } else {
+                    holder.itemView.setBackgroundResource(R.drawable.edit_text_rounded_corner);
                 }
-            } else {
-                // Normal background
-                try {
-                    holder.itemView.setBackground(context.getDrawable(R.drawable.edit_text_rounded_corner));
-                } catch (Exception e) {
-                    Log.e(TAG, "❌ ADAPTER: Error setting normal background", e);
+            } catch (Exception e) {
+                Log.e(TAG, "❌ ADAPTER: Error setting chat background", e);
+                holder.itemView.setBackgroundResource(R.drawable.edit_text_rounded_corner);
+            }
+        }
+        
+        /**
+         * Load a profile picture only when the row shows a different one than before
+         * @param url Picture URL, or null/empty for the placeholder
+         * @param placeholderRes Drawable shown without a URL
+         */
+        private void bindProfilePic(ChatroomModelViewHolder holder, String url, int placeholderRes) {
+            if (url != null && !url.isEmpty()) {
+                if (!url.equals(holder.shownPicUrl)) {
+                    AndroidUtil.setProfilePic(context, url, holder.profilePic);
+                    holder.shownPicUrl = url;
+                    holder.shownPicRes = 0;
                 }
+            } else if (holder.shownPicRes != placeholderRes) {
+                holder.profilePic.setImageResource(placeholderRes);
+                holder.shownPicRes = placeholderRes;
+                holder.shownPicUrl = null;
             }
-            
-            // Click listener for group chat
-            holder.itemView.setOnClickListener(v -> {
+        }
+        
+        /**
+         * "N new messages", built once per count
+         */
+        private String newMessagesLabel(int unreadCount) {
+            int index = Math.min(unreadCount, newMessagesLabels.length - 1);
+            if (newMessagesLabels[index] == null) {
+                newMessagesLabels[index] = index + " new messages";
+            }
+            return newMessagesLabels[index];
+        }
+        
+        /**
+         * Badge text, built once per count; "99+" beyond that
+         */
+        private String badgeLabel(int unreadCount) {
+            if (unreadCount > 99) {
+                return "99+";
+            }
+            if (badgeLabels[unreadCount] == null) {
+                badgeLabels[unreadCount] = String.valueOf(unreadCount);
+            }
+            return badgeLabels[unreadCount];
+        }
+        
+        private static String displayNameOf(UserModel user) {
+            // Handle deleted user profiles gracefully
+            return user != null && user.getUsername() != null ? user.getUsername() : "Unknown User";
+        }
+        
+        /**
+         * Row tap, set once per row: opens whichever chat the row shows now
+         */
+        private void onRowClick(ChatroomModelViewHolder holder) {
+            ChatListItem item = holder.item;
+            if (item == null) {
+                return;
+            }
+            if (item.chatroom.isGroup()) {
                 // Clear notification count for this group chat
-                NotificationUtil.clearMessageCount(chatroomId);
+                NotificationUtil.clearMessageCount(item.chatroomId);
                 
                 // Hide unread badge immediately
                 holder.unreadBadge.setVisibility(View.GONE);
@@ -203,165 +415,64 @@ public class RecentChatRecyclerAdapter extends FirestoreRecyclerAdapter<Chatroom
                 // Navigate to group chat activity
                 Intent intent = new Intent(context, ChatActivity.class);
                 intent.putExtra("isGroup", true);
-                intent.putExtra("chatroomId", chatroomId);
-                intent.putExtra("groupName", groupName);
+                intent.putExtra("chatroomId", item.chatroomId);
+                intent.putExtra("groupName", item.groupTitle);
                 intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
                 context.startActivity(intent);
-            });
-            
-            // Long press for group context menu
-            holder.itemView.setOnLongClickListener(v -> {
-                showGroupContextMenu(v, chatroomId, groupName);
-                return true;
-            });
-            
-            Log.d(TAG, "📱 Group: " + groupName + " - Unread count: " + unreadCount);
+            } else if (holder.userLoadFailed) {
+                openWithFallbackUser(item);
+            } else if (holder.otherUser != null) {
+                openChatWith(holder, holder.otherUser);
+            }
+            // Otherwise the user is still loading: nothing to open yet
         }
         
-        private void handleIndividualChatDisplay(ChatroomModelViewHolder holder, ChatroomModel model, String chatroomId) {
-            FirebaseUtil.getOtherUserFromChatroom(model.getUserIds())
-                    .get().addOnCompleteListener(task -> {
-                        if(task.isSuccessful() && task.getResult() != null && task.getResult().exists()){
-                            boolean lastMessageSentByMe = model.getLastMessageSenderId().equals(FirebaseUtil.currentUserId());
-
-                            UserModel otherUserModel = task.getResult().toObject(UserModel.class);
-                            
-                            // Additional validation to ensure we have valid user data
-                            if (otherUserModel == null) {
-                                Log.e(TAG, "❌ Failed to parse user data from Firestore document");
-                                handleFailedUserLoad(holder, model, chatroomId);
-                                return;
-                            }
-
-                            // Handle deleted user profiles gracefully
-                            final String displayName = (otherUserModel != null && otherUserModel.getUsername() != null) 
-                                    ? otherUserModel.getUsername() 
-                                    : "Unknown User";
-
-                            // Load profile picture - prioritize Firestore URLs (always up-to-date)
-                            if (otherUserModel != null && otherUserModel.getProfilePicUrl() != null && !otherUserModel.getProfilePicUrl().isEmpty()) {
-                                AndroidUtil.setProfilePic(context, otherUserModel.getProfilePicUrl(), holder.profilePic);
-                            } else {
-                                // Use default profile picture for users without profile pictures
-                                holder.profilePic.setImageResource(R.drawable.person_icon);
-                            }
-
-                            holder.usernameText.setText(displayName);
-                            
-                            // Instagram-style message display with count
-                            if (otherUserModel != null && otherUserModel.getUserId() != null) {
-                                int unreadCount = NotificationUtil.getMessageCount(otherUserModel.getUserId());
-                                
-                                if (lastMessageSentByMe) {
-                                    // Show "You: message" for messages sent by current user
-                                    holder.lastMessageText.setText("You: " + model.getLastMessage());
-                                    // Hide badge for own messages
-                                    holder.unreadBadge.setVisibility(View.GONE);
-                                } else if (unreadCount > 1) {
-                                    // Instagram-style: Show count in message area for multiple messages
-                                    holder.lastMessageText.setText(unreadCount + " new messages");
-                                    holder.lastMessageText.setTextColor(context.getResources().getColor(R.color.instagram_blue, null));
-                                    holder.lastMessageText.setTypeface(null, android.graphics.Typeface.BOLD);
-                                    
-                                    // Also show badge
-                                    holder.unreadBadge.setVisibility(View.VISIBLE);
-                                    holder.unreadBadge.setText(unreadCount > 99 ? "99+" : String.valueOf(unreadCount));
-                                } else if (unreadCount == 1) {
-                                    // Single unread message - show the actual message
-                                    holder.lastMessageText.setText(model.getLastMessage());
-                                    holder.lastMessageText.setTextColor(context.getResources().getColor(R.color.black, null));
-                                    holder.lastMessageText.setTypeface(null, android.graphics.Typeface.BOLD);
-                                    
-                                    // Show single message badge
-                                    holder.unreadBadge.setVisibility(View.VISIBLE);
-                                    holder.unreadBadge.setText("1");
-                                } else {
-                                    // No unread messages - show normal message
-                                    holder.lastMessageText.setText(model.getLastMessage());
-                                    holder.lastMessageText.setTextColor(context.getResources().getColor(R.color.gray, null));
-                                    holder.lastMessageText.setTypeface(null, android.graphics.Typeface.NORMAL);
-                                    holder.unreadBadge.setVisibility(View.GONE);
-                                }
-                                
-                                // Instagram-style highlighting for new messages
-                                if (chatroomId != null && chatroomId.equals(highlightedChatroomId) && 
-                                    otherUserModel.getUserId() != null && otherUserModel.getUserId().equals(highlightedSenderId)) {
-                                    // Highlight the entire chat item
-                                    try {
-                                        holder.itemView.setBackgroundColor(context.getResources().getColor(R.color.light_blue, null));
-                                        Log.d(TAG, "🎆 ADAPTER: Applied highlight to individual chat: " + displayName + " (ID: " + chatroomId + ")");
-                                    } catch (Exception e) {
-                                        Log.e(TAG, "❌ ADAPTER: Error applying individual chat highlight", e);
-                                        holder.itemView.setBackground(context.getDrawable(R.drawable.edit_text_rounded_corner));
-                                    }
-                                } else {
-                                    // Normal background
-                                    try {
-                                        holder.itemView.setBackground(context.getDrawable(R.drawable.edit_text_rounded_corner));
-                                    } catch (Exception e) {
-                                        Log.e(TAG, "❌ ADAPTER: Error setting normal background for individual chat", e);
-                                    }
-                                }
-                                
-                                Log.d(TAG, "💬 " + displayName + " - Unread count: " + unreadCount + ", Highlighted: " + (chatroomId.equals(highlightedChatroomId)));
-                            } else {
-                                holder.lastMessageText.setText(model.getLastMessage());
-                                holder.lastMessageText.setTextColor(context.getResources().getColor(R.color.gray, null));
-                                holder.lastMessageText.setTypeface(null, android.graphics.Typeface.NORMAL);
-                                holder.unreadBadge.setVisibility(View.GONE);
-                                holder.itemView.setBackground(context.getDrawable(R.drawable.edit_text_rounded_corner));
-                            }
-                            
-                            holder.lastMessageTime.setText(FirebaseUtil.timestampToString(model.getLastMessageTimestamp()));
-                            
-                            holder.itemView.setOnClickListener(v -> {
-                                if (otherUserModel != null && otherUserModel.getUserId() != null) {
-                                    try {
-                                        // Clear notification count for this chat
-                                        NotificationUtil.clearMessageCount(otherUserModel.getUserId());
-                                        
-                                        // Hide unread badge immediately
-                                        holder.unreadBadge.setVisibility(View.GONE);
-                                        
-                                        // Navigate to chat activity with proper validation
-                                        Intent intent = new Intent(context, ChatActivity.class);
-                                        
-                                        // Validate user data before passing
-                                        if (isValidUserModel(otherUserModel)) {
-                                            AndroidUtil.passUserModelAsIntent(intent, otherUserModel);
-                                            intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-                                            
-                                            Log.d(TAG, "✅ Starting ChatActivity with user: " + otherUserModel.getUsername() + " (ID: " + otherUserModel.getUserId() + ")");
-                                            context.startActivity(intent);
-                                        } else {
-                                            Log.e(TAG, "❌ Invalid user model data, cannot open chat");
-                                            Toast.makeText(context, "Unable to open chat - invalid user data", Toast.LENGTH_SHORT).show();
-                                        }
-                                    } catch (Exception e) {
-                                        Log.e(TAG, "❌ Error opening chat", e);
-                                        Toast.makeText(context, "Error opening chat", Toast.LENGTH_SHORT).show();
-                                    }
-                                } else {
-                                    Log.w(TAG, "⚠️ User model is null or incomplete");
-                                    Toast.makeText(context, "User no longer exists", Toast.LENGTH_SHORT).show();
-                                }
-                            });
-                            
-                            // Long press for context menu - always allow deletion even for deleted users
-                            holder.itemView.setOnLongClickListener(v -> {
-                                showContextMenu(v, chatroomId, otherUserModel, displayName);
-                                return true;
-                            });
-
-                        } else {
-                            // Handle Firebase query failure or missing user document
-                            Log.e(TAG, "❌ Firebase query failed or user document doesn't exist for chatroom: " + chatroomId);
-                            if (task.getException() != null) {
-                                Log.e(TAG, "Firebase exception: ", task.getException());
-                            }
-                            handleFailedUserLoad(holder, model, chatroomId);
-                        }
-                    });
+        private boolean onRowLongClick(ChatroomModelViewHolder holder, View v) {
+            ChatListItem item = holder.item;
+            if (item == null) {
+                return false;
+            }
+            if (item.chatroom.isGroup()) {
+                // Long press for group context menu
+                showGroupContextMenu(v, item.chatroomId, item.groupTitle);
+            } else {
+                // Long press for context menu - always allow deletion even for deleted or unknown users
+                showContextMenu(v, item.chatroomId, holder.otherUser, displayNameOf(holder.otherUser));
+            }
+            return true;
+        }
+        
+        private void openChatWith(ChatroomModelViewHolder holder, UserModel otherUserModel) {
+            if (otherUserModel.getUserId() == null) {
+                Log.w(TAG, "⚠️ User model is null or incomplete");
+                Toast.makeText(context, "User no longer exists", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            try {
+                // Clear notification count for this chat
+                NotificationUtil.clearMessageCount(otherUserModel.getUserId());
+                
+                // Hide unread badge immediately
+                holder.unreadBadge.setVisibility(View.GONE);
+                
+                // Navigate to chat activity with proper validation
+                Intent intent = new Intent(context, ChatActivity.class);
+                
+                // Validate user data before passing
+                if (isValidUserModel(otherUserModel)) {
+                    AndroidUtil.passUserModelAsIntent(intent, otherUserModel);
+                    intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+                    
+                    Log.d(TAG, "✅ Starting ChatActivity with user: " + otherUserModel.getUsername() + " (ID: " + otherUserModel.getUserId() + ")");
+                    context.startActivity(intent);
+                } else {
+                    Log.e(TAG, "❌ Invalid user model data, cannot open chat");
+                    Toast.makeText(context, "Unable to open chat - invalid user data", Toast.LENGTH_SHORT).show();
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Error opening chat", e);
+                Toast.makeText(context, "Error opening chat", Toast.LENGTH_SHORT).show();
+            }
         }
         
         private void showGroupContextMenu(View anchorView, String chatroomId, String groupName) {
@@ -594,23 +705,8 @@ public class RecentChatRecyclerAdapter extends FirestoreRecyclerAdapter<Chatroom
             // Show confirmation
             Toast.makeText(context, "Chat with " + displayName + " deleted for you", Toast.LENGTH_SHORT).show();
             
-            // Find and hide the chat item with animation
-            animateChatDeletion(chatroomId);
-        }
-        
-        /**
-         * Animate chat deletion by refreshing the adapter
-         * @param chatroomId Chat room ID being deleted
-         */
-        private void animateChatDeletion(String chatroomId) {
-            // Find the position of the chat
-            for (int i = 0; i < getItemCount(); i++) {
-                if (getSnapshots().getSnapshot(i).getId().equals(chatroomId)) {
-                    // Notify that this item changed (will trigger rebind and hide the chat)
-                    notifyItemChanged(i);
-                    break;
-                }
-            }
+            // The next snapshot leaves the chat out; the diff animates its removal
+            repository.refresh();
         }
         
         private void animatePress(View view, Runnable onAnimationEnd) {
@@ -652,49 +748,46 @@ public class RecentChatRecyclerAdapter extends FirestoreRecyclerAdapter<Chatroom
         /**
          * Handle cases where user data cannot be loaded from Firebase
          * @param holder ViewHolder to update
-         * @param model ChatroomModel with basic data
-         * @param chatroomId Chatroom ID for fallback navigation
+         * @param item Chat list item with the chatroom's basic data
          */
-        private void handleFailedUserLoad(ChatroomModelViewHolder holder, ChatroomModel model, String chatroomId) {
-            Log.w(TAG, "⚠️ Handling failed user load for chatroom: " + chatroomId);
+        private void handleFailedUserLoad(ChatroomModelViewHolder holder, ChatListItem item) {
+            Log.w(TAG, "⚠️ Handling failed user load for chatroom: " + item.chatroomId);
+            holder.userLoadFailed = true;
             
-            // Set fallback display data
+            // Set fallback display data; taps open the chat with a fallback user
             holder.usernameText.setText("Unknown User");
-            holder.lastMessageText.setText(model.getLastMessage() != null ? model.getLastMessage() : "No messages");
-            holder.lastMessageText.setTextColor(context.getResources().getColor(R.color.gray, null));
-            holder.lastMessageText.setTypeface(null, android.graphics.Typeface.NORMAL);
-            holder.lastMessageTime.setText(FirebaseUtil.timestampToString(model.getLastMessageTimestamp()));
+            holder.lastMessageText.setText(item.chatroom.getLastMessage() != null ? item.chatroom.getLastMessage() : "No messages");
+            holder.lastMessageTime.setText(item.lastMessageTime);
             holder.unreadBadge.setVisibility(View.GONE);
-            holder.profilePic.setImageResource(R.drawable.person_icon);
-            holder.itemView.setBackground(context.getDrawable(R.drawable.edit_text_rounded_corner));
-            
-            // Set click listener with fallback navigation using chatroomId
-            holder.itemView.setOnClickListener(v -> {
-                Log.w(TAG, "⚠️ Attempting fallback navigation for unknown user chat: " + chatroomId);
-                try {
-                    // Try to create a minimal UserModel for navigation
-                    UserModel fallbackUser = createFallbackUserModel(chatroomId, model);
-                    if (fallbackUser != null) {
-                        Intent intent = new Intent(context, ChatActivity.class);
-                        AndroidUtil.passUserModelAsIntent(intent, fallbackUser);
-                        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-                        
-                        Log.d(TAG, "✅ Starting ChatActivity with fallback user for chatroom: " + chatroomId);
-                        context.startActivity(intent);
-                    } else {
-                        Toast.makeText(context, "Cannot open chat - user data unavailable", Toast.LENGTH_SHORT).show();
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "❌ Error in fallback navigation", e);
-                    Toast.makeText(context, "Unable to open chat", Toast.LENGTH_SHORT).show();
+            holder.lastMessageText.setTextColor(colorRead);
+            holder.lastMessageText.setTypeface(null, android.graphics.Typeface.NORMAL);
+            holder.lastMessageStyle = STYLE_READ;
+            bindProfilePic(holder, null, R.drawable.person_icon);
+            bindHighlight(holder, false);
+        }
+        
+        /**
+         * Open a chat whose other user couldn't be loaded, with a minimal user built from the chatroom
+         */
+        private void openWithFallbackUser(ChatListItem item) {
+            Log.w(TAG, "⚠️ Attempting fallback navigation for unknown user chat: " + item.chatroomId);
+            try {
+                // Try to create a minimal UserModel for navigation
+                UserModel fallbackUser = createFallbackUserModel(item.chatroomId, item.chatroom);
+                if (fallbackUser != null) {
+                    Intent intent = new Intent(context, ChatActivity.class);
+                    AndroidUtil.passUserModelAsIntent(intent, fallbackUser);
+                    intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+                    
+                    Log.d(TAG, "✅ Starting ChatActivity with fallback user for chatroom: " + item.chatroomId);
+                    context.startActivity(intent);
+                } else {
+                    Toast.makeText(context, "Cannot open chat - user data unavailable", Toast.LENGTH_SHORT).show();
                 }
-            });
-            
-            // Long press for context menu - allow deletion even for unknown users
-            holder.itemView.setOnLongClickListener(v -> {
-                showContextMenu(v, chatroomId, null, "Unknown User");
-                return true;
-            });
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Error in fallback navigation", e);
+                Toast.makeText(context, "Unable to open chat", Toast.LENGTH_SHORT).show();
+            }
         }
         
         /**
@@ -706,7 +799,6 @@ public class RecentChatRecyclerAdapter extends FirestoreRecyclerAdapter<Chatroom
         private UserModel createFallbackUserModel(String chatroomId, ChatroomModel model) {
             try {
                 // Extract other user ID from chatroom ID or user list
-                String currentUserId = FirebaseUtil.currentUserId();
                 String otherUserId = null;
                 
                 if (model.getUserIds() != null && model.getUserIds().size() == 2) {
@@ -770,46 +862,6 @@ public class RecentChatRecyclerAdapter extends FirestoreRecyclerAdapter<Chatroom
             return true;
         }
         
-        /**
-         * Check if a locally deleted chat should be restored due to new messages
-         * @param chatroomId Chat room ID
-         * @param model Current chatroom model with latest data
-         * @return true if chat should be restored
-         */
-        private boolean shouldRestoreChat(String chatroomId, ChatroomModel model) {
-            // Get the timestamp when the chat was locally deleted
-            long deletionTimestamp = LocalDeletionUtil.getChatDeletionTimestamp(context, chatroomId);
-            
-            if (deletionTimestamp == 0) {
-                // No deletion timestamp found, restore the chat
-                Log.d(TAG, "No deletion timestamp found, restoring chat: " + chatroomId);
-                return true;
-            }
-            
-            // Check if the last message timestamp is newer than deletion timestamp
-            if (model.getLastMessageTimestamp() != null) {
-                long lastMessageTime = model.getLastMessageTimestamp().toDate().getTime();
-                boolean hasNewMessage = lastMessageTime > deletionTimestamp;
-                
-                // Also check if the last message is not from the current user
-                // (to handle cases where user sends a message after deleting)
-                String currentUserId = FirebaseUtil.currentUserId();
-                boolean lastMessageFromOtherUser = !model.getLastMessageSenderId().equals(currentUserId);
-                
-                // Restore if there's a new message, especially from the other user
-                boolean shouldRestore = hasNewMessage && (lastMessageFromOtherUser || hasNewMessage);
-                
-                Log.d(TAG, "Chat restoration check - Deletion time: " + deletionTimestamp + 
-                    ", Last message time: " + lastMessageTime + 
-                    ", From other user: " + lastMessageFromOtherUser +
-                    ", Should restore: " + shouldRestore);
-                
-                return shouldRestore;
-            }
-            
-            return false;
-        }
-
         @NonNull
         @Override
         public ChatroomModelViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -819,12 +871,23 @@ public class RecentChatRecyclerAdapter extends FirestoreRecyclerAdapter<Chatroom
 
    
 
-    class ChatroomModelViewHolder extends RecyclerView.ViewHolder{
+    public class ChatroomModelViewHolder extends RecyclerView.ViewHolder{
             TextView usernameText;
             TextView lastMessageText;
             TextView lastMessageTime;
             ImageView profilePic;
             TextView unreadBadge;
+            
+            // What the row shows now, read by its listeners at tap time
+            ChatListItem item;
+            UserModel otherUser; // Individual chats, once loaded
+            boolean userLoadFailed;
+            
+            // What the views already hold, so a rebind skips setting it again
+            int lastMessageStyle = STYLE_UNSET;
+            boolean highlighted;
+            String shownPicUrl;
+            int shownPicRes;
 
             public ChatroomModelViewHolder(@NonNull View itemView) {
                 super(itemView);
@@ -833,6 +896,10 @@ public class RecentChatRecyclerAdapter extends FirestoreRecyclerAdapter<Chatroom
                 lastMessageTime = itemView.findViewById(R.id.last_message_time_text);
                 profilePic = itemView.findViewById(R.id.profile_pic_image_view);
                 unreadBadge = itemView.findViewById(R.id.unread_count_badge);
+                
+                // Set once per row rather than per bind
+                itemView.setOnClickListener(v -> onRowClick(this));
+                itemView.setOnLongClickListener(v -> onRowLongClick(this, v));
             }
         }
 }
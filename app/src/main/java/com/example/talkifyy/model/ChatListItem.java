@@ -0,0 +1,68 @@
+package com.example.talkifyy.model;
+
+import com.example.talkifyy.utils.FirebaseUtil;
+import com.google.firebase.Timestamp;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One row of the chat list, frozen at the snapshot it came from. The chatroom model is shared
+ * with the binding code and must not be modified.
+ * What the row shows is worked out here, once per snapshot change, so binding the row
+ * (every scroll) only copies it into views.
+ */
+public final class ChatListItem {
+    public final String chatroomId;
+    public final ChatroomModel chatroom;
+    public final boolean sentByMe;           // Last message is ours
+    public final String otherUserId;         // Individual chats; null for groups
+    public final String groupTitle;          // Groups; null for individual chats
+    public final String lastMessagePreview;  // "You: ..." for our own messages
+    public final String lastMessageTime;     // Formatted, empty if there is no message yet
+    private final Timestamp lastReadByMe; // Drives the unread badge
+
+    public ChatListItem(String chatroomId, ChatroomModel chatroom, String currentUserId) {
+        this.chatroomId = chatroomId;
+        this.chatroom = chatroom;
+        this.lastReadByMe = chatroom.lastReadTimestampOf(currentUserId);
+        this.sentByMe = currentUserId != null && currentUserId.equals(chatroom.getLastMessageSenderId());
+        if (chatroom.isGroup()) {
+            this.otherUserId = null;
+            this.groupTitle = chatroom.getGroupName() != null && !chatroom.getGroupName().isEmpty()
+                    ? chatroom.getGroupName() : "Group Chat";
+        } else {
+            this.otherUserId = otherUserOf(chatroom.getUserIds(), currentUserId);
+            this.groupTitle = null;
+        }
+        this.lastMessagePreview = sentByMe ? "You: " + chatroom.getLastMessage() : chatroom.getLastMessage();
+        this.lastMessageTime = chatroom.getLastMessageTimestamp() != null
+                ? FirebaseUtil.timestampToString(chatroom.getLastMessageTimestamp()) : "";
+    }
+
+    private static String otherUserOf(List<String> userIds, String currentUserId) {
+        if (userIds == null || userIds.isEmpty()) {
+            return null;
+        }
+        if (userIds.size() > 1 && userIds.get(0).equals(currentUserId)) {
+            return userIds.get(1);
+        }
+        return userIds.get(0);
+    }
+
+    /**
+     * Whether the row would look the same; rows that do are not rebound
+     */
+    public boolean hasSameContent(ChatListItem other) {
+        ChatroomModel a = chatroom;
+        ChatroomModel b = other.chatroom;
+        return a.isGroup() == b.isGroup()
+                && Objects.equals(a.getLastMessage(), b.getLastMessage())
+                && Objects.equals(a.getLastMessageTimestamp(), b.getLastMessageTimestamp())
+                && Objects.equals(a.getLastMessageSenderId(), b.getLastMessageSenderId())
+                && Objects.equals(a.getGroupName(), b.getGroupName())
+                && Objects.equals(a.getGroupImageUrl(), b.getGroupImageUrl())
+                && Objects.equals(a.getUserIds(), b.getUserIds())
+                && Objects.equals(lastReadByMe, other.lastReadByMe);
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.talkifyy.model;
 
 import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.Exclude;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
@@ -34,6 +36,7 @@ public class ChatMessageModel {
     private List<String> imageUrls; // Multiple image URLs
     private String imageCaption; // Caption for image(s)
     private ImageMetadata imageMetadata; // Image metadata (width, height, size)
+    private List<ImageMetadata> imagesMetadata; // Per-image metadata for multiple images, parallel to imageUrls
     
     // Message reactions
     private Map<String, List<String>> reactions; // emoji -> list of user IDs who reacted
@@ -271,16 +274,31 @@ public class ChatMessageModel {
     }
     
     public void setReactions(Map<String, List<String>> reactions) {
+        // arrayRemove leaves an empty array behind when the last user un-reacts
+        if (reactions != null) {
+            Iterator<Map.Entry<String, List<String>>> iterator = reactions.entrySet().iterator();
+            while (iterator.hasNext()) {
+                List<String> userList = iterator.next().getValue();
+                if (userList == null || userList.isEmpty()) {
+                    iterator.remove();
+                }
+            }
+        }
         this.reactions = reactions;
         updateTotalReactions();
     }
     
+    @Exclude // Counted from the reaction arrays, never stored
     public int getTotalReactions() {
         return totalReactions;
     }
     
     public void setTotalReactions(int totalReactions) {
+        // Older documents still carry a stored counter; the reaction arrays are authoritative
         this.totalReactions = totalReactions;
+        if (reactions != null) {
+            updateTotalReactions();
+        }
     }
     
     /**
@@ -554,6 +572,14 @@ public class ChatMessageModel {
         this.imageMetadata = imageMetadata;
     }
     
+    public List<ImageMetadata> getImagesMetadata() {
+        return imagesMetadata;
+    }
+    
+    public void setImagesMetadata(List<ImageMetadata> imagesMetadata) {
+        this.imagesMetadata = imagesMetadata;
+    }
+    
     // Helper methods for image messages
     
     public boolean isImageMessage() {
@@ -5,8 +5,11 @@ import com.google.firebase.Timestamp;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Map;
 
 public class ChatroomModel {
+    public static final String FIELD_LAST_READ_TIMESTAMPS = "lastReadTimestamps";
+    
     String chatroomId;
     List<String> userIds;
     Timestamp lastMessageTimestamp;
@@ -21,6 +24,9 @@ public class ChatroomModel {
     String groupImageUrl;
     Timestamp createdTimestamp;
     String createdBy;
+    
+    // Per-user read watermark: messages after it are unread for that user
+    Map<String, Timestamp> lastReadTimestamps;
 
     public ChatroomModel() {
         this.adminIds = new ArrayList<>();
@@ -151,8 +157,23 @@ public class ChatroomModel {
         this.createdBy = createdBy;
     }
     
+    public Map<String, Timestamp> getLastReadTimestamps() {
+        return lastReadTimestamps;
+    }
+    
+    public void setLastReadTimestamps(Map<String, Timestamp> lastReadTimestamps) {
+        this.lastReadTimestamps = lastReadTimestamps;
+    }
+    
     // Helper methods
     
+    /**
+     * @return When the user last read this chat, or null if never recorded
+     */
+    public Timestamp lastReadTimestampOf(String userId) {
+        return lastReadTimestamps != null ? lastReadTimestamps.get(userId) : null;
+    }
+    
     public boolean isUserAdmin(String userId) {
         return adminIds != null && adminIds.contains(userId);
     }
@@ -7,6 +7,16 @@ public class ImageMetadata {
     private String fileName;
     private String mimeType;
     private long uploadTimestamp;
+    private String format; // Encoded format ("webp" / "jpeg"), null for images uploaded before encoding was tracked
+    private int quality; // Encoder quality used (0-100)
+    // Size variants (see ImageVariants); null when the image is already that small or predates variants
+    private String storagePath; // Storage path of the full image
+    private String mediumUrl;
+    private String mediumPath;
+    private String thumbnailUrl;
+    private String thumbnailPath;
+    private String blurHash; // Tiny blurred preview (BlurHash) painted while the image loads
+    private int dominantColor; // Average ARGB color, 0 if unknown
     
     public ImageMetadata() {
         // Default constructor required for Firebase
@@ -40,6 +50,33 @@ public class ImageMetadata {
     public long getUploadTimestamp() { return uploadTimestamp; }
     public void setUploadTimestamp(long uploadTimestamp) { this.uploadTimestamp = uploadTimestamp; }
     
+    public String getFormat() { return format; }
+    public void setFormat(String format) { this.format = format; }
+    
+    public int getQuality() { return quality; }
+    public void setQuality(int quality) { this.quality = quality; }
+    
+    public String getStoragePath() { return storagePath; }
+    public void setStoragePath(String storagePath) { this.storagePath = storagePath; }
+    
+    public String getMediumUrl() { return mediumUrl; }
+    public void setMediumUrl(String mediumUrl) { this.mediumUrl = mediumUrl; }
+    
+    public String getMediumPath() { return mediumPath; }
+    public void setMediumPath(String mediumPath) { this.mediumPath = mediumPath; }
+    
+    public String getThumbnailUrl() { return thumbnailUrl; }
+    public void setThumbnailUrl(String thumbnailUrl) { this.thumbnailUrl = thumbnailUrl; }
+    
+    public String getThumbnailPath() { return thumbnailPath; }
+    public void setThumbnailPath(String thumbnailPath) { this.thumbnailPath = thumbnailPath; }
+    
+    public String getBlurHash() { return blurHash; }
+    public void setBlurHash(String blurHash) { this.blurHash = blurHash; }
+    
+    public int getDominantColor() { return dominantColor; }
+    public void setDominantColor(int dominantColor) { this.dominantColor = dominantColor; }
+    
     public String getFormattedFileSize() {
         if (fileSize < 1024) return fileSize + " B";
         else if (fileSize < 1024 * 1024) return String.format("%.1f KB", fileSize / 1024.0);
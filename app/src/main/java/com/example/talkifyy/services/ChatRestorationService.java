@@ -6,31 +6,38 @@ import android.util.Log;
 import com.example.talkifyy.model.ChatroomModel;
 import com.example.talkifyy.utils.FirebaseUtil;
 import com.example.talkifyy.utils.LocalDeletionUtil;
-import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.ListenerRegistration;
-import com.google.firebase.firestore.Query;
 
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * Service to monitor locally deleted chats for new messages and trigger restoration
  * This ensures WhatsApp-like behavior where deleted chats reappear when new messages arrive
+ *
+ * One query listener over the user's chatrooms serves every deleted chat: changes are checked
+ * against an in-memory map of deletion timestamps, so the listener count stays at one however
+ * many chats are deleted (and zero when none are). It is the same query as ChatFragment's
+ * new-message listener, so Firestore serves both from one watch target.
  */
 public class ChatRestorationService {
     private static final String TAG = "ChatRestorationService";
     
     private final Context context;
-    private final Set<ListenerRegistration> activeListeners;
     private final ChatRestorationListener restorationListener;
     
+    // Deleted chat ID -> deletion time (ms); only these chats are checked
+    private final Map<String, Long> deletionTimestamps = new HashMap<>();
+    private ListenerRegistration chatroomsListener;
+    
     public interface ChatRestorationListener {
         void onChatRestored(String chatroomId, ChatroomModel chatroom);
     }
     
     public ChatRestorationService(Context context, ChatRestorationListener listener) {
         this.context = context;
-        this.activeListeners = new HashSet<>();
         this.restorationListener = listener;
     }
     
@@ -42,50 +49,67 @@ public class ChatRestorationService {
         
         // Get all locally deleted chats
         Set<String> deletedChats = LocalDeletionUtil.getLocallyDeletedChats(context);
+        for (String chatroomId : deletedChats) {
+            trackDeletion(chatroomId);
+        }
         
-        if (deletedChats.isEmpty()) {
+        if (deletionTimestamps.isEmpty()) {
             Log.d(TAG, "No locally deleted chats to monitor");
             return;
         }
         
-        Log.d(TAG, "Monitoring " + deletedChats.size() + " deleted chats");
-        
-        for (String chatroomId : deletedChats) {
-            monitorChatForRestoration(chatroomId);
-        }
+        Log.d(TAG, "Monitoring " + deletionTimestamps.size() + " deleted chats with one listener");
+        ensureListening();
     }
     
     /**
-     * Monitor a specific chat for new messages that should trigger restoration
+     * Remember when a chat was deleted
+     * @return Whether the chat has a deletion timestamp to compare against
      */
-    private void monitorChatForRestoration(String chatroomId) {
-        Log.d(TAG, "Setting up monitoring for deleted chat: " + chatroomId);
-        
-        // Get the deletion timestamp
+    private boolean trackDeletion(String chatroomId) {
         long deletionTimestamp = LocalDeletionUtil.getChatDeletionTimestamp(context, chatroomId);
-        
         if (deletionTimestamp == 0) {
             Log.w(TAG, "No deletion timestamp found for chat: " + chatroomId);
+            return false;
+        }
+        deletionTimestamps.put(chatroomId, deletionTimestamp);
+        return true;
+    }
+    
+    /**
+     * Attach the chatrooms listener if it isn't already
+     */
+    private void ensureListening() {
+        String currentUserId = FirebaseUtil.currentUserId();
+        if (chatroomsListener != null || currentUserId == null) {
             return;
         }
         
-        // Listen to the specific chatroom document
-        ListenerRegistration registration = FirebaseUtil.getChatroomReference(chatroomId)
-                .addSnapshotListener((documentSnapshot, error) -> {
+        chatroomsListener = FirebaseUtil.allChatroomCollectionReference()
+                .whereArrayContains("userIds", currentUserId)
+                .addSnapshotListener((snapshots, error) -> {
                     if (error != null) {
-                        Log.e(TAG, "Error monitoring chat: " + chatroomId, error);
+                        Log.e(TAG, "Error monitoring deleted chats", error);
+                        return;
+                    }
+                    if (snapshots == null) {
                         return;
                     }
                     
-                    if (documentSnapshot != null && documentSnapshot.exists()) {
-                        ChatroomModel chatroom = documentSnapshot.toObject(ChatroomModel.class);
-                        if (chatroom != null) {
-                            handleChatroomUpdate(chatroomId, chatroom, deletionTimestamp);
+                    // Only changed documents, and only the deleted ones are deserialized
+                    for (DocumentChange change : snapshots.getDocumentChanges()) {
+                        if (change.getType() == DocumentChange.Type.REMOVED) {
+                            continue;
+                        }
+                        String chatroomId = change.getDocument().getId();
+                        Long deletionTimestamp = deletionTimestamps.get(chatroomId);
+                        if (deletionTimestamp == null) {
+                            continue;
                         }
+                        ChatroomModel chatroom = change.getDocument().toObject(ChatroomModel.class);
+                        handleChatroomUpdate(chatroomId, chatroom, deletionTimestamp);
                     }
                 });
-        
-        activeListeners.add(registration);
     }
     
     /**
@@ -136,16 +160,22 @@ public class ChatRestorationService {
      */
     public void addChatToMonitoring(String chatroomId) {
         Log.d(TAG, "Adding chat to monitoring: " + chatroomId);
-        monitorChatForRestoration(chatroomId);
+        if (trackDeletion(chatroomId)) {
+            ensureListening();
+        }
     }
     
     /**
      * Stop monitoring a specific chat
      */
     public void stopMonitoringChat(String chatroomId) {
-        // Note: In a more complex implementation, we'd track which registration
-        // corresponds to which chat. For now, we'll rely on the general cleanup.
+        deletionTimestamps.remove(chatroomId);
         Log.d(TAG, "Chat restoration completed for: " + chatroomId);
+        
+        // Nothing left to watch for
+        if (deletionTimestamps.isEmpty()) {
+            removeListener();
+        }
     }
     
     /**
@@ -153,14 +183,15 @@ public class ChatRestorationService {
      */
     public void stopMonitoring() {
         Log.d(TAG, "Stopping chat restoration monitoring");
-        
-        for (ListenerRegistration registration : activeListeners) {
-            if (registration != null) {
-                registration.remove();
-            }
+        removeListener();
+        deletionTimestamps.clear();
+    }
+    
+    private void removeListener() {
+        if (chatroomsListener != null) {
+            chatroomsListener.remove();
+            chatroomsListener = null;
         }
-        
-        activeListeners.clear();
     }
     
     /**
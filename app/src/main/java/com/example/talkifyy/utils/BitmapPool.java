@@ -0,0 +1,87 @@
+package com.example.talkifyy.utils;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Small byte-bounded pool of mutable bitmaps for BitmapFactory.Options.inBitmap,
+ * so consecutive image decodes in the media pipeline reuse pixel buffers instead
+ * of allocating (and later GC'ing) a fresh multi-megabyte bitmap each time.
+ * Thread-safe; used from MediaPipeline threads.
+ */
+class BitmapPool {
+    private static final long MAX_POOL_BYTES_CAP = 24L * 1024 * 1024;
+
+    private static BitmapPool instance;
+
+    private final List<Bitmap> bitmaps = new ArrayList<>();
+    private final long maxBytes;
+    private long currentBytes = 0;
+
+    static synchronized BitmapPool getInstance() {
+        if (instance == null) {
+            // An eighth of the heap, so the pool itself never causes the OOM it's meant to avoid
+            instance = new BitmapPool(Math.min(Runtime.getRuntime().maxMemory() / 8, MAX_POOL_BYTES_CAP));
+        }
+        return instance;
+    }
+
+    private BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Take a pooled bitmap large enough to hold width x height pixels of the given config
+     * @return a bitmap to pass as inBitmap, or null if none fits
+     */
+    synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        long needed = (long) width * height * bytesPerPixel(config);
+        Bitmap best = null;
+        for (Bitmap candidate : bitmaps) {
+            // Smallest buffer that fits, so big buffers stay available for big images
+            if (candidate.getConfig() == config && candidate.getAllocationByteCount() >= needed
+                    && (best == null || candidate.getAllocationByteCount() < best.getAllocationByteCount())) {
+                best = candidate;
+            }
+        }
+        if (best != null) {
+            bitmaps.remove(best);
+            currentBytes -= best.getAllocationByteCount();
+        }
+        return best;
+    }
+
+    /**
+     * Return a bitmap that is no longer referenced anywhere. Recycled if it can't be pooled.
+     */
+    synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        int size = bitmap.getAllocationByteCount();
+        if (!bitmap.isMutable() || size > maxBytes) {
+            bitmap.recycle();
+            return;
+        }
+        // Evict the oldest until it fits
+        while (currentBytes + size > maxBytes && !bitmaps.isEmpty()) {
+            Bitmap evicted = bitmaps.remove(0);
+            currentBytes -= evicted.getAllocationByteCount();
+            evicted.recycle();
+        }
+        bitmaps.add(bitmap);
+        currentBytes += size;
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+            return 2;
+        }
+        if (config == Bitmap.Config.ALPHA_8) {
+            return 1;
+        }
+        return 4;
+    }
+}
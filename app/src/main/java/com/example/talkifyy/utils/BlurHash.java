@@ -0,0 +1,203 @@
+package com.example.talkifyy.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+/**
+ * BlurHash (https://blurha.sh) encoder/decoder. A 20-30 character string that
+ * decodes to a blurred preview of an image, stored on ImageMetadata so a bubble can
+ * paint a placeholder before any image bytes arrive.
+ */
+public class BlurHash {
+    private static final String CHARACTERS =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    private BlurHash() {
+    }
+
+    /**
+     * Encode a (small) bitmap. Cost is pixels x components, so pass something around 32px.
+     * @param componentsX Horizontal components (1-9)
+     * @param componentsY Vertical components (1-9)
+     */
+    public static String encode(Bitmap bitmap, int componentsX, int componentsY) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int[] pixels = new int[width * height];
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+
+        // Linearize once instead of per component
+        float[] linear = new float[pixels.length * 3];
+        for (int i = 0; i < pixels.length; i++) {
+            linear[i * 3] = srgbToLinear(Color.red(pixels[i]));
+            linear[i * 3 + 1] = srgbToLinear(Color.green(pixels[i]));
+            linear[i * 3 + 2] = srgbToLinear(Color.blue(pixels[i]));
+        }
+
+        float[][] factors = new float[componentsX * componentsY][3];
+        for (int j = 0; j < componentsY; j++) {
+            for (int i = 0; i < componentsX; i++) {
+                float normalisation = (i == 0 && j == 0) ? 1f : 2f;
+                float r = 0, g = 0, b = 0;
+                for (int y = 0; y < height; y++) {
+                    float basisY = (float) Math.cos(Math.PI * j * y / height);
+                    for (int x = 0; x < width; x++) {
+                        float basis = basisY * (float) Math.cos(Math.PI * i * x / width);
+                        int p = (y * width + x) * 3;
+                        r += basis * linear[p];
+                        g += basis * linear[p + 1];
+                        b += basis * linear[p + 2];
+                    }
+                }
+                float scale = normalisation / (width * height);
+                float[] factor = factors[j * componentsX + i];
+                factor[0] = r * scale;
+                factor[1] = g * scale;
+                factor[2] = b * scale;
+            }
+        }
+
+        StringBuilder hash = new StringBuilder();
+        encode83(hash, (componentsX - 1) + (componentsY - 1) * 9, 1);
+
+        float maxValue;
+        if (factors.length > 1) {
+            float actualMax = 0;
+            for (int i = 1; i < factors.length; i++) {
+                for (float value : factors[i]) {
+                    actualMax = Math.max(actualMax, Math.abs(value));
+                }
+            }
+            int quantisedMax = (int) Math.max(0, Math.min(82, Math.floor(actualMax * 166 - 0.5)));
+            maxValue = (quantisedMax + 1) / 166f;
+            encode83(hash, quantisedMax, 1);
+        } else {
+            maxValue = 1;
+            encode83(hash, 0, 1);
+        }
+
+        float[] dc = factors[0];
+        encode83(hash, (linearToSrgb(dc[0]) << 16) + (linearToSrgb(dc[1]) << 8) + linearToSrgb(dc[2]), 4);
+        for (int i = 1; i < factors.length; i++) {
+            float[] ac = factors[i];
+            int quantR = quantiseAc(ac[0] / maxValue);
+            int quantG = quantiseAc(ac[1] / maxValue);
+            int quantB = quantiseAc(ac[2] / maxValue);
+            encode83(hash, quantR * 19 * 19 + quantG * 19 + quantB, 2);
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Average color of the image encoded in a hash (its DC component)
+     * @return opaque ARGB color, or 0 if the hash is invalid
+     */
+    public static int averageColor(String hash) {
+        if (hash == null || hash.length() < 6) {
+            return 0;
+        }
+        int value = decode83(hash, 2, 6);
+        return value < 0 ? 0 : Color.rgb(value >> 16, (value >> 8) & 0xFF, value & 0xFF);
+    }
+
+    /**
+     * Decode a hash into a small bitmap (scale it up for display - it's a blur)
+     * @return bitmap, or null if the hash is invalid
+     */
+    public static Bitmap decode(String hash, int width, int height) {
+        if (hash == null || hash.length() < 6) {
+            return null;
+        }
+        int sizeFlag = decode83(hash, 0, 1);
+        if (sizeFlag < 0) {
+            return null;
+        }
+        int componentsY = sizeFlag / 9 + 1;
+        int componentsX = sizeFlag % 9 + 1;
+        if (hash.length() != 4 + 2 * componentsX * componentsY) {
+            return null;
+        }
+
+        float maxValue = (decode83(hash, 1, 2) + 1) / 166f;
+        float[][] colors = new float[componentsX * componentsY][3];
+        int dc = decode83(hash, 2, 6);
+        colors[0][0] = srgbToLinear(dc >> 16);
+        colors[0][1] = srgbToLinear((dc >> 8) & 0xFF);
+        colors[0][2] = srgbToLinear(dc & 0xFF);
+        for (int i = 1; i < colors.length; i++) {
+            int ac = decode83(hash, 4 + i * 2, 6 + i * 2);
+            if (ac < 0) {
+                return null;
+            }
+            colors[i][0] = signedPow(((ac / (19 * 19)) - 9) / 9f, 2) * maxValue;
+            colors[i][1] = signedPow((((ac / 19) % 19) - 9) / 9f, 2) * maxValue;
+            colors[i][2] = signedPow(((ac % 19) - 9) / 9f, 2) * maxValue;
+        }
+
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                float r = 0, g = 0, b = 0;
+                for (int j = 0; j < componentsY; j++) {
+                    float basisY = (float) Math.cos(Math.PI * y * j / height);
+                    for (int i = 0; i < componentsX; i++) {
+                        float basis = basisY * (float) Math.cos(Math.PI * x * i / width);
+                        float[] color = colors[j * componentsX + i];
+                        r += color[0] * basis;
+                        g += color[1] * basis;
+                        b += color[2] * basis;
+                    }
+                }
+                pixels[y * width + x] = Color.rgb(linearToSrgb(r), linearToSrgb(g), linearToSrgb(b));
+            }
+        }
+        return Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    private static int quantiseAc(float value) {
+        return (int) Math.max(0, Math.min(18, Math.floor(signedPow(value, 0.5f) * 9 + 9.5)));
+    }
+
+    private static float srgbToLinear(int value) {
+        float v = value / 255f;
+        return v <= 0.04045f ? v / 12.92f : (float) Math.pow((v + 0.055f) / 1.055f, 2.4f);
+    }
+
+    private static int linearToSrgb(float value) {
+        float v = Math.max(0f, Math.min(1f, value));
+        return v <= 0.0031308f
+                ? (int) (v * 12.92f * 255 + 0.5f)
+                : (int) ((1.055f * (float) Math.pow(v, 1 / 2.4f) - 0.055f) * 255 + 0.5f);
+    }
+
+    private static float signedPow(float value, float exponent) {
+        return Math.copySign((float) Math.pow(Math.abs(value), exponent), value);
+    }
+
+    private static void encode83(StringBuilder out, int value, int length) {
+        for (int i = 1; i <= length; i++) {
+            int digit = (value / pow83(length - i)) % 83;
+            out.append(CHARACTERS.charAt(digit));
+        }
+    }
+
+    private static int decode83(String hash, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = CHARACTERS.indexOf(hash.charAt(i));
+            if (digit < 0) {
+                return -1;
+            }
+            value = value * 83 + digit;
+        }
+        return value;
+    }
+
+    private static int pow83(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 83;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.talkifyy.utils;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies one mutation to many documents without loading them all or firing one RPC each.
+ * - Documents come in pages (a query walked with document ID cursors, or a list of references)
+ * - Each page is committed as one WriteBatch of at most MAX_BATCH_SIZE operations
+ * - At most maxInFlight batches are committing at once; the next page is fetched while they do
+ * - A failed batch doesn't stop the run: its documents are retried one by one, so only the
+ *   documents that really can't be written (e.g. deleted meanwhile) count as failed
+ * Callbacks arrive on the main thread (Firestore's default listener executor).
+ */
+public class BulkWriteEngine {
+    private static final String TAG = "BulkWriteEngine";
+    public static final int MAX_BATCH_SIZE = 500; // Firestore limit per batch
+    public static final int DEFAULT_MAX_IN_FLIGHT = 3;
+
+    /**
+     * Adds the operation for one document to a batch
+     */
+    public interface Mutation {
+        void apply(WriteBatch batch, DocumentReference document);
+    }
+
+    public interface Listener {
+        /** After every batch settles */
+        void onProgress(int succeeded, int failed);
+        /** Once, after the last batch settles. error is the first failure, null if everything succeeded. */
+        void onComplete(int succeeded, int failed, Exception error);
+    }
+
+    /**
+     * Raised to callers when a bulk run finishes with some documents not written
+     */
+    public static class PartialFailureException extends Exception {
+        public final int succeeded;
+        public final int failed;
+
+        PartialFailureException(int succeeded, int failed, Exception cause) {
+            super(failed + " of " + (succeeded + failed) + " documents could not be written", cause);
+            this.succeeded = succeeded;
+            this.failed = failed;
+        }
+    }
+
+    /**
+     * Produces the next page of documents; an empty page means there are no more
+     */
+    private interface PageSource {
+        void next(PageCallback callback);
+    }
+
+    private interface PageCallback {
+        void onPage(List<DocumentReference> page);
+        void onError(Exception e);
+    }
+
+    private final PageSource source;
+    private final Mutation mutation;
+    private final Listener listener;
+    private final int maxInFlight;
+
+    private int inFlight = 0;
+    private boolean fetching = false;
+    private boolean exhausted = false;
+    private boolean completed = false;
+    private int succeeded = 0;
+    private int failed = 0;
+    private Exception firstError;
+
+    private BulkWriteEngine(PageSource source, Mutation mutation, Listener listener, int maxInFlight) {
+        this.source = source;
+        this.mutation = mutation;
+        this.listener = listener;
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * Apply a mutation to every document a query matches, paging with document ID cursors.
+     * Works for deletes too: the cursor is the last document ID, not a position.
+     * @param query Query to walk (ordering and limits are added here)
+     */
+    public static void forQuery(Query query, Mutation mutation, Listener listener) {
+        new BulkWriteEngine(new QueryPageSource(query), mutation, listener, DEFAULT_MAX_IN_FLIGHT).start();
+    }
+
+    /**
+     * Apply a mutation to a known list of documents
+     */
+    public static void forDocuments(List<DocumentReference> documents, Mutation mutation, Listener listener) {
+        new BulkWriteEngine(new ListPageSource(documents), mutation, listener, DEFAULT_MAX_IN_FLIGHT).start();
+    }
+
+    private void start() {
+        pump();
+    }
+
+    /**
+     * Fetch the next page if a batch slot is free
+     */
+    private void pump() {
+        if (fetching || exhausted || inFlight >= maxInFlight) {
+            return;
+        }
+        fetching = true;
+        source.next(new PageCallback() {
+            @Override
+            public void onPage(List<DocumentReference> page) {
+                fetching = false;
+                if (page.isEmpty()) {
+                    exhausted = true;
+                    completeIfDone();
+                    return;
+                }
+                commit(page);
+                pump();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "❌ Failed to fetch page for bulk write", e);
+                fetching = false;
+                exhausted = true; // Can't know what's left; report what was done
+                if (firstError == null) {
+                    firstError = e;
+                }
+                completeIfDone();
+            }
+        });
+    }
+
+    private void commit(List<DocumentReference> page) {
+        WriteBatch batch = FirebaseFirestore.getInstance().batch();
+        for (DocumentReference document : page) {
+            mutation.apply(batch, document);
+        }
+        inFlight++;
+        int size = page.size();
+        batch.commit().addOnCompleteListener(task -> {
+            if (task.isSuccessful()) {
+                settle(size, 0, null);
+            } else if (size > 1) {
+                // One missing document fails the whole batch; find out which ones actually fail
+                Log.w(TAG, "⚠️ Bulk write batch of " + size + " failed, retrying documents one by one", task.getException());
+                commitIndividually(page);
+            } else {
+                Log.e(TAG, "❌ Bulk write of 1 document failed", task.getException());
+                settle(0, 1, task.getException());
+            }
+        });
+    }
+
+    /**
+     * Retry a failed batch's documents as single writes, settling the batch slot once all are done
+     */
+    private void commitIndividually(List<DocumentReference> page) {
+        int[] pending = {page.size()};
+        int[] written = {0};
+        Exception[] error = {null};
+        for (DocumentReference document : page) {
+            WriteBatch single = FirebaseFirestore.getInstance().batch();
+            mutation.apply(single, document);
+            single.commit().addOnCompleteListener(task -> {
+                if (task.isSuccessful()) {
+                    written[0]++;
+                } else if (error[0] == null) {
+                    error[0] = task.getException();
+                }
+                if (--pending[0] == 0) {
+                    int notWritten = page.size() - written[0];
+                    if (notWritten > 0) {
+                        Log.e(TAG, "❌ " + notWritten + " of " + page.size() + " documents failed on retry", error[0]);
+                    }
+                    settle(written[0], notWritten, error[0]);
+                }
+            });
+        }
+    }
+
+    /**
+     * Account for a finished batch and free its slot
+     */
+    private void settle(int batchSucceeded, int batchFailed, Exception error) {
+        inFlight--;
+        succeeded += batchSucceeded;
+        failed += batchFailed;
+        if (firstError == null && error != null) {
+            firstError = error;
+        }
+        listener.onProgress(succeeded, failed);
+        pump();
+        completeIfDone();
+    }
+
+    private void completeIfDone() {
+        if (completed || !exhausted || fetching || inFlight > 0) {
+            return;
+        }
+        completed = true;
+        Log.d(TAG, "✅ Bulk write finished: " + succeeded + " written, " + failed + " failed");
+        Exception error = firstError;
+        if (error != null && failed > 0) {
+            error = new PartialFailureException(succeeded, failed, firstError);
+        }
+        listener.onComplete(succeeded, failed, error);
+    }
+
+    private static class QueryPageSource implements PageSource {
+        private final Query query;
+        private DocumentSnapshot cursor;
+
+        QueryPageSource(Query query) {
+            this.query = query.orderBy(FieldPath.documentId()).limit(MAX_BATCH_SIZE);
+        }
+
+        @Override
+        public void next(PageCallback callback) {
+            Query page = cursor != null ? query.startAfter(cursor) : query;
+            page.get()
+                    .addOnSuccessListener((QuerySnapshot snapshot) -> {
+                        List<DocumentSnapshot> documents = snapshot.getDocuments();
+                        List<DocumentReference> references = new ArrayList<>(documents.size());
+                        for (DocumentSnapshot document : documents) {
+                            references.add(document.getReference());
+                        }
+                        if (!documents.isEmpty()) {
+                            cursor = documents.get(documents.size() - 1);
+                        }
+                        callback.onPage(references);
+                    })
+                    .addOnFailureListener(callback::onError);
+        }
+    }
+
+    private static class ListPageSource implements PageSource {
+        private final List<DocumentReference> documents;
+        private int offset = 0;
+
+        ListPageSource(List<DocumentReference> documents) {
+            this.documents = documents;
+        }
+
+        @Override
+        public void next(PageCallback callback) {
+            int end = Math.min(documents.size(), offset + MAX_BATCH_SIZE);
+            List<DocumentReference> page = new ArrayList<>(documents.subList(offset, end));
+            offset = end;
+            callback.onPage(page);
+        }
+    }
+}
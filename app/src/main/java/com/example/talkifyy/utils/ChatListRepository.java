@@ -0,0 +1,159 @@
+package com.example.talkifyy.utils;
+
+import android.content.Context;
+import android.util.Log;
+import android.view.Choreographer;
+
+import com.example.talkifyy.model.ChatListItem;
+import com.example.talkifyy.model.ChatroomModel;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The current user's chats, newest first, as immutable snapshot lists.
+ * - One query listener; only changed documents are deserialized, the rest keep their item
+ * - Locally deleted chats are left out (and restored once a newer message arrives)
+ * - Snapshot events are coalesced: however many arrive within a frame, the listener gets at
+ *   most one list per frame, and it is the latest
+ * Call on the main thread; the listener is called on the main thread.
+ */
+public class ChatListRepository {
+    private static final String TAG = "ChatListRepository";
+
+    public interface Listener {
+        /**
+         * @param chats Unmodifiable; a new list on every change
+         */
+        void onChatListChanged(List<ChatListItem> chats);
+    }
+
+    private final Context context;
+    private final Listener listener;
+    private final Choreographer.FrameCallback publishFrame = frameTimeNanos -> publish();
+
+    private ListenerRegistration registration;
+    private final Map<String, ChatListItem> itemsById = new HashMap<>();
+    private List<String> order = Collections.emptyList(); // Chatroom IDs as the query sorts them
+    private List<ChatListItem> snapshot = Collections.emptyList();
+    private boolean frameScheduled = false;
+
+    public ChatListRepository(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.listener = listener;
+    }
+
+    public void start() {
+        String currentUserId = FirebaseUtil.currentUserId();
+        if (registration != null || currentUserId == null) {
+            return;
+        }
+        Query query = FirebaseUtil.allChatroomCollectionReference()
+                .whereArrayContains("userIds", currentUserId)
+                .orderBy("lastMessageTimestamp", Query.Direction.DESCENDING);
+
+        registration = query.addSnapshotListener((snapshots, error) -> {
+            if (error != null) {
+                Log.e(TAG, "❌ Chat list listener failed", error);
+                return;
+            }
+            if (snapshots != null) {
+                apply(snapshots, currentUserId);
+            }
+        });
+    }
+
+    public void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        if (frameScheduled) {
+            Choreographer.getInstance().removeFrameCallback(publishFrame);
+            frameScheduled = false;
+        }
+    }
+
+    /**
+     * The last published list
+     */
+    public List<ChatListItem> getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Publish again, e.g. after a chat was deleted or restored locally
+     */
+    public void refresh() {
+        schedulePublish();
+    }
+
+    private void apply(QuerySnapshot snapshots, String currentUserId) {
+        for (DocumentChange change : snapshots.getDocumentChanges()) {
+            String chatroomId = change.getDocument().getId();
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                itemsById.remove(chatroomId);
+            } else {
+                ChatroomModel chatroom = change.getDocument().toObject(ChatroomModel.class);
+                itemsById.put(chatroomId, new ChatListItem(chatroomId, chatroom, currentUserId));
+            }
+        }
+        List<DocumentSnapshot> documents = snapshots.getDocuments();
+        List<String> newOrder = new ArrayList<>(documents.size());
+        for (DocumentSnapshot document : documents) {
+            newOrder.add(document.getId());
+        }
+        order = newOrder;
+        schedulePublish();
+    }
+
+    private void schedulePublish() {
+        if (!frameScheduled) {
+            frameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(publishFrame);
+        }
+    }
+
+    private void publish() {
+        frameScheduled = false;
+        Set<String> deletedChats = LocalDeletionUtil.getLocallyDeletedChats(context);
+        List<ChatListItem> visible = new ArrayList<>(order.size());
+        for (String chatroomId : order) {
+            ChatListItem item = itemsById.get(chatroomId);
+            if (item == null) {
+                continue;
+            }
+            if (deletedChats.contains(chatroomId)) {
+                if (!hasMessageSinceDeletion(item)) {
+                    continue;
+                }
+                Log.d(TAG, "Restoring locally deleted chat due to new message: " + chatroomId);
+                LocalDeletionUtil.restoreLocallyDeletedChat(context, chatroomId);
+            }
+            visible.add(item);
+        }
+        snapshot = Collections.unmodifiableList(visible);
+        listener.onChatListChanged(snapshot);
+    }
+
+    /**
+     * Whether a locally deleted chat got a message after it was deleted
+     */
+    private boolean hasMessageSinceDeletion(ChatListItem item) {
+        long deletionTimestamp = LocalDeletionUtil.getChatDeletionTimestamp(context, item.chatroomId);
+        if (deletionTimestamp == 0) {
+            return true; // No deletion time to compare against
+        }
+        return item.chatroom.getLastMessageTimestamp() != null
+                && item.chatroom.getLastMessageTimestamp().toDate().getTime() > deletionTimestamp;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.talkifyy.utils;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Posts push messages to the FCM HTTP endpoint through a shared client, so a fan-out to many
+ * recipients is bounded by the client's dispatcher and rides on pooled connections.
+ * Plain Java + OkHttp so it can run against a local fake server in tests.
+ */
+class FcmSender {
+    static final String FCM_URL = "https://fcm.googleapis.com/fcm/send";
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    /**
+     * One push to one device
+     */
+    static class Message {
+        final String token;
+        final String title;
+        final String body;
+        final Map<String, String> data = new LinkedHashMap<>();
+
+        Message(String token, String title, String body) {
+            this.token = token;
+            this.title = title;
+            this.body = body;
+        }
+
+        Message put(String key, String value) {
+            data.put(key, value);
+            return this;
+        }
+    }
+
+    interface Listener {
+        void onSent(Message message, String responseBody);
+
+        /** FCM no longer knows the token (app uninstalled or token rotated) */
+        void onTokenRejected(Message message, String responseBody);
+
+        void onFailed(Message message, Exception e);
+    }
+
+    private final OkHttpClient client;
+    private final String url;
+    private final String serverKey;
+
+    FcmSender(OkHttpClient client, String url, String serverKey) {
+        this.client = client;
+        this.url = url;
+        this.serverKey = serverKey;
+    }
+
+    /**
+     * Queue the request; it runs when the dispatcher has a free slot
+     */
+    void send(Message message, Listener listener) {
+        Request request = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(toJson(message), JSON))
+                .addHeader("Authorization", "key=" + serverKey)
+                .build();
+
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                listener.onFailed(message, e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                try (ResponseBody body = response.body()) {
+                    String responseBody = body != null ? body.string() : "";
+                    if (!response.isSuccessful()) {
+                        listener.onFailed(message, new IOException("HTTP " + response.code() + ": " + responseBody));
+                    } else if (responseBody.contains("\"NotRegistered\"") || responseBody.contains("\"InvalidRegistration\"")) {
+                        listener.onTokenRejected(message, responseBody);
+                    } else {
+                        listener.onSent(message, responseBody);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Legacy FCM payload: a display notification plus a data map for the app
+     */
+    static String toJson(Message message) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"to\":").append(quote(message.token));
+        json.append(",\"notification\":{\"title\":").append(quote(message.title))
+                .append(",\"body\":").append(quote(message.body))
+                .append(",\"icon\":\"chat_icon\",\"sound\":\"default\"}");
+        json.append(",\"data\":{");
+        boolean first = true;
+        for (Map.Entry<String, String> entry : message.data.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append(quote(entry.getKey())).append(':').append(quote(entry.getValue()));
+        }
+        json.append("}}");
+        return json.toString();
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': quoted.append("\\\""); break;
+                case '\\': quoted.append("\\\\"); break;
+                case '\n': quoted.append("\\n"); break;
+                case '\r': quoted.append("\\r"); break;
+                case '\t': quoted.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.talkifyy.utils;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FCM tokens by userId for notification fan-out. Tokens live on the user documents cached by
+ * UserDirectory, so a lookup for a whole group is answered from the cache, with the misses
+ * collected into batched whereIn queries; members of an open group are kept fresh by its
+ * watchUsers() listener. A token is dropped when FCM rejects it or when this device's own
+ * token rotates (onNewToken).
+ */
+public class FcmTokenRegistry {
+    private static final String TAG = "FcmTokenRegistry";
+
+    private static FcmTokenRegistry instance;
+
+    public interface OnTokensLoadedListener {
+        /**
+         * @param tokensByUserId Token per user; users without a token are left out
+         */
+        void onTokensLoaded(Map<String, String> tokensByUserId);
+    }
+
+    public static synchronized FcmTokenRegistry getInstance() {
+        if (instance == null) {
+            instance = new FcmTokenRegistry();
+        }
+        return instance;
+    }
+
+    private FcmTokenRegistry() {
+    }
+
+    /**
+     * Look up the tokens of several users at once. Call on the main thread.
+     * @param userIds Recipients
+     * @param listener Called once, when every user has been resolved
+     */
+    public void getTokens(Collection<String> userIds, OnTokensLoadedListener listener) {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(userIds));
+        Map<String, String> tokens = new HashMap<>();
+        if (ids.isEmpty()) {
+            listener.onTokensLoaded(tokens);
+            return;
+        }
+
+        final int[] remaining = {ids.size()};
+        for (String userId : ids) {
+            UserDirectory.getInstance().getUser(userId, user -> {
+                if (user != null && user.getFcmToken() != null && !user.getFcmToken().isEmpty()) {
+                    tokens.put(userId, user.getFcmToken());
+                }
+                if (--remaining[0] == 0) {
+                    Log.d(TAG, "🔑 Resolved " + tokens.size() + " of " + ids.size() + " FCM tokens");
+                    listener.onTokensLoaded(tokens);
+                }
+            });
+        }
+    }
+
+    /**
+     * Forget a user's cached token so the next lookup reads it again
+     */
+    public void invalidate(String userId) {
+        UserDirectory.getInstance().invalidate(userId);
+    }
+
+    /**
+     * This device got a new token: publish it and drop the stale cached copy
+     */
+    public void onNewToken(String token) {
+        FirebaseUtil.updateFCMToken(token);
+        invalidate(FirebaseUtil.currentUserId());
+        Log.d(TAG, "🔄 FCM token rotated for current user");
+    }
+}
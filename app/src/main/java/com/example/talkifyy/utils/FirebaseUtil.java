@@ -1,15 +1,21 @@
 package com.example.talkifyy.utils;
 
 import android.util.Log;
+
+import com.example.talkifyy.model.ChatMessageModel;
+import com.example.talkifyy.model.ChatroomModel;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
 import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.WriteBatch;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageReference;
 import com.google.firebase.FirebaseApp;
@@ -85,6 +91,45 @@ public class FirebaseUtil {
         return getChatroomReference(chatroomId).collection("chats");
     }
 
+    /**
+     * Write a message and the chatroom's last-message fields in one atomic batch.
+     * Only lastMessage, lastMessageSenderId and lastMessageTimestamp are touched, so
+     * membership (userIds, adminIds) is never rewritten and the chat list can't show a
+     * last message that didn't persist.
+     * @param messageRef Message document, usually with a client-generated ID
+     * @param message Message to store; its timestamp becomes the chatroom's lastMessageTimestamp
+     * @return Task that completes when the server has committed both writes
+     */
+    public static Task<Void> sendMessage(String chatroomId, DocumentReference messageRef, ChatMessageModel message) {
+        WriteBatch batch = FirebaseFirestore.getInstance().batch();
+        batch.set(messageRef, message);
+        batch.update(getChatroomReference(chatroomId),
+                "lastMessage", message.getMessage(),
+                "lastMessageSenderId", message.getSenderId(),
+                "lastMessageTimestamp", message.getTimestamp());
+        return batch.commit();
+    }
+
+    /**
+     * Write the chatroom's last-message fields without touching the rest of the document;
+     * a set() of a stale local model would roll back the other members' read watermarks
+     */
+    public static Task<Void> updateChatroomLastMessage(String chatroomId, ChatroomModel chatroom) {
+        return getChatroomReference(chatroomId).update(
+                "lastMessage", chatroom.getLastMessage(),
+                "lastMessageSenderId", chatroom.getLastMessageSenderId(),
+                "lastMessageTimestamp", chatroom.getLastMessageTimestamp());
+    }
+
+    /**
+     * Advance the current user's read watermark in a chatroom (one field write)
+     * @param readUpTo Everything at or before this time counts as read
+     */
+    public static Task<Void> markChatroomRead(String chatroomId, Timestamp readUpTo) {
+        return getChatroomReference(chatroomId)
+                .update(FieldPath.of(ChatroomModel.FIELD_LAST_READ_TIMESTAMPS, currentUserId()), readUpTo);
+    }
+
     public static CollectionReference allChatroomCollectionReference(){
         return FirebaseFirestore.getInstance().collection("chatrooms");
     }
@@ -256,45 +301,55 @@ public class FirebaseUtil {
     
     // Delete entire chat conversation
     public static void deleteChatConversation(String chatroomId, OnSuccessListener<Void> successListener, OnFailureListener failureListener) {
+        deleteChatConversation(chatroomId, null, successListener, failureListener);
+    }
+    
+    /**
+     * Delete every message in pages of batched deletes, then the chatroom document.
+     * The chatroom is kept if any message could not be deleted, so nothing is orphaned.
+     * @param chatroomId Chatroom ID
+     * @param progressListener Called after every batch, may be null
+     * @param successListener Called once the chatroom is gone
+     * @param failureListener Called with a BulkWriteEngine.PartialFailureException if some messages remain
+     */
+    public static void deleteChatConversation(String chatroomId, OnBatchProgressListener progressListener,
+                                              OnSuccessListener<Void> successListener, OnFailureListener failureListener) {
         Log.d("FirebaseUtil", "Deleting chat conversation: " + chatroomId);
         
-        // First delete all messages in the chatroom
-        getChatroomMessageReference(chatroomId)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    if (querySnapshot.isEmpty()) {
-                        // No messages to delete, just delete the chatroom document
-                        deleteChatroomDocument(chatroomId, successListener, failureListener);
-                    } else {
-                        // Delete all messages first
-                        int totalMessages = querySnapshot.size();
-                        final int[] deletedCount = {0};
-                        final boolean[] hasError = {false};
-                        
-                        for (DocumentSnapshot document : querySnapshot.getDocuments()) {
-                            document.getReference().delete()
-                                    .addOnSuccessListener(aVoid -> {
-                                        deletedCount[0]++;
-                                        // Check if all messages are deleted
-                                        if (deletedCount[0] == totalMessages && !hasError[0]) {
-                                            // All messages deleted, now delete the chatroom document
-                                            deleteChatroomDocument(chatroomId, successListener, failureListener);
-                                        }
-                                    })
-                                    .addOnFailureListener(e -> {
-                                        if (!hasError[0]) {
-                                            hasError[0] = true;
-                                            Log.e("FirebaseUtil", "Failed to delete message in chat", e);
-                                            failureListener.onFailure(e);
-                                        }
-                                    });
-                        }
+        deleteAllMessages(chatroomId, progressListener, error -> {
+            if (error != null) {
+                Log.e("FirebaseUtil", "Failed to delete messages in chat", error);
+                failureListener.onFailure(error);
+                return;
+            }
+            deleteChatroomDocument(chatroomId, successListener, failureListener);
+        });
+    }
+    
+    /**
+     * Completion of a bulk message delete; error is null when every message was deleted
+     */
+    private interface BulkDeleteCallback {
+        void onDone(Exception error);
+    }
+    
+    private static void deleteAllMessages(String chatroomId, OnBatchProgressListener progressListener,
+                                          BulkDeleteCallback callback) {
+        BulkWriteEngine.forQuery(getChatroomMessageReference(chatroomId), WriteBatch::delete,
+            new BulkWriteEngine.Listener() {
+                @Override
+                public void onProgress(int succeeded, int failed) {
+                    if (progressListener != null) {
+                        progressListener.onProgress(succeeded, failed);
                     }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e("FirebaseUtil", "Failed to get messages for deletion", e);
-                    failureListener.onFailure(e);
-                });
+                }
+                
+                @Override
+                public void onComplete(int succeeded, int failed, Exception error) {
+                    Log.d("FirebaseUtil", "Deleted " + succeeded + " messages in " + chatroomId + ", " + failed + " failed");
+                    callback.onDone(error);
+                }
+            });
     }
     
     // Helper method to delete chatroom document
@@ -313,44 +368,28 @@ public class FirebaseUtil {
     
     // Clear chat history (delete all messages but keep chatroom)
     public static void clearChatHistory(String chatroomId, OnSuccessListener<Void> successListener, OnFailureListener failureListener) {
+        clearChatHistory(chatroomId, null, successListener, failureListener);
+    }
+    
+    /**
+     * Delete every message in pages of batched deletes and reset the chatroom's last message
+     * @param chatroomId Chatroom ID
+     * @param progressListener Called after every batch, may be null
+     * @param successListener Called once all messages are gone
+     * @param failureListener Called with a BulkWriteEngine.PartialFailureException if some messages remain
+     */
+    public static void clearChatHistory(String chatroomId, OnBatchProgressListener progressListener,
+                                        OnSuccessListener<Void> successListener, OnFailureListener failureListener) {
         Log.d("FirebaseUtil", "Clearing chat history: " + chatroomId);
         
-        getChatroomMessageReference(chatroomId)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    if (querySnapshot.isEmpty()) {
-                        // No messages to clear
-                        successListener.onSuccess(null);
-                    } else {
-                        // Delete all messages
-                        int totalMessages = querySnapshot.size();
-                        final int[] deletedCount = {0};
-                        final boolean[] hasError = {false};
-                        
-                        for (DocumentSnapshot document : querySnapshot.getDocuments()) {
-                            document.getReference().delete()
-                                    .addOnSuccessListener(aVoid -> {
-                                        deletedCount[0]++;
-                                        // Check if all messages are deleted
-                                        if (deletedCount[0] == totalMessages && !hasError[0]) {
-                                            // All messages deleted, update chatroom last message
-                                            updateChatroomAfterClear(chatroomId, successListener, failureListener);
-                                        }
-                                    })
-                                    .addOnFailureListener(e -> {
-                                        if (!hasError[0]) {
-                                            hasError[0] = true;
-                                            Log.e("FirebaseUtil", "Failed to delete message in chat clear", e);
-                                            failureListener.onFailure(e);
-                                        }
-                                    });
-                        }
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e("FirebaseUtil", "Failed to get messages for clearing", e);
-                    failureListener.onFailure(e);
-                });
+        deleteAllMessages(chatroomId, progressListener, error -> {
+            if (error != null) {
+                Log.e("FirebaseUtil", "Failed to delete messages in chat clear", error);
+                failureListener.onFailure(error);
+                return;
+            }
+            updateChatroomAfterClear(chatroomId, successListener, failureListener);
+        });
     }
     
     // Helper method to update chatroom after clearing history
@@ -462,7 +501,8 @@ public class FirebaseUtil {
     }
     
     /**
-     * Batch delete multiple messages for everyone
+     * Batch delete multiple messages for everyone. Updates are committed in WriteBatches of up
+     * to 500, so a batch succeeds or fails as a whole.
      * @param chatroomId Chatroom ID
      * @param messageIds List of message IDs to delete
      * @param deletedByUserId User who initiated the deletion
@@ -470,35 +510,28 @@ public class FirebaseUtil {
      */
     public static void deleteMultipleMessagesForEveryone(String chatroomId, List<String> messageIds, String deletedByUserId,
                                                         OnBatchCompleteListener onComplete) {
-        final int totalCount = messageIds.size();
-        final int[] completedCount = {0};
-        final int[] successCount = {0};
-        final int[] failureCount = {0};
-        
+        CollectionReference messages = getChatroomMessageReference(chatroomId);
+        List<DocumentReference> documents = new ArrayList<>(messageIds.size());
         for (String messageId : messageIds) {
-            deleteMessageForEveryone(chatroomId, messageId, deletedByUserId,
-                aVoid -> {
-                    synchronized (completedCount) {
-                        completedCount[0]++;
-                        successCount[0]++;
-                        
-                        if (completedCount[0] == totalCount) {
-                            onComplete.onComplete(successCount[0], failureCount[0]);
-                        }
-                    }
-                },
-                error -> {
-                    synchronized (completedCount) {
-                        completedCount[0]++;
-                        failureCount[0]++;
-                        
-                        if (completedCount[0] == totalCount) {
-                            onComplete.onComplete(successCount[0], failureCount[0]);
-                        }
-                    }
-                }
-            );
+            documents.add(messages.document(messageId));
         }
+        Timestamp deletedAt = Timestamp.now();
+        
+        BulkWriteEngine.forDocuments(documents,
+            (batch, document) -> batch.update(document,
+                "deletedForEveryone", true,
+                "deletedForEveryoneTimestamp", deletedAt,
+                "deletedByUserId", deletedByUserId),
+            new BulkWriteEngine.Listener() {
+                @Override
+                public void onProgress(int succeeded, int failed) {
+                }
+                
+                @Override
+                public void onComplete(int succeeded, int failed, Exception error) {
+                    onComplete.onComplete(succeeded, failed);
+                }
+            });
     }
     
     
@@ -548,75 +581,30 @@ public class FirebaseUtil {
         void onComplete(int successCount, int failureCount);
     }
     
+    // Interface for progress of a batched bulk operation
+    public interface OnBatchProgressListener {
+        void onProgress(int processedCount, int failureCount);
+    }
+    
     // Message Reaction Methods
     
     /**
-     * Add or remove a reaction from a message
+     * Add or remove a reaction as one atomic server-side mutation, queued on a batch
+     * so changes to several messages can be committed as one write (arrayUnion/arrayRemove
+     * on reactions.{emoji}). Nothing is read first, so concurrent reactions from other users
+     * are never overwritten. No counter is written alongside: it would be incremented even
+     * when the array change is a no-op, so reaction counts come from the arrays.
+     * @param batch Batch to add the update to
      * @param chatroomId Chatroom ID
      * @param messageId Message ID
-     * @param emoji Emoji reaction
-     * @param userId User ID
-     * @param onSuccess Success callback with boolean (true if added, false if removed)
-     * @param onFailure Failure callback
+     * @param update Net reaction change for this message and emoji
      */
-    public static void toggleMessageReaction(String chatroomId, String messageId, String emoji, String userId,
-                                           OnSuccessListener<Boolean> onSuccess, OnFailureListener onFailure) {
+    public static void addReactionUpdate(WriteBatch batch, String chatroomId, String messageId, ReactionUpdate update) {
         DocumentReference messageRef = getChatroomMessageReference(chatroomId).document(messageId);
-        
-        messageRef.get().addOnSuccessListener(documentSnapshot -> {
-            if (documentSnapshot.exists()) {
-                // Get current reactions
-                @SuppressWarnings("unchecked")
-                Map<String, Object> reactions = (Map<String, Object>) documentSnapshot.get("reactions");
-                if (reactions == null) {
-                    reactions = new HashMap<>();
-                }
-                
-                // Get users for this emoji
-                @SuppressWarnings("unchecked")
-                List<String> userList = (List<String>) reactions.get(emoji);
-                if (userList == null) {
-                    userList = new ArrayList<>();
-                }
-                
-                boolean wasAdded;
-                if (userList.contains(userId)) {
-                    // Remove reaction
-                    userList.remove(userId);
-                    if (userList.isEmpty()) {
-                        reactions.remove(emoji);
-                    } else {
-                        reactions.put(emoji, userList);
-                    }
-                    wasAdded = false;
-                } else {
-                    // Add reaction
-                    userList.add(userId);
-                    reactions.put(emoji, userList);
-                    wasAdded = true;
-                }
-                
-                // Calculate total reactions
-                int totalReactions = 0;
-                for (Object value : reactions.values()) {
-                    if (value instanceof List) {
-                        totalReactions += ((List<?>) value).size();
-                    }
-                }
-                
-                // Update in Firestore
-                messageRef.update(
-                    "reactions", reactions,
-                    "totalReactions", totalReactions
-                ).addOnSuccessListener(aVoid -> {
-                    Log.d("FirebaseUtil", "Reaction " + (wasAdded ? "added" : "removed") + ": " + emoji);
-                    onSuccess.onSuccess(wasAdded);
-                }).addOnFailureListener(onFailure);
-                
-            } else {
-                onFailure.onFailure(new Exception("Message not found"));
-            }
-        }).addOnFailureListener(onFailure);
+        // FieldPath, not a dotted string, so any emoji is a safe map key
+        batch.update(messageRef,
+            FieldPath.of("reactions", update.emoji),
+            update.add ? FieldValue.arrayUnion(update.userId) : FieldValue.arrayRemove(update.userId));
     }
     
     /**
@@ -706,10 +694,7 @@ public class FirebaseUtil {
                                            OnSuccessListener<Void> onSuccess, OnFailureListener onFailure) {
         DocumentReference messageRef = getChatroomMessageReference(chatroomId).document(messageId);
         
-        messageRef.update(
-            "reactions", new HashMap<>(),
-            "totalReactions", 0
-        ).addOnSuccessListener(aVoid -> {
+        messageRef.update("reactions", new HashMap<>()).addOnSuccessListener(aVoid -> {
             Log.d("FirebaseUtil", "Cleared all reactions for message: " + messageId);
             onSuccess.onSuccess(aVoid);
         }).addOnFailureListener(onFailure);
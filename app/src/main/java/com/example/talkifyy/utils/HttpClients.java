@@ -0,0 +1,51 @@
+package com.example.talkifyy.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * The one OkHttpClient the app talks HTTP through. Sharing it shares the connection pool,
+ * so notification fan-out and uploads reuse warm HTTP/2 connections instead of paying a
+ * TLS handshake per call. Derive special-purpose clients with shared().newBuilder(), which
+ * keeps the pool and dispatcher.
+ */
+public final class HttpClients {
+    static final int MAX_REQUESTS = 16;
+    static final int MAX_REQUESTS_PER_HOST = 6;
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private static OkHttpClient shared;
+
+    private HttpClients() {
+    }
+
+    public static synchronized OkHttpClient shared() {
+        if (shared == null) {
+            shared = create(MAX_REQUESTS, MAX_REQUESTS_PER_HOST);
+        }
+        return shared;
+    }
+
+    /**
+     * A client with bounded dispatcher concurrency; calls beyond the limits wait in its queue
+     */
+    static OkHttpClient create(int maxRequests, int maxRequestsPerHost) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(15, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS)
+                .build();
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.talkifyy.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.WorkerThread;
+
+import com.example.talkifyy.model.ImageMetadata;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Local index of images this device has uploaded, keyed by SHA-256 so the same picture is
+ * stored once no matter how many chats it's sent to.
+ * - blobs: hash of the encoded full image -> download URL, metadata (incl. variants) and reference count
+ * - sources: hash of the picked file -> blob, so a repeat send skips decoding and encoding too
+ * Reference counts are what this device knows about; an untracked blob is never treated as unreferenced.
+ * All methods hit the database directly; call them off the main thread.
+ */
+public class ImageContentIndex extends SQLiteOpenHelper {
+    private static final String TAG = "ImageContentIndex";
+    private static final String DB_NAME = "image_content_index.db";
+    private static final int DB_VERSION = 1;
+    private static final int HASH_BUFFER_SIZE = 16 * 1024;
+
+    private static final String TABLE_BLOBS = "blobs";
+    private static final String TABLE_SOURCES = "sources";
+    private static final String COL_CONTENT_HASH = "content_hash";
+    private static final String COL_SOURCE_HASH = "source_hash";
+    private static final String COL_FULL_URL = "full_url";
+    private static final String COL_METADATA = "metadata";
+    private static final String COL_REF_COUNT = "ref_count";
+    private static final String COL_LAST_USED = "last_used_ms";
+
+    private static ImageContentIndex instance;
+
+    /**
+     * An uploaded image that can be referenced again without uploading
+     */
+    public static class Blob {
+        public final String contentHash;
+        public final String fullUrl;
+        public final ImageMetadata metadata; // Fresh copy per lookup, safe to modify
+        public final int refCount;
+
+        Blob(String contentHash, String fullUrl, ImageMetadata metadata, int refCount) {
+            this.contentHash = contentHash;
+            this.fullUrl = fullUrl;
+            this.metadata = metadata;
+            this.refCount = refCount;
+        }
+    }
+
+    /**
+     * Outcome of dropping one reference to an image URL
+     */
+    public static class Release {
+        public final boolean tracked; // false: the index never saw this URL (older upload or another device)
+        public final int remainingRefs;
+        public final ImageMetadata metadata; // Storage paths of all variants, when tracked
+
+        Release(boolean tracked, int remainingRefs, ImageMetadata metadata) {
+            this.tracked = tracked;
+            this.remainingRefs = remainingRefs;
+            this.metadata = metadata;
+        }
+    }
+
+    public static synchronized ImageContentIndex getInstance(Context context) {
+        if (instance == null) {
+            instance = new ImageContentIndex(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ImageContentIndex(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_BLOBS + " ("
+                + COL_CONTENT_HASH + " TEXT PRIMARY KEY, "
+                + COL_FULL_URL + " TEXT NOT NULL, "
+                + COL_METADATA + " TEXT, "
+                + COL_REF_COUNT + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_LAST_USED + " INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE UNIQUE INDEX idx_blobs_url ON " + TABLE_BLOBS + " (" + COL_FULL_URL + ")");
+        db.execSQL("CREATE TABLE " + TABLE_SOURCES + " ("
+                + COL_SOURCE_HASH + " TEXT PRIMARY KEY, "
+                + COL_CONTENT_HASH + " TEXT NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_BLOBS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SOURCES);
+        onCreate(db);
+    }
+
+    /**
+     * SHA-256 of a picked image's raw bytes, streamed (nothing is decoded)
+     */
+    @WorkerThread
+    public static String hashSource(Context context, Uri imageUri) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream in = context.getContentResolver().openInputStream(imageUri)) {
+            if (in == null) {
+                throw new IOException("Cannot open image: " + imageUri);
+            }
+            byte[] buffer = new byte[HASH_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * SHA-256 of encoded image bytes, hex
+     */
+    public static String sha256(byte[] data) {
+        return toHex(newDigest().digest(data));
+    }
+
+    @WorkerThread
+    public Blob findBySource(String sourceHash) {
+        String contentHash = null;
+        try (Cursor cursor = getReadableDatabase().query(TABLE_SOURCES, new String[]{COL_CONTENT_HASH},
+                COL_SOURCE_HASH + " = ?", new String[]{sourceHash}, null, null, null)) {
+            if (cursor.moveToFirst()) {
+                contentHash = cursor.getString(0);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Error looking up image source", e);
+        }
+        return contentHash != null ? find(contentHash) : null;
+    }
+
+    @WorkerThread
+    public Blob find(String contentHash) {
+        return queryBlob(COL_CONTENT_HASH, contentHash);
+    }
+
+    /**
+     * Remember that a picked file encodes to an already uploaded blob
+     */
+    @WorkerThread
+    public void linkSource(String sourceHash, String contentHash) {
+        ContentValues values = new ContentValues();
+        values.put(COL_SOURCE_HASH, sourceHash);
+        values.put(COL_CONTENT_HASH, contentHash);
+        try {
+            getWritableDatabase().insertWithOnConflict(TABLE_SOURCES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Error linking image source", e);
+        }
+    }
+
+    /**
+     * Record a finished upload holding one reference (or add a reference if it was already known)
+     * @param sourceHash Hash of the picked file, may be null
+     */
+    @WorkerThread
+    public void recordUpload(String contentHash, String sourceHash, String fullUrl, ImageMetadata metadata) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            if (!retain(db, contentHash)) {
+                ContentValues values = new ContentValues();
+                values.put(COL_CONTENT_HASH, contentHash);
+                values.put(COL_FULL_URL, fullUrl);
+                values.put(COL_METADATA, LocalMessageStore.metadataToJson(metadata));
+                values.put(COL_REF_COUNT, 1);
+                values.put(COL_LAST_USED, System.currentTimeMillis());
+                db.insertWithOnConflict(TABLE_BLOBS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            if (sourceHash != null) {
+                linkSource(sourceHash, contentHash);
+            }
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Error recording uploaded image", e);
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Add a reference to a known blob (it was sent again)
+     * @return false if the blob isn't in the index
+     */
+    @WorkerThread
+    public boolean retain(String contentHash) {
+        try {
+            return retain(getWritableDatabase(), contentHash);
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Error retaining image", e);
+            return false;
+        }
+    }
+
+    /**
+     * Drop one reference to an image by its full URL. The row goes away with the last reference,
+     * at which point the caller may delete the Storage objects.
+     */
+    @WorkerThread
+    public Release release(String fullUrl) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            Blob blob = queryBlob(COL_FULL_URL, fullUrl);
+            if (blob == null) {
+                db.setTransactionSuccessful();
+                return new Release(false, -1, null);
+            }
+            int remaining = Math.max(0, blob.refCount - 1);
+            if (remaining == 0) {
+                db.delete(TABLE_BLOBS, COL_CONTENT_HASH + " = ?", new String[]{blob.contentHash});
+                db.delete(TABLE_SOURCES, COL_CONTENT_HASH + " = ?", new String[]{blob.contentHash});
+            } else {
+                ContentValues values = new ContentValues();
+                values.put(COL_REF_COUNT, remaining);
+                db.update(TABLE_BLOBS, values, COL_CONTENT_HASH + " = ?", new String[]{blob.contentHash});
+            }
+            db.setTransactionSuccessful();
+            return new Release(true, remaining, blob.metadata);
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static boolean retain(SQLiteDatabase db, String contentHash) {
+        db.execSQL("UPDATE " + TABLE_BLOBS + " SET " + COL_REF_COUNT + " = " + COL_REF_COUNT + " + 1, "
+                + COL_LAST_USED + " = ? WHERE " + COL_CONTENT_HASH + " = ?",
+                new Object[]{System.currentTimeMillis(), contentHash});
+        try (Cursor cursor = db.rawQuery("SELECT changes()", null)) {
+            return cursor.moveToFirst() && cursor.getInt(0) > 0;
+        }
+    }
+
+    private Blob queryBlob(String column, String value) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_BLOBS,
+                new String[]{COL_CONTENT_HASH, COL_FULL_URL, COL_METADATA, COL_REF_COUNT},
+                column + " = ?", new String[]{value}, null, null, null)) {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            return new Blob(cursor.getString(0), cursor.getString(1),
+                    LocalMessageStore.jsonToMetadata(cursor.getString(2)), cursor.getInt(3));
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Error reading image index", e);
+            return null;
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.talkifyy.utils;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.WorkerThread;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Encodes chat images to a per-class byte budget instead of a fixed quality.
+ * The highest quality that fits the budget is found by binary search, using lossy WebP
+ * and falling back to JPEG if the WebP encoder fails.
+ */
+public class ImageEncoder {
+    private static final String TAG = "ImageEncoder";
+
+    public static final String FORMAT_WEBP = "webp";
+    public static final String FORMAT_JPEG = "jpeg";
+
+    /**
+     * Kind of image being encoded - decides the byte budget and the quality range searched
+     */
+    public enum ImageClass {
+        PHOTO(350 * 1024, 60, 85),
+        SCREENSHOT(250 * 1024, 70, 90), // Text and flat UI show artifacts sooner than photos
+        THUMBNAIL(24 * 1024, 40, 75);
+
+        final int budgetBytes;
+        final int minQuality;
+        final int maxQuality;
+
+        ImageClass(int budgetBytes, int minQuality, int maxQuality) {
+            this.budgetBytes = budgetBytes;
+            this.minQuality = minQuality;
+            this.maxQuality = maxQuality;
+        }
+    }
+
+    public static class EncodedImage {
+        public final byte[] data;
+        public final String format;
+        public final int quality;
+
+        EncodedImage(byte[] data, String format, int quality) {
+            this.data = data;
+            this.format = format;
+            this.quality = quality;
+        }
+
+        public String getMimeType() {
+            return FORMAT_WEBP.equals(format) ? "image/webp" : "image/jpeg";
+        }
+
+        public String getFileExtension() {
+            return FORMAT_WEBP.equals(format) ? ".webp" : ".jpg";
+        }
+    }
+
+    /**
+     * Encode at the highest quality in the class's range that fits its byte budget.
+     * If even the lowest quality is over budget, the lowest-quality encoding is returned.
+     * @param bitmap Image already scaled to upload size
+     * @param imageClass Budget/quality class
+     */
+    @WorkerThread
+    public static EncodedImage encode(Bitmap bitmap, ImageClass imageClass) throws IOException {
+        try {
+            return encodeToBudget(bitmap, imageClass, webpFormat(), FORMAT_WEBP);
+        } catch (IOException e) {
+            Log.w(TAG, "WebP encoding failed, falling back to JPEG", e);
+            return encodeToBudget(bitmap, imageClass, Bitmap.CompressFormat.JPEG, FORMAT_JPEG);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat webpFormat() {
+        // Before API 30, WEBP is lossy for any quality below 100
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+    }
+
+    private static EncodedImage encodeToBudget(Bitmap bitmap, ImageClass imageClass,
+                                               Bitmap.CompressFormat compressFormat, String format) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(imageClass.budgetBytes);
+
+        // Most images fit at the top of the range - one encode and done
+        byte[] best = compress(bitmap, compressFormat, imageClass.maxQuality, buffer);
+        int bestQuality = imageClass.maxQuality;
+        int encodes = 1;
+
+        if (best.length > imageClass.budgetBytes) {
+            byte[] fallback = null;
+            int low = imageClass.minQuality;
+            int high = imageClass.maxQuality - 1;
+            best = null;
+            while (low <= high) {
+                int quality = (low + high) >>> 1;
+                byte[] attempt = compress(bitmap, compressFormat, quality, buffer);
+                encodes++;
+                if (attempt.length <= imageClass.budgetBytes) {
+                    best = attempt;
+                    bestQuality = quality;
+                    low = quality + 1;
+                } else {
+                    if (quality == imageClass.minQuality) {
+                        fallback = attempt;
+                    }
+                    high = quality - 1;
+                }
+            }
+            if (best == null) {
+                // Nothing fits - settle for the floor of the range rather than wrecking the image
+                best = fallback != null ? fallback
+                        : compress(bitmap, compressFormat, imageClass.minQuality, buffer);
+                bestQuality = imageClass.minQuality;
+                Log.w(TAG, "Image over " + imageClass + " budget even at quality " + bestQuality
+                        + ": " + best.length + " bytes");
+            }
+        }
+
+        Log.d(TAG, "Encoded " + imageClass + " as " + format + " q" + bestQuality + ": "
+                + best.length + " bytes in " + encodes + " passes");
+        return new EncodedImage(best, format, bestQuality);
+    }
+
+    private static byte[] compress(Bitmap bitmap, Bitmap.CompressFormat format, int quality,
+                                   ByteArrayOutputStream buffer) throws IOException {
+        buffer.reset();
+        if (!bitmap.compress(format, quality, buffer)) {
+            throw new IOException("Encoder rejected " + format + " at quality " + quality);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.talkifyy.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+
+import com.example.talkifyy.model.ImageMetadata;
+
+/**
+ * Instant placeholders for chat images, built from ImageMetadata alone (no network):
+ * the decoded blurhash when present, else the dominant color, else transparent.
+ * Decoded blurhashes are tiny and cached, so rebinding a row doesn't decode again.
+ */
+public class ImagePlaceholders {
+    private static final int DECODE_LONG_SIDE = 32; // The view scales it up; a blur needs no more pixels
+    private static final int MAX_CACHED = 128;
+
+    private static final LruCache<String, Bitmap> decodedHashes = new LruCache<>(MAX_CACHED);
+
+    private ImagePlaceholders() {
+    }
+
+    /**
+     * @param metadata Image metadata, may be null
+     * @return a fresh drawable (safe to hand to any view)
+     */
+    public static Drawable forMetadata(Context context, ImageMetadata metadata) {
+        if (metadata != null && metadata.getBlurHash() != null) {
+            Bitmap preview = decodedHashes.get(metadata.getBlurHash());
+            if (preview == null) {
+                int[] size = previewSize(metadata);
+                preview = BlurHash.decode(metadata.getBlurHash(), size[0], size[1]);
+                if (preview != null) {
+                    decodedHashes.put(metadata.getBlurHash(), preview);
+                }
+            }
+            if (preview != null) {
+                BitmapDrawable drawable = new BitmapDrawable(context.getResources(), preview);
+                drawable.setFilterBitmap(true);
+                return drawable;
+            }
+        }
+        if (metadata != null && metadata.getDominantColor() != 0) {
+            return new ColorDrawable(metadata.getDominantColor());
+        }
+        return new ColorDrawable(Color.TRANSPARENT);
+    }
+
+    private static int[] previewSize(ImageMetadata metadata) {
+        int width = metadata.getWidth();
+        int height = metadata.getHeight();
+        if (width <= 0 || height <= 0) {
+            return new int[]{DECODE_LONG_SIDE, DECODE_LONG_SIDE};
+        }
+        return ImageVariants.variantSize(width, height, DECODE_LONG_SIDE);
+    }
+}
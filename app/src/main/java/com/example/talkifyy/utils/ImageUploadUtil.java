@@ -3,27 +3,40 @@ package com.example.talkifyy.utils;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.media.ExifInterface;
 import android.net.Uri;
 import android.util.Log;
 
+import androidx.annotation.WorkerThread;
+
 import com.example.talkifyy.model.ImageMetadata;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageReference;
-import com.google.firebase.storage.UploadTask;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 public class ImageUploadUtil {
     private static final String TAG = "ImageUploadUtil";
     private static final int MAX_IMAGE_WIDTH = 1920;
     private static final int MAX_IMAGE_HEIGHT = 1920;
-    private static final int JPEG_QUALITY = 85; // High quality compression
     private static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5MB max per image
+    private static final int MAX_PARALLEL_IMAGES = 3; // Images compressed/uploaded at once in a batch
+    private static final int STREAM_BUFFER_SIZE = 16 * 1024;
+    private static final int BLURHASH_SOURCE_SIDE = 32;
+    private static final int HEADER_MARK_LIMIT = 256 * 1024; // Enough for bounds + EXIF of typical camera JPEGs
 
     public interface ImageUploadListener {
         void onUploadProgress(int progress);
@@ -33,75 +46,269 @@ public class ImageUploadUtil {
 
     public interface MultipleImageUploadListener {
         void onUploadProgress(int completedCount, int totalCount);
-        void onUploadSuccess(List<String> downloadUrls);
+        /**
+         * @param downloadUrls Full-image URLs, in the order the images were given
+         * @param metadata Metadata (incl. variant URLs) parallel to downloadUrls
+         */
+        void onUploadSuccess(List<String> downloadUrls, List<ImageMetadata> metadata);
         void onUploadFailure(Exception e);
     }
 
     /**
-     * Upload a single image to Firebase Storage
+     * Result of the background processing step: encoded variants ready to upload plus their metadata
+     */
+    public static class PreparedImage {
+        public final ImageMetadata metadata;
+        public final List<Variant> variants; // Full image first, then medium/thumbnail when smaller
+
+        PreparedImage(ImageMetadata metadata, List<Variant> variants) {
+            this.metadata = metadata;
+            this.variants = variants;
+        }
+    }
+
+    /**
+     * One encoded size of an image; suffix is "" for the full image
+     */
+    public static class Variant {
+        public final String suffix;
+        public final byte[] data;
+        public final String fileExtension;
+        public final String mimeType;
+
+        Variant(String suffix, ImageEncoder.EncodedImage encoded) {
+            this.suffix = suffix;
+            this.data = encoded.data;
+            this.fileExtension = encoded.getFileExtension();
+            this.mimeType = encoded.getMimeType();
+        }
+    }
+
+    /**
+     * Upload a single image to Firebase Storage.
+     * Compression runs on the MediaPipeline; the encoded files are then journaled and uploaded
+     * by ResumableUploadManager, which survives the caller going away (see MediaPipeline.Job#detach).
+     * Listener callbacks arrive on the main thread and stop once the job is cancelled or detached.
+     * @return handle that cancels (or detaches from) compression or the in-flight upload
+     */
+    public static MediaPipeline.Job uploadImage(Context context, Uri imageUri, String chatroomId, ImageUploadListener listener) {
+        return uploadImage(context, imageUri, chatroomId, null, 0, 1, listener);
+    }
+
+    /**
+     * @param batchId Multi-image message this image belongs to, null for a single image
+     * @param listener Callbacks, may be null for an upload nobody waits on
      */
-    public static void uploadImage(Context context, Uri imageUri, String chatroomId, ImageUploadListener listener) {
+    private static MediaPipeline.Job uploadImage(Context context, Uri imageUri, String chatroomId, String batchId,
+                                                 int batchIndex, int batchSize, ImageUploadListener listener) {
         Log.d(TAG, "Starting image upload - URI: " + imageUri + ", ChatroomId: " + chatroomId);
-        
+        Context appContext = context.getApplicationContext();
+        ResumableUploadManager manager = ResumableUploadManager.getInstance(appContext);
+
+        return MediaPipeline.getInstance().submit(job -> {
+            // Content-addressed: a picture this device already uploaded is referenced, not re-encoded or re-sent
+            ImageContentIndex index = ImageContentIndex.getInstance(appContext);
+            String sourceHash = ImageContentIndex.hashSource(appContext, imageUri);
+            ImageContentIndex.Blob known = index.findBySource(sourceHash);
+            PreparedImage prepared = null;
+            String contentHash = null;
+            if (known == null) {
+                prepared = prepareImage(appContext, imageUri, job);
+                contentHash = ImageContentIndex.sha256(prepared.variants.get(0).data);
+                known = index.find(contentHash);
+                if (known != null) {
+                    index.linkSource(sourceHash, contentHash);
+                }
+            }
+            job.throwIfCancelled();
+
+            String uploadId;
+            if (known != null && index.retain(known.contentHash)) {
+                Log.d(TAG, "♻️ Image already uploaded, reusing " + known.contentHash);
+                uploadId = manager.enqueueUploaded(chatroomId, known.fullUrl, known.metadata,
+                        batchId, batchIndex, batchSize, listener);
+            } else {
+                if (prepared == null) {
+                    // Index row vanished between lookups (released meanwhile) - upload after all
+                    prepared = prepareImage(appContext, imageUri, job);
+                    contentHash = ImageContentIndex.sha256(prepared.variants.get(0).data);
+                }
+                uploadId = manager.enqueue(chatroomId, prepared, contentHash, sourceHash,
+                        batchId, batchIndex, batchSize, listener);
+            }
+            job.setOnCancel(() -> manager.cancel(uploadId));
+            job.setOnDetach(() -> manager.detach(uploadId));
+            return uploadId;
+        }, new MediaPipeline.Callback<String>() {
+            @Override
+            public void onSuccess(String uploadId) {
+                Log.d(TAG, "Image queued for upload: " + uploadId);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Error preparing image for upload", e);
+                if (listener != null) {
+                    listener.onUploadFailure(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Compress an image and read its metadata on the MediaPipeline
+     * @param context Any context
+     * @param imageUri Image to process
+     * @param callback Result callback (main thread)
+     * @return handle for cancelling the work
+     */
+    public static MediaPipeline.Job prepareImageAsync(Context context, Uri imageUri, MediaPipeline.Callback<PreparedImage> callback) {
+        Context appContext = context.getApplicationContext();
+        return MediaPipeline.getInstance().submit(job -> prepareImage(appContext, imageUri, job), callback);
+    }
+
+    /**
+     * Compress an image and read its metadata on the calling thread. Never call from the main thread.
+     * @param job Optional job checked between steps, may be null
+     */
+    @WorkerThread
+    public static PreparedImage prepareImage(Context context, Uri imageUri, MediaPipeline.Job job) throws Exception {
+        Log.d(TAG, "Decoding image...");
+        DecodedImage decoded = decodeImage(context, imageUri, job);
+        ImageEncoder.ImageClass imageClass = classify(imageUri, decoded);
+        int maxSide = Math.max(decoded.width, decoded.height);
+        List<Variant> variants = new ArrayList<>();
+        ImageEncoder.EncodedImage full;
+        Bitmap medium = null;
+        Bitmap thumbnail = null;
+        Bitmap hashSource = null;
+        String blurHash;
         try {
-            // Compress image
-            Log.d(TAG, "Compressing image...");
-            byte[] compressedData = compressImage(context, imageUri);
-            if (compressedData == null) {
-                Log.e(TAG, "Image compression failed");
-                listener.onUploadFailure(new Exception("Failed to compress image"));
-                return;
+            full = ImageEncoder.encode(decoded.bitmap, imageClass);
+            variants.add(new Variant("", full));
+
+            // Each smaller variant is scaled from the previous one, not from the source
+            Bitmap variantSource = decoded.bitmap;
+            if (maxSide > ImageVariants.MEDIUM_MAX_SIDE) {
+                if (job != null) job.throwIfCancelled();
+                medium = scaleToFit(decoded.bitmap, ImageVariants.MEDIUM_MAX_SIDE);
+                variants.add(new Variant(ImageVariants.MEDIUM_SUFFIX, ImageEncoder.encode(medium, imageClass)));
+                variantSource = medium;
+            }
+            if (maxSide > ImageVariants.THUMBNAIL_MAX_SIDE) {
+                if (job != null) job.throwIfCancelled();
+                thumbnail = scaleToFit(variantSource, ImageVariants.THUMBNAIL_MAX_SIDE);
+                variants.add(new Variant(ImageVariants.THUMBNAIL_SUFFIX,
+                        ImageEncoder.encode(thumbnail, ImageEncoder.ImageClass.THUMBNAIL)));
             }
-            Log.d(TAG, "Image compressed successfully, size: " + compressedData.length + " bytes");
-
-            // Get image metadata
-            Log.d(TAG, "Getting image metadata...");
-            ImageMetadata metadata = getImageMetadata(context, imageUri, compressedData.length);
-            Log.d(TAG, "Metadata: " + metadata.getWidth() + "x" + metadata.getHeight() + ", " + metadata.getFormattedFileSize());
-            
-            // Generate unique filename
-            String fileName = "chat_images/" + chatroomId + "/" + UUID.randomUUID().toString() + ".jpg";
-            Log.d(TAG, "Generated filename: " + fileName);
-            
-            // Upload to Firebase Storage
-            Log.d(TAG, "Starting Firebase Storage upload...");
-            StorageReference storageRef = FirebaseStorage.getInstance().getReference().child(fileName);
-            
-            UploadTask uploadTask = storageRef.putBytes(compressedData);
-            uploadTask.addOnProgressListener(taskSnapshot -> {
-                double progress = (100.0 * taskSnapshot.getBytesTransferred()) / taskSnapshot.getTotalByteCount();
-                listener.onUploadProgress((int) progress);
-            }).addOnSuccessListener(taskSnapshot -> {
-                storageRef.getDownloadUrl().addOnSuccessListener(downloadUri -> {
-                    Log.d(TAG, "Image uploaded successfully: " + downloadUri.toString());
-                    listener.onUploadSuccess(downloadUri.toString(), metadata);
-                }).addOnFailureListener(listener::onUploadFailure);
-            }).addOnFailureListener(listener::onUploadFailure);
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error uploading image", e);
-            listener.onUploadFailure(e);
+            // Placeholder travels with the message: blurhash from a ~32px copy of the smallest variant
+            hashSource = scaleToFit(thumbnail != null ? thumbnail : variantSource, BLURHASH_SOURCE_SIDE);
+            boolean landscape = decoded.width >= decoded.height;
+            blurHash = BlurHash.encode(hashSource, landscape ? 4 : 3, landscape ? 3 : 4);
+        } finally {
+            BitmapPool.getInstance().put(decoded.bitmap);
+            BitmapPool.getInstance().put(medium);
+            BitmapPool.getInstance().put(thumbnail);
+            BitmapPool.getInstance().put(hashSource);
+        }
+        Log.d(TAG, "Image compressed - " + decoded.sourceWidth + "x" + decoded.sourceHeight + " -> "
+                + decoded.width + "x" + decoded.height + ", " + full.data.length + " bytes " + full.format
+                + " + " + (variants.size() - 1) + " smaller variants");
+        if (full.data.length > MAX_FILE_SIZE) {
+            throw new Exception("Image is too large to send");
+        }
+        if (job != null) {
+            job.throwIfCancelled();
         }
+
+        String fileName = "image_" + System.currentTimeMillis() + full.getFileExtension();
+        ImageMetadata metadata = new ImageMetadata(decoded.width, decoded.height, full.data.length,
+                fileName, full.getMimeType());
+        metadata.setFormat(full.format);
+        metadata.setQuality(full.quality);
+        metadata.setBlurHash(blurHash);
+        metadata.setDominantColor(BlurHash.averageColor(blurHash));
+        return new PreparedImage(metadata, variants);
+    }
+
+    /**
+     * Screenshots (PNG sources or files named like one) get a text-friendly budget, everything else is a photo
+     */
+    private static ImageEncoder.ImageClass classify(Uri imageUri, DecodedImage decoded) {
+        String path = imageUri.getPath();
+        if ("image/png".equals(decoded.sourceMimeType)
+                || (path != null && path.toLowerCase(Locale.ROOT).contains("screenshot"))) {
+            return ImageEncoder.ImageClass.SCREENSHOT;
+        }
+        return ImageEncoder.ImageClass.PHOTO;
     }
 
     /**
-     * Upload multiple images to Firebase Storage
+     * Upload multiple images to Firebase Storage.
+     * At most MAX_PARALLEL_IMAGES are processed/uploaded at once; download URLs are
+     * returned in the same order as imageUris, and failure is reported once.
+     * Call, cancel and detach from the main thread. Once detached, the remaining images are
+     * still uploaded and the batch is sent through ResumableUploadManager's RecoveryHandler.
+     * @return handle that cancels (or detaches from) every remaining image
      */
-    public static void uploadMultipleImages(Context context, List<Uri> imageUris, String chatroomId, 
+    public static MediaPipeline.Job uploadMultipleImages(Context context, List<Uri> imageUris, String chatroomId,
                                           MultipleImageUploadListener listener) {
+        MediaPipeline.Job batchJob = new MediaPipeline.Job();
         if (imageUris == null || imageUris.isEmpty()) {
             listener.onUploadFailure(new Exception("No images to upload"));
-            return;
+            return batchJob;
         }
 
-        List<String> downloadUrls = new ArrayList<>();
-        final int[] completedCount = {0};
-        final int totalCount = imageUris.size();
+        new MultipleImageUpload(context.getApplicationContext(), new ArrayList<>(imageUris), chatroomId,
+                listener, batchJob).start();
+        return batchJob;
+    }
 
-        for (int i = 0; i < imageUris.size(); i++) {
-            Uri imageUri = imageUris.get(i);
-            
-            uploadImage(context, imageUri, chatroomId, new ImageUploadListener() {
+    /**
+     * Sliding window over a batch of images; all state is touched on the main thread only
+     */
+    private static class MultipleImageUpload {
+        private final Context context;
+        private final List<Uri> imageUris;
+        private final String chatroomId;
+        private final MultipleImageUploadListener listener;
+        private final MediaPipeline.Job batchJob;
+        private final String batchId = UUID.randomUUID().toString();
+        private final String[] downloadUrls;
+        private final ImageMetadata[] metadataList;
+        private final List<MediaPipeline.Job> imageJobs = new ArrayList<>();
+        private int nextIndex = 0;
+        private int completedCount = 0;
+        private boolean failed = false;
+
+        MultipleImageUpload(Context context, List<Uri> imageUris, String chatroomId,
+                            MultipleImageUploadListener listener, MediaPipeline.Job batchJob) {
+            this.context = context;
+            this.imageUris = imageUris;
+            this.chatroomId = chatroomId;
+            this.listener = listener;
+            this.batchJob = batchJob;
+            this.downloadUrls = new String[imageUris.size()];
+            this.metadataList = new ImageMetadata[imageUris.size()];
+        }
+
+        void start() {
+            ResumableUploadManager.getInstance(context).claimBatch(batchId);
+            batchJob.setOnCancel(this::cancelRemaining);
+            batchJob.setOnDetach(this::detachRemaining);
+            int initial = Math.min(MAX_PARALLEL_IMAGES, imageUris.size());
+            for (int i = 0; i < initial; i++) {
+                startNext();
+            }
+        }
+
+        private void startNext() {
+            if (failed || batchJob.isCancelled() || batchJob.isDetached() || nextIndex >= imageUris.size()) {
+                return;
+            }
+            final int index = nextIndex++;
+            imageJobs.add(uploadImage(context, imageUris.get(index), chatroomId, batchId, index, imageUris.size(), new ImageUploadListener() {
                 @Override
                 public void onUploadProgress(int progress) {
                     // Individual progress can be tracked here if needed
@@ -109,76 +316,269 @@ public class ImageUploadUtil {
 
                 @Override
                 public void onUploadSuccess(String downloadUrl, ImageMetadata metadata) {
-                    downloadUrls.add(downloadUrl);
-                    completedCount[0]++;
-                    
-                    listener.onUploadProgress(completedCount[0], totalCount);
-                    
-                    if (completedCount[0] == totalCount) {
-                        listener.onUploadSuccess(downloadUrls);
+                    if (failed || batchJob.isCancelled()) return;
+                    downloadUrls[index] = downloadUrl;
+                    metadataList[index] = metadata;
+                    completedCount++;
+                    listener.onUploadProgress(completedCount, downloadUrls.length);
+
+                    if (completedCount == downloadUrls.length) {
+                        ResumableUploadManager.getInstance(context).releaseBatch(batchId);
+                        listener.onUploadSuccess(new ArrayList<>(Arrays.asList(downloadUrls)),
+                                new ArrayList<>(Arrays.asList(metadataList)));
+                    } else {
+                        startNext();
                     }
                 }
 
                 @Override
                 public void onUploadFailure(Exception e) {
-                    Log.e(TAG, "Failed to upload image " + (completedCount[0] + 1), e);
+                    if (failed || batchJob.isCancelled()) return;
+                    Log.e(TAG, "Failed to upload image " + (index + 1) + " of " + downloadUrls.length, e);
+                    failed = true;
+                    cancelRemaining();
                     listener.onUploadFailure(e);
                 }
-            });
+            }));
+        }
+
+        private void cancelRemaining() {
+            for (MediaPipeline.Job job : imageJobs) {
+                job.cancel();
+            }
+            ResumableUploadManager.getInstance(context).releaseBatch(batchId);
+        }
+
+        /**
+         * Caller went away: hand everything, including images not started yet, to the upload manager
+         */
+        private void detachRemaining() {
+            if (failed) {
+                return;
+            }
+            while (nextIndex < imageUris.size()) {
+                int index = nextIndex++;
+                imageJobs.add(uploadImage(context, imageUris.get(index), chatroomId, batchId, index,
+                        imageUris.size(), null));
+            }
+            for (MediaPipeline.Job job : imageJobs) {
+                job.detach();
+            }
+            ResumableUploadManager.getInstance(context).detachBatch(batchId, chatroomId);
+        }
+    }
+
+    /**
+     * Decoded, scaled and upright bitmap ready for encoding
+     */
+    private static class DecodedImage {
+        final Bitmap bitmap;
+        final int width;
+        final int height;
+        final int sourceWidth;
+        final int sourceHeight;
+        final String sourceMimeType;
+
+        DecodedImage(Bitmap bitmap, int sourceWidth, int sourceHeight, String sourceMimeType) {
+            this.bitmap = bitmap;
+            this.width = bitmap.getWidth();
+            this.height = bitmap.getHeight();
+            this.sourceWidth = sourceWidth;
+            this.sourceHeight = sourceHeight;
+            this.sourceMimeType = sourceMimeType;
         }
     }
 
     /**
-     * Compress image while maintaining good quality
+     * Decode an image straight down to upload size without ever holding it at full resolution:
+     * 1. read bounds and EXIF orientation from the header
+     * 2. decode with a power-of-two inSampleSize into a pooled bitmap (at most 2x the target per side)
+     * 3. one filtered draw applies the exact final scale and the orientation
      */
-    private static byte[] compressImage(Context context, Uri imageUri) {
+    private static DecodedImage decodeImage(Context context, Uri imageUri, MediaPipeline.Job job) throws IOException {
+        // Pass 1: header only
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        int orientation = ExifInterface.ORIENTATION_NORMAL;
+        try (InputStream in = openImageStream(context, imageUri)) {
+            in.mark(HEADER_MARK_LIMIT);
+            BitmapFactory.decodeStream(in, null, bounds);
+            if ("image/jpeg".equals(bounds.outMimeType)) {
+                orientation = readOrientation(context, imageUri, in);
+            }
+        }
+        int sourceWidth = bounds.outWidth;
+        int sourceHeight = bounds.outHeight;
+        if (sourceWidth <= 0 || sourceHeight <= 0) {
+            throw new IOException("Unsupported or corrupt image: " + imageUri);
+        }
+
+        // Target size in upright orientation, then mapped back to the stored orientation
+        boolean swapsAxes = swapsAxes(orientation);
+        int[] upright = calculateScaledDimensions(swapsAxes ? sourceHeight : sourceWidth,
+                swapsAxes ? sourceWidth : sourceHeight);
+        int targetWidth = swapsAxes ? upright[1] : upright[0];
+        int targetHeight = swapsAxes ? upright[0] : upright[1];
+
+        int sampleSize = 1;
+        while (sourceWidth / (sampleSize * 2) >= targetWidth && sourceHeight / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        if (job != null) {
+            job.throwIfCancelled();
+        }
+
+        // Pass 2: subsampled decode
+        Bitmap sampled = decodeSampled(context, imageUri, sampleSize,
+                divideRoundingUp(sourceWidth, sampleSize), divideRoundingUp(sourceHeight, sampleSize));
+        if (sampled == null) {
+            throw new IOException("Failed to decode image: " + imageUri);
+        }
+        if (sampled.getWidth() == targetWidth && sampled.getHeight() == targetHeight
+                && orientation == ExifInterface.ORIENTATION_NORMAL) {
+            return new DecodedImage(sampled, sourceWidth, sourceHeight, bounds.outMimeType);
+        }
+
+        // Pass 3: exact scale + orientation in a single draw
         try {
-            InputStream inputStream = context.getContentResolver().openInputStream(imageUri);
-            Bitmap originalBitmap = BitmapFactory.decodeStream(inputStream);
-            inputStream.close();
-
-            if (originalBitmap == null) {
-                return null;
-            }
-
-            // Calculate scaled dimensions
-            int[] scaledDimensions = calculateScaledDimensions(
-                originalBitmap.getWidth(), 
-                originalBitmap.getHeight()
-            );
-
-            // Scale bitmap if needed
-            Bitmap scaledBitmap;
-            if (scaledDimensions[0] != originalBitmap.getWidth() || 
-                scaledDimensions[1] != originalBitmap.getHeight()) {
-                scaledBitmap = Bitmap.createScaledBitmap(
-                    originalBitmap, 
-                    scaledDimensions[0], 
-                    scaledDimensions[1], 
-                    true
-                );
-                originalBitmap.recycle();
-            } else {
-                scaledBitmap = originalBitmap;
+            if (job != null) {
+                job.throwIfCancelled();
+            }
+            Matrix matrix = new Matrix();
+            matrix.setScale((float) targetWidth / sampled.getWidth(), (float) targetHeight / sampled.getHeight());
+            applyOrientation(matrix, orientation, targetWidth, targetHeight);
+            Bitmap output = render(sampled, matrix, upright[0], upright[1]);
+            return new DecodedImage(output, sourceWidth, sourceHeight, bounds.outMimeType);
+        } finally {
+            BitmapPool.getInstance().put(sampled);
+        }
+    }
+
+    /**
+     * Downscale a bitmap to fit maxSide, into a pooled bitmap
+     */
+    private static Bitmap scaleToFit(Bitmap source, int maxSide) {
+        int[] size = ImageVariants.variantSize(source.getWidth(), source.getHeight(), maxSide);
+        Matrix matrix = new Matrix();
+        matrix.setScale((float) size[0] / source.getWidth(), (float) size[1] / source.getHeight());
+        return render(source, matrix, size[0], size[1]);
+    }
+
+    /**
+     * Filtered draw of source through matrix into a width x height bitmap, reusing a pooled one if possible
+     */
+    private static Bitmap render(Bitmap source, Matrix matrix, int width, int height) {
+        Bitmap output = BitmapPool.getInstance().get(width, height, Bitmap.Config.ARGB_8888);
+        if (output != null) {
+            output.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+            output.eraseColor(Color.TRANSPARENT);
+        } else {
+            output = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+        new Canvas(output).drawBitmap(source, matrix, new Paint(Paint.FILTER_BITMAP_FLAG));
+        return output;
+    }
+
+    private static Bitmap decodeSampled(Context context, Uri imageUri, int sampleSize,
+                                        int sampledWidth, int sampledHeight) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        options.inMutable = true;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inBitmap = BitmapPool.getInstance().get(sampledWidth, sampledHeight, Bitmap.Config.ARGB_8888);
+        try (InputStream in = openImageStream(context, imageUri)) {
+            return BitmapFactory.decodeStream(in, null, options);
+        } catch (IllegalArgumentException e) {
+            // Decoder couldn't reuse the pooled buffer (e.g. unexpected output size) - decode fresh
+            Log.w(TAG, "Could not decode into pooled bitmap, allocating a new one");
+            BitmapPool.getInstance().put(options.inBitmap);
+            options.inBitmap = null;
+            try (InputStream in = openImageStream(context, imageUri)) {
+                return BitmapFactory.decodeStream(in, null, options);
             }
+        }
+    }
 
-            // Compress to JPEG
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            scaledBitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, outputStream);
-            byte[] compressedData = outputStream.toByteArray();
-            
-            scaledBitmap.recycle();
-            outputStream.close();
+    private static InputStream openImageStream(Context context, Uri imageUri) throws IOException {
+        InputStream in = context.getContentResolver().openInputStream(imageUri);
+        if (in == null) {
+            throw new IOException("Could not open image: " + imageUri);
+        }
+        return new BufferedInputStream(in, STREAM_BUFFER_SIZE);
+    }
 
-            Log.d(TAG, "Image compressed - Original size: " + compressedData.length + " bytes");
-            return compressedData;
+    /**
+     * EXIF orientation, read from the already-open header stream when it can be rewound
+     */
+    private static int readOrientation(Context context, Uri imageUri, InputStream headerStream) {
+        try {
+            try {
+                headerStream.reset();
+                return new ExifInterface(headerStream).getAttributeInt(
+                        ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+            } catch (IOException markInvalidated) {
+                // Header was larger than the mark limit - read EXIF from a fresh stream
+                try (InputStream in = openImageStream(context, imageUri)) {
+                    return new ExifInterface(in).getAttributeInt(
+                            ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Could not read EXIF orientation, assuming normal", e);
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
 
-        } catch (IOException e) {
-            Log.e(TAG, "Error compressing image", e);
-            return null;
+    private static boolean swapsAxes(int orientation) {
+        return orientation == ExifInterface.ORIENTATION_ROTATE_90
+                || orientation == ExifInterface.ORIENTATION_ROTATE_270
+                || orientation == ExifInterface.ORIENTATION_TRANSPOSE
+                || orientation == ExifInterface.ORIENTATION_TRANSVERSE;
+    }
+
+    /**
+     * Append the EXIF orientation to a matrix that already maps into a width x height box
+     */
+    private static void applyOrientation(Matrix matrix, int orientation, int width, int height) {
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                matrix.postTranslate(width, 0);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                matrix.postTranslate(width, height);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                matrix.postTranslate(0, height);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                matrix.postTranslate(height, 0);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(270);
+                matrix.postScale(-1, 1);
+                matrix.postTranslate(height, width);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(270);
+                matrix.postTranslate(0, width);
+                break;
+            default:
+                break;
         }
     }
 
+    private static int divideRoundingUp(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
     /**
      * Calculate scaled dimensions to fit within max limits
      */
@@ -198,40 +598,52 @@ public class ImageUploadUtil {
     }
 
     /**
-     * Get image metadata
+     * Drop a message's reference to an image and delete it from Firebase Storage once nothing
+     * references it. Content-addressed uploads (see ImageContentIndex) are shared between
+     * messages, so they are only deleted with their last reference, variants included.
      */
-    private static ImageMetadata getImageMetadata(Context context, Uri imageUri, long compressedSize) {
-        try {
-            InputStream inputStream = context.getContentResolver().openInputStream(imageUri);
-            BitmapFactory.Options options = new BitmapFactory.Options();
-            options.inJustDecodeBounds = true;
-            BitmapFactory.decodeStream(inputStream, null, options);
-            inputStream.close();
-
-            String fileName = "image_" + System.currentTimeMillis() + ".jpg";
-            String mimeType = context.getContentResolver().getType(imageUri);
-            if (mimeType == null) mimeType = "image/jpeg";
-
-            return new ImageMetadata(
-                options.outWidth, 
-                options.outHeight, 
-                compressedSize, 
-                fileName, 
-                mimeType
-            );
-        } catch (Exception e) {
-            Log.e(TAG, "Error getting image metadata", e);
-            return new ImageMetadata(0, 0, compressedSize, "unknown.jpg", "image/jpeg");
-        }
+    public static void deleteImage(Context context, String imageUrl, DeleteImageListener listener) {
+        Context appContext = context.getApplicationContext();
+        MediaPipeline.getInstance().submit(job -> ImageContentIndex.getInstance(appContext).release(imageUrl),
+                new MediaPipeline.Callback<ImageContentIndex.Release>() {
+            @Override
+            public void onSuccess(ImageContentIndex.Release release) {
+                if (release.tracked && release.remainingRefs > 0) {
+                    Log.d(TAG, "Image still referenced by " + release.remainingRefs + " message(s), keeping: " + imageUrl);
+                    if (listener != null) listener.onDeleteSuccess();
+                    return;
+                }
+                if (!release.tracked && imageUrl.contains("sha256")) {
+                    // Shared path we hold no count for - can't prove nothing else uses it
+                    Log.w(TAG, "Untracked shared image, keeping: " + imageUrl);
+                    if (listener != null) listener.onDeleteSuccess();
+                    return;
+                }
+                deleteStorageObjects(imageUrl, release.metadata, listener);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Error releasing image", e);
+                if (listener != null) listener.onDeleteFailure(e);
+            }
+        });
     }
 
-    /**
-     * Delete image from Firebase Storage
-     */
-    public static void deleteImage(String imageUrl, DeleteImageListener listener) {
+    private static void deleteStorageObjects(String imageUrl, ImageMetadata metadata, DeleteImageListener listener) {
         try {
-            StorageReference storageRef = FirebaseStorage.getInstance().getReferenceFromUrl(imageUrl);
-            storageRef.delete()
+            FirebaseStorage storage = FirebaseStorage.getInstance();
+            List<StorageReference> refs = new ArrayList<>();
+            refs.add(storage.getReferenceFromUrl(imageUrl));
+            if (metadata != null) {
+                if (metadata.getMediumPath() != null) refs.add(storage.getReference(metadata.getMediumPath()));
+                if (metadata.getThumbnailPath() != null) refs.add(storage.getReference(metadata.getThumbnailPath()));
+            }
+            List<Task<Void>> deletions = new ArrayList<>();
+            for (StorageReference ref : refs) {
+                deletions.add(ref.delete());
+            }
+            Tasks.whenAll(deletions)
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Image deleted successfully: " + imageUrl);
                     if (listener != null) listener.onDeleteSuccess();
@@ -0,0 +1,54 @@
+package com.example.talkifyy.utils;
+
+import com.example.talkifyy.model.ImageMetadata;
+
+/**
+ * Size variants stored for every uploaded chat image, and picking the smallest one
+ * that still covers a view. Bubbles and grids use this; only the full-screen viewers
+ * load the full image.
+ */
+public class ImageVariants {
+    public static final int THUMBNAIL_MAX_SIDE = 384; // 100dp grid cells up to xxhdpi
+    public static final int MEDIUM_MAX_SIDE = 1024; // 200dp bubbles up to xxxhdpi
+
+    public static final String THUMBNAIL_SUFFIX = "_thumb";
+    public static final String MEDIUM_SUFFIX = "_medium";
+
+    private ImageVariants() {
+    }
+
+    /**
+     * Smallest stored variant whose center-cropped pixels cover the view
+     * @param fullUrl URL of the full image (used when no smaller variant covers the view)
+     * @param metadata Metadata of the image, may be null for older messages
+     * @param viewWidthPx Target width in pixels
+     * @param viewHeightPx Target height in pixels
+     */
+    public static String selectUrl(String fullUrl, ImageMetadata metadata, int viewWidthPx, int viewHeightPx) {
+        if (metadata == null || metadata.getWidth() <= 0 || metadata.getHeight() <= 0) {
+            return fullUrl;
+        }
+        if (metadata.getThumbnailUrl() != null
+                && covers(metadata, THUMBNAIL_MAX_SIDE, viewWidthPx, viewHeightPx)) {
+            return metadata.getThumbnailUrl();
+        }
+        if (metadata.getMediumUrl() != null
+                && covers(metadata, MEDIUM_MAX_SIDE, viewWidthPx, viewHeightPx)) {
+            return metadata.getMediumUrl();
+        }
+        return fullUrl;
+    }
+
+    /**
+     * Dimensions of a variant scaled to fit maxSide, never upscaled
+     */
+    public static int[] variantSize(int width, int height, int maxSide) {
+        float scale = Math.min(1f, (float) maxSide / Math.max(width, height));
+        return new int[]{Math.max(1, Math.round(width * scale)), Math.max(1, Math.round(height * scale))};
+    }
+
+    private static boolean covers(ImageMetadata metadata, int maxSide, int viewWidthPx, int viewHeightPx) {
+        int[] size = variantSize(metadata.getWidth(), metadata.getHeight(), maxSide);
+        return size[0] >= viewWidthPx && size[1] >= viewHeightPx;
+    }
+}
@@ -0,0 +1,401 @@
+package com.example.talkifyy.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-memory index of locally deleted message IDs for one chat room.
+ * Loaded once per process from an append-only journal file ("+id" / "-id" lines),
+ * so lookups are a plain set probe and each write appends a single record.
+ * The journal is rewritten (compacted) once it holds mostly superseded records.
+ * Loading always runs on the journal thread: lookups never wait for it and see an empty
+ * index until it is done. Changes made meanwhile are kept and applied on top of the journal.
+ * Used by LocalDeletionUtil; not meant to be called directly.
+ */
+class LocalDeletionIndex {
+    private static final String TAG = "LocalDeletionIndex";
+    private static final String JOURNAL_DIR = "local_deletions";
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final char RECORD_ADD = '+';
+    private static final char RECORD_REMOVE = '-';
+    private static final int COMPACTION_MIN_RECORDS = 256;
+
+    // Legacy SharedPreferences storage, migrated into the journal on first load
+    private static final String LEGACY_PREFS_NAME = "local_deletions";
+    private static final String LEGACY_KEY_DELETED_MESSAGES = "deleted_messages_";
+
+    // Keyed by raw chatroom ID so the per-bind lookup does no string work
+    private static final ConcurrentHashMap<String, LocalDeletionIndex> indexes = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LocalDeletionIndex> indexesByFile = new ConcurrentHashMap<>();
+    private static final ExecutorService journalExecutor = Executors.newSingleThreadExecutor();
+
+    private final Context context;
+    private final String chatroomId;
+    private final File journalFile;
+    private final Set<String> deletedIds = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch loadedLatch = new CountDownLatch(1);
+    private volatile boolean loaded = false;
+    private final List<Runnable> loadListeners = new ArrayList<>(); // Guarded by this
+    private final List<String> earlyChanges = new ArrayList<>(); // "+id"/"-id" made before load; guarded by this
+    private int journalRecords = 0; // Only touched on the journal thread
+
+    /**
+     * Index for a chat room. Never touches the disk: a new index starts loading on the journal
+     * thread and reads as empty until it is loaded.
+     * @param context Any context
+     * @param chatroomId Chat room ID
+     * @return the index, possibly still loading
+     */
+    static LocalDeletionIndex forChatroom(Context context, String chatroomId) {
+        LocalDeletionIndex index = indexes.get(chatroomId);
+        if (index != null) {
+            return index;
+        }
+        // Held only to create and queue the load, so it never waits on disk work.
+        // clearAll() queues its deletion under it too, so a load queued later can't see stale journals.
+        synchronized (indexes) {
+            index = indexes.get(chatroomId);
+            if (index == null) {
+                String key = fileKey(chatroomId);
+                index = indexesByFile.get(key);
+                if (index == null) {
+                    index = new LocalDeletionIndex(context.getApplicationContext(), chatroomId, key);
+                    indexesByFile.put(key, index);
+                    journalExecutor.execute(index::load);
+                }
+                indexes.put(chatroomId, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Start loading a chat room's index ahead of the first bind
+     * @param context Any context
+     * @param chatroomId Chat room ID
+     * @param onLoaded Run once loaded if the index is not empty, on the journal thread
+     *                 (or the caller's, if it already is), or null
+     */
+    static void preload(Context context, String chatroomId, Runnable onLoaded) {
+        LocalDeletionIndex index = forChatroom(context, chatroomId);
+        if (onLoaded == null) {
+            return;
+        }
+        Runnable ifNotEmpty = () -> {
+            if (!index.deletedIds.isEmpty()) {
+                onLoaded.run();
+            }
+        };
+        synchronized (index) {
+            if (!index.loaded) {
+                index.loadListeners.add(ifNotEmpty);
+                return;
+            }
+        }
+        ifNotEmpty.run();
+    }
+
+    /**
+     * Total deleted messages across every chat room with a journal
+     */
+    static int totalCount(Context context) {
+        File[] journals = journalDir(context).listFiles();
+        int total = 0;
+        if (journals != null) {
+            for (File journal : journals) {
+                String name = journal.getName();
+                if (name.endsWith(JOURNAL_SUFFIX)) {
+                    // Journal names are sanitized chatroom IDs; open unseen ones by file key
+                    String key = name.substring(0, name.length() - JOURNAL_SUFFIX.length());
+                    LocalDeletionIndex index = indexesByFile.get(key);
+                    total += (index != null ? index : forChatroom(context, key)).loadedSize();
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Forget every index and journal
+     */
+    static void clearAll(Context context) {
+        File dir = journalDir(context);
+        synchronized (indexes) {
+            for (LocalDeletionIndex index : indexes.values()) {
+                index.deletedIds.clear();
+            }
+            indexes.clear();
+            indexesByFile.clear();
+            // Queued before any index created from here on can queue its load
+            journalExecutor.execute(() -> {
+                File[] journals = dir.listFiles();
+                if (journals != null) {
+                    for (File journal : journals) {
+                        if (!journal.delete()) {
+                            Log.w(TAG, "Could not delete journal: " + journal.getName());
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    private LocalDeletionIndex(Context context, String chatroomId, String key) {
+        this.context = context;
+        this.chatroomId = chatroomId;
+        this.journalFile = new File(journalDir(context), key + JOURNAL_SUFFIX);
+    }
+
+    /**
+     * Constant-time probe; false for every message while the index is still loading
+     */
+    boolean contains(String messageId) {
+        return messageId != null && deletedIds.contains(messageId);
+    }
+
+    /**
+     * Deleted messages in this chat room, waiting for the load. Not for the main thread.
+     */
+    int loadedSize() {
+        awaitLoaded();
+        return deletedIds.size();
+    }
+
+    /**
+     * Copy of the deleted IDs, waiting for the load. Not for the main thread.
+     */
+    Set<String> loadedSnapshot() {
+        awaitLoaded();
+        return new HashSet<>(deletedIds);
+    }
+
+    void add(String messageId) {
+        if (messageId != null && deletedIds.add(messageId)) {
+            recordEarlyChange(RECORD_ADD, messageId);
+            appendAsync(RECORD_ADD, Collections.singletonList(messageId));
+        }
+    }
+
+    void addAll(Collection<String> messageIds) {
+        List<String> added = new ArrayList<>();
+        for (String messageId : messageIds) {
+            if (messageId != null && deletedIds.add(messageId)) {
+                recordEarlyChange(RECORD_ADD, messageId);
+                added.add(messageId);
+            }
+        }
+        if (!added.isEmpty()) {
+            appendAsync(RECORD_ADD, added);
+        }
+    }
+
+    boolean remove(String messageId) {
+        if (messageId == null) {
+            return false;
+        }
+        boolean wasLoaded = loaded;
+        boolean removed = deletedIds.remove(messageId);
+        if (!wasLoaded) {
+            // The journal may still hold it; record the removal either way
+            recordEarlyChange(RECORD_REMOVE, messageId);
+            appendAsync(RECORD_REMOVE, Collections.singletonList(messageId));
+            return true;
+        }
+        if (removed) {
+            appendAsync(RECORD_REMOVE, Collections.singletonList(messageId));
+        }
+        return removed;
+    }
+
+    void clear() {
+        synchronized (this) {
+            deletedIds.clear();
+            earlyChanges.clear();
+        }
+        journalExecutor.execute(() -> {
+            // Runs after the load, which is queued first, so nothing reloads what was cleared
+            deletedIds.clear();
+            if (journalFile.exists() && !journalFile.delete()) {
+                Log.w(TAG, "Could not delete journal: " + journalFile.getName());
+            }
+            journalRecords = 0;
+        });
+    }
+
+    // Journal
+
+    /**
+     * Keep a change made before the load, to apply again on top of what the journal holds
+     */
+    private void recordEarlyChange(char type, String messageId) {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                earlyChanges.add(type + messageId);
+            }
+        }
+    }
+
+    private void awaitLoaded() {
+        try {
+            loadedLatch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Read the journal and migrate legacy storage. Runs on the journal thread, ahead of any
+     * append this index queues.
+     */
+    private void load() {
+        File dir = journalFile.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "❌ Could not create journal directory");
+        }
+        Set<String> journalIds = new HashSet<>();
+        int records = 0;
+        if (journalFile.exists()) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(journalFile), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.length() < 2) {
+                        continue; // Torn final write
+                    }
+                    String messageId = line.substring(1);
+                    if (line.charAt(0) == RECORD_ADD) {
+                        journalIds.add(messageId);
+                    } else if (line.charAt(0) == RECORD_REMOVE) {
+                        journalIds.remove(messageId);
+                    }
+                    records++;
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "❌ Error reading deletion journal: " + journalFile.getName(), e);
+            }
+        }
+        journalRecords = records;
+
+        List<Runnable> listeners;
+        synchronized (this) {
+            // Changes made while loading are newer than the journal
+            deletedIds.addAll(journalIds);
+            for (String change : earlyChanges) {
+                if (change.charAt(0) == RECORD_ADD) {
+                    deletedIds.add(change.substring(1));
+                } else {
+                    deletedIds.remove(change.substring(1));
+                }
+            }
+            earlyChanges.clear();
+            loaded = true;
+            listeners = new ArrayList<>(loadListeners);
+            loadListeners.clear();
+        }
+        loadedLatch.countDown();
+        Log.d(TAG, "Loaded " + deletedIds.size() + " deleted messages from " + records + " journal records");
+
+        migrateLegacy();
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    private void migrateLegacy() {
+        SharedPreferences prefs = context.getSharedPreferences(LEGACY_PREFS_NAME, Context.MODE_PRIVATE);
+        String legacyKey = LEGACY_KEY_DELETED_MESSAGES + chatroomId;
+        Set<String> legacy = prefs.getStringSet(legacyKey, null);
+        if (legacy == null) {
+            return;
+        }
+        addAll(new ArrayList<>(legacy));
+        prefs.edit().remove(legacyKey).apply();
+        Log.d(TAG, "Migrated " + legacy.size() + " locally deleted messages for chatroom: " + chatroomId);
+    }
+
+    private void appendAsync(char type, List<String> messageIds) {
+        journalExecutor.execute(() -> {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(journalFile, true), StandardCharsets.UTF_8))) {
+                for (String messageId : messageIds) {
+                    writer.write(type);
+                    writer.write(messageId);
+                    writer.write('\n');
+                }
+                journalRecords += messageIds.size();
+            } catch (IOException e) {
+                Log.e(TAG, "❌ Error appending to deletion journal", e);
+                return;
+            }
+            compactIfNeeded();
+        });
+    }
+
+    /**
+     * Rewrite the journal with only live IDs once most records are superseded.
+     * Runs on the journal thread, so appends can't interleave with the rewrite.
+     */
+    private void compactIfNeeded() {
+        int live = deletedIds.size();
+        if (journalRecords < COMPACTION_MIN_RECORDS || journalRecords <= live * 2) {
+            return;
+        }
+
+        File temp = new File(journalFile.getPath() + ".tmp");
+        int written = 0;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(temp, false), StandardCharsets.UTF_8))) {
+            for (String messageId : deletedIds) {
+                writer.write(RECORD_ADD);
+                writer.write(messageId);
+                writer.write('\n');
+                written++;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "❌ Error compacting deletion journal", e);
+            temp.delete();
+            return;
+        }
+
+        if (temp.renameTo(journalFile)) {
+            Log.d(TAG, "🧹 Compacted deletion journal from " + journalRecords + " to " + written + " records");
+            journalRecords = written;
+        } else {
+            Log.e(TAG, "❌ Could not replace deletion journal after compaction");
+            temp.delete();
+        }
+    }
+
+    private static File journalDir(Context context) {
+        return new File(context.getFilesDir(), JOURNAL_DIR);
+    }
+
+    private static String fileKey(String chatroomId) {
+        return chatroomId.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+}
@@ -2,6 +2,8 @@ package com.example.talkifyy.utils;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import java.util.HashSet;
@@ -10,7 +12,8 @@ import java.util.Set;
 /**
  * Utility class for managing local deletions (messages and chats)
  * that only affect the current user's device without syncing to other users.
- * Uses SharedPreferences for reliable, immediate storage operations.
+ * Message deletions live in a per-chat in-memory index backed by an append-only
+ * journal (see LocalDeletionIndex); chat deletions use SharedPreferences.
  */
 public class LocalDeletionUtil {
     private static final String TAG = "LocalDeletionUtil";
@@ -19,8 +22,33 @@ public class LocalDeletionUtil {
     private static final String KEY_DELETED_CHATS = "deleted_chats";
     private static final String KEY_CHAT_DELETION_TIMESTAMPS = "chat_deletion_timestamps";
     
+    /**
+     * Told when a chat room's deletion index finished loading with messages in it,
+     * so rows bound before that can be bound again
+     */
+    public interface OnMessageDeletionsLoadedListener {
+        void onMessageDeletionsLoaded();
+    }
+    
     // Message deletion methods
     
+    /**
+     * Load a chat room's deletion index in the background before its messages are bound.
+     * Until it is loaded, every message reads as not deleted.
+     * @param context Application context
+     * @param chatroomId Chat room ID
+     * @param listener Called on the main thread if the loaded index holds deleted messages, or null
+     */
+    public static void preloadMessageDeletions(Context context, String chatroomId,
+                                               OnMessageDeletionsLoadedListener listener) {
+        if (listener == null) {
+            LocalDeletionIndex.preload(context, chatroomId, null);
+            return;
+        }
+        LocalDeletionIndex.preload(context, chatroomId,
+                () -> new Handler(Looper.getMainLooper()).post(listener::onMessageDeletionsLoaded));
+    }
+    
     /**
      * Mark a message as locally deleted for the current user
      * @param context Application context
@@ -29,17 +57,7 @@ public class LocalDeletionUtil {
      */
     public static void markMessageAsLocallyDeleted(Context context, String chatroomId, String messageId) {
         Log.d(TAG, "Marking message as locally deleted: " + messageId + " in chatroom: " + chatroomId);
-        
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        Set<String> deletedMessages = new HashSet<>(prefs.getStringSet(KEY_DELETED_MESSAGES + chatroomId, new HashSet<>()));
-        
-        deletedMessages.add(messageId);
-        
-        prefs.edit()
-                .putStringSet(KEY_DELETED_MESSAGES + chatroomId, deletedMessages)
-                .apply();
-        
-        Log.d(TAG, "Message marked as deleted locally: " + messageId);
+        LocalDeletionIndex.forChatroom(context, chatroomId).add(messageId);
     }
     
     /**
@@ -50,17 +68,7 @@ public class LocalDeletionUtil {
      */
     public static void markMessagesAsLocallyDeleted(Context context, String chatroomId, Set<String> messageIds) {
         Log.d(TAG, "Marking " + messageIds.size() + " messages as locally deleted in chatroom: " + chatroomId);
-        
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        Set<String> deletedMessages = new HashSet<>(prefs.getStringSet(KEY_DELETED_MESSAGES + chatroomId, new HashSet<>()));
-        
-        deletedMessages.addAll(messageIds);
-        
-        prefs.edit()
-                .putStringSet(KEY_DELETED_MESSAGES + chatroomId, deletedMessages)
-                .apply();
-        
-        Log.d(TAG, messageIds.size() + " messages marked as deleted locally");
+        LocalDeletionIndex.forChatroom(context, chatroomId).addAll(messageIds);
     }
     
     /**
@@ -71,26 +79,19 @@ public class LocalDeletionUtil {
      * @return true if message is locally deleted, false otherwise
      */
     public static boolean isMessageLocallyDeleted(Context context, String chatroomId, String messageId) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        Set<String> deletedMessages = prefs.getStringSet(KEY_DELETED_MESSAGES + chatroomId, new HashSet<>());
-        
-        boolean isDeleted = deletedMessages.contains(messageId);
-        if (isDeleted) {
-            Log.d(TAG, "Message is locally deleted: " + messageId);
-        }
-        
-        return isDeleted;
+        // Hot path (every chat row bind): in-memory probe, no disk access or allocation
+        return LocalDeletionIndex.forChatroom(context, chatroomId).contains(messageId);
     }
     
     /**
-     * Get all locally deleted message IDs for a specific chatroom
+     * Get all locally deleted message IDs for a specific chatroom.
+     * Waits for the chat room's index to load, so call it off the main thread.
      * @param context Application context
      * @param chatroomId Chat room ID
      * @return Set of deleted message IDs
      */
     public static Set<String> getLocallyDeletedMessages(Context context, String chatroomId) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        return new HashSet<>(prefs.getStringSet(KEY_DELETED_MESSAGES + chatroomId, new HashSet<>()));
+        return LocalDeletionIndex.forChatroom(context, chatroomId).loadedSnapshot();
     }
     
     /**
@@ -102,13 +103,7 @@ public class LocalDeletionUtil {
     public static void restoreLocallyDeletedMessage(Context context, String chatroomId, String messageId) {
         Log.d(TAG, "Restoring locally deleted message: " + messageId + " in chatroom: " + chatroomId);
         
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        Set<String> deletedMessages = new HashSet<>(prefs.getStringSet(KEY_DELETED_MESSAGES + chatroomId, new HashSet<>()));
-        
-        if (deletedMessages.remove(messageId)) {
-            prefs.edit()
-                    .putStringSet(KEY_DELETED_MESSAGES + chatroomId, deletedMessages)
-                    .apply();
+        if (LocalDeletionIndex.forChatroom(context, chatroomId).remove(messageId)) {
             Log.d(TAG, "Message restored from local deletion: " + messageId);
         }
     }
@@ -199,11 +194,7 @@ public class LocalDeletionUtil {
      */
     public static void clearLocallyDeletedMessages(Context context, String chatroomId) {
         Log.d(TAG, "Clearing all locally deleted messages for chatroom: " + chatroomId);
-        
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        prefs.edit()
-                .remove(KEY_DELETED_MESSAGES + chatroomId)
-                .apply();
+        LocalDeletionIndex.forChatroom(context, chatroomId).clear();
     }
     
     /**
@@ -215,19 +206,22 @@ public class LocalDeletionUtil {
         
         SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         prefs.edit().clear().apply();
+        LocalDeletionIndex.clearAll(context);
     }
     
     // Utility methods
     
     /**
-     * Get total count of locally deleted messages across all chats
+     * Get total count of locally deleted messages across all chats.
+     * Loads every chat room's index, so call it off the main thread.
      * @param context Application context
      * @return Total count of locally deleted messages
      */
     public static int getTotalLocallyDeletedMessagesCount(Context context) {
         SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        int totalCount = 0;
+        int totalCount = LocalDeletionIndex.totalCount(context);
         
+        // Chats not opened since the journal migration still live in SharedPreferences
         for (String key : prefs.getAll().keySet()) {
             if (key.startsWith(KEY_DELETED_MESSAGES)) {
                 Set<String> messages = prefs.getStringSet(key, new HashSet<>());
@@ -239,15 +233,14 @@ public class LocalDeletionUtil {
     }
     
     /**
-     * Get count of locally deleted messages for a specific chatroom
+     * Get count of locally deleted messages for a specific chatroom.
+     * Waits for the chat room's index to load, so call it off the main thread.
      * @param context Application context
      * @param chatroomId Chat room ID
      * @return Count of locally deleted messages in the chatroom
      */
     public static int getLocallyDeletedMessagesCount(Context context, String chatroomId) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        Set<String> deletedMessages = prefs.getStringSet(KEY_DELETED_MESSAGES + chatroomId, new HashSet<>());
-        return deletedMessages.size();
+        return LocalDeletionIndex.forChatroom(context, chatroomId).loadedSize();
     }
     
     /**
@@ -0,0 +1,566 @@
+package com.example.talkifyy.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.talkifyy.model.ChatMessageModel;
+import com.example.talkifyy.model.ImageMetadata;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local SQLite copy of chat messages, keyed by chatroom ID and message document ID.
+ * Rows are written through from the message listeners so a chat can paint its
+ * last messages immediately on open and still show history without a connection.
+ * Retention is bounded: each chat room keeps its newest MAX_MESSAGES_PER_CHATROOM rows
+ * (pruned on write and once per process on open), chat rooms with nothing newer than
+ * MAX_CHATROOM_AGE_MS are dropped, and rows the live window proves deleted are removed.
+ * All disk work runs on a single background thread; results are posted to the main thread.
+ */
+public class LocalMessageStore extends SQLiteOpenHelper {
+    private static final String TAG = "LocalMessageStore";
+    private static final String DB_NAME = "local_messages.db";
+    private static final int DB_VERSION = 3;
+    private static final int MAX_MESSAGES_PER_CHATROOM = 500;
+    private static final long MAX_CHATROOM_AGE_MS = 90L * 24 * 60 * 60 * 1000; // Newest message older than this: drop the chat
+
+    private static final String TABLE_MESSAGES = "messages";
+    private static final String COL_CHATROOM_ID = "chatroom_id";
+    private static final String COL_MESSAGE_ID = "message_id";
+    private static final String COL_TIMESTAMP = "timestamp_ms";
+    private static final String COL_SENDER_ID = "sender_id";
+    private static final String COL_MESSAGE = "message";
+    private static final String COL_MESSAGE_TYPE = "message_type";
+    private static final String COL_IMAGE_URL = "image_url";
+    private static final String COL_IMAGE_URLS = "image_urls";
+    private static final String COL_IMAGE_CAPTION = "image_caption";
+    private static final String COL_IMAGE_METADATA = "image_metadata";
+    private static final String COL_IMAGES_METADATA = "images_metadata";
+    private static final String COL_REACTIONS = "reactions";
+    private static final String COL_IS_EDITED = "is_edited";
+    private static final String COL_EDITED_TIMESTAMP = "edited_timestamp_ms";
+    private static final String COL_ORIGINAL_MESSAGE = "original_message";
+    private static final String COL_IS_UNSENT = "is_unsent";
+    private static final String COL_UNSENT_TIMESTAMP = "unsent_timestamp_ms";
+    private static final String COL_DELETED_FOR_EVERYONE = "deleted_for_everyone";
+    private static final String COL_DELETED_TIMESTAMP = "deleted_timestamp_ms";
+    private static final String COL_DELETED_BY = "deleted_by_user_id";
+
+    private static LocalMessageStore instance;
+
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public interface OnMessagesLoadedListener {
+        /**
+         * @param messages Cached messages, newest first, with messageId populated
+         */
+        void onMessagesLoaded(List<ChatMessageModel> messages);
+    }
+
+    public static synchronized LocalMessageStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new LocalMessageStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private LocalMessageStore(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+        diskExecutor.execute(this::pruneAll);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_MESSAGES + " ("
+                + COL_CHATROOM_ID + " TEXT NOT NULL, "
+                + COL_MESSAGE_ID + " TEXT NOT NULL, "
+                + COL_TIMESTAMP + " INTEGER NOT NULL, "
+                + COL_SENDER_ID + " TEXT, "
+                + COL_MESSAGE + " TEXT, "
+                + COL_MESSAGE_TYPE + " TEXT, "
+                + COL_IMAGE_URL + " TEXT, "
+                + COL_IMAGE_URLS + " TEXT, "
+                + COL_IMAGE_CAPTION + " TEXT, "
+                + COL_IMAGE_METADATA + " TEXT, "
+                + COL_IMAGES_METADATA + " TEXT, "
+                + COL_REACTIONS + " TEXT, "
+                + COL_IS_EDITED + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_EDITED_TIMESTAMP + " INTEGER, "
+                + COL_ORIGINAL_MESSAGE + " TEXT, "
+                + COL_IS_UNSENT + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_UNSENT_TIMESTAMP + " INTEGER, "
+                + COL_DELETED_FOR_EVERYONE + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_DELETED_TIMESTAMP + " INTEGER, "
+                + COL_DELETED_BY + " TEXT, "
+                + "PRIMARY KEY (" + COL_CHATROOM_ID + ", " + COL_MESSAGE_ID + "))");
+        db.execSQL("CREATE INDEX idx_messages_chat_time ON " + TABLE_MESSAGES
+                + " (" + COL_CHATROOM_ID + ", " + COL_TIMESTAMP + " DESC)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Cache only - the server copy is the source of truth
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_MESSAGES);
+        onCreate(db);
+    }
+
+    // Write-through
+
+    /**
+     * Upsert message snapshots received from Firestore
+     * @param chatroomId Chat room ID the messages belong to
+     * @param snapshots Message document snapshots
+     */
+    public void saveSnapshotsAsync(String chatroomId, List<DocumentSnapshot> snapshots) {
+        if (chatroomId == null || snapshots == null || snapshots.isEmpty()) {
+            return;
+        }
+        final List<DocumentSnapshot> batch = new ArrayList<>(snapshots);
+        diskExecutor.execute(() -> {
+            List<ChatMessageModel> models = new ArrayList<>(batch.size());
+            for (DocumentSnapshot snapshot : batch) {
+                try {
+                    ChatMessageModel model = snapshot.toObject(ChatMessageModel.class);
+                    if (model != null) {
+                        model.setMessageId(snapshot.getId());
+                        models.add(model);
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, "❌ Failed to parse message for local store: " + snapshot.getId(), e);
+                }
+            }
+            saveMessages(chatroomId, models);
+        });
+    }
+
+    /**
+     * Upsert messages synchronously. Must not be called on the main thread.
+     * @param chatroomId Chat room ID the messages belong to
+     * @param messages Messages with messageId populated
+     */
+    public void saveMessages(String chatroomId, List<ChatMessageModel> messages) {
+        SQLiteDatabase db;
+        try {
+            db = getWritableDatabase();
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Unable to open local message store", e);
+            return;
+        }
+
+        db.beginTransaction();
+        try {
+            for (ChatMessageModel message : messages) {
+                if (message.getMessageId() == null || message.getTimestamp() == null) {
+                    continue;
+                }
+                db.insertWithOnConflict(TABLE_MESSAGES, null, toContentValues(chatroomId, message),
+                        SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            pruneChatroom(db, chatroomId);
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Error writing messages to local store", e);
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Remove messages that were deleted on the server
+     * @param chatroomId Chat room ID
+     * @param messageIds Message document IDs to remove
+     */
+    public void deleteMessagesAsync(String chatroomId, List<String> messageIds) {
+        if (chatroomId == null || messageIds == null || messageIds.isEmpty()) {
+            return;
+        }
+        final List<String> ids = new ArrayList<>(messageIds);
+        diskExecutor.execute(() -> {
+            try {
+                SQLiteDatabase db = getWritableDatabase();
+                db.beginTransaction();
+                try {
+                    for (String id : ids) {
+                        db.delete(TABLE_MESSAGES, COL_CHATROOM_ID + "=? AND " + COL_MESSAGE_ID + "=?",
+                                new String[]{chatroomId, id});
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Error deleting messages from local store", e);
+            }
+        });
+    }
+
+    /**
+     * Remove cached rows the server's live window proves deleted: everything newer than the
+     * window's oldest message that isn't in the window. Pass a snapshot from the server only.
+     * @param chatroomId Chat room ID
+     * @param windowIds IDs of the messages in the live window
+     * @param oldestTimestampMs Time of the window's oldest message, or 0 if the window holds
+     *                          the whole chat (fewer messages than its limit)
+     */
+    public void reconcileLiveWindowAsync(String chatroomId, List<String> windowIds, long oldestTimestampMs) {
+        if (chatroomId == null || windowIds == null) {
+            return;
+        }
+        final List<String> ids = new ArrayList<>(windowIds);
+        diskExecutor.execute(() -> {
+            try {
+                // Equal times can sort either side of the window's tail, so only strictly newer rows
+                StringBuilder where = new StringBuilder(COL_CHATROOM_ID + "=? AND " + COL_TIMESTAMP + ">?");
+                List<String> args = new ArrayList<>();
+                args.add(chatroomId);
+                args.add(String.valueOf(oldestTimestampMs > 0 ? oldestTimestampMs : -1));
+                if (!ids.isEmpty()) {
+                    where.append(" AND ").append(COL_MESSAGE_ID).append(" NOT IN (");
+                    for (int i = 0; i < ids.size(); i++) {
+                        where.append(i == 0 ? "?" : ",?");
+                        args.add(ids.get(i));
+                    }
+                    where.append(")");
+                }
+                int removed = getWritableDatabase().delete(TABLE_MESSAGES, where.toString(), args.toArray(new String[0]));
+                if (removed > 0) {
+                    Log.d(TAG, "🧹 Removed " + removed + " cached messages deleted on the server in chatroom: " + chatroomId);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Error reconciling cached messages", e);
+            }
+        });
+    }
+
+    /**
+     * Drop every cached message of a chat room (after clear history / delete chat)
+     * @param chatroomId Chat room ID
+     */
+    public void clearChatroomAsync(String chatroomId) {
+        if (chatroomId == null) {
+            return;
+        }
+        diskExecutor.execute(() -> {
+            try {
+                int removed = getWritableDatabase().delete(TABLE_MESSAGES, COL_CHATROOM_ID + "=?",
+                        new String[]{chatroomId});
+                Log.d(TAG, "🗑️ Cleared " + removed + " cached messages for chatroom: " + chatroomId);
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Error clearing cached messages", e);
+            }
+        });
+    }
+
+    // Retention (disk executor)
+
+    /**
+     * Keep only the newest MAX_MESSAGES_PER_CHATROOM rows of a chat room
+     */
+    private static void pruneChatroom(SQLiteDatabase db, String chatroomId) {
+        db.execSQL("DELETE FROM " + TABLE_MESSAGES + " WHERE rowid IN (SELECT rowid FROM " + TABLE_MESSAGES
+                        + " WHERE " + COL_CHATROOM_ID + "=? ORDER BY " + COL_TIMESTAMP + " DESC, " + COL_MESSAGE_ID
+                        + " DESC LIMIT -1 OFFSET " + MAX_MESSAGES_PER_CHATROOM + ")",
+                new Object[]{chatroomId});
+    }
+
+    /**
+     * Drop chat rooms not active within MAX_CHATROOM_AGE_MS and cap the rest
+     */
+    private void pruneAll() {
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            long cutoff = System.currentTimeMillis() - MAX_CHATROOM_AGE_MS;
+            db.beginTransaction();
+            try {
+                int stale = db.delete(TABLE_MESSAGES, COL_CHATROOM_ID + " IN (SELECT " + COL_CHATROOM_ID
+                                + " FROM " + TABLE_MESSAGES + " GROUP BY " + COL_CHATROOM_ID
+                                + " HAVING MAX(" + COL_TIMESTAMP + ") < ?)",
+                        new String[]{String.valueOf(cutoff)});
+                List<String> chatroomIds = new ArrayList<>();
+                try (Cursor cursor = db.query(TABLE_MESSAGES, new String[]{COL_CHATROOM_ID}, null, null,
+                        COL_CHATROOM_ID, "COUNT(*) > " + MAX_MESSAGES_PER_CHATROOM, null)) {
+                    while (cursor.moveToNext()) {
+                        chatroomIds.add(cursor.getString(0));
+                    }
+                }
+                for (String chatroomId : chatroomIds) {
+                    pruneChatroom(db, chatroomId);
+                }
+                db.setTransactionSuccessful();
+                Log.d(TAG, "🧹 Pruned local store: " + stale + " stale rows, " + chatroomIds.size() + " chatrooms capped");
+            } finally {
+                db.endTransaction();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Error pruning local message store", e);
+        }
+    }
+
+    // Reads
+
+    /**
+     * Load the newest cached messages of a chat room off the main thread
+     * @param chatroomId Chat room ID
+     * @param limit Maximum number of messages
+     * @param listener Called on the main thread with messages newest first
+     */
+    public void loadLatestMessages(String chatroomId, int limit, OnMessagesLoadedListener listener) {
+        diskExecutor.execute(() -> {
+            List<ChatMessageModel> messages = queryMessages(chatroomId, Long.MAX_VALUE, limit);
+            mainHandler.post(() -> listener.onMessagesLoaded(messages));
+        });
+    }
+
+    /**
+     * Query cached messages older than a timestamp. Must not be called on the main thread.
+     * @param chatroomId Chat room ID
+     * @param beforeTimestampMs Exclusive upper bound on message time
+     * @param limit Maximum number of messages
+     * @return messages newest first
+     */
+    public List<ChatMessageModel> queryMessages(String chatroomId, long beforeTimestampMs, int limit) {
+        List<ChatMessageModel> messages = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE_MESSAGES, null,
+                COL_CHATROOM_ID + "=? AND " + COL_TIMESTAMP + "<?",
+                new String[]{chatroomId, String.valueOf(beforeTimestampMs)},
+                null, null,
+                COL_TIMESTAMP + " DESC, " + COL_MESSAGE_ID + " DESC",
+                String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                messages.add(fromCursor(cursor));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Error reading cached messages for chatroom: " + chatroomId, e);
+        }
+        return messages;
+    }
+
+    // Row mapping
+
+    private static ContentValues toContentValues(String chatroomId, ChatMessageModel message) {
+        ContentValues values = new ContentValues();
+        values.put(COL_CHATROOM_ID, chatroomId);
+        values.put(COL_MESSAGE_ID, message.getMessageId());
+        values.put(COL_TIMESTAMP, toMillis(message.getTimestamp()));
+        values.put(COL_SENDER_ID, message.getSenderId());
+        values.put(COL_MESSAGE, message.getMessage());
+        values.put(COL_MESSAGE_TYPE, message.getMessageType());
+        values.put(COL_IMAGE_URL, message.getImageUrl());
+        values.put(COL_IMAGE_URLS, message.getImageUrls() != null ? new JSONArray(message.getImageUrls()).toString() : null);
+        values.put(COL_IMAGE_CAPTION, message.getImageCaption());
+        values.put(COL_IMAGE_METADATA, metadataToJson(message.getImageMetadata()));
+        values.put(COL_IMAGES_METADATA, metadataListToJson(message.getImagesMetadata()));
+        values.put(COL_REACTIONS, reactionsToJson(message.getReactions()));
+        values.put(COL_IS_EDITED, message.isEdited() ? 1 : 0);
+        values.put(COL_EDITED_TIMESTAMP, toMillisOrNull(message.getEditedTimestamp()));
+        values.put(COL_ORIGINAL_MESSAGE, message.getOriginalMessage());
+        values.put(COL_IS_UNSENT, message.isUnsent() ? 1 : 0);
+        values.put(COL_UNSENT_TIMESTAMP, toMillisOrNull(message.getUnsentTimestamp()));
+        values.put(COL_DELETED_FOR_EVERYONE, message.isDeletedForEveryone() ? 1 : 0);
+        values.put(COL_DELETED_TIMESTAMP, toMillisOrNull(message.getDeletedForEveryoneTimestamp()));
+        values.put(COL_DELETED_BY, message.getDeletedByUserId());
+        return values;
+    }
+
+    private static ChatMessageModel fromCursor(Cursor cursor) {
+        ChatMessageModel message = new ChatMessageModel();
+        message.setMessageId(getString(cursor, COL_MESSAGE_ID));
+        message.setTimestamp(toTimestamp(getLong(cursor, COL_TIMESTAMP)));
+        message.setSenderId(getString(cursor, COL_SENDER_ID));
+        message.setMessage(getString(cursor, COL_MESSAGE));
+        String messageType = getString(cursor, COL_MESSAGE_TYPE);
+        if (messageType != null) {
+            message.setMessageType(messageType);
+        }
+        message.setImageUrl(getString(cursor, COL_IMAGE_URL));
+        message.setImageUrls(jsonToList(getString(cursor, COL_IMAGE_URLS)));
+        message.setImageCaption(getString(cursor, COL_IMAGE_CAPTION));
+        message.setImageMetadata(jsonToMetadata(getString(cursor, COL_IMAGE_METADATA)));
+        message.setImagesMetadata(jsonToMetadataList(getString(cursor, COL_IMAGES_METADATA)));
+        message.setReactions(jsonToReactions(getString(cursor, COL_REACTIONS)));
+        message.setEdited(getLong(cursor, COL_IS_EDITED) == 1);
+        message.setEditedTimestamp(toTimestamp(getLong(cursor, COL_EDITED_TIMESTAMP)));
+        message.setOriginalMessage(getString(cursor, COL_ORIGINAL_MESSAGE));
+        message.setUnsent(getLong(cursor, COL_IS_UNSENT) == 1);
+        message.setUnsentTimestamp(toTimestamp(getLong(cursor, COL_UNSENT_TIMESTAMP)));
+        message.setDeletedForEveryone(getLong(cursor, COL_DELETED_FOR_EVERYONE) == 1);
+        message.setDeletedForEveryoneTimestamp(toTimestamp(getLong(cursor, COL_DELETED_TIMESTAMP)));
+        message.setDeletedByUserId(getString(cursor, COL_DELETED_BY));
+        return message;
+    }
+
+    private static String getString(Cursor cursor, String column) {
+        int index = cursor.getColumnIndex(column);
+        return index >= 0 && !cursor.isNull(index) ? cursor.getString(index) : null;
+    }
+
+    private static long getLong(Cursor cursor, String column) {
+        int index = cursor.getColumnIndex(column);
+        return index >= 0 && !cursor.isNull(index) ? cursor.getLong(index) : 0;
+    }
+
+    private static long toMillis(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toDate().getTime() : 0;
+    }
+
+    private static Long toMillisOrNull(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toDate().getTime() : null;
+    }
+
+    private static Timestamp toTimestamp(long millis) {
+        return millis > 0 ? new Timestamp(new java.util.Date(millis)) : null;
+    }
+
+    private static String reactionsToJson(Map<String, List<String>> reactions) {
+        if (reactions == null || reactions.isEmpty()) {
+            return null;
+        }
+        JSONObject json = new JSONObject();
+        try {
+            for (Map.Entry<String, List<String>> entry : reactions.entrySet()) {
+                if (entry.getValue() != null) {
+                    json.put(entry.getKey(), new JSONArray(entry.getValue()));
+                }
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "❌ Error encoding reactions", e);
+        }
+        return json.toString();
+    }
+
+    private static Map<String, List<String>> jsonToReactions(String value) {
+        Map<String, List<String>> reactions = new HashMap<>();
+        if (value == null) {
+            return reactions;
+        }
+        try {
+            JSONObject json = new JSONObject(value);
+            Iterator<String> keys = json.keys();
+            while (keys.hasNext()) {
+                String emoji = keys.next();
+                reactions.put(emoji, jsonToList(json.getJSONArray(emoji).toString()));
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "❌ Error decoding reactions", e);
+        }
+        return reactions;
+    }
+
+    private static List<String> jsonToList(String value) {
+        if (value == null) {
+            return null;
+        }
+        List<String> list = new ArrayList<>();
+        try {
+            JSONArray array = new JSONArray(value);
+            for (int i = 0; i < array.length(); i++) {
+                list.add(array.getString(i));
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "❌ Error decoding list", e);
+        }
+        return list;
+    }
+
+    static String metadataToJson(ImageMetadata metadata) {
+        if (metadata == null) {
+            return null;
+        }
+        JSONObject json = new JSONObject();
+        try {
+            json.put("width", metadata.getWidth());
+            json.put("height", metadata.getHeight());
+            json.put("fileSize", metadata.getFileSize());
+            json.put("fileName", metadata.getFileName());
+            json.put("mimeType", metadata.getMimeType());
+            json.put("uploadTimestamp", metadata.getUploadTimestamp());
+            json.put("format", metadata.getFormat());
+            json.put("quality", metadata.getQuality());
+            json.put("storagePath", metadata.getStoragePath());
+            json.put("mediumUrl", metadata.getMediumUrl());
+            json.put("mediumPath", metadata.getMediumPath());
+            json.put("thumbnailUrl", metadata.getThumbnailUrl());
+            json.put("thumbnailPath", metadata.getThumbnailPath());
+            json.put("blurHash", metadata.getBlurHash());
+            json.put("dominantColor", metadata.getDominantColor());
+        } catch (JSONException e) {
+            Log.e(TAG, "❌ Error encoding image metadata", e);
+        }
+        return json.toString();
+    }
+
+    private static String metadataListToJson(List<ImageMetadata> metadataList) {
+        if (metadataList == null) {
+            return null;
+        }
+        JSONArray array = new JSONArray();
+        for (ImageMetadata metadata : metadataList) {
+            array.put(metadata != null ? metadataToJson(metadata) : JSONObject.NULL);
+        }
+        return array.toString();
+    }
+
+    private static List<ImageMetadata> jsonToMetadataList(String value) {
+        if (value == null) {
+            return null;
+        }
+        List<ImageMetadata> list = new ArrayList<>();
+        try {
+            JSONArray array = new JSONArray(value);
+            for (int i = 0; i < array.length(); i++) {
+                list.add(array.isNull(i) ? null : jsonToMetadata(array.getString(i)));
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "❌ Error decoding image metadata list", e);
+        }
+        return list;
+    }
+
+    static ImageMetadata jsonToMetadata(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            JSONObject json = new JSONObject(value);
+            ImageMetadata metadata = new ImageMetadata();
+            metadata.setWidth(json.optInt("width"));
+            metadata.setHeight(json.optInt("height"));
+            metadata.setFileSize(json.optLong("fileSize"));
+            metadata.setFileName(json.optString("fileName", null));
+            metadata.setMimeType(json.optString("mimeType", null));
+            metadata.setUploadTimestamp(json.optLong("uploadTimestamp"));
+            metadata.setFormat(json.optString("format", null));
+            metadata.setQuality(json.optInt("quality"));
+            metadata.setStoragePath(json.optString("storagePath", null));
+            metadata.setMediumUrl(json.optString("mediumUrl", null));
+            metadata.setMediumPath(json.optString("mediumPath", null));
+            metadata.setThumbnailUrl(json.optString("thumbnailUrl", null));
+            metadata.setThumbnailPath(json.optString("thumbnailPath", null));
+            metadata.setBlurHash(json.optString("blurHash", null));
+            metadata.setDominantColor(json.optInt("dominantColor"));
+            return metadata;
+        } catch (JSONException e) {
+            Log.e(TAG, "❌ Error decoding image metadata", e);
+            return null;
+        }
+    }
+}
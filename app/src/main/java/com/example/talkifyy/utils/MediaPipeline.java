@@ -0,0 +1,204 @@
+package com.example.talkifyy.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background executor for image decoding, scaling and encoding.
+ * - pool sized to the device's cores, with a bounded queue
+ * - every submission returns a Job that can be cancelled
+ * - results are posted back to the main thread (dropped if the job was cancelled or detached)
+ */
+public class MediaPipeline {
+    private static final String TAG = "MediaPipeline";
+
+    private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+    // Leave a core for the UI thread; bitmaps are large so don't go wider than 4
+    public static final int POOL_SIZE = Math.max(1, Math.min(CPU_COUNT - 1, 4));
+    private static final int MAX_QUEUED_JOBS = 64;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static MediaPipeline instance;
+
+    public interface Work<T> {
+        /**
+         * Runs on a pipeline thread. Long steps should check job.isCancelled() and bail out.
+         */
+        T run(Job job) throws Exception;
+    }
+
+    public interface Callback<T> {
+        void onSuccess(T result);
+        void onFailure(Exception e);
+    }
+
+    /**
+     * Handle to one submitted piece of work (and anything chained after it, e.g. an upload)
+     */
+    public static class Job {
+        private volatile boolean cancelled = false;
+        private volatile Future<?> future;
+        private volatile Runnable onCancel;
+        private volatile boolean detached = false;
+        private volatile Runnable onDetach;
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public boolean isDetached() {
+            return detached;
+        }
+
+        /**
+         * Cancel the job. Pending work is skipped, running work is interrupted,
+         * and the callback is never invoked.
+         */
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            Future<?> f = future;
+            if (f != null) {
+                f.cancel(true);
+            }
+            Runnable hook = onCancel;
+            if (hook != null) {
+                hook.run();
+            }
+        }
+
+        /**
+         * Register what to undo when cancelled after the background step (e.g. cancel an UploadTask)
+         */
+        public void setOnCancel(Runnable hook) {
+            onCancel = hook;
+            if (cancelled && hook != null) {
+                hook.run();
+            }
+        }
+
+        /**
+         * Let the work run to completion but stop delivering callbacks, e.g. when the screen
+         * that started it goes away and the result should still be used.
+         */
+        public void detach() {
+            if (cancelled || detached) {
+                return;
+            }
+            detached = true;
+            Runnable hook = onDetach;
+            if (hook != null) {
+                hook.run();
+            }
+        }
+
+        /**
+         * Register what to hand off when detached after the background step (e.g. an upload's listener)
+         */
+        public void setOnDetach(Runnable hook) {
+            onDetach = hook;
+            if (detached && hook != null) {
+                hook.run();
+            }
+        }
+
+        /**
+         * Throw if cancelled - convenience for checkpoints inside Work.run
+         */
+        public void throwIfCancelled() {
+            if (cancelled || Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Media job cancelled");
+            }
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public static synchronized MediaPipeline getInstance() {
+        if (instance == null) {
+            instance = new MediaPipeline();
+        }
+        return instance;
+    }
+
+    private MediaPipeline() {
+        executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(MAX_QUEUED_JOBS), new MediaThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+        Log.d(TAG, "Media pipeline started with " + POOL_SIZE + " threads");
+    }
+
+    /**
+     * Run work off the main thread and deliver the result on the main thread
+     * @param work Background work
+     * @param callback Result callback (main thread), skipped if the job is cancelled
+     * @return handle for cancelling the job
+     */
+    public <T> Job submit(Work<T> work, Callback<T> callback) {
+        Job job = new Job();
+        try {
+            job.future = executor.submit(() -> {
+                if (job.isCancelled()) {
+                    return;
+                }
+                try {
+                    T result = work.run(job);
+                    postResult(job, () -> callback.onSuccess(result));
+                } catch (CancellationException e) {
+                    Log.d(TAG, "Media job cancelled");
+                } catch (Exception e) {
+                    if (!job.isCancelled()) {
+                        Log.e(TAG, "❌ Media job failed", e);
+                    }
+                    postResult(job, () -> callback.onFailure(e));
+                } catch (OutOfMemoryError e) {
+                    Log.e(TAG, "❌ Out of memory processing media", e);
+                    postResult(job, () -> callback.onFailure(new Exception("Image too large to process", e)));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "❌ Media pipeline queue full, rejecting job", e);
+            postResult(job, () -> callback.onFailure(new Exception("Too many images queued. Please try again.", e)));
+        }
+        return job;
+    }
+
+    /**
+     * Post to the main thread unless the job has been cancelled or detached by then
+     */
+    public void postResult(Job job, Runnable result) {
+        mainHandler.post(() -> {
+            if (!job.isCancelled() && !job.isDetached()) {
+                result.run();
+            }
+        });
+    }
+
+    private static class MediaThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "media-pipeline-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package com.example.talkifyy.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.talkifyy.model.ChatMessageModel;
+import com.example.talkifyy.model.ChatroomModel;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Durable outbox for outgoing text messages.
+ * - Each message gets its document ID on the client, so the local echo, the journal row and
+ *   the server document are the same message and a resend can never duplicate it
+ * - The write (message plus the chatroom's last-message fields, one batch) is issued at once;
+ *   Firestore's latency compensation puts it in the live chat list on the next snapshot,
+ *   before the server has seen it
+ * - The message is journaled until the server acknowledges it, so it survives process death;
+ *   resumePending() re-checks journaled messages against the server and the local cache,
+ *   waits for writes the cache still holds and resends only what's missing from both
+ * - Rejected writes are retried in send order with exponential backoff; permanent rejections
+ *   are reported to the chat's DeliveryListener
+ * - Recipients are notified here once the server has the message, whether or not the chat
+ *   is still open; DeliveryListeners only update the chat screen
+ * Public methods are called on the main thread; listeners are called on the main thread.
+ */
+public class MessageOutbox extends SQLiteOpenHelper {
+    private static final String TAG = "MessageOutbox";
+    private static final String DB_NAME = "message_outbox.db";
+    private static final int DB_VERSION = 1;
+    private static final long BASE_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 60 * 1000;
+
+    private static final String TABLE_OUTBOX = "outbox";
+    private static final String COL_SEQ = "seq";
+    private static final String COL_CLIENT_ID = "client_id";
+    private static final String COL_CHATROOM_ID = "chatroom_id";
+    private static final String COL_SENDER_ID = "sender_id";
+    private static final String COL_MESSAGE = "message";
+    private static final String COL_TIMESTAMP = "timestamp_ms";
+    private static final String COL_ATTEMPTS = "attempts";
+
+    private static MessageOutbox instance;
+
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Undelivered messages by client ID, in send order (main thread only)
+    private final Map<String, Entry> pending = new LinkedHashMap<>();
+    private final Map<String, DeliveryListener> listeners = new HashMap<>();
+
+    public interface DeliveryListener {
+        /** The server has the message (recipients are notified by the outbox) */
+        void onDelivered(String clientId, String message);
+        /** The server rejected the message for good; it's no longer in the outbox */
+        void onFailed(String clientId, String message, Exception e);
+    }
+
+    /**
+     * One outgoing message
+     */
+    static class Entry {
+        String clientId;
+        String chatroomId;
+        String senderId;
+        String message;
+        long timestampMs;
+        int attempts;
+        boolean inFlight;
+        ListenerRegistration pendingWriteWatch; // Waiting on a write queued by an earlier process
+
+        ChatMessageModel toModel() {
+            return new ChatMessageModel(message, senderId, toTimestamp(timestampMs), clientId);
+        }
+    }
+
+    public static synchronized MessageOutbox getInstance(Context context) {
+        if (instance == null) {
+            instance = new MessageOutbox(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private MessageOutbox(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_OUTBOX + " ("
+                + COL_SEQ + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COL_CLIENT_ID + " TEXT NOT NULL UNIQUE, "
+                + COL_CHATROOM_ID + " TEXT NOT NULL, "
+                + COL_SENDER_ID + " TEXT NOT NULL, "
+                + COL_MESSAGE + " TEXT NOT NULL, "
+                + COL_TIMESTAMP + " INTEGER NOT NULL, "
+                + COL_ATTEMPTS + " INTEGER NOT NULL DEFAULT 0)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_OUTBOX);
+        onCreate(db);
+    }
+
+    /**
+     * Queue a text message and start delivering it
+     * @param chatroomId Chat room to send to
+     * @param message Message text
+     * @return Client-generated message ID (the Firestore document ID), or null if signed out
+     */
+    public String send(String chatroomId, String message) {
+        String senderId = FirebaseUtil.currentUserId();
+        if (senderId == null) {
+            Log.e(TAG, "❌ Not signed in, cannot send message");
+            return null;
+        }
+        Entry entry = new Entry();
+        entry.clientId = FirebaseUtil.getChatroomMessageReference(chatroomId).document().getId();
+        entry.chatroomId = chatroomId;
+        entry.senderId = senderId;
+        entry.message = message;
+        entry.timestampMs = System.currentTimeMillis();
+        pending.put(entry.clientId, entry);
+
+        diskExecutor.execute(() -> insert(entry));
+        deliver(entry);
+        Log.d(TAG, "📮 Queued message " + entry.clientId + " for chatroom: " + chatroomId);
+        return entry.clientId;
+    }
+
+    /**
+     * Whether a message was sent from this device and the server hasn't acknowledged it yet
+     */
+    public boolean isPending(String clientId) {
+        return clientId != null && pending.containsKey(clientId);
+    }
+
+    /**
+     * Register who hears about deliveries in a chat (replaces any previous listener)
+     */
+    public void setDeliveryListener(String chatroomId, DeliveryListener listener) {
+        listeners.put(chatroomId, listener);
+    }
+
+    public void removeDeliveryListener(String chatroomId, DeliveryListener listener) {
+        listeners.remove(chatroomId, listener);
+    }
+
+    /**
+     * Pick up messages journaled by an earlier process. Each one is checked against the
+     * server first: if the document is there it was delivered and only the journal row goes.
+     */
+    public void resumePending() {
+        diskExecutor.execute(() -> {
+            List<Entry> journaled = loadAll();
+            if (journaled.isEmpty()) {
+                return;
+            }
+            mainHandler.post(() -> {
+                for (Entry entry : journaled) {
+                    if (pending.containsKey(entry.clientId)) {
+                        continue; // Sent by this process, already being delivered
+                    }
+                    Log.d(TAG, "♻️ Resuming journaled message " + entry.clientId);
+                    pending.put(entry.clientId, entry);
+                    reconcile(entry);
+                }
+            });
+        });
+    }
+
+    private void reconcile(Entry entry) {
+        DocumentReference ref = FirebaseUtil.getChatroomMessageReference(entry.chatroomId).document(entry.clientId);
+        ref.get().addOnCompleteListener(task -> {
+            DocumentSnapshot snapshot = task.isSuccessful() ? task.getResult() : null;
+            if (snapshot != null && snapshot.exists()) {
+                if (snapshot.getMetadata().hasPendingWrites()) {
+                    // Only in the local cache: Firestore kept the earlier process's batch and
+                    // will send it, so a resend would queue a second one
+                    awaitPendingWrite(entry, ref);
+                } else {
+                    onDelivered(entry);
+                }
+            } else {
+                // Missing from the server, or offline and missing from the cache
+                deliver(entry);
+            }
+        });
+    }
+
+    /**
+     * Wait for the server to acknowledge a write the local cache already holds
+     */
+    private void awaitPendingWrite(Entry entry, DocumentReference ref) {
+        Log.d(TAG, "⏳ Waiting for queued write of message " + entry.clientId);
+        entry.inFlight = true;
+        entry.pendingWriteWatch = ref.addSnapshotListener(MetadataChanges.INCLUDE, (snapshot, e) -> {
+            if (e == null && snapshot != null && snapshot.exists() && snapshot.getMetadata().hasPendingWrites()) {
+                return; // Still waiting
+            }
+            stopWatching(entry);
+            if (e == null && snapshot != null && snapshot.exists()) {
+                onDelivered(entry);
+            } else {
+                // The queued write was rejected and rolled back, or the listen failed:
+                // resend, which reports a permanent rejection like any other send
+                deliver(entry);
+            }
+        });
+    }
+
+    private static void stopWatching(Entry entry) {
+        if (entry.pendingWriteWatch != null) {
+            entry.pendingWriteWatch.remove();
+            entry.pendingWriteWatch = null;
+        }
+    }
+
+    private void deliver(Entry entry) {
+        entry.inFlight = true;
+        DocumentReference ref = FirebaseUtil.getChatroomMessageReference(entry.chatroomId).document(entry.clientId);
+        FirebaseUtil.sendMessage(entry.chatroomId, ref, entry.toModel())
+                .addOnSuccessListener(aVoid -> onDelivered(entry))
+                .addOnFailureListener(e -> onDeliveryFailed(entry, e));
+    }
+
+    private void onDelivered(Entry entry) {
+        entry.inFlight = false;
+        if (pending.remove(entry.clientId) == null) {
+            return;
+        }
+        diskExecutor.execute(() -> delete(entry.clientId));
+        Log.d(TAG, "✅ Message delivered: " + entry.clientId);
+        notifyRecipients(entry);
+        DeliveryListener listener = listeners.get(entry.chatroomId);
+        if (listener != null) {
+            listener.onDelivered(entry.clientId, entry.message);
+        }
+    }
+
+    /**
+     * Push the delivered message to the chat's other members. Reads the chatroom (members,
+     * group name) and the sender's name itself, so it works with no chat screen open.
+     */
+    private void notifyRecipients(Entry entry) {
+        FirebaseUtil.getChatroomReference(entry.chatroomId).get().addOnCompleteListener(task -> {
+            ChatroomModel chatroom = task.isSuccessful() && task.getResult() != null
+                    ? task.getResult().toObject(ChatroomModel.class) : null;
+            if (chatroom == null || chatroom.getUserIds() == null) {
+                Log.e(TAG, "❌ Cannot notify recipients - chatroom not loaded: " + entry.chatroomId, task.getException());
+                return;
+            }
+            List<String> recipients = new ArrayList<>();
+            for (String userId : chatroom.getUserIds()) {
+                if (userId != null && !userId.equals(entry.senderId)) {
+                    recipients.add(userId);
+                }
+            }
+            if (recipients.isEmpty()) {
+                return;
+            }
+            UserDirectory.getInstance().getUser(entry.senderId, sender -> {
+                String senderName = sender != null && sender.getUsername() != null ? sender.getUsername() : "Someone";
+                if (chatroom.isGroup()) {
+                    String groupTitle = chatroom.getGroupName() != null ? chatroom.getGroupName() : "Group Chat";
+                    NotificationDispatcher.getInstance().dispatchGroup(
+                            entry.chatroomId, recipients, groupTitle, senderName, entry.message);
+                } else {
+                    NotificationDispatcher.getInstance().dispatchDirect(
+                            entry.chatroomId, recipients.get(0), senderName, entry.message);
+                }
+            });
+        });
+    }
+
+    private void onDeliveryFailed(Entry entry, Exception e) {
+        entry.inFlight = false;
+        if (!pending.containsKey(entry.clientId)) {
+            return;
+        }
+        if (isPermanent(e)) {
+            Log.e(TAG, "❌ Message rejected, dropping from outbox: " + entry.clientId, e);
+            pending.remove(entry.clientId);
+            diskExecutor.execute(() -> delete(entry.clientId));
+            DeliveryListener listener = listeners.get(entry.chatroomId);
+            if (listener != null) {
+                listener.onFailed(entry.clientId, entry.message, e);
+            }
+            return;
+        }
+
+        entry.attempts++;
+        int attempts = entry.attempts;
+        diskExecutor.execute(() -> updateAttempts(entry.clientId, attempts));
+        long delayMs = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempts - 1, 16));
+        Log.w(TAG, "⚠️ Message " + entry.clientId + " failed (attempt " + attempts + "), retrying in " + delayMs + "ms", e);
+        scheduleRetry(entry.chatroomId, delayMs);
+    }
+
+    /**
+     * Resend every waiting message of a chat, oldest first, once the backoff has passed
+     */
+    private void scheduleRetry(String chatroomId, long delayMs) {
+        mainHandler.postDelayed(() -> {
+            for (Entry entry : new ArrayList<>(pending.values())) {
+                if (entry.chatroomId.equals(chatroomId) && entry.attempts > 0 && !entry.inFlight) {
+                    deliver(entry);
+                }
+            }
+        }, delayMs);
+    }
+
+    private static boolean isPermanent(Exception e) {
+        if (!(e instanceof FirebaseFirestoreException)) {
+            return false;
+        }
+        switch (((FirebaseFirestoreException) e).getCode()) {
+            case NOT_FOUND: // Chatroom was deleted
+            case PERMISSION_DENIED:
+            case INVALID_ARGUMENT:
+            case FAILED_PRECONDITION:
+            case UNAUTHENTICATED:
+            case OUT_OF_RANGE:
+            case UNIMPLEMENTED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Journal (disk executor)
+
+    private void insert(Entry entry) {
+        ContentValues values = new ContentValues();
+        values.put(COL_CLIENT_ID, entry.clientId);
+        values.put(COL_CHATROOM_ID, entry.chatroomId);
+        values.put(COL_SENDER_ID, entry.senderId);
+        values.put(COL_MESSAGE, entry.message);
+        values.put(COL_TIMESTAMP, entry.timestampMs);
+        values.put(COL_ATTEMPTS, entry.attempts);
+        try {
+            getWritableDatabase().insertWithOnConflict(TABLE_OUTBOX, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Error journaling outgoing message", e);
+        }
+    }
+
+    private void updateAttempts(String clientId, int attempts) {
+        ContentValues values = new ContentValues();
+        values.put(COL_ATTEMPTS, attempts);
+        try {
+            getWritableDatabase().update(TABLE_OUTBOX, values, COL_CLIENT_ID + " = ?", new String[]{clientId});
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Error updating outgoing message", e);
+        }
+    }
+
+    private void delete(String clientId) {
+        try {
+            getWritableDatabase().delete(TABLE_OUTBOX, COL_CLIENT_ID + " = ?", new String[]{clientId});
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Error removing delivered message from outbox", e);
+        }
+    }
+
+    private List<Entry> loadAll() {
+        List<Entry> entries = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE_OUTBOX,
+                new String[]{COL_CLIENT_ID, COL_CHATROOM_ID, COL_SENDER_ID, COL_MESSAGE, COL_TIMESTAMP, COL_ATTEMPTS},
+                null, null, null, null, COL_SEQ + " ASC")) {
+            while (cursor.moveToNext()) {
+                Entry entry = new Entry();
+                entry.clientId = cursor.getString(0);
+                entry.chatroomId = cursor.getString(1);
+                entry.senderId = cursor.getString(2);
+                entry.message = cursor.getString(3);
+                entry.timestampMs = cursor.getLong(4);
+                entry.attempts = cursor.getInt(5);
+                entries.add(entry);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Error reading outbox", e);
+        }
+        return entries;
+    }
+
+    private static Timestamp toTimestamp(long millis) {
+        return new Timestamp(new Date(millis));
+    }
+}
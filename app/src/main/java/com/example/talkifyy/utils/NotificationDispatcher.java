@@ -0,0 +1,223 @@
+package com.example.talkifyy.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Coalesces outgoing chat pushes per (chatroom, recipient). The first message in an idle chat
+ * is pushed at once; messages sent within the window after a push are held and go out as one
+ * push carrying their count and the latest text when the window closes. Ten quick messages to
+ * a group become two pushes per member instead of ten.
+ * Recipients of the same chatroom that flush together share one token lookup and fan-out.
+ * Call on the main thread.
+ */
+public class NotificationDispatcher {
+    private static final String TAG = "NotificationDispatcher";
+    public static final long DEFAULT_WINDOW_MS = 3000;
+
+    private static NotificationDispatcher instance;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, Burst> bursts = new HashMap<>(); // chatroomId|recipientId -> burst
+    private final Set<String> scheduledChatrooms = new HashSet<>();
+    private long windowMs = DEFAULT_WINDOW_MS;
+
+    private long messagesDispatched = 0; // One per message per recipient
+    private long pushesSent = 0;
+
+    /**
+     * What one recipient of one chatroom has been sent and is still owed
+     */
+    private static class Burst {
+        final String chatroomId;
+        final String recipientId;
+        long lastPushAt;
+        int pendingCount = 0;
+        boolean isGroup;
+        String groupName;
+        String senderName;
+        String latestMessage;
+
+        Burst(String chatroomId, String recipientId, long lastPushAt) {
+            this.chatroomId = chatroomId;
+            this.recipientId = recipientId;
+            this.lastPushAt = lastPushAt;
+        }
+    }
+
+    public static synchronized NotificationDispatcher getInstance() {
+        if (instance == null) {
+            instance = new NotificationDispatcher();
+        }
+        return instance;
+    }
+
+    private NotificationDispatcher() {
+    }
+
+    /**
+     * @param windowMs How long after a push further messages are held back; 0 pushes every message
+     */
+    public void setWindowMs(long windowMs) {
+        this.windowMs = Math.max(0, windowMs);
+    }
+
+    /**
+     * Notify the other user of a one-on-one chat
+     */
+    public void dispatchDirect(String chatroomId, String recipientId, String senderName, String message) {
+        dispatch(chatroomId, Collections.singletonList(recipientId), false, null, senderName, message);
+    }
+
+    /**
+     * Notify group members (without the sender)
+     */
+    public void dispatchGroup(String chatroomId, Collection<String> recipientIds, String groupName,
+                              String senderName, String message) {
+        dispatch(chatroomId, recipientIds, true, groupName, senderName, message);
+    }
+
+    private void dispatch(String chatroomId, Collection<String> recipientIds, boolean isGroup, String groupName,
+                          String senderName, String message) {
+        long now = SystemClock.elapsedRealtime();
+        List<String> immediate = new ArrayList<>();
+
+        for (String recipientId : recipientIds) {
+            messagesDispatched++;
+            String key = key(chatroomId, recipientId);
+            Burst burst = bursts.get(key);
+            if (burst == null) {
+                burst = new Burst(chatroomId, recipientId, now - windowMs);
+                bursts.put(key, burst);
+            }
+            burst.isGroup = isGroup;
+            burst.groupName = groupName;
+            burst.senderName = senderName;
+            burst.latestMessage = message;
+
+            if (burst.pendingCount == 0 && now - burst.lastPushAt >= windowMs) {
+                // Idle chat: no reason to make the recipient wait
+                burst.lastPushAt = now;
+                immediate.add(recipientId);
+            } else {
+                burst.pendingCount++;
+            }
+        }
+
+        if (!immediate.isEmpty()) {
+            push(chatroomId, immediate, isGroup, groupName, senderName, message, 1);
+        }
+        scheduleFlush(chatroomId, windowMs);
+    }
+
+    private void scheduleFlush(String chatroomId, long delayMs) {
+        if (scheduledChatrooms.add(chatroomId)) {
+            handler.postDelayed(() -> flush(chatroomId), delayMs);
+        }
+    }
+
+    /**
+     * Push every burst of the chatroom whose window has closed and forget the idle ones
+     */
+    private void flush(String chatroomId) {
+        scheduledChatrooms.remove(chatroomId);
+        long now = SystemClock.elapsedRealtime();
+        long nextDelay = Long.MAX_VALUE;
+        // Recipients owed the same number of messages get the same push
+        Map<Integer, List<Burst>> due = new HashMap<>();
+
+        Iterator<Burst> iterator = bursts.values().iterator();
+        while (iterator.hasNext()) {
+            Burst burst = iterator.next();
+            if (!burst.chatroomId.equals(chatroomId)) {
+                continue;
+            }
+            long remaining = burst.lastPushAt + windowMs - now;
+            if (remaining > 0) {
+                nextDelay = Math.min(nextDelay, remaining);
+            } else if (burst.pendingCount > 0) {
+                List<Burst> group = due.get(burst.pendingCount);
+                if (group == null) {
+                    group = new ArrayList<>();
+                    due.put(burst.pendingCount, group);
+                }
+                group.add(burst);
+            } else {
+                iterator.remove(); // Window closed with nothing owed
+            }
+        }
+
+        for (Map.Entry<Integer, List<Burst>> entry : due.entrySet()) {
+            List<Burst> group = entry.getValue();
+            Burst latest = group.get(0);
+            List<String> recipients = new ArrayList<>(group.size());
+            for (Burst burst : group) {
+                recipients.add(burst.recipientId);
+                burst.pendingCount = 0;
+                burst.lastPushAt = now;
+            }
+            push(chatroomId, recipients, latest.isGroup, latest.groupName, latest.senderName,
+                    latest.latestMessage, entry.getKey());
+            nextDelay = Math.min(nextDelay, windowMs);
+        }
+
+        if (nextDelay != Long.MAX_VALUE) {
+            scheduleFlush(chatroomId, nextDelay);
+        }
+    }
+
+    private void push(String chatroomId, List<String> recipients, boolean isGroup, String groupName,
+                      String senderName, String message, int messageCount) {
+        pushesSent += recipients.size();
+        Log.d(TAG, "📤 Pushing " + messageCount + " message(s) to " + recipients.size() + " recipient(s) of " + chatroomId
+                + " | pushes saved so far: " + getPushesSaved() + " of " + messagesDispatched);
+        if (isGroup) {
+            NotificationUtil.sendGroupNotification(recipients, groupName, senderName, message, chatroomId, messageCount);
+        } else {
+            for (String recipientId : recipients) {
+                NotificationUtil.sendNotificationToUser(recipientId, senderName, message, chatroomId, messageCount);
+            }
+        }
+    }
+
+    /**
+     * Messages dispatched, counted once per recipient
+     */
+    public long getMessagesDispatched() {
+        return messagesDispatched;
+    }
+
+    /**
+     * Pushes actually sent, counted once per recipient
+     */
+    public long getPushesSent() {
+        return pushesSent;
+    }
+
+    /**
+     * Pushes avoided by coalescing. Messages still held in an open window are not counted yet.
+     */
+    public long getPushesSaved() {
+        long pending = 0;
+        for (Burst burst : bursts.values()) {
+            pending += burst.pendingCount;
+        }
+        return messagesDispatched - pending - pushesSent;
+    }
+
+    private static String key(String chatroomId, String recipientId) {
+        return chatroomId + "|" + recipientId;
+    }
+}
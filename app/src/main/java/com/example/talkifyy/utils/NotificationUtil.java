@@ -17,21 +17,11 @@ import com.example.talkifyy.MainActivity;
 import com.example.talkifyy.R;
 import com.example.talkifyy.model.UserModel;
 
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.IOException;
-
-import okhttp3.Call;
-import okhttp3.Callback;
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
+import java.util.concurrent.Executors;
 
 public class NotificationUtil {
     
@@ -40,9 +30,6 @@ public class NotificationUtil {
     private static final String CHANNEL_NAME = "Chat Messages";
     private static final String FCM_URL = "https://fcm.googleapis.com/fcm/send";
     
-    // Keep track of message counts per sender for grouping
-    private static final Map<String, Integer> messageCountMap = new HashMap<>();
-    private static final Map<String, String> lastMessageMap = new HashMap<>();
     private static final String GROUP_KEY = "CHAT_GROUP";
     private static final int SUMMARY_NOTIFICATION_ID = 1000;
     
@@ -50,6 +37,37 @@ public class NotificationUtil {
     // Get it from Firebase Console > Project Settings > Cloud Messaging > Server Key
     private static final String SERVER_KEY = "YOUR_FIREBASE_SERVER_KEY";
     
+    private static FcmSender fcmSender;
+    
+    // Unread counts per chat (chatroom ID for groups, sender ID for one-on-one chats)
+    private static volatile UnreadCounters unreadCounters;
+    
+    /**
+     * Restore persisted unread counts; call once from Application.onCreate before anything counts
+     */
+    public static synchronized void initUnreadCounters(Context context) {
+        if (unreadCounters == null) {
+            unreadCounters = new UnreadCounters(UnreadStore.getInstance(context), Executors.newSingleThreadExecutor());
+        }
+    }
+    
+    /**
+     * Unread counts shared by notifications and the chat list; observe with addListener()
+     */
+    public static UnreadCounters unreadCounters() {
+        UnreadCounters counters = unreadCounters;
+        if (counters == null) {
+            synchronized (NotificationUtil.class) {
+                if (unreadCounters == null) {
+                    Log.w(TAG, "⚠️ Unread counters used before initUnreadCounters(), counts won't persist");
+                    unreadCounters = new UnreadCounters(null, null);
+                }
+                counters = unreadCounters;
+            }
+        }
+        return counters;
+    }
+    
     public static void createNotificationChannel(Context context) {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
@@ -82,10 +100,8 @@ public class NotificationUtil {
         // Create notification channel
         createNotificationChannel(context);
         
-        // Update message count for this group
-        int messageCount = messageCountMap.getOrDefault(chatroomId, 0) + 1;
-        messageCountMap.put(chatroomId, messageCount);
-        lastMessageMap.put(chatroomId, senderName + ": " + message);
+        // The caller has already counted this message (updateMessageCount)
+        int messageCount = Math.max(1, getMessageCount(chatroomId));
         
         Log.d(TAG, "📊 Group message count for " + groupName + ": " + messageCount);
         
@@ -156,10 +172,8 @@ public class NotificationUtil {
         
         String senderId = otherUser != null && otherUser.getUserId() != null ? otherUser.getUserId() : "unknown";
         
-        // Update message count for this sender
-        int messageCount = messageCountMap.getOrDefault(senderId, 0) + 1;
-        messageCountMap.put(senderId, messageCount);
-        lastMessageMap.put(senderId, message);
+        // The caller has already counted this message (updateMessageCount)
+        int messageCount = Math.max(1, getMessageCount(senderId));
         
         Log.d(TAG, "📊 Message count for " + senderName + ": " + messageCount);
         
@@ -219,11 +233,12 @@ public class NotificationUtil {
     
     private static void showSummaryNotification(Context context, NotificationManagerCompat notificationManager) {
         // Calculate total messages and create summary
+        List<UnreadCounters.Entry> unreadChats = unreadCounters().snapshot();
         int totalMessages = 0;
-        int senderCount = messageCountMap.size();
+        int senderCount = unreadChats.size();
         
-        for (int count : messageCountMap.values()) {
-            totalMessages += count;
+        for (UnreadCounters.Entry chat : unreadChats) {
+            totalMessages += chat.count;
         }
         
         if (totalMessages <= 1) {
@@ -240,15 +255,11 @@ public class NotificationUtil {
         
         // Add lines for each sender (up to 6 lines)
         int lineCount = 0;
-        for (Map.Entry<String, String> entry : lastMessageMap.entrySet()) {
+        for (UnreadCounters.Entry chat : unreadChats) {
             if (lineCount >= 6) break;
             
-            String senderId = entry.getKey();
-            String lastMessage = entry.getValue();
-            int count = messageCountMap.get(senderId);
-            
             // Create display line
-            String line = (count > 1 ? count + " messages" : lastMessage);
+            String line = (chat.count > 1 ? chat.count + " messages" : chat.lastMessage);
             inboxStyle.addLine(line);
             lineCount++;
         }
@@ -293,22 +304,20 @@ public class NotificationUtil {
     // Method to clear message count when user opens a specific chat
     public static void clearMessageCount(String senderId) {
         if (senderId != null) {
-            messageCountMap.remove(senderId);
-            lastMessageMap.remove(senderId);
+            unreadCounters().clear(senderId);
             Log.d(TAG, "🗑️ Cleared message count for sender: " + senderId);
         }
     }
     
     // Method to clear all notification data
     public static void clearAllNotificationData() {
-        messageCountMap.clear();
-        lastMessageMap.clear();
+        unreadCounters().clearAll();
         Log.d(TAG, "🗑️ Cleared all notification data");
     }
     
     // Method to get notification count for a specific sender
     public static int getMessageCount(String senderId) {
-        return senderId != null ? messageCountMap.getOrDefault(senderId, 0) : 0;
+        return senderId != null ? unreadCounters().get(senderId) : 0;
     }
     
     // Method to check if sender has unread messages
@@ -319,16 +328,16 @@ public class NotificationUtil {
     // Method to update message count without showing notification (for Instagram-style updates)
     public static void updateMessageCount(String senderId, String message) {
         if (senderId != null && message != null) {
-            int currentCount = messageCountMap.getOrDefault(senderId, 0);
-            messageCountMap.put(senderId, currentCount + 1);
-            lastMessageMap.put(senderId, message);
-            
-            int newCount = currentCount + 1;
+            int newCount = unreadCounters().increment(senderId, message);
             Log.d(TAG, "📊 Updated message count for sender " + senderId + ": " + newCount);
         }
     }
     
     public static void sendFCMNotification(String recipientToken, String senderName, String message, String chatId) {
+        sendFCMNotification(null, recipientToken, senderName, message, chatId, 1);
+    }
+    
+    private static void sendFCMNotification(String recipientUserId, String recipientToken, String senderName, String message, String chatId, int messageCount) {
         if (SERVER_KEY.equals("YOUR_FIREBASE_SERVER_KEY")) {
             Log.w(TAG, "FCM Server key not configured. Using local notifications only.");
             return;
@@ -336,140 +345,97 @@ public class NotificationUtil {
         
         Log.d(TAG, "Sending FCM notification to token: " + recipientToken);
         
-        OkHttpClient client = new OkHttpClient();
-        
-        try {
-            JSONObject json = new JSONObject();
-            json.put("to", recipientToken);
-            
-            // Notification payload
-            JSONObject notification = new JSONObject();
-            notification.put("title", senderName);
-            notification.put("body", message);
-            notification.put("icon", "chat_icon");
-            notification.put("sound", "default");
-            json.put("notification", notification);
-            
-            // Data payload for handling in app
-            JSONObject data = new JSONObject();
-            data.put("senderName", senderName);
-            data.put("message", message);
-            data.put("chatId", chatId);
-            data.put("type", "chat_message");
-            
-            // Add group chat detection
-            boolean isGroupChat = isGroupChatId(chatId);
-            data.put("isGroup", String.valueOf(isGroupChat));
-            
-            // If it's a group chat, include group name
-            if (isGroupChat) {
-                String groupName = extractGroupName(senderName);
-                data.put("groupName", groupName);
-            } else {
-                // Explicitly mark as false for individual chats
-                data.put("isGroup", "false");
-            }
-            
-            json.put("data", data);
-            
-            RequestBody body = RequestBody.create(
-                json.toString(),
-                MediaType.parse("application/json; charset=utf-8")
-            );
-            
-            Request request = new Request.Builder()
-                    .url(FCM_URL)
-                    .post(body)
-                    .addHeader("Authorization", "key=" + SERVER_KEY)
-                    .addHeader("Content-Type", "application/json")
-                    .build();
-            
-            client.newCall(request).enqueue(new Callback() {
-                @Override
-                public void onFailure(Call call, IOException e) {
-                    Log.e(TAG, "Failed to send FCM notification", e);
-                }
-                
-                @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    String responseBody = response.body().string();
-                    if (response.isSuccessful()) {
-                        Log.d(TAG, "FCM notification sent successfully: " + responseBody);
-                    } else {
-                        Log.e(TAG, "FCM notification failed: " + responseBody);
-                    }
-                }
-            });
-            
-        } catch (JSONException e) {
-            Log.e(TAG, "Error creating FCM notification JSON", e);
+        // Data payload for handling in app
+        FcmSender.Message push = new FcmSender.Message(recipientToken, senderName, burstText(message, messageCount))
+                .put("senderName", senderName)
+                .put("message", message)
+                .put("chatId", chatId)
+                .put("type", "chat_message")
+                .put("messageCount", String.valueOf(messageCount));
+        
+        // Add group chat detection
+        boolean isGroupChat = isGroupChatId(chatId);
+        push.put("isGroup", String.valueOf(isGroupChat));
+        
+        // If it's a group chat, include group name
+        if (isGroupChat) {
+            push.put("groupName", extractGroupName(senderName));
         }
+        
+        fcmSender().send(push, new PushListener(recipientUserId, "FCM notification"));
     }
     
     public static void sendNotificationToUser(String recipientUserId, String senderName, String message, String chatId) {
+        sendNotificationToUser(recipientUserId, senderName, message, chatId, 1);
+    }
+    
+    /**
+     * @param messageCount Messages this push stands for; message is the latest of them
+     */
+    public static void sendNotificationToUser(String recipientUserId, String senderName, String message, String chatId, int messageCount) {
         Log.d(TAG, "Getting FCM token for user: " + recipientUserId);
         
-        // Get recipient's FCM token from Firestore
-        FirebaseUtil.allUserCollectionReference().document(recipientUserId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        UserModel recipient = documentSnapshot.toObject(UserModel.class);
-                        if (recipient != null && recipient.getFcmToken() != null && !recipient.getFcmToken().isEmpty()) {
-                            Log.d(TAG, "Found FCM token, sending notification");
-                            sendFCMNotification(recipient.getFcmToken(), senderName, message, chatId);
-                        } else {
-                            Log.w(TAG, "Recipient FCM token not found or empty");
-                        }
-                    } else {
-                        Log.w(TAG, "Recipient user document not found");
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to get recipient FCM token", e);
-                });
+        // Get recipient's FCM token through the shared token registry
+        FcmTokenRegistry.getInstance().getTokens(Collections.singletonList(recipientUserId), tokens -> {
+            String token = tokens.get(recipientUserId);
+            if (token != null) {
+                Log.d(TAG, "Found FCM token, sending notification");
+                sendFCMNotification(recipientUserId, token, senderName, message, chatId, messageCount);
+            } else {
+                Log.w(TAG, "Recipient FCM token not found or empty");
+            }
+        });
     }
     
     /**
      * Send notification specifically for group chats with proper formatting
      */
     public static void sendGroupNotificationToUser(String recipientUserId, String groupName, String senderName, String message, String chatId) {
-        Log.d(TAG, "Getting FCM token for group notification - User: " + recipientUserId + ", Group: " + groupName);
+        sendGroupNotification(Collections.singletonList(recipientUserId), groupName, senderName, message, chatId);
+    }
+    
+    /**
+     * Notify every recipient of a group message. All tokens are resolved in one registry
+     * lookup and the pushes share one HTTP client, whose dispatcher bounds the concurrency.
+     * @param recipientUserIds Group members to notify (without the sender)
+     */
+    public static void sendGroupNotification(Collection<String> recipientUserIds, String groupName, String senderName, String message, String chatId) {
+        sendGroupNotification(recipientUserIds, groupName, senderName, message, chatId, 1);
+    }
+    
+    /**
+     * @param messageCount Messages this push stands for; message is the latest of them
+     */
+    public static void sendGroupNotification(Collection<String> recipientUserIds, String groupName, String senderName, String message, String chatId, int messageCount) {
+        Log.d(TAG, "Getting FCM tokens for group notification - Users: " + recipientUserIds.size() + ", Group: " + groupName);
         
         // Check if FCM server key is configured
         if (SERVER_KEY.equals("YOUR_FIREBASE_SERVER_KEY")) {
             Log.w(TAG, "FCM Server key not configured. Testing with local notifications only.");
             // For testing without FCM server key, we'll simulate notifications
-            Log.d(TAG, "🧪 TESTING: Would send group notification to " + recipientUserId + " for group " + groupName);
+            Log.d(TAG, "🧪 TESTING: Would send group notification to " + recipientUserIds.size() + " users for group " + groupName);
             Log.d(TAG, "🧪 Notification content: " + senderName + ": " + message);
             return;
         }
         
-        // Get recipient's FCM token from Firestore
-        FirebaseUtil.allUserCollectionReference().document(recipientUserId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        UserModel recipient = documentSnapshot.toObject(UserModel.class);
-                        if (recipient != null && recipient.getFcmToken() != null && !recipient.getFcmToken().isEmpty()) {
-                            Log.d(TAG, "Found FCM token, sending group notification");
-                            sendGroupFCMNotification(recipient.getFcmToken(), groupName, senderName, message, chatId);
-                        } else {
-                            Log.w(TAG, "Recipient FCM token not found or empty for group notification");
-                        }
-                    } else {
-                        Log.w(TAG, "Recipient user document not found for group notification");
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to get recipient FCM token for group notification", e);
-                });
+        FcmTokenRegistry.getInstance().getTokens(recipientUserIds, tokens -> {
+            if (tokens.size() < recipientUserIds.size()) {
+                Log.w(TAG, (recipientUserIds.size() - tokens.size()) + " recipients have no FCM token for group notification");
+            }
+            for (Map.Entry<String, String> recipient : tokens.entrySet()) {
+                sendGroupFCMNotification(recipient.getKey(), recipient.getValue(), groupName, senderName, message, chatId, messageCount);
+            }
+        });
     }
     
     /**
      * Send FCM notification specifically formatted for group chats
      */
     public static void sendGroupFCMNotification(String recipientToken, String groupName, String senderName, String message, String chatId) {
+        sendGroupFCMNotification(null, recipientToken, groupName, senderName, message, chatId, 1);
+    }
+    
+    private static void sendGroupFCMNotification(String recipientUserId, String recipientToken, String groupName, String senderName, String message, String chatId, int messageCount) {
         if (SERVER_KEY.equals("YOUR_FIREBASE_SERVER_KEY")) {
             Log.w(TAG, "FCM Server key not configured. Using local notifications only.");
             return;
@@ -477,61 +443,61 @@ public class NotificationUtil {
         
         Log.d(TAG, "Sending group FCM notification to token: " + recipientToken);
         
-        OkHttpClient client = new OkHttpClient();
+        // Group name as title, "Sender: Message" as body, group-specific data for the app
+        FcmSender.Message push = new FcmSender.Message(recipientToken, groupName, burstText(senderName + ": " + message, messageCount))
+                .put("senderName", senderName)
+                .put("message", message)
+                .put("chatId", chatId)
+                .put("type", "chat_message")
+                .put("isGroup", "true")
+                .put("groupName", groupName)
+                .put("messageCount", String.valueOf(messageCount));
+        
+        fcmSender().send(push, new PushListener(recipientUserId, "Group FCM notification"));
+    }
+    
+    /**
+     * Notification text for a coalesced burst: the latest message plus how many came before it
+     */
+    public static String burstText(String latest, int messageCount) {
+        return messageCount > 1 ? latest + " (+" + (messageCount - 1) + " more)" : latest;
+    }
+    
+    private static synchronized FcmSender fcmSender() {
+        if (fcmSender == null) {
+            fcmSender = new FcmSender(HttpClients.shared(), FcmSender.FCM_URL, SERVER_KEY);
+        }
+        return fcmSender;
+    }
+    
+    /**
+     * Logs the outcome of a push and forgets tokens FCM no longer accepts
+     */
+    private static class PushListener implements FcmSender.Listener {
+        private final String recipientUserId;
+        private final String label;
+        
+        PushListener(String recipientUserId, String label) {
+            this.recipientUserId = recipientUserId;
+            this.label = label;
+        }
         
-        try {
-            JSONObject json = new JSONObject();
-            json.put("to", recipientToken);
-            
-            // Notification payload for group chat
-            JSONObject notification = new JSONObject();
-            notification.put("title", groupName);  // Group name as title
-            notification.put("body", senderName + ": " + message);  // Sender: Message format
-            notification.put("icon", "chat_icon");
-            notification.put("sound", "default");
-            json.put("notification", notification);
-            
-            // Data payload for handling in app - with group-specific information
-            JSONObject data = new JSONObject();
-            data.put("senderName", senderName);
-            data.put("message", message);
-            data.put("chatId", chatId);
-            data.put("type", "chat_message");
-            data.put("isGroup", "true");  // Mark as group chat
-            data.put("groupName", groupName);  // Include group name
-            json.put("data", data);
-            
-            RequestBody body = RequestBody.create(
-                json.toString(),
-                MediaType.parse("application/json; charset=utf-8")
-            );
-            
-            Request request = new Request.Builder()
-                    .url(FCM_URL)
-                    .post(body)
-                    .addHeader("Authorization", "key=" + SERVER_KEY)
-                    .addHeader("Content-Type", "application/json")
-                    .build();
-            
-            client.newCall(request).enqueue(new Callback() {
-                @Override
-                public void onFailure(Call call, IOException e) {
-                    Log.e(TAG, "Failed to send group FCM notification", e);
-                }
-                
-                @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    String responseBody = response.body().string();
-                    if (response.isSuccessful()) {
-                        Log.d(TAG, "Group FCM notification sent successfully: " + responseBody);
-                    } else {
-                        Log.e(TAG, "Group FCM notification failed: " + responseBody);
-                    }
-                }
-            });
-            
-        } catch (JSONException e) {
-            Log.e(TAG, "Error creating group FCM notification JSON", e);
+        @Override
+        public void onSent(FcmSender.Message message, String responseBody) {
+            Log.d(TAG, label + " sent successfully: " + responseBody);
+        }
+        
+        @Override
+        public void onTokenRejected(FcmSender.Message message, String responseBody) {
+            Log.w(TAG, label + " token rejected, dropping cached token: " + responseBody);
+            if (recipientUserId != null) {
+                FcmTokenRegistry.getInstance().invalidate(recipientUserId);
+            }
+        }
+        
+        @Override
+        public void onFailed(FcmSender.Message message, Exception e) {
+            Log.e(TAG, label + " failed", e);
         }
     }
     
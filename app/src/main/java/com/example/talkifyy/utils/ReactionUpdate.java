@@ -0,0 +1,67 @@
+package com.example.talkifyy.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One user's reaction change on one message, expressed as the atomic server-side mutation
+ * FirebaseUtil sends: arrayUnion/arrayRemove of the user on reactions.{emoji}. No read is
+ * needed, so concurrent reactors never overwrite each other. applyTo() mirrors the server
+ * semantics for optimistic local state.
+ */
+public class ReactionUpdate {
+    public final String emoji;
+    public final String userId;
+    public final boolean add;
+
+    public ReactionUpdate(String emoji, String userId, boolean add) {
+        this.emoji = emoji;
+        this.userId = userId;
+        this.add = add;
+    }
+
+    /**
+     * The update that flips the user's reaction, decided from the state the user is looking at
+     * @param reactions emoji -> user IDs as currently displayed, may be null
+     */
+    public static ReactionUpdate toggle(Map<String, List<String>> reactions, String emoji, String userId) {
+        List<String> users = reactions != null ? reactions.get(emoji) : null;
+        return new ReactionUpdate(emoji, userId, users == null || !users.contains(userId));
+    }
+
+    /**
+     * Apply with arrayUnion/arrayRemove semantics (idempotent; an emptied emoji is dropped)
+     * @return true if the map changed
+     */
+    public boolean applyTo(Map<String, List<String>> reactions) {
+        List<String> users = reactions.get(emoji);
+        if (add) {
+            if (users == null) {
+                users = new ArrayList<>();
+                reactions.put(emoji, users);
+            }
+            if (users.contains(userId)) {
+                return false;
+            }
+            users.add(userId);
+            return true;
+        }
+        if (users == null || !users.remove(userId)) {
+            return false;
+        }
+        if (users.isEmpty()) {
+            reactions.remove(emoji);
+        }
+        return true;
+    }
+
+    /**
+     * Whether a snapshot already reflects this update
+     */
+    public boolean isReflectedIn(Map<String, List<String>> reactions) {
+        List<String> users = reactions != null ? reactions.get(emoji) : null;
+        boolean present = users != null && users.contains(userId);
+        return present == add;
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.talkifyy.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coalesces reaction taps in one chatroom into as few Firestore writes as possible.
+ * - Per (messageId, emoji) only the user's net intended state is kept; taps that cancel out send nothing
+ * - A tap opens a short window; everything pending when it closes goes out in one WriteBatch
+ * - Document writes are bounded by a token bucket (maxWritesPerSecond); the rest waits for the next flush
+ * The caller applies the returned ReactionUpdate to its model right away and re-applies
+ * applyPendingTo() on every rebind, so snapshots that predate a write can't make it flicker.
+ * Main thread only.
+ */
+public class ReactionWriteCoalescer {
+    private static final String TAG = "ReactionWriteCoalescer";
+    public static final long DEFAULT_WINDOW_MS = 400;
+    public static final int DEFAULT_MAX_WRITES_PER_SECOND = 5;
+    private static final int MAX_BATCH_WRITES = 500; // Firestore limit per batch
+
+    public interface Listener {
+        /** The update reached the server (called once per net change, not per tap) */
+        void onReactionWritten(String messageId, ReactionUpdate update);
+        /** The update was rejected and no newer tap replaced it; the shown state should be rolled back */
+        void onReactionWriteFailed(String messageId, ReactionUpdate update, Exception e);
+    }
+
+    /**
+     * Net state of one (messageId, emoji) since the window opened
+     */
+    private static class Pending {
+        final String messageId;
+        final String emoji;
+        final String userId;
+        final boolean reactedBefore; // As shown when the first tap of the window arrived
+        boolean reacted;
+
+        Pending(String messageId, String emoji, String userId, boolean reactedBefore) {
+            this.messageId = messageId;
+            this.emoji = emoji;
+            this.userId = userId;
+            this.reactedBefore = reactedBefore;
+            this.reacted = reactedBefore;
+        }
+
+        ReactionUpdate toUpdate() {
+            return new ReactionUpdate(emoji, userId, reacted);
+        }
+    }
+
+    private final String chatroomId;
+    private final Listener listener;
+    private final long windowMs;
+    private final int maxWritesPerSecond;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flush;
+
+    private final Map<String, Pending> pending = new LinkedHashMap<>(); // Not sent yet, oldest first
+    private final Map<String, ReactionUpdate> inFlight = new HashMap<>(); // Sent, not acknowledged
+    private double tokens;
+    private long lastRefillMs;
+    private boolean flushScheduled = false;
+
+    public ReactionWriteCoalescer(String chatroomId, Listener listener) {
+        this(chatroomId, listener, DEFAULT_WINDOW_MS, DEFAULT_MAX_WRITES_PER_SECOND);
+    }
+
+    /**
+     * @param windowMs How long a tap waits for further taps before it's written
+     * @param maxWritesPerSecond Upper bound on message document writes per second from this chatroom
+     */
+    public ReactionWriteCoalescer(String chatroomId, Listener listener, long windowMs, int maxWritesPerSecond) {
+        this.chatroomId = chatroomId;
+        this.listener = listener;
+        this.windowMs = windowMs;
+        this.maxWritesPerSecond = Math.max(1, maxWritesPerSecond);
+        this.tokens = this.maxWritesPerSecond;
+        this.lastRefillMs = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Record a tap on an emoji
+     * @param shownReactions Reactions as currently displayed (pending state already applied)
+     * @return The change to apply to the displayed model now
+     */
+    public ReactionUpdate toggle(String messageId, Map<String, List<String>> shownReactions, String emoji, String userId) {
+        ReactionUpdate update = ReactionUpdate.toggle(shownReactions, emoji, userId);
+        String key = key(messageId, emoji);
+        Pending entry = pending.get(key);
+        if (entry == null) {
+            entry = new Pending(messageId, emoji, userId, !update.add);
+            pending.put(key, entry);
+        }
+        entry.reacted = update.add;
+        if (entry.reacted == entry.reactedBefore) {
+            // Tapped back to where it started: nothing to write
+            pending.remove(key);
+            Log.d(TAG, "🔁 Reaction " + emoji + " on " + messageId + " cancelled out");
+        }
+        scheduleFlush(windowMs);
+        return update;
+    }
+
+    /**
+     * Re-apply unsent and unacknowledged changes for a message to a freshly bound reactions map
+     * @return true if the map changed
+     */
+    public boolean applyPendingTo(String messageId, Map<String, List<String>> reactions) {
+        if (inFlight.isEmpty() && pending.isEmpty()) {
+            return false;
+        }
+        String prefix = messageId + "|";
+        boolean changed = false;
+        for (Map.Entry<String, ReactionUpdate> sent : inFlight.entrySet()) {
+            if (sent.getKey().startsWith(prefix)) {
+                changed |= sent.getValue().applyTo(reactions);
+            }
+        }
+        for (Pending entry : pending.values()) {
+            if (entry.messageId.equals(messageId)) {
+                changed |= entry.toUpdate().applyTo(reactions);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Send everything pending now, ignoring the window and the rate limit (the chat is closing)
+     */
+    public void flushNow() {
+        handler.removeCallbacks(flushRunnable);
+        flushScheduled = false;
+        while (!pending.isEmpty()) {
+            commit(Math.min(pending.size(), MAX_BATCH_WRITES));
+        }
+    }
+
+    private void scheduleFlush(long delayMs) {
+        if (flushScheduled || pending.isEmpty()) {
+            return;
+        }
+        flushScheduled = true;
+        handler.postDelayed(flushRunnable, delayMs);
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        if (pending.isEmpty()) {
+            return;
+        }
+        refillTokens();
+        int allowed = Math.min((int) tokens, Math.min(pending.size(), MAX_BATCH_WRITES));
+        if (allowed > 0) {
+            tokens -= allowed;
+            commit(allowed);
+        }
+        if (!pending.isEmpty()) {
+            // Over the limit: the rest goes out as soon as the bucket has room again
+            long waitMs = tokens >= 1 ? 1 : (long) Math.ceil((1 - tokens) * 1000.0 / maxWritesPerSecond);
+            Log.d(TAG, "⏳ " + pending.size() + " reaction writes throttled for " + waitMs + "ms");
+            scheduleFlush(Math.max(1, waitMs));
+        }
+    }
+
+    private void refillTokens() {
+        long now = SystemClock.elapsedRealtime();
+        tokens = Math.min(maxWritesPerSecond, tokens + (now - lastRefillMs) * maxWritesPerSecond / 1000.0);
+        lastRefillMs = now;
+    }
+
+    /**
+     * Move the oldest pending changes into one batch and commit it
+     */
+    private void commit(int count) {
+        WriteBatch batch = FirebaseFirestore.getInstance().batch();
+        Map<String, ReactionUpdate> sent = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, Pending>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext() && sent.size() < count) {
+            Map.Entry<String, Pending> next = iterator.next();
+            iterator.remove();
+            Pending entry = next.getValue();
+            ReactionUpdate update = entry.toUpdate();
+            FirebaseUtil.addReactionUpdate(batch, chatroomId, entry.messageId, update);
+            inFlight.put(next.getKey(), update);
+            sent.put(next.getKey(), update);
+        }
+        Log.d(TAG, "📤 Writing " + sent.size() + " reaction changes in one batch");
+
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    for (Map.Entry<String, ReactionUpdate> write : sent.entrySet()) {
+                        String messageId = messageIdOf(write.getKey());
+                        // Only notify if no newer change on the same emoji replaced this one
+                        if (inFlight.remove(write.getKey(), write.getValue()) && listener != null) {
+                            listener.onReactionWritten(messageId, write.getValue());
+                        }
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "❌ Reaction batch failed", e);
+                    for (Map.Entry<String, ReactionUpdate> write : sent.entrySet()) {
+                        String messageId = messageIdOf(write.getKey());
+                        if (inFlight.remove(write.getKey(), write.getValue())
+                                && !pending.containsKey(write.getKey()) && listener != null) {
+                            listener.onReactionWriteFailed(messageId, write.getValue(), e);
+                        }
+                    }
+                });
+    }
+
+    private static String key(String messageId, String emoji) {
+        return messageId + "|" + emoji;
+    }
+
+    private static String messageIdOf(String key) {
+        return key.substring(0, key.indexOf('|'));
+    }
+}
@@ -0,0 +1,607 @@
+package com.example.talkifyy.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.WorkerThread;
+
+import com.example.talkifyy.model.ImageMetadata;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.storage.FirebaseStorage;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Owns chat image uploads from the moment their bytes are encoded until the message is sent:
+ * - variants are staged as files and journaled (UploadJournal) before any network I/O
+ * - each file is sent with the resumable protocol in chunks, committed offsets journaled as they land
+ * - pending uploads resume after a process restart (resumePending)
+ * - uploads finishing after their screen went away are handed to the chat's RecoveryHandler
+ * Listener callbacks arrive on the main thread.
+ */
+public class ResumableUploadManager {
+    private static final String TAG = "ResumableUploadManager";
+    private static final String JOURNAL_DIR = "pending_uploads";
+    private static final int NETWORK_THREADS = 2;
+    private static final long BASE_BACKOFF_MS = 1000;
+    private static final String CONTENT_PATH_PREFIX = "chat_images/sha256/";
+    private static final String INSTALLATION_ID_FILE = "upload_installation_id";
+
+    private static ResumableUploadManager instance;
+
+    public interface RecoveryHandler {
+        /**
+         * Images that finished uploading with nobody listening (screen closed, process restarted).
+         * Called on the main thread; the entries are dropped from the journal afterwards.
+         * @param downloadUrls Full-image URLs, in selection order
+         * @param metadata Metadata parallel to downloadUrls
+         */
+        void onImagesRecovered(List<String> downloadUrls, List<ImageMetadata> metadata);
+    }
+
+    private final File installationIdFile;
+    private volatile String installationId; // Read on first enqueue
+    private final UploadJournal journal;
+    private final ImageContentIndex contentIndex;
+    private final ResumableUploader uploader;
+    private final ExecutorService networkExecutor = Executors.newFixedThreadPool(NETWORK_THREADS);
+    private final ExecutorService journalExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final Map<String, ImageUploadUtil.ImageUploadListener> listeners = new ConcurrentHashMap<>();
+    private final Map<String, RecoveryHandler> recoveryHandlers = new ConcurrentHashMap<>();
+    private final Set<String> activeIds = ConcurrentHashMap.newKeySet(); // Being uploaded right now
+    private final Set<String> cancelledIds = ConcurrentHashMap.newKeySet();
+    private final Set<String> claimedIds = ConcurrentHashMap.newKeySet(); // Delivered or offered, awaiting deletion
+    private final Set<String> ownedBatches = ConcurrentHashMap.newKeySet(); // Batches a live caller will finish itself
+    private boolean resumed = false;
+
+    public static synchronized ResumableUploadManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new ResumableUploadManager(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ResumableUploadManager(Context context) {
+        // No-backup storage, so a restored backup never gives two devices the same ID
+        installationIdFile = new File(context.getNoBackupFilesDir(), INSTALLATION_ID_FILE);
+        journal = new UploadJournal(new File(context.getFilesDir(), JOURNAL_DIR));
+        contentIndex = ImageContentIndex.getInstance(context);
+        uploader = new ResumableUploader(HttpClients.shared(), ResumableUploader.FIREBASE_STORAGE_BASE_URL,
+                ResumableUploadManager::getIdToken, BASE_BACKOFF_MS);
+    }
+
+    /**
+     * Stage an encoded image on disk, journal it and start uploading.
+     * The objects are stored under the content hash, so identical images from this installation
+     * share one path.
+     * @param contentHash SHA-256 of the encoded full image (ImageContentIndex.sha256)
+     * @param sourceHash SHA-256 of the picked file, may be null
+     * @param batchId Shared by the images of one multi-image message, null for a single image
+     * @param listener Callbacks (main thread), may be null to upload in the background only
+     * @return upload id for cancel()/detach()
+     */
+    @WorkerThread
+    public String enqueue(String chatroomId, ImageUploadUtil.PreparedImage prepared, String contentHash, String sourceHash,
+                          String batchId, int batchIndex, int batchSize,
+                          ImageUploadUtil.ImageUploadListener listener) throws IOException {
+        UploadJournal.Entry entry = newEntry(chatroomId, batchId, batchIndex, batchSize);
+        entry.contentHash = contentHash;
+        entry.sourceHash = sourceHash;
+        entry.metadata.putAll(metadataToMap(prepared.metadata));
+        String basePath = CONTENT_PATH_PREFIX + ownerId() + "/" + installationId() + "/" + contentHash;
+        File dir = journal.getDir();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Could not create upload directory: " + dir);
+        }
+        for (ImageUploadUtil.Variant source : prepared.variants) {
+            UploadJournal.Variant variant = new UploadJournal.Variant();
+            variant.suffix = source.suffix;
+            variant.file = new File(dir, entry.id + source.suffix + source.fileExtension);
+            variant.path = basePath + source.suffix + source.fileExtension;
+            variant.contentType = source.mimeType;
+            variant.length = source.data.length;
+            try (OutputStream out = new FileOutputStream(variant.file)) {
+                out.write(source.data);
+            }
+            entry.variants.add(variant);
+        }
+        start(entry, listener);
+        return entry.id;
+    }
+
+    /**
+     * Send an image that is already in Storage: nothing is uploaded, but it's journaled and
+     * delivered like any other upload so it survives the caller going away.
+     * @param fullUrl Download URL of the full image
+     * @param metadata Its metadata, including variant URLs and paths
+     * @return upload id for cancel()/detach()
+     */
+    @WorkerThread
+    public String enqueueUploaded(String chatroomId, String fullUrl, ImageMetadata metadata, String batchId,
+                                  int batchIndex, int batchSize,
+                                  ImageUploadUtil.ImageUploadListener listener) throws IOException {
+        UploadJournal.Entry entry = newEntry(chatroomId, batchId, batchIndex, batchSize);
+        entry.metadata.putAll(metadataToMap(metadata));
+        addUploadedVariant(entry, "", metadata.getStoragePath(), fullUrl, metadata.getMimeType());
+        addUploadedVariant(entry, ImageVariants.MEDIUM_SUFFIX, metadata.getMediumPath(), metadata.getMediumUrl(), metadata.getMimeType());
+        addUploadedVariant(entry, ImageVariants.THUMBNAIL_SUFFIX, metadata.getThumbnailPath(), metadata.getThumbnailUrl(), metadata.getMimeType());
+        start(entry, listener);
+        return entry.id;
+    }
+
+    private UploadJournal.Entry newEntry(String chatroomId, String batchId, int batchIndex, int batchSize) {
+        UploadJournal.Entry entry = new UploadJournal.Entry();
+        entry.id = UUID.randomUUID().toString();
+        entry.chatroomId = chatroomId;
+        entry.batchId = batchId;
+        entry.batchIndex = batchIndex;
+        entry.batchSize = batchSize;
+        entry.createdAt = System.currentTimeMillis();
+        return entry;
+    }
+
+    private void addUploadedVariant(UploadJournal.Entry entry, String suffix, String path, String url, String contentType) {
+        if (url == null) {
+            return;
+        }
+        UploadJournal.Variant variant = new UploadJournal.Variant();
+        variant.suffix = suffix;
+        variant.file = new File(journal.getDir(), entry.id + suffix); // Never written
+        variant.path = path != null ? path : "";
+        variant.contentType = contentType != null ? contentType : "image/jpeg";
+        variant.downloadUrl = url;
+        entry.variants.add(variant);
+    }
+
+    private void start(UploadJournal.Entry entry, ImageUploadUtil.ImageUploadListener listener) throws IOException {
+        synchronized (journal) {
+            journal.save(entry);
+        }
+        if (listener != null) {
+            listeners.put(entry.id, listener);
+        }
+        Log.d(TAG, "📥 Journaled upload " + entry.id + " (" + entry.variants.size() + " files, " + entry.totalBytes() + " bytes)");
+        schedule(entry);
+    }
+
+    /**
+     * Stop an upload and forget it. The listener is not called again.
+     */
+    public void cancel(String uploadId) {
+        listeners.remove(uploadId);
+        cancelledIds.add(uploadId);
+        if (!activeIds.contains(uploadId)) {
+            // Not running (finished or never scheduled) - drop whatever is journaled
+            journalExecutor.execute(() -> deleteEntry(uploadId));
+        }
+    }
+
+    /**
+     * Keep uploading but stop calling the listener; the result goes to the chat's RecoveryHandler
+     */
+    public void detach(String uploadId) {
+        listeners.remove(uploadId);
+    }
+
+    /**
+     * The caller will collect this batch's results itself (via listeners) - don't hand them to recovery
+     */
+    public void claimBatch(String batchId) {
+        ownedBatches.add(batchId);
+    }
+
+    /**
+     * The caller is done with a batch (sent, failed or cancelled); delete what's left of it
+     */
+    public void releaseBatch(String batchId) {
+        ownedBatches.remove(batchId);
+        journalExecutor.execute(() -> {
+            for (UploadJournal.Entry entry : loadEntries()) {
+                if (batchId.equals(entry.batchId) && !activeIds.contains(entry.id)) {
+                    delete(entry);
+                }
+            }
+        });
+    }
+
+    /**
+     * The caller went away mid-batch; once every image is uploaded the batch goes to recovery as one message
+     */
+    public void detachBatch(String batchId, String chatroomId) {
+        ownedBatches.remove(batchId);
+        journalExecutor.execute(() -> offerRecovered(chatroomId, false));
+    }
+
+    /**
+     * Resume uploads journaled by an earlier process. Safe to call repeatedly; only the first call scans.
+     */
+    public void resumePending() {
+        journalExecutor.execute(() -> {
+            if (resumed) {
+                return;
+            }
+            resumed = true;
+            Set<String> chatroomIds = new HashSet<>();
+            for (UploadJournal.Entry entry : loadEntries()) {
+                chatroomIds.add(entry.chatroomId);
+                if (UploadJournal.STATE_PENDING.equals(entry.state) && !activeIds.contains(entry.id)) {
+                    Log.d(TAG, "🔄 Resuming upload " + entry.id + " at " + entry.committedBytes() + "/" + entry.totalBytes() + " bytes");
+                    schedule(entry);
+                }
+            }
+            // Nothing from the last process is still encoding, so incomplete batches won't grow
+            for (String chatroomId : chatroomIds) {
+                offerRecovered(chatroomId, true);
+            }
+        });
+    }
+
+    /**
+     * Register who sends recovered images for a chat (replaces any previous handler)
+     */
+    public void setRecoveryHandler(String chatroomId, RecoveryHandler handler) {
+        recoveryHandlers.put(chatroomId, handler);
+        journalExecutor.execute(() -> offerRecovered(chatroomId, false));
+    }
+
+    public void removeRecoveryHandler(String chatroomId, RecoveryHandler handler) {
+        recoveryHandlers.remove(chatroomId, handler);
+    }
+
+    private void schedule(UploadJournal.Entry entry) {
+        activeIds.add(entry.id);
+        networkExecutor.execute(() -> {
+            try {
+                runUpload(entry);
+            } finally {
+                activeIds.remove(entry.id);
+            }
+        });
+    }
+
+    @WorkerThread
+    private void runUpload(UploadJournal.Entry entry) {
+        String bucket = FirebaseStorage.getInstance().getReference().getBucket();
+        long total = Math.max(1, entry.totalBytes());
+        int[] lastProgress = {-1};
+        try {
+            for (UploadJournal.Variant variant : entry.variants) {
+                if (variant.downloadUrl != null) {
+                    continue;
+                }
+                long before = entry.committedBytes() - variant.committed;
+                uploader.upload(variant, bucket, new ResumableUploader.Listener() {
+                    @Override
+                    public void onSessionChanged(String sessionUri) throws IOException {
+                        save(entry);
+                    }
+
+                    @Override
+                    public void onCommitted(long committedBytes) throws IOException {
+                        save(entry);
+                    }
+
+                    @Override
+                    public void onBytesSent(long bytesSent) {
+                        int progress = (int) (100 * (before + bytesSent) / total);
+                        if (progress != lastProgress[0]) {
+                            lastProgress[0] = progress;
+                            postProgress(entry.id, Math.min(100, progress));
+                        }
+                    }
+                }, () -> cancelledIds.contains(entry.id));
+                variant.downloadUrl = Tasks.await(FirebaseStorage.getInstance()
+                        .getReference(variant.path).getDownloadUrl()).toString();
+                save(entry);
+            }
+            if (entry.contentHash != null) {
+                // Later sends of the same image reuse this upload
+                contentIndex.recordUpload(entry.contentHash, entry.sourceHash, fullUrl(entry), toMetadata(entry));
+            }
+            entry.state = UploadJournal.STATE_COMPLETED;
+            save(entry);
+            Log.d(TAG, "✅ Upload " + entry.id + " complete (" + entry.totalBytes() + " bytes)");
+            deliverSuccess(entry);
+        } catch (Exception e) {
+            if (cancelledIds.remove(entry.id)) {
+                Log.d(TAG, "Upload " + entry.id + " cancelled");
+                journalExecutor.execute(() -> delete(entry));
+                return;
+            }
+            deliverFailure(entry, e);
+        }
+    }
+
+    private void deliverSuccess(UploadJournal.Entry entry) {
+        mainHandler.post(() -> {
+            ImageUploadUtil.ImageUploadListener listener = listeners.remove(entry.id);
+            if (listener == null) {
+                journalExecutor.execute(() -> offerRecovered(entry.chatroomId, false));
+                return;
+            }
+            claimedIds.add(entry.id);
+            ImageMetadata metadata = toMetadata(entry);
+            listener.onUploadSuccess(fullUrl(entry), metadata);
+            if (entry.batchId == null) {
+                // A batch keeps its entries until the caller releases it, in case it detaches midway
+                journalExecutor.execute(() -> delete(entry));
+            }
+        });
+    }
+
+    private void deliverFailure(UploadJournal.Entry entry, Exception e) {
+        boolean permanent = e instanceof ResumableUploader.UploadException
+                && !((ResumableUploader.UploadException) e).isRetryable();
+        mainHandler.post(() -> {
+            ImageUploadUtil.ImageUploadListener listener = listeners.remove(entry.id);
+            if (listener != null) {
+                Log.e(TAG, "❌ Upload " + entry.id + " failed", e);
+                journalExecutor.execute(() -> delete(entry));
+                listener.onUploadFailure(e);
+            } else if (permanent) {
+                Log.e(TAG, "❌ Background upload " + entry.id + " failed permanently", e);
+                journalExecutor.execute(() -> {
+                    entry.state = UploadJournal.STATE_FAILED;
+                    save(entry);
+                    offerRecovered(entry.chatroomId, false);
+                });
+            } else {
+                // Nobody to tell - leave it pending for the next resumePending()
+                Log.w(TAG, "⚠️ Background upload " + entry.id + " paused: " + e.getMessage());
+            }
+        });
+    }
+
+    private void postProgress(String uploadId, int progress) {
+        mainHandler.post(() -> {
+            ImageUploadUtil.ImageUploadListener listener = listeners.get(uploadId);
+            if (listener != null) {
+                listener.onUploadProgress(progress);
+            }
+        });
+    }
+
+    /**
+     * Hand finished uploads nobody is listening for to the chat's RecoveryHandler, a whole batch at a time.
+     * Runs on the journal executor.
+     * @param allowPartial Offer batches with missing images (their encoding never finished)
+     */
+    private void offerRecovered(String chatroomId, boolean allowPartial) {
+        if (!recoveryHandlers.containsKey(chatroomId)) {
+            return;
+        }
+        Map<String, List<UploadJournal.Entry>> groups = new LinkedHashMap<>();
+        for (UploadJournal.Entry entry : loadEntries()) {
+            if (!chatroomId.equals(entry.chatroomId) || claimedIds.contains(entry.id)) {
+                continue;
+            }
+            String key = entry.batchId != null ? entry.batchId : entry.id;
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+        }
+
+        for (List<UploadJournal.Entry> group : groups.values()) {
+            UploadJournal.Entry first = group.get(0);
+            if (first.batchId != null && ownedBatches.contains(first.batchId)) {
+                continue;
+            }
+            boolean settled = true;
+            for (UploadJournal.Entry entry : group) {
+                if (UploadJournal.STATE_PENDING.equals(entry.state) || listeners.containsKey(entry.id)) {
+                    settled = false;
+                    break;
+                }
+            }
+            if (!settled || (!allowPartial && group.size() < first.batchSize)) {
+                continue;
+            }
+
+            List<UploadJournal.Entry> completed = new ArrayList<>();
+            for (UploadJournal.Entry entry : group) {
+                claimedIds.add(entry.id);
+                if (UploadJournal.STATE_COMPLETED.equals(entry.state)) {
+                    completed.add(entry);
+                }
+            }
+            if (completed.isEmpty()) {
+                for (UploadJournal.Entry entry : group) {
+                    delete(entry);
+                }
+                continue;
+            }
+            Collections.sort(completed, (a, b) -> Integer.compare(a.batchIndex, b.batchIndex));
+            mainHandler.post(() -> {
+                RecoveryHandler handler = recoveryHandlers.get(chatroomId);
+                if (handler == null) {
+                    // Chat closed in the meantime - offer again when it reopens
+                    for (UploadJournal.Entry entry : group) {
+                        claimedIds.remove(entry.id);
+                    }
+                    return;
+                }
+                List<String> urls = new ArrayList<>();
+                List<ImageMetadata> metadata = new ArrayList<>();
+                for (UploadJournal.Entry entry : completed) {
+                    urls.add(fullUrl(entry));
+                    metadata.add(toMetadata(entry));
+                }
+                Log.d(TAG, "📤 Recovered " + urls.size() + " uploaded image(s) for " + chatroomId);
+                handler.onImagesRecovered(urls, metadata);
+                journalExecutor.execute(() -> {
+                    for (UploadJournal.Entry entry : group) {
+                        delete(entry);
+                    }
+                });
+            });
+        }
+    }
+
+    private List<UploadJournal.Entry> loadEntries() {
+        synchronized (journal) {
+            return journal.loadAll();
+        }
+    }
+
+    private void save(UploadJournal.Entry entry) {
+        synchronized (journal) {
+            try {
+                journal.save(entry);
+            } catch (IOException e) {
+                // Progress still counts this run; a restart just resumes from an older offset
+                Log.e(TAG, "❌ Could not journal upload " + entry.id, e);
+            }
+        }
+    }
+
+    private void delete(UploadJournal.Entry entry) {
+        synchronized (journal) {
+            journal.delete(entry);
+        }
+        claimedIds.remove(entry.id);
+        cancelledIds.remove(entry.id);
+    }
+
+    private void deleteEntry(String uploadId) {
+        for (UploadJournal.Entry entry : loadEntries()) {
+            if (entry.id.equals(uploadId)) {
+                delete(entry);
+            }
+        }
+    }
+
+    private static String fullUrl(UploadJournal.Entry entry) {
+        for (UploadJournal.Variant variant : entry.variants) {
+            if (variant.suffix.isEmpty()) {
+                return variant.downloadUrl;
+            }
+        }
+        return null;
+    }
+
+    private static ImageMetadata toMetadata(UploadJournal.Entry entry) {
+        Map<String, String> fields = entry.metadata;
+        ImageMetadata metadata = new ImageMetadata(
+                parseInt(fields.get("width")), parseInt(fields.get("height")),
+                parseLong(fields.get("fileSize")), fields.get("fileName"), fields.get("mimeType"));
+        metadata.setUploadTimestamp(parseLong(fields.get("uploadTimestamp")));
+        metadata.setFormat(fields.get("format"));
+        metadata.setQuality(parseInt(fields.get("quality")));
+        metadata.setBlurHash(fields.get("blurHash"));
+        metadata.setDominantColor(parseInt(fields.get("dominantColor")));
+        for (UploadJournal.Variant variant : entry.variants) {
+            if (ImageVariants.MEDIUM_SUFFIX.equals(variant.suffix)) {
+                metadata.setMediumUrl(variant.downloadUrl);
+                metadata.setMediumPath(variant.path);
+            } else if (ImageVariants.THUMBNAIL_SUFFIX.equals(variant.suffix)) {
+                metadata.setThumbnailUrl(variant.downloadUrl);
+                metadata.setThumbnailPath(variant.path);
+            } else {
+                metadata.setStoragePath(variant.path);
+            }
+        }
+        return metadata;
+    }
+
+    private static Map<String, String> metadataToMap(ImageMetadata metadata) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("width", String.valueOf(metadata.getWidth()));
+        fields.put("height", String.valueOf(metadata.getHeight()));
+        fields.put("fileSize", String.valueOf(metadata.getFileSize()));
+        fields.put("fileName", metadata.getFileName());
+        fields.put("mimeType", metadata.getMimeType());
+        fields.put("uploadTimestamp", String.valueOf(metadata.getUploadTimestamp()));
+        fields.put("format", metadata.getFormat());
+        fields.put("quality", String.valueOf(metadata.getQuality()));
+        fields.put("blurHash", metadata.getBlurHash());
+        fields.put("dominantColor", String.valueOf(metadata.getDominantColor()));
+        return fields;
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return value != null ? Integer.parseInt(value) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return value != null ? Long.parseLong(value) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Content paths are per user (storage rules) and per installation below that
+     */
+    private static String ownerId() {
+        String userId = FirebaseUtil.currentUserId();
+        return userId != null ? userId : "anonymous";
+    }
+
+    /**
+     * Random ID of this app installation. The reference counts that decide when a shared image
+     * is deleted (ImageContentIndex) live on one device only, so another device of the same user
+     * must never upload over, or delete, the objects this one's messages point to.
+     */
+    @WorkerThread
+    private String installationId() throws IOException {
+        String id = installationId;
+        if (id != null) {
+            return id;
+        }
+        synchronized (installationIdFile) {
+            if (installationId == null) {
+                if (installationIdFile.exists()) {
+                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                            new FileInputStream(installationIdFile), StandardCharsets.UTF_8))) {
+                        id = reader.readLine();
+                    }
+                }
+                if (id == null || id.trim().isEmpty()) {
+                    id = UUID.randomUUID().toString();
+                    try (OutputStream out = new FileOutputStream(installationIdFile)) {
+                        out.write(id.getBytes(StandardCharsets.UTF_8));
+                    }
+                    Log.d(TAG, "🆔 New upload installation ID: " + id);
+                }
+                installationId = id;
+            }
+            return installationId;
+        }
+    }
+
+    private static String getIdToken(boolean forceRefresh) throws Exception {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            return null;
+        }
+        return Tasks.await(user.getIdToken(forceRefresh)).getToken();
+    }
+}
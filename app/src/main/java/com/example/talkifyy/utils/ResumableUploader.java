@@ -0,0 +1,309 @@
+package com.example.talkifyy.utils;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.function.LongConsumer;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+
+/**
+ * Uploads one file to Firebase Storage with the resumable upload protocol
+ * (X-Goog-Upload-* start / query / upload, finalize), streaming chunks from disk.
+ * The session URI and committed offset live on the UploadJournal.Variant and are
+ * reported through the Listener as soon as they change, so a later run - even in a
+ * new process - continues from the last byte the server confirmed.
+ * Blocking; call from a background thread. Plain Java + OkHttp so it can run against a fake server in tests.
+ */
+class ResumableUploader {
+    static final String FIREBASE_STORAGE_BASE_URL = "https://firebasestorage.googleapis.com/v0/";
+    static final int CHUNK_SIZE = 2 * 256 * 1024; // Server commits in 256KB units
+    static final int MAX_CONSECUTIVE_FAILURES = 6;
+    private static final long MAX_BACKOFF_MS = 15_000;
+    private static final int COPY_BUFFER_SIZE = 16 * 1024;
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    interface TokenProvider {
+        /**
+         * @return Firebase ID token for the Authorization header, or null to send none
+         */
+        String getToken(boolean forceRefresh) throws Exception;
+    }
+
+    interface Listener {
+        /** A new session was opened (or an expired one dropped, with null) - persist it */
+        void onSessionChanged(String sessionUri) throws IOException;
+
+        /** The server confirmed bytes up to this offset - persist it */
+        void onCommitted(long committedBytes) throws IOException;
+
+        /** Bytes handed to the network so far for this file, including the in-flight chunk */
+        void onBytesSent(long bytesSent);
+    }
+
+    interface Cancellation {
+        boolean isCancelled();
+    }
+
+    /**
+     * HTTP-level failure; retryable covers server errors and throttling
+     */
+    static class UploadException extends IOException {
+        final int code;
+
+        UploadException(int code, String message) {
+            super("HTTP " + code + ": " + message);
+            this.code = code;
+        }
+
+        boolean isRetryable() {
+            return code >= 500 || code == 408 || code == 429;
+        }
+
+        boolean isSessionGone() {
+            return code == 404 || code == 410;
+        }
+    }
+
+    private static class Status {
+        final boolean finalized;
+        final long received;
+
+        Status(boolean finalized, long received) {
+            this.finalized = finalized;
+            this.received = received;
+        }
+    }
+
+    private final OkHttpClient client;
+    private final String baseUrl;
+    private final TokenProvider tokenProvider;
+    private final long baseBackoffMs;
+
+    ResumableUploader(OkHttpClient client, String baseUrl, TokenProvider tokenProvider, long baseBackoffMs) {
+        // Never let OkHttp silently resend a chunk; after a drop the offset must be queried first
+        this.client = client.newBuilder().retryOnConnectionFailure(false).build();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        this.tokenProvider = tokenProvider;
+        this.baseBackoffMs = baseBackoffMs;
+    }
+
+    /**
+     * Upload (or finish uploading) one variant. Returns once the server has finalized the object.
+     * @throws IOException after MAX_CONSECUTIVE_FAILURES failures in a row, or a non-retryable error
+     * @throws InterruptedIOException if cancelled
+     */
+    void upload(UploadJournal.Variant variant, String bucket, Listener listener, Cancellation cancellation)
+            throws IOException {
+        int failures = 0;
+        boolean refreshToken = false;
+        while (true) {
+            checkCancelled(cancellation);
+            try {
+                if (variant.sessionUri == null) {
+                    variant.sessionUri = startSession(variant, bucket, refreshToken);
+                    variant.committed = 0;
+                    listener.onSessionChanged(variant.sessionUri);
+                } else {
+                    // Resuming (after a drop or restart) - the server says where it got to
+                    Status status = query(variant.sessionUri, refreshToken);
+                    variant.committed = status.finalized ? variant.length : status.received;
+                    listener.onCommitted(variant.committed);
+                    if (status.finalized) {
+                        return;
+                    }
+                }
+                // The (refreshed) token worked; later requests go back to the cached one
+                refreshToken = false;
+                listener.onBytesSent(variant.committed);
+
+                // A zero-length file still needs one (empty) finalize request
+                do {
+                    checkCancelled(cancellation);
+                    long length = Math.min(CHUNK_SIZE, variant.length - variant.committed);
+                    boolean last = variant.committed + length == variant.length;
+                    long start = variant.committed;
+                    Status status = sendChunk(variant, length, last, refreshToken,
+                            written -> listener.onBytesSent(start + written));
+                    variant.committed += length;
+                    listener.onCommitted(variant.committed);
+                    failures = 0;
+                    refreshToken = false;
+                    if (status.finalized || last) {
+                        return;
+                    }
+                } while (variant.committed < variant.length);
+                return;
+            } catch (UploadException e) {
+                if (e.code == 401 && !refreshToken) {
+                    refreshToken = true;
+                    continue;
+                }
+                if (e.isSessionGone()) {
+                    // Session expired server-side - start over with a fresh one
+                    variant.sessionUri = null;
+                    variant.committed = 0;
+                    listener.onSessionChanged(null);
+                } else if (!e.isRetryable()) {
+                    throw e;
+                }
+                failures = backoff(++failures, e, cancellation);
+            } catch (InterruptedIOException e) {
+                checkCancelled(cancellation);
+                failures = backoff(++failures, e, cancellation);
+            } catch (IOException e) {
+                // Dropped connection / timeout - query the offset and continue
+                failures = backoff(++failures, e, cancellation);
+            }
+        }
+    }
+
+    private int backoff(int failures, IOException cause, Cancellation cancellation) throws IOException {
+        if (failures >= MAX_CONSECUTIVE_FAILURES) {
+            throw cause;
+        }
+        long delay = Math.min(MAX_BACKOFF_MS, baseBackoffMs << (failures - 1));
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Upload interrupted");
+        }
+        checkCancelled(cancellation);
+        return failures;
+    }
+
+    private String startSession(UploadJournal.Variant variant, String bucket, boolean refreshToken) throws IOException {
+        HttpUrl url = HttpUrl.parse(baseUrl + "b/" + bucket + "/o").newBuilder()
+                .addQueryParameter("name", variant.path)
+                .addQueryParameter("uploadType", "resumable")
+                .build();
+        String metadataJson = "{\"name\":" + quote(variant.path) + ",\"contentType\":" + quote(variant.contentType) + "}";
+        Request request = authorized(new Request.Builder().url(url), refreshToken)
+                .header("X-Goog-Upload-Protocol", "resumable")
+                .header("X-Goog-Upload-Command", "start")
+                .header("X-Goog-Upload-Header-Content-Length", String.valueOf(variant.length))
+                .header("X-Goog-Upload-Header-Content-Type", variant.contentType)
+                .post(RequestBody.create(metadataJson, JSON))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            ensureSuccess(response);
+            String sessionUri = response.header("X-Goog-Upload-URL");
+            if (sessionUri == null) {
+                throw new UploadException(response.code(), "No upload session URL in response");
+            }
+            return sessionUri;
+        }
+    }
+
+    private Status query(String sessionUri, boolean refreshToken) throws IOException {
+        Request request = authorized(new Request.Builder().url(sessionUri), refreshToken)
+                .header("X-Goog-Upload-Protocol", "resumable")
+                .header("X-Goog-Upload-Command", "query")
+                .post(RequestBody.create(new byte[0], null))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            ensureSuccess(response);
+            String received = response.header("X-Goog-Upload-Size-Received");
+            return new Status("final".equals(response.header("X-Goog-Upload-Status")),
+                    received != null ? Long.parseLong(received) : 0);
+        }
+    }
+
+    private Status sendChunk(UploadJournal.Variant variant, long length, boolean last, boolean refreshToken,
+                             LongConsumer onWritten) throws IOException {
+        Request request = authorized(new Request.Builder().url(variant.sessionUri), refreshToken)
+                .header("X-Goog-Upload-Protocol", "resumable")
+                .header("X-Goog-Upload-Command", last ? "upload, finalize" : "upload")
+                .header("X-Goog-Upload-Offset", String.valueOf(variant.committed))
+                .post(fileSlice(variant.file, variant.committed, length, onWritten))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            ensureSuccess(response);
+            return new Status("final".equals(response.header("X-Goog-Upload-Status")), variant.committed + length);
+        }
+    }
+
+    private Request.Builder authorized(Request.Builder builder, boolean refreshToken) throws IOException {
+        String token;
+        try {
+            token = tokenProvider.getToken(refreshToken);
+        } catch (Exception e) {
+            throw new IOException("Could not get auth token", e);
+        }
+        if (token != null) {
+            builder.header("Authorization", "Firebase " + token);
+        }
+        return builder;
+    }
+
+    private static void ensureSuccess(Response response) throws UploadException {
+        if (!response.isSuccessful()) {
+            throw new UploadException(response.code(), response.message());
+        }
+    }
+
+    private static void checkCancelled(Cancellation cancellation) throws InterruptedIOException {
+        if (cancellation.isCancelled()) {
+            throw new InterruptedIOException("Upload cancelled");
+        }
+    }
+
+    /**
+     * Request body streaming [offset, offset + length) of a file, reporting bytes written
+     */
+    private static RequestBody fileSlice(File file, long offset, long length, LongConsumer onWritten) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return null;
+            }
+
+            @Override
+            public long contentLength() {
+                return length;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+                    in.seek(offset);
+                    byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                    long written = 0;
+                    while (written < length) {
+                        int read = in.read(buffer, 0, (int) Math.min(buffer.length, length - written));
+                        if (read < 0) {
+                            throw new EOFException("Staged upload file is shorter than recorded: " + file);
+                        }
+                        sink.write(buffer, 0, read);
+                        written += read;
+                        onWritten.accept(written);
+                    }
+                }
+            }
+        };
+    }
+
+    private static String quote(String value) {
+        StringBuilder out = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"').toString();
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.talkifyy.utils;
+
+import android.util.Log;
+
+import com.example.talkifyy.model.ChatroomModel;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unread counts derived from each chatroom's per-user read watermark (lastReadTimestamps),
+ * so they are right on every device and after a reinstall.
+ * - Nothing is queried when the last message is at or before the watermark, or is our own
+ * - Otherwise a count() aggregation runs over the messages after the watermark, capped at
+ *   MAX_COUNTED (the badge shows 99+ anyway)
+ * - When the chat list shows a newer last message, only the messages since the last count
+ *   are counted and added; a moved watermark starts the count over
+ * The badge approximates: the count covers every message after the watermark, including our own
+ * replies and messages deleted for everyone. Filtering those would need composite indexes on
+ * senderId and deletedForEveryone, and the over-count is bounded by our replies since the last
+ * message we read.
+ * Call on the main thread; listeners are called on the main thread.
+ */
+public class UnreadCountCache {
+    private static final String TAG = "UnreadCountCache";
+    static final int MAX_COUNTED = 100;
+
+    private static UnreadCountCache instance;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final List<OnUnreadCountChangedListener> listeners = new ArrayList<>();
+
+    public interface OnUnreadCountChangedListener {
+        void onUnreadCountChanged(String chatroomId, int count);
+    }
+
+    /**
+     * What has been counted for one chatroom
+     */
+    private static class Entry {
+        Timestamp watermark;   // Watermark the count is relative to
+        Timestamp countedUpTo; // Messages up to here are in count
+        int count;
+        int generation;        // Bumped when the count starts over, to drop stale results
+        boolean loading;
+    }
+
+    public static synchronized UnreadCountCache getInstance() {
+        if (instance == null) {
+            instance = new UnreadCountCache();
+        }
+        return instance;
+    }
+
+    private UnreadCountCache() {
+    }
+
+    /**
+     * The count to show now. If the chatroom has moved past what has been counted, a count is
+     * started and listeners hear the result.
+     * @param chatroomId Chat room ID
+     * @param chatroom Latest chatroom document from the chat list
+     */
+    public int getUnreadCount(String chatroomId, ChatroomModel chatroom) {
+        return getUnreadCount(chatroomId, chatroom, FirebaseUtil.currentUserId());
+    }
+
+    /**
+     * Same as {@link #getUnreadCount(String, ChatroomModel)}, for callers that already hold
+     * the signed-in user (binds, which shouldn't go through FirebaseAuth per row)
+     * @param currentUserId Signed-in user ID, or null
+     */
+    public int getUnreadCount(String chatroomId, ChatroomModel chatroom, String currentUserId) {
+        Timestamp watermark = chatroom.lastReadTimestampOf(currentUserId);
+        Timestamp lastMessage = chatroom.getLastMessageTimestamp();
+        Entry entry = entries.get(chatroomId);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(chatroomId, entry);
+        }
+
+        boolean nothingUnread = lastMessage == null
+                || (currentUserId != null && currentUserId.equals(chatroom.getLastMessageSenderId()))
+                || (watermark != null && lastMessage.compareTo(watermark) <= 0);
+        if (nothingUnread) {
+            reset(entry, watermark, lastMessage);
+            return 0;
+        }
+
+        if (!same(entry.watermark, watermark) || entry.countedUpTo == null) {
+            // First look at this chat, or it was read elsewhere: count from the watermark
+            if (!same(entry.watermark, watermark) || !entry.loading) {
+                reset(entry, watermark, null);
+                count(chatroomId, entry, watermark, lastMessage);
+            }
+        } else if (lastMessage.compareTo(entry.countedUpTo) > 0 && !entry.loading) {
+            // New messages since the last count: count just those
+            count(chatroomId, entry, entry.countedUpTo, lastMessage);
+        }
+        return entry.count;
+    }
+
+    /**
+     * The user is looking at the chat: zero its badge at once and advance the watermark with one write.
+     * The watermark is the newest message shown rather than this device's clock, so a clock running
+     * behind the senders' can't leave messages already read counted.
+     * @param chatroomId Chat room ID
+     * @param readUpTo Timestamp of the newest message from someone else on screen, or null if none
+     */
+    public void markRead(String chatroomId, Timestamp readUpTo) {
+        if (chatroomId == null || readUpTo == null || FirebaseUtil.currentUserId() == null) {
+            return;
+        }
+        Entry entry = entries.get(chatroomId);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(chatroomId, entry);
+        }
+        if (entry.watermark != null && readUpTo.compareTo(entry.watermark) <= 0) {
+            return; // Already read this far; never move the watermark back
+        }
+        boolean hadUnread = entry.count > 0;
+        reset(entry, readUpTo, readUpTo);
+        if (hadUnread) {
+            notifyListeners(chatroomId, 0);
+        }
+
+        FirebaseUtil.markChatroomRead(chatroomId, readUpTo)
+                .addOnFailureListener(e -> Log.w(TAG, "⚠️ Failed to advance read watermark for " + chatroomId, e));
+    }
+
+    public void addListener(OnUnreadCountChangedListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(OnUnreadCountChangedListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void reset(Entry entry, Timestamp watermark, Timestamp countedUpTo) {
+        entry.watermark = watermark;
+        entry.countedUpTo = countedUpTo;
+        entry.count = 0;
+        entry.loading = false;
+        entry.generation++;
+    }
+
+    /**
+     * Count the messages in (after, upTo] and add them to the entry
+     */
+    private void count(String chatroomId, Entry entry, Timestamp after, Timestamp upTo) {
+        Query query = FirebaseUtil.getChatroomMessageReference(chatroomId)
+                .whereLessThanOrEqualTo("timestamp", upTo);
+        if (after != null) {
+            query = query.whereGreaterThan("timestamp", after);
+        }
+        int generation = entry.generation;
+        entry.loading = true;
+
+        query.limit(MAX_COUNTED).count().get(AggregateSource.SERVER)
+                .addOnCompleteListener(task -> {
+                    if (entry.generation != generation) {
+                        return; // Read or recounted meanwhile
+                    }
+                    entry.loading = false;
+                    if (!task.isSuccessful()) {
+                        Log.w(TAG, "⚠️ Unread count failed for " + chatroomId, task.getException());
+                        return;
+                    }
+                    entry.count = (int) Math.min(MAX_COUNTED, entry.count + task.getResult().getCount());
+                    entry.countedUpTo = upTo;
+                    Log.d(TAG, "📊 Unread in " + chatroomId + ": " + entry.count);
+                    notifyListeners(chatroomId, entry.count);
+                });
+    }
+
+    private void notifyListeners(String chatroomId, int count) {
+        for (OnUnreadCountChangedListener listener : new ArrayList<>(listeners)) {
+            listener.onUnreadCountChanged(chatroomId, count);
+        }
+    }
+
+    private static boolean same(Timestamp a, Timestamp b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
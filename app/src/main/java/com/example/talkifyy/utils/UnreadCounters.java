@@ -0,0 +1,175 @@
+package com.example.talkifyy.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unread message counts per chat (keyed by chatroom ID for groups, other user's ID for one-on-one).
+ * - Counters are atomic and never removed, so increments from push threads and clears from the
+ *   UI can't lose each other; clearing a chat is a single getAndSet(0)
+ * - Changed chats are marked dirty and written to the Journal on the write executor; a burst of
+ *   increments to one chat collapses into one row write
+ * - Listeners hear about every change on the thread that made it
+ * Plain Java so it can be stress-tested on the JVM.
+ */
+public class UnreadCounters {
+
+    /**
+     * Where counts survive process death
+     */
+    public interface Journal {
+        /** Everything written so far; called once, from the constructor */
+        List<Entry> load();
+        /** Latest state of one chat; a count of 0 means the chat has nothing unread */
+        void write(String key, int count, String lastMessage);
+    }
+
+    public interface Listener {
+        void onUnreadChanged(String key, int count);
+    }
+
+    /**
+     * Point-in-time state of one chat
+     */
+    public static final class Entry {
+        public final String key;
+        public final int count;
+        public final String lastMessage;
+
+        public Entry(String key, int count, String lastMessage) {
+            this.key = key;
+            this.count = count;
+            this.lastMessage = lastMessage;
+        }
+    }
+
+    private static final class Counter {
+        final AtomicInteger count = new AtomicInteger();
+        volatile String lastMessage;
+    }
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Journal journal;
+    private final Executor writeExecutor;
+
+    /**
+     * @param journal Persistent store to restore from and write to, or null to keep counts in memory
+     * @param writeExecutor Runs journal writes; should be single-threaded so rows are written in order
+     */
+    public UnreadCounters(Journal journal, Executor writeExecutor) {
+        this.journal = journal;
+        this.writeExecutor = writeExecutor;
+        if (journal != null) {
+            for (Entry entry : journal.load()) {
+                Counter counter = counter(entry.key);
+                counter.count.set(entry.count);
+                counter.lastMessage = entry.lastMessage;
+            }
+        }
+    }
+
+    /**
+     * Count one more unread message
+     * @return The new count
+     */
+    public int increment(String key, String message) {
+        Counter counter = counter(key);
+        if (message != null) {
+            counter.lastMessage = message;
+        }
+        int count = counter.count.incrementAndGet();
+        changed(key, count);
+        return count;
+    }
+
+    /**
+     * The chat was opened
+     * @return How many messages were unread
+     */
+    public int clear(String key) {
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            return 0;
+        }
+        int previous = counter.count.getAndSet(0);
+        if (previous > 0) {
+            changed(key, 0);
+        }
+        return previous;
+    }
+
+    public void clearAll() {
+        for (String key : counters.keySet()) {
+            clear(key);
+        }
+    }
+
+    public int get(String key) {
+        Counter counter = counters.get(key);
+        return counter != null ? counter.count.get() : 0;
+    }
+
+    /**
+     * Chats with unread messages
+     */
+    public List<Entry> snapshot() {
+        List<Entry> entries = new ArrayList<>();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            int count = entry.getValue().count.get();
+            if (count > 0) {
+                entries.add(new Entry(entry.getKey(), count, entry.getValue().lastMessage));
+            }
+        }
+        return entries;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private Counter counter(String key) {
+        Counter counter = counters.get(key);
+        return counter != null ? counter : counters.computeIfAbsent(key, k -> new Counter());
+    }
+
+    private void changed(String key, int count) {
+        for (Listener listener : listeners) {
+            listener.onUnreadChanged(key, count);
+        }
+        if (journal == null) {
+            return;
+        }
+        dirty.add(key);
+        if (flushScheduled.compareAndSet(false, true)) {
+            writeExecutor.execute(this::flush);
+        }
+    }
+
+    /**
+     * Write the current state of every dirty chat. A change that lands while this runs either
+     * is read here or marks its chat dirty again and schedules another flush.
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        for (String key : dirty) {
+            if (dirty.remove(key)) {
+                Counter counter = counters.get(key);
+                journal.write(key, counter.count.get(), counter.lastMessage);
+            }
+        }
+    }
+}
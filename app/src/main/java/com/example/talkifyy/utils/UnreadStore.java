@@ -0,0 +1,86 @@
+package com.example.talkifyy.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SQLite journal behind UnreadCounters: one row per chat with unread messages, upserted as
+ * counts change and deleted when the chat is read
+ */
+class UnreadStore extends SQLiteOpenHelper implements UnreadCounters.Journal {
+    private static final String TAG = "UnreadStore";
+    private static final String DB_NAME = "unread_counts.db";
+    private static final int DB_VERSION = 1;
+
+    private static final String TABLE_UNREAD = "unread";
+    private static final String COL_KEY = "chat_key";
+    private static final String COL_COUNT = "count";
+    private static final String COL_LAST_MESSAGE = "last_message";
+
+    private static UnreadStore instance;
+
+    static synchronized UnreadStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new UnreadStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private UnreadStore(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_UNREAD + " ("
+                + COL_KEY + " TEXT PRIMARY KEY, "
+                + COL_COUNT + " INTEGER NOT NULL, "
+                + COL_LAST_MESSAGE + " TEXT)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_UNREAD);
+        onCreate(db);
+    }
+
+    @Override
+    public List<UnreadCounters.Entry> load() {
+        List<UnreadCounters.Entry> entries = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE_UNREAD,
+                new String[]{COL_KEY, COL_COUNT, COL_LAST_MESSAGE}, null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                entries.add(new UnreadCounters.Entry(cursor.getString(0), cursor.getInt(1), cursor.getString(2)));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Failed to load unread counts", e);
+        }
+        Log.d(TAG, "📊 Restored unread counts for " + entries.size() + " chats");
+        return entries;
+    }
+
+    @Override
+    public void write(String key, int count, String lastMessage) {
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            if (count == 0) {
+                db.delete(TABLE_UNREAD, COL_KEY + " = ?", new String[]{key});
+                return;
+            }
+            ContentValues values = new ContentValues();
+            values.put(COL_KEY, key);
+            values.put(COL_COUNT, count);
+            values.put(COL_LAST_MESSAGE, lastMessage);
+            db.insertWithOnConflict(TABLE_UNREAD, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Failed to write unread count for " + key, e);
+        }
+    }
+}
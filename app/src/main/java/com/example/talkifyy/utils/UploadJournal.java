@@ -0,0 +1,209 @@
+package com.example.talkifyy.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * On-disk record of image uploads that haven't been handed to a chat yet.
+ * One properties file per upload, holding the variant files still to send,
+ * their Storage session URIs and committed offsets, so an upload can pick up
+ * where it stopped after a dropped connection or a process restart.
+ * Plain Java (no Android types) so it can be unit tested. Not thread-safe; callers serialize access.
+ */
+class UploadJournal {
+    private static final String SUFFIX = ".upload";
+
+    static final String STATE_PENDING = "pending";
+    static final String STATE_COMPLETED = "completed";
+    static final String STATE_FAILED = "failed";
+
+    static class Variant {
+        String suffix;
+        File file;
+        String path; // Storage object path
+        String contentType;
+        long length;
+        String sessionUri; // Resumable session, null until started
+        long committed; // Bytes the server has confirmed
+        String downloadUrl; // Set once this variant is finalized
+    }
+
+    static class Entry {
+        String id;
+        String chatroomId;
+        String batchId; // Shared by the images of one multi-image message, null for a single image
+        int batchIndex;
+        int batchSize = 1;
+        String state = STATE_PENDING;
+        long createdAt;
+        String contentHash; // SHA-256 of the encoded full image, null when re-sending an existing upload
+        String sourceHash; // SHA-256 of the picked file
+        final Map<String, String> metadata = new HashMap<>();
+        final List<Variant> variants = new ArrayList<>();
+
+        long totalBytes() {
+            long total = 0;
+            for (Variant variant : variants) {
+                total += variant.length;
+            }
+            return total;
+        }
+
+        long committedBytes() {
+            long committed = 0;
+            for (Variant variant : variants) {
+                committed += variant.downloadUrl != null ? variant.length : variant.committed;
+            }
+            return committed;
+        }
+    }
+
+    private final File dir;
+
+    UploadJournal(File dir) {
+        this.dir = dir;
+    }
+
+    File getDir() {
+        return dir;
+    }
+
+    void save(Entry entry) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Could not create upload journal directory: " + dir);
+        }
+        Properties props = new Properties();
+        props.setProperty("id", entry.id);
+        props.setProperty("chatroomId", entry.chatroomId);
+        if (entry.batchId != null) {
+            props.setProperty("batchId", entry.batchId);
+        }
+        props.setProperty("batchIndex", String.valueOf(entry.batchIndex));
+        props.setProperty("batchSize", String.valueOf(entry.batchSize));
+        props.setProperty("state", entry.state);
+        props.setProperty("createdAt", String.valueOf(entry.createdAt));
+        if (entry.contentHash != null) {
+            props.setProperty("contentHash", entry.contentHash);
+        }
+        if (entry.sourceHash != null) {
+            props.setProperty("sourceHash", entry.sourceHash);
+        }
+        for (Map.Entry<String, String> field : entry.metadata.entrySet()) {
+            if (field.getValue() != null) {
+                props.setProperty("meta." + field.getKey(), field.getValue());
+            }
+        }
+        props.setProperty("variants", String.valueOf(entry.variants.size()));
+        for (int i = 0; i < entry.variants.size(); i++) {
+            Variant variant = entry.variants.get(i);
+            String prefix = "variant." + i + ".";
+            props.setProperty(prefix + "suffix", variant.suffix);
+            props.setProperty(prefix + "file", variant.file.getPath());
+            props.setProperty(prefix + "path", variant.path);
+            props.setProperty(prefix + "contentType", variant.contentType);
+            props.setProperty(prefix + "length", String.valueOf(variant.length));
+            props.setProperty(prefix + "committed", String.valueOf(variant.committed));
+            if (variant.sessionUri != null) {
+                props.setProperty(prefix + "session", variant.sessionUri);
+            }
+            if (variant.downloadUrl != null) {
+                props.setProperty(prefix + "url", variant.downloadUrl);
+            }
+        }
+
+        // Write-then-rename so a crash mid-write never leaves a truncated record
+        File target = new File(dir, entry.id + SUFFIX);
+        File temp = new File(dir, entry.id + SUFFIX + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            props.store(out, null);
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Could not commit upload journal entry: " + entry.id);
+        }
+    }
+
+    List<Entry> loadAll() {
+        List<Entry> entries = new ArrayList<>();
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return entries;
+        }
+        for (File file : files) {
+            if (!file.getName().endsWith(SUFFIX)) {
+                continue;
+            }
+            try {
+                entries.add(load(file));
+            } catch (Exception e) {
+                // Unreadable record - nothing can be resumed from it
+                file.delete();
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Remove an entry and the staged files it references
+     */
+    void delete(Entry entry) {
+        for (Variant variant : entry.variants) {
+            variant.file.delete();
+        }
+        new File(dir, entry.id + SUFFIX).delete();
+    }
+
+    private static Entry load(File file) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            props.load(in);
+        }
+        Entry entry = new Entry();
+        entry.id = required(props, "id");
+        entry.chatroomId = required(props, "chatroomId");
+        entry.batchId = props.getProperty("batchId");
+        entry.batchIndex = Integer.parseInt(props.getProperty("batchIndex", "0"));
+        entry.batchSize = Integer.parseInt(props.getProperty("batchSize", "1"));
+        entry.state = props.getProperty("state", STATE_PENDING);
+        entry.createdAt = Long.parseLong(props.getProperty("createdAt", "0"));
+        entry.contentHash = props.getProperty("contentHash");
+        entry.sourceHash = props.getProperty("sourceHash");
+        for (String name : props.stringPropertyNames()) {
+            if (name.startsWith("meta.")) {
+                entry.metadata.put(name.substring(5), props.getProperty(name));
+            }
+        }
+        int count = Integer.parseInt(required(props, "variants"));
+        for (int i = 0; i < count; i++) {
+            String prefix = "variant." + i + ".";
+            Variant variant = new Variant();
+            variant.suffix = props.getProperty(prefix + "suffix", "");
+            variant.file = new File(required(props, prefix + "file"));
+            variant.path = required(props, prefix + "path");
+            variant.contentType = required(props, prefix + "contentType");
+            variant.length = Long.parseLong(required(props, prefix + "length"));
+            variant.committed = Long.parseLong(props.getProperty(prefix + "committed", "0"));
+            variant.sessionUri = props.getProperty(prefix + "session");
+            variant.downloadUrl = props.getProperty(prefix + "url");
+            entry.variants.add(variant);
+        }
+        return entry;
+    }
+
+    private static String required(Properties props, String key) throws IOException {
+        String value = props.getProperty(key);
+        if (value == null) {
+            throw new IOException("Upload journal entry missing " + key);
+        }
+        return value;
+    }
+}
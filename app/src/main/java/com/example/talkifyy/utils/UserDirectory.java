@@ -0,0 +1,277 @@
+package com.example.talkifyy.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.example.talkifyy.model.UserModel;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Process-wide cache of user documents used for usernames, avatars and FCM tokens.
+ * - LRU of UserModel keyed by userId, with a TTL
+ * - concurrent requests for the same user collapse into one fetch
+ * - misses are batched into whereIn(documentId) queries
+ * - optional snapshot listeners keep watched users fresh
+ * Callbacks are delivered on the main thread.
+ */
+public class UserDirectory {
+    private static final String TAG = "UserDirectory";
+
+    private static final int MAX_ENTRIES = 500;
+    private static final long ENTRY_TTL_MS = 10 * 60 * 1000L; // 10 minutes
+    private static final long MISSING_TTL_MS = 60 * 1000L; // Deleted/unknown users are re-checked sooner
+    private static final long BATCH_WINDOW_MS = 16; // Collect misses from one frame of binds
+    private static final int WHERE_IN_LIMIT = 30; // Firestore limit for "in" filters
+
+    private static UserDirectory instance;
+
+    public interface OnUserLoadedListener {
+        /**
+         * @param user Cached or freshly loaded user, or null if the user doesn't exist or couldn't be loaded
+         */
+        void onUserLoaded(@Nullable UserModel user);
+    }
+
+    private static class Entry {
+        final UserModel user;
+        final long expiresAt;
+
+        Entry(UserModel user, long ttlMs) {
+            this.user = user;
+            this.expiresAt = SystemClock.elapsedRealtime() + ttlMs;
+        }
+
+        boolean isFresh() {
+            return SystemClock.elapsedRealtime() < expiresAt;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> cache = new LinkedHashMap<String, Entry>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    // userId -> callbacks waiting for the in-flight (or queued) fetch
+    private final Map<String, List<OnUserLoadedListener>> waiters = new HashMap<>();
+    private final Set<String> queuedIds = new HashSet<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private boolean flushScheduled = false;
+
+    public static synchronized UserDirectory getInstance() {
+        if (instance == null) {
+            instance = new UserDirectory();
+        }
+        return instance;
+    }
+
+    private UserDirectory() {
+    }
+
+    /**
+     * Cached user if present and not expired, without triggering a fetch
+     * @param userId User ID
+     * @return cached user or null
+     */
+    @Nullable
+    public synchronized UserModel peek(String userId) {
+        if (userId == null) {
+            return null;
+        }
+        Entry entry = cache.get(userId);
+        return entry != null && entry.isFresh() ? entry.user : null;
+    }
+
+    /**
+     * Get a user, from cache when fresh, otherwise through a batched fetch.
+     * Cache hits call back synchronously.
+     * @param userId User ID
+     * @param listener Result callback (main thread)
+     */
+    public void getUser(String userId, OnUserLoadedListener listener) {
+        if (userId == null || userId.isEmpty()) {
+            listener.onUserLoaded(null);
+            return;
+        }
+
+        Entry entry;
+        synchronized (this) {
+            entry = cache.get(userId);
+            if (entry == null || !entry.isFresh()) {
+                List<OnUserLoadedListener> pending = waiters.get(userId);
+                if (pending != null) {
+                    // Already being fetched - just wait for that result
+                    pending.add(listener);
+                    return;
+                }
+                pending = new ArrayList<>();
+                pending.add(listener);
+                waiters.put(userId, pending);
+                queuedIds.add(userId);
+                scheduleFlush();
+                return;
+            }
+        }
+        listener.onUserLoaded(entry.user);
+    }
+
+    /**
+     * Seed or refresh the cache with a user we already have (e.g. from an intent or listener)
+     * @param user User model with userId set
+     */
+    public synchronized void put(UserModel user) {
+        if (user != null && user.getUserId() != null) {
+            cache.put(user.getUserId(), new Entry(user, ENTRY_TTL_MS));
+        }
+    }
+
+    /**
+     * Drop a cached user so the next lookup fetches fresh data
+     * @param userId User ID
+     */
+    public synchronized void invalidate(String userId) {
+        if (userId != null) {
+            cache.remove(userId);
+        }
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Keep a set of users fresh with snapshot listeners (one query per 30 users)
+     * @param userIds Users to watch, e.g. the members of an open group chat
+     * @return registration that removes all underlying listeners
+     */
+    public ListenerRegistration watchUsers(Collection<String> userIds) {
+        List<String> ids = new ArrayList<>(new HashSet<>(userIds));
+        List<ListenerRegistration> registrations = new ArrayList<>();
+
+        for (int start = 0; start < ids.size(); start += WHERE_IN_LIMIT) {
+            List<String> chunk = ids.subList(start, Math.min(start + WHERE_IN_LIMIT, ids.size()));
+            registrations.add(FirebaseUtil.allUserCollectionReference()
+                    .whereIn(FieldPath.documentId(), new ArrayList<>(chunk))
+                    .addSnapshotListener((snapshots, e) -> {
+                        if (e != null) {
+                            Log.e(TAG, "❌ Error watching users", e);
+                            return;
+                        }
+                        if (snapshots == null) {
+                            return;
+                        }
+                        for (DocumentSnapshot snapshot : snapshots.getDocuments()) {
+                            cacheSnapshot(snapshot.getId(), snapshot);
+                        }
+                    }));
+        }
+
+        Log.d(TAG, "👀 Watching " + ids.size() + " users with " + registrations.size() + " listeners");
+        return () -> {
+            for (ListenerRegistration registration : registrations) {
+                registration.remove();
+            }
+        };
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            mainHandler.postDelayed(this::flushQueued, BATCH_WINDOW_MS);
+        }
+    }
+
+    private void flushQueued() {
+        List<String> ids;
+        synchronized (this) {
+            flushScheduled = false;
+            ids = new ArrayList<>(queuedIds);
+            queuedIds.clear();
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        Log.d(TAG, "📥 Fetching " + ids.size() + " users in batched lookups");
+        for (int start = 0; start < ids.size(); start += WHERE_IN_LIMIT) {
+            fetchChunk(new ArrayList<>(ids.subList(start, Math.min(start + WHERE_IN_LIMIT, ids.size()))));
+        }
+    }
+
+    private void fetchChunk(List<String> chunk) {
+        FirebaseUtil.allUserCollectionReference()
+                .whereIn(FieldPath.documentId(), chunk)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    Set<String> found = new HashSet<>();
+                    for (DocumentSnapshot snapshot : snapshots.getDocuments()) {
+                        found.add(snapshot.getId());
+                        deliver(snapshot.getId(), cacheSnapshot(snapshot.getId(), snapshot));
+                    }
+                    // Remember users that don't exist so deleted profiles don't refetch on every bind
+                    for (String userId : chunk) {
+                        if (!found.contains(userId)) {
+                            synchronized (this) {
+                                cache.put(userId, new Entry(null, MISSING_TTL_MS));
+                            }
+                            deliver(userId, null);
+                        }
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "❌ Failed to fetch users: " + chunk, e);
+                    for (String userId : chunk) {
+                        deliver(userId, null);
+                    }
+                });
+    }
+
+    private UserModel cacheSnapshot(String userId, DocumentSnapshot snapshot) {
+        UserModel user = null;
+        try {
+            user = snapshot.exists() ? snapshot.toObject(UserModel.class) : null;
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Error parsing user: " + userId, e);
+        }
+        if (user != null && user.getUserId() == null) {
+            user.setUserId(userId);
+        }
+        synchronized (this) {
+            cache.put(userId, new Entry(user, user != null ? ENTRY_TTL_MS : MISSING_TTL_MS));
+        }
+        return user;
+    }
+
+    private void deliver(String userId, UserModel user) {
+        List<OnUserLoadedListener> pending;
+        synchronized (this) {
+            pending = waiters.remove(userId);
+        }
+        if (pending == null) {
+            return;
+        }
+        for (OnUserLoadedListener listener : pending) {
+            try {
+                listener.onUserLoaded(user);
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Error in user callback for: " + userId, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.talkifyy.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * FcmSender fan-out through a bounded shared client against a local fake of the FCM endpoint
+ * that records every push and how many were in flight at once.
+ */
+public class FcmSenderTest {
+    private static final String SERVER_KEY = "test-key";
+    private static final int RECIPIENTS = 200;
+    private static final int MAX_REQUESTS_PER_HOST = 4;
+
+    private FakeFcmServer server;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new FakeFcmServer();
+        client = HttpClients.create(HttpClients.MAX_REQUESTS, MAX_REQUESTS_PER_HOST);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    @Test
+    public void fanOutDeliversEveryPushWithinConcurrencyLimit() throws Exception {
+        FcmSender sender = new FcmSender(client, server.url(), SERVER_KEY);
+        RecordingListener listener = new RecordingListener(RECIPIENTS);
+
+        for (int i = 0; i < RECIPIENTS; i++) {
+            sender.send(groupMessage("token-" + i), listener);
+        }
+
+        assertTrue("fan-out timed out", listener.done.await(30, TimeUnit.SECONDS));
+        assertEquals(RECIPIENTS, listener.sent.get());
+        assertEquals(0, listener.failed.get());
+        assertEquals(RECIPIENTS, server.tokens.size());
+        assertEquals("every push must carry the server key", 0, server.badAuth.get());
+        assertTrue("peak concurrency " + server.peakInFlight.get() + " exceeds the per-host limit",
+                server.peakInFlight.get() <= MAX_REQUESTS_PER_HOST);
+        assertTrue("fan-out should overlap requests", server.peakInFlight.get() > 1);
+    }
+
+    @Test
+    public void rejectedTokensAreReported() throws Exception {
+        server.rejectedTokens.add("token-3");
+        server.rejectedTokens.add("token-7");
+        FcmSender sender = new FcmSender(client, server.url(), SERVER_KEY);
+        RecordingListener listener = new RecordingListener(10);
+
+        for (int i = 0; i < 10; i++) {
+            sender.send(groupMessage("token-" + i), listener);
+        }
+
+        assertTrue("fan-out timed out", listener.done.await(10, TimeUnit.SECONDS));
+        assertEquals(8, listener.sent.get());
+        assertEquals(2, listener.rejected.size());
+        assertTrue(listener.rejected.contains("token-3"));
+        assertTrue(listener.rejected.contains("token-7"));
+    }
+
+    @Test
+    public void payloadEscapesUserText() {
+        FcmSender.Message message = new FcmSender.Message("tok", "Team \"A\"", "Bob: line1\nline2\\")
+                .put("chatId", "group_1")
+                .put("isGroup", "true");
+
+        assertEquals("{\"to\":\"tok\","
+                        + "\"notification\":{\"title\":\"Team \\\"A\\\"\",\"body\":\"Bob: line1\\nline2\\\\\","
+                        + "\"icon\":\"chat_icon\",\"sound\":\"default\"},"
+                        + "\"data\":{\"chatId\":\"group_1\",\"isGroup\":\"true\"}}",
+                FcmSender.toJson(message));
+    }
+
+    private static FcmSender.Message groupMessage(String token) {
+        return new FcmSender.Message(token, "Group", "Alice: hi")
+                .put("senderName", "Alice")
+                .put("message", "hi")
+                .put("chatId", "group_1")
+                .put("type", "chat_message")
+                .put("isGroup", "true")
+                .put("groupName", "Group");
+    }
+
+    private static class RecordingListener implements FcmSender.Listener {
+        final CountDownLatch done;
+        final AtomicInteger sent = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final List<String> rejected = new CopyOnWriteArrayList<>();
+
+        RecordingListener(int expected) {
+            done = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onSent(FcmSender.Message message, String responseBody) {
+            sent.incrementAndGet();
+            done.countDown();
+        }
+
+        @Override
+        public void onTokenRejected(FcmSender.Message message, String responseBody) {
+            rejected.add(message.token);
+            done.countDown();
+        }
+
+        @Override
+        public void onFailed(FcmSender.Message message, Exception e) {
+            failed.incrementAndGet();
+            done.countDown();
+        }
+    }
+
+    /**
+     * Accepts legacy FCM sends on many threads, holding each briefly so overlap is observable
+     */
+    private static class FakeFcmServer {
+        final Set<String> tokens = ConcurrentHashMap.newKeySet();
+        final Set<String> rejectedTokens = ConcurrentHashMap.newKeySet();
+        final AtomicInteger badAuth = new AtomicInteger();
+        final AtomicInteger peakInFlight = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+        private final HttpServer httpServer;
+
+        FakeFcmServer() throws IOException {
+            httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            httpServer.createContext("/fcm/send", this::handleSend);
+            httpServer.setExecutor(executor);
+            httpServer.start();
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + httpServer.getAddress().getPort() + "/fcm/send";
+        }
+
+        void stop() {
+            httpServer.stop(0);
+            executor.shutdownNow();
+        }
+
+        private void handleSend(HttpExchange exchange) throws IOException {
+            int now = inFlight.incrementAndGet();
+            peakInFlight.accumulateAndGet(now, Math::max);
+            int code;
+            String response;
+            try {
+                if (!("key=" + SERVER_KEY).equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                    badAuth.incrementAndGet();
+                }
+                String body = new String(readAll(exchange.getRequestBody()), StandardCharsets.UTF_8);
+                String token = body.substring(body.indexOf("\"to\":\"") + 6, body.indexOf("\",\"notification\""));
+                boolean wellFormed = body.contains("\"title\":\"Group\"") && body.contains("\"body\":\"Alice: hi\"")
+                        && body.contains("\"chatId\":\"group_1\"") && body.contains("\"isGroup\":\"true\"");
+                Thread.sleep(5);
+
+                if (!wellFormed) {
+                    code = 400;
+                    response = "{\"error\":\"malformed\"}";
+                } else if (rejectedTokens.contains(token)) {
+                    code = 200;
+                    response = "{\"success\":0,\"failure\":1,\"results\":[{\"error\":\"NotRegistered\"}]}";
+                } else {
+                    tokens.add(token);
+                    code = 200;
+                    response = "{\"success\":1,\"failure\":0,\"results\":[{\"message_id\":\"m\"}]}";
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                code = 503;
+                response = "";
+            } finally {
+                // Before responding, so the client's next call can't overlap this one in the count
+                inFlight.decrementAndGet();
+            }
+            respond(exchange, code, response);
+        }
+
+        private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(code, bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+
+        private static byte[] readAll(InputStream in) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
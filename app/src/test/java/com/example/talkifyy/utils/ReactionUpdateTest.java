@@ -0,0 +1,136 @@
+package com.example.talkifyy.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reaction toggles from many users at once. The fake document applies each write atomically
+ * like Firestore does; what matters is what each client sends.
+ */
+public class ReactionUpdateTest {
+    private static final int USERS = 50;
+    private static final String EMOJI = "👍";
+
+    @Test
+    public void concurrentAtomicTogglesLoseNoReactions() throws Exception {
+        FakeMessageDocument document = new FakeMessageDocument();
+        Map<String, List<String>> seenByEveryone = document.read(); // All users tap on the same stale view
+
+        runConcurrently(userId -> document.apply(ReactionUpdate.toggle(seenByEveryone, EMOJI, userId)));
+
+        Map<String, List<String>> result = document.read();
+        assertEquals(USERS, result.get(EMOJI).size());
+        assertEquals(USERS, new HashSet<>(result.get(EMOJI)).size());
+    }
+
+    @Test
+    public void concurrentAtomicUnreactsLeaveNothingBehind() throws Exception {
+        FakeMessageDocument document = new FakeMessageDocument();
+        for (int i = 0; i < USERS; i++) {
+            document.apply(new ReactionUpdate(EMOJI, "user" + i, true));
+        }
+        Map<String, List<String>> seenByEveryone = document.read();
+
+        runConcurrently(userId -> document.apply(ReactionUpdate.toggle(seenByEveryone, EMOJI, userId)));
+
+        assertFalse(document.read().containsKey(EMOJI));
+    }
+
+    @Test
+    public void readModifyWriteLosesConcurrentReactions() throws Exception {
+        // The old approach: get() the map, add yourself, write the whole map back
+        FakeMessageDocument document = new FakeMessageDocument();
+        CyclicBarrier allRead = new CyclicBarrier(USERS);
+
+        runConcurrently(userId -> {
+            Map<String, List<String>> copy = document.read();
+            allRead.await(10, TimeUnit.SECONDS);
+            new ReactionUpdate(EMOJI, userId, true).applyTo(copy);
+            document.overwrite(copy);
+        });
+
+        assertTrue(document.read().get(EMOJI).size() < USERS);
+    }
+
+    @Test
+    public void applyMirrorsArrayUnionAndRemove() {
+        Map<String, List<String>> reactions = new HashMap<>();
+        ReactionUpdate add = new ReactionUpdate(EMOJI, "a", true);
+        assertTrue(add.applyTo(reactions));
+        assertFalse("arrayUnion is idempotent", add.applyTo(reactions));
+        assertTrue(add.isReflectedIn(reactions));
+
+        ReactionUpdate remove = ReactionUpdate.toggle(reactions, EMOJI, "a");
+        assertFalse(remove.add);
+        assertTrue(remove.applyTo(reactions));
+        assertFalse("arrayRemove is idempotent", remove.applyTo(reactions));
+        assertFalse(reactions.containsKey(EMOJI));
+    }
+
+    private interface UserAction {
+        void run(String userId) throws Exception;
+    }
+
+    private static void runConcurrently(UserAction action) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(USERS);
+        CyclicBarrier start = new CyclicBarrier(USERS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < USERS; i++) {
+                String userId = "user" + i;
+                futures.add(executor.submit(() -> {
+                    start.await(10, TimeUnit.SECONDS);
+                    action.run(userId);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A message document: each write is applied atomically, reads return a copy
+     */
+    private static class FakeMessageDocument {
+        private final Map<String, List<String>> reactions = new HashMap<>();
+
+        synchronized Map<String, List<String>> read() {
+            Map<String, List<String>> copy = new HashMap<>();
+            for (Map.Entry<String, List<String>> entry : reactions.entrySet()) {
+                copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+            return copy;
+        }
+
+        /** update(reactions.{emoji}: arrayUnion/arrayRemove) */
+        synchronized void apply(ReactionUpdate update) {
+            update.applyTo(reactions);
+        }
+
+        /** update(reactions: wholeMap) */
+        synchronized void overwrite(Map<String, List<String>> newReactions) {
+            reactions.clear();
+            for (Map.Entry<String, List<String>> entry : newReactions.entrySet()) {
+                reactions.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.talkifyy.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * ResumableUploader against a local fake of the Storage resumable protocol that
+ * keeps a random prefix of some chunks and then drops the connection.
+ */
+public class ResumableUploaderTest {
+    private static final String BUCKET = "test-bucket";
+    private static final int FILE_SIZE = 3 * 1024 * 1024 + 123; // Not a multiple of the chunk size
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private FakeStorageServer server;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new FakeStorageServer(new Random(42), 0.3);
+        client = new OkHttpClient();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    @Test
+    public void uploadSurvivesDroppedConnections() throws Exception {
+        byte[] data = randomBytes(FILE_SIZE, 1);
+        UploadJournal.Variant variant = stagedVariant(data);
+        RecordingListener listener = new RecordingListener(null, null);
+
+        newUploader().upload(variant, BUCKET, listener, () -> false);
+
+        assertTrue("fake server should have dropped some chunks", server.drops.get() > 0);
+        assertEquals(1, server.sessionStarts.get());
+        assertArrayEquals(data, server.finalizedObject(variant.path));
+        assertEquals(FILE_SIZE, variant.committed);
+        assertEquals(FILE_SIZE, listener.maxBytesSent);
+    }
+
+    @Test
+    public void uploadResumesFromJournalAfterRestart() throws Exception {
+        byte[] data = randomBytes(FILE_SIZE, 2);
+        File journalDir = tempFolder.newFolder("journal");
+        UploadJournal journal = new UploadJournal(journalDir);
+        UploadJournal.Entry entry = new UploadJournal.Entry();
+        entry.id = "upload-1";
+        entry.chatroomId = "room";
+        entry.variants.add(stagedVariant(data));
+        journal.save(entry);
+
+        // First "process": killed once the server has confirmed at least one chunk
+        RecordingListener firstRun = new RecordingListener(journal, entry);
+        try {
+            newUploader().upload(entry.variants.get(0), BUCKET, firstRun,
+                    () -> firstRun.committed >= ResumableUploader.CHUNK_SIZE);
+            fail("upload should have been interrupted");
+        } catch (InterruptedIOException expected) {
+            // Process died
+        }
+
+        // Second "process": only what was journaled survives
+        List<UploadJournal.Entry> reloaded = new UploadJournal(journalDir).loadAll();
+        assertEquals(1, reloaded.size());
+        UploadJournal.Entry resumed = reloaded.get(0);
+        UploadJournal.Variant variant = resumed.variants.get(0);
+        assertNotNull(variant.sessionUri);
+        assertTrue(variant.committed >= ResumableUploader.CHUNK_SIZE);
+
+        int uploadRequestsBefore = server.uploadRequests.get();
+        newUploader().upload(variant, BUCKET, new RecordingListener(journal, resumed), () -> false);
+
+        assertEquals("resume must reuse the journaled session", 1, server.sessionStarts.get());
+        assertArrayEquals(data, server.finalizedObject(variant.path));
+        int chunksLeft = (int) Math.ceil((FILE_SIZE - (double) ResumableUploader.CHUNK_SIZE) / ResumableUploader.CHUNK_SIZE);
+        assertTrue("resume must not resend confirmed chunks",
+                server.uploadRequests.get() - uploadRequestsBefore <= chunksLeft + server.drops.get());
+    }
+
+    @Test
+    public void journalRoundTripsEntries() throws Exception {
+        File journalDir = tempFolder.newFolder("journal");
+        UploadJournal journal = new UploadJournal(journalDir);
+        UploadJournal.Entry entry = new UploadJournal.Entry();
+        entry.id = "upload-2";
+        entry.chatroomId = "room";
+        entry.batchId = "batch";
+        entry.batchIndex = 2;
+        entry.batchSize = 3;
+        entry.state = UploadJournal.STATE_COMPLETED;
+        entry.metadata.put("blurHash", "LEHV6nWB2yk8pyo0adR*.7kCMdnj");
+        UploadJournal.Variant variant = stagedVariant(randomBytes(10, 3));
+        variant.sessionUri = "http://localhost/session/1";
+        variant.committed = 10;
+        variant.downloadUrl = "https://example.com/image.webp?alt=media&token=abc";
+        entry.variants.add(variant);
+        journal.save(entry);
+
+        UploadJournal.Entry loaded = new UploadJournal(journalDir).loadAll().get(0);
+        assertEquals("batch", loaded.batchId);
+        assertEquals(2, loaded.batchIndex);
+        assertEquals(3, loaded.batchSize);
+        assertEquals(UploadJournal.STATE_COMPLETED, loaded.state);
+        assertEquals("LEHV6nWB2yk8pyo0adR*.7kCMdnj", loaded.metadata.get("blurHash"));
+        assertEquals(variant.sessionUri, loaded.variants.get(0).sessionUri);
+        assertEquals(variant.downloadUrl, loaded.variants.get(0).downloadUrl);
+        assertEquals(10, loaded.committedBytes());
+
+        journal.delete(loaded);
+        assertTrue(new UploadJournal(journalDir).loadAll().isEmpty());
+        assertTrue(!variant.file.exists());
+    }
+
+    private ResumableUploader newUploader() {
+        return new ResumableUploader(client, server.baseUrl(), forceRefresh -> "test-token", 1);
+    }
+
+    private UploadJournal.Variant stagedVariant(byte[] data) throws IOException {
+        File file = tempFolder.newFile();
+        Files.write(file.toPath(), data);
+        UploadJournal.Variant variant = new UploadJournal.Variant();
+        variant.suffix = "";
+        variant.file = file;
+        variant.path = "chat_images/room/" + file.getName() + ".webp";
+        variant.contentType = "image/webp";
+        variant.length = data.length;
+        return variant;
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static class RecordingListener implements ResumableUploader.Listener {
+        private final UploadJournal journal;
+        private final UploadJournal.Entry entry;
+        volatile long committed;
+        volatile long maxBytesSent;
+
+        RecordingListener(UploadJournal journal, UploadJournal.Entry entry) {
+            this.journal = journal;
+            this.entry = entry;
+        }
+
+        @Override
+        public void onSessionChanged(String sessionUri) throws IOException {
+            persist();
+        }
+
+        @Override
+        public void onCommitted(long committedBytes) throws IOException {
+            committed = committedBytes;
+            persist();
+        }
+
+        @Override
+        public void onBytesSent(long bytesSent) {
+            maxBytesSent = Math.max(maxBytesSent, bytesSent);
+        }
+
+        private void persist() throws IOException {
+            if (journal != null) {
+                journal.save(entry);
+            }
+        }
+    }
+
+    /**
+     * Minimal X-Goog-Upload resumable server. Upload requests are sometimes cut short:
+     * a random prefix of the chunk is kept and the connection closed without a response.
+     */
+    private static class FakeStorageServer {
+        final AtomicInteger sessionStarts = new AtomicInteger();
+        final AtomicInteger uploadRequests = new AtomicInteger();
+        final AtomicInteger drops = new AtomicInteger();
+        private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+        private final Random random;
+        private final double dropRate;
+        private final HttpServer httpServer;
+
+        private static class Session {
+            final String name;
+            final ByteArrayOutputStream received = new ByteArrayOutputStream();
+            boolean finalized;
+
+            Session(String name) {
+                this.name = name;
+            }
+        }
+
+        FakeStorageServer(Random random, double dropRate) throws IOException {
+            this.random = random;
+            this.dropRate = dropRate;
+            httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            httpServer.createContext("/v0/b/", this::handleStart);
+            httpServer.createContext("/session/", this::handleSession);
+            httpServer.start();
+        }
+
+        String baseUrl() {
+            return "http://127.0.0.1:" + httpServer.getAddress().getPort() + "/v0/";
+        }
+
+        void stop() {
+            httpServer.stop(0);
+        }
+
+        byte[] finalizedObject(String name) {
+            for (Session session : sessions.values()) {
+                if (session.finalized && session.name.equals(name)) {
+                    return session.received.toByteArray();
+                }
+            }
+            return null;
+        }
+
+        private void handleStart(HttpExchange exchange) throws IOException {
+            readAll(exchange.getRequestBody());
+            if (!"start".equals(exchange.getRequestHeaders().getFirst("X-Goog-Upload-Command"))) {
+                respond(exchange, 400);
+                return;
+            }
+            String query = exchange.getRequestURI().getQuery();
+            String name = query.substring(query.indexOf("name=") + 5, query.indexOf('&'));
+            String id = String.valueOf(sessionStarts.incrementAndGet());
+            sessions.put(id, new Session(name));
+            exchange.getResponseHeaders().set("X-Goog-Upload-URL",
+                    "http://127.0.0.1:" + httpServer.getAddress().getPort() + "/session/" + id);
+            exchange.getResponseHeaders().set("X-Goog-Upload-Status", "active");
+            respond(exchange, 200);
+        }
+
+        private void handleSession(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            Session session = sessions.get(path.substring(path.lastIndexOf('/') + 1));
+            if (session == null) {
+                readAll(exchange.getRequestBody());
+                respond(exchange, 404);
+                return;
+            }
+            String command = exchange.getRequestHeaders().getFirst("X-Goog-Upload-Command");
+            if ("query".equals(command)) {
+                readAll(exchange.getRequestBody());
+                sendStatus(exchange, session);
+                return;
+            }
+
+            uploadRequests.incrementAndGet();
+            long offset = Long.parseLong(exchange.getRequestHeaders().getFirst("X-Goog-Upload-Offset"));
+            byte[] chunk = readAll(exchange.getRequestBody());
+            synchronized (session) {
+                if (session.finalized || offset != session.received.size()) {
+                    respond(exchange, 400);
+                    return;
+                }
+                boolean drop;
+                synchronized (random) {
+                    drop = random.nextDouble() < dropRate;
+                }
+                if (drop) {
+                    // Keep whatever "arrived" before the connection died, then kill it
+                    int kept;
+                    synchronized (random) {
+                        kept = chunk.length == 0 ? 0 : random.nextInt(chunk.length);
+                    }
+                    session.received.write(chunk, 0, kept);
+                    drops.incrementAndGet();
+                    throw new IOException("Simulated connection drop after " + kept + " bytes");
+                }
+                session.received.write(chunk, 0, chunk.length);
+                if (command != null && command.contains("finalize")) {
+                    session.finalized = true;
+                }
+            }
+            sendStatus(exchange, session);
+        }
+
+        private void sendStatus(HttpExchange exchange, Session session) throws IOException {
+            exchange.getResponseHeaders().set("X-Goog-Upload-Status", session.finalized ? "final" : "active");
+            exchange.getResponseHeaders().set("X-Goog-Upload-Size-Received", String.valueOf(session.received.size()));
+            respond(exchange, 200);
+        }
+
+        private static void respond(HttpExchange exchange, int code) throws IOException {
+            exchange.sendResponseHeaders(code, -1);
+            exchange.close();
+        }
+
+        private static byte[] readAll(InputStream in) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.talkifyy.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * UnreadCounters under many threads counting, clearing and persisting at once.
+ */
+public class UnreadCountersTest {
+    private static final int THREADS = 8;
+    private static final int INCREMENTS_PER_THREAD = 20000;
+    private static final int CHATS = 16;
+
+    private ExecutorService writeExecutor;
+    private MemoryJournal journal;
+
+    @Before
+    public void setUp() {
+        writeExecutor = Executors.newSingleThreadExecutor();
+        journal = new MemoryJournal();
+    }
+
+    @After
+    public void tearDown() {
+        writeExecutor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentIncrementsAreNotLost() throws Exception {
+        UnreadCounters counters = new UnreadCounters(journal, writeExecutor);
+        AtomicInteger notifications = new AtomicInteger();
+        counters.addListener((key, count) -> notifications.incrementAndGet());
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < INCREMENTS_PER_THREAD; i++) {
+                counters.increment(chat(i), "message " + i);
+            }
+        });
+
+        long total = 0;
+        for (int c = 0; c < CHATS; c++) {
+            total += counters.get(chat(c));
+        }
+        assertEquals((long) THREADS * INCREMENTS_PER_THREAD, total);
+        assertEquals(THREADS * INCREMENTS_PER_THREAD, notifications.get());
+    }
+
+    @Test
+    public void clearsRacingIncrementsLoseNothing() throws Exception {
+        UnreadCounters counters = new UnreadCounters(journal, writeExecutor);
+        AtomicLong cleared = new AtomicLong();
+        AtomicBoolean incrementing = new AtomicBoolean(true);
+
+        Thread clearer = new Thread(() -> {
+            int c = 0;
+            while (incrementing.get()) {
+                cleared.addAndGet(counters.clear(chat(c++)));
+            }
+        });
+        clearer.start();
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < INCREMENTS_PER_THREAD; i++) {
+                counters.increment(chat(i), null);
+            }
+        });
+        incrementing.set(false);
+        clearer.join();
+
+        long remaining = 0;
+        for (int c = 0; c < CHATS; c++) {
+            remaining += counters.get(chat(c));
+        }
+        assertTrue("clearer should have raced the increments", cleared.get() > 0);
+        assertEquals((long) THREADS * INCREMENTS_PER_THREAD, cleared.get() + remaining);
+    }
+
+    @Test
+    public void journalConvergesAndSurvivesRestart() throws Exception {
+        UnreadCounters counters = new UnreadCounters(journal, writeExecutor);
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < INCREMENTS_PER_THREAD; i++) {
+                counters.increment(chat(i), "latest " + thread);
+                if (thread == 0 && i % 1000 == 0) {
+                    counters.clear(chat(i + 1));
+                }
+            }
+        });
+        counters.clear(chat(0));
+        drainWrites();
+
+        assertTrue("bursts should collapse into fewer row writes, got " + journal.writes.get(),
+                journal.writes.get() < THREADS * INCREMENTS_PER_THREAD);
+        for (int c = 0; c < CHATS; c++) {
+            int count = counters.get(chat(c));
+            MemoryJournal.Row row = journal.rows.get(chat(c));
+            assertEquals(count, row != null ? row.count : 0);
+        }
+
+        // A new process sees what the old one wrote
+        UnreadCounters restarted = new UnreadCounters(journal, Executors.newSingleThreadExecutor());
+        for (int c = 0; c < CHATS; c++) {
+            assertEquals(counters.get(chat(c)), restarted.get(chat(c)));
+        }
+        assertEquals(0, restarted.get(chat(0)));
+        assertEquals(CHATS - 1, restarted.snapshot().size());
+    }
+
+    private void drainWrites() throws InterruptedException {
+        writeExecutor.shutdown();
+        assertTrue(writeExecutor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private static String chat(int i) {
+        return "chat-" + (i % CHATS);
+    }
+
+    private interface Work {
+        void run(int thread);
+    }
+
+    private static void runConcurrently(int threads, Work work) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                work.run(thread);
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private static class MemoryJournal implements UnreadCounters.Journal {
+        static class Row {
+            final int count;
+            final String lastMessage;
+
+            Row(int count, String lastMessage) {
+                this.count = count;
+                this.lastMessage = lastMessage;
+            }
+        }
+
+        final Map<String, Row> rows = new ConcurrentHashMap<>();
+        final AtomicInteger writes = new AtomicInteger();
+
+        @Override
+        public List<UnreadCounters.Entry> load() {
+            List<UnreadCounters.Entry> entries = new ArrayList<>();
+            for (Map.Entry<String, Row> row : rows.entrySet()) {
+                entries.add(new UnreadCounters.Entry(row.getKey(), row.getValue().count, row.getValue().lastMessage));
+            }
+            return entries;
+        }
+
+        @Override
+        public void write(String key, int count, String lastMessage) {
+            writes.incrementAndGet();
+            if (count == 0) {
+                rows.remove(key);
+            } else {
+                rows.put(key, new Row(count, lastMessage));
+            }
+        }
+    }
+}